@@ -0,0 +1,194 @@
+package datawave.ingest.table.balancer;
+
+import com.google.common.collect.Iterables;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.core.master.thrift.TabletServerStatus;
+import org.apache.accumulo.core.util.Pair;
+import org.apache.accumulo.server.master.state.TServerInstance;
+import org.apache.accumulo.server.master.state.TabletMigration;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Replays the tablet load snapshots recorded by the {@link LoadAwareShardedTableTabletBalancer} offline, and reports for each snapshot the migrations the
+ * balancer would make and the spread of the tablet server loads before and after them. This allows the weights and tolerance of the balancer to be tried
+ * against the real load of a cluster, such as the rollover to a new day, without touching the cluster.
+ * <p>
+ * Usage: {@code LoadAwareBalancerSimulator snapshotFile [maxPasses]}, where lines of the file that are not snapshot lines are ignored.
+ */
+public class LoadAwareBalancerSimulator {
+    
+    private final int maxPasses;
+    private final PrintStream out;
+    
+    public LoadAwareBalancerSimulator(int maxPasses, PrintStream out) {
+        this.maxPasses = maxPasses;
+        this.out = out;
+    }
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: " + LoadAwareBalancerSimulator.class.getSimpleName() + " snapshotFile [maxPasses]");
+            System.exit(1);
+        }
+        int maxPasses = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        LoadAwareBalancerSimulator simulator = new LoadAwareBalancerSimulator(maxPasses, System.out);
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+            simulator.replay(readSnapshots(reader));
+        }
+    }
+    
+    /**
+     * Reads the snapshot lines, grouping them by table and timestamp
+     */
+    public static SortedMap<String,SortedMap<Long,List<TabletLoad>>> readSnapshots(BufferedReader reader) throws IOException {
+        SortedMap<String,SortedMap<Long,List<TabletLoad>>> snapshots = new TreeMap<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            TabletLoad load;
+            try {
+                load = TabletLoad.parse(line.trim());
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            SortedMap<Long,List<TabletLoad>> tableSnapshots = snapshots.get(load.getExtent().getTableId());
+            if (tableSnapshots == null) {
+                tableSnapshots = new TreeMap<>();
+                snapshots.put(load.getExtent().getTableId(), tableSnapshots);
+            }
+            List<TabletLoad> loads = tableSnapshots.get(load.getTimestamp());
+            if (loads == null) {
+                loads = new ArrayList<>();
+                tableSnapshots.put(load.getTimestamp(), loads);
+            }
+            loads.add(load);
+        }
+        return snapshots;
+    }
+    
+    public void replay(SortedMap<String,SortedMap<Long,List<TabletLoad>>> snapshots) {
+        for (Map.Entry<String,SortedMap<Long,List<TabletLoad>>> table : snapshots.entrySet()) {
+            for (Map.Entry<Long,List<TabletLoad>> snapshot : table.getValue().entrySet()) {
+                replay(table.getKey(), snapshot.getKey(), snapshot.getValue());
+            }
+        }
+    }
+    
+    /**
+     * Balances one snapshot for up to the maximum number of passes, moving the loads with the migrations of each pass
+     * 
+     * @return the migrations of all passes
+     */
+    public List<TabletMigration> replay(String tableId, long timestamp, List<TabletLoad> loads) {
+        SimulatedBalancer balancer = new SimulatedBalancer(tableId, loads);
+        double[] before = balancer.getSpread();
+        List<TabletMigration> migrations = new ArrayList<>();
+        int passes = 0;
+        while (passes < maxPasses) {
+            List<TabletMigration> migrationsOut = new ArrayList<>();
+            balancer.balance(balancer.getCurrent(), new HashSet<>(), migrationsOut);
+            ++passes;
+            if (migrationsOut.isEmpty())
+                break;
+            balancer.applyMigrations(migrationsOut);
+            migrations.addAll(migrationsOut);
+        }
+        double[] after = balancer.getSpread();
+        out.printf("%s %d: %d tservers, %d tablets, %d migrations in %d passes, load min/avg/max %.4f/%.4f/%.4f -> %.4f/%.4f/%.4f%n", tableId, timestamp,
+                        balancer.getCurrent().size(), loads.size(), migrations.size(), passes, before[0], before[1], before[2], after[0], after[1], after[2]);
+        return migrations;
+    }
+    
+    /**
+     * A balancer over the tablets and loads of a snapshot, with the tablets moved by each pass carrying their loads with them
+     */
+    private static class SimulatedBalancer extends LoadAwareShardedTableTabletBalancer {
+        private final SortedMap<KeyExtent,TServerInstance> locations = new TreeMap<>();
+        private final Map<KeyExtent,TabletLoad> loads = new HashMap<>();
+        
+        public SimulatedBalancer(String tableId, List<TabletLoad> loads) {
+            super(tableId);
+            for (TabletLoad load : loads) {
+                this.locations.put(load.getExtent(), load.getTServer());
+                this.loads.put(load.getExtent(), load);
+            }
+        }
+        
+        public SortedMap<TServerInstance,TabletServerStatus> getCurrent() {
+            SortedMap<TServerInstance,TabletServerStatus> current = new TreeMap<>();
+            for (TServerInstance tserver : locations.values()) {
+                current.put(tserver, new TabletServerStatus());
+            }
+            return current;
+        }
+        
+        public void applyMigrations(List<TabletMigration> migrations) {
+            for (TabletMigration migration : migrations) {
+                locations.put(migration.tablet, migration.newServer);
+                TabletLoad load = loads.get(migration.tablet);
+                loads.put(migration.tablet, new TabletLoad(load.getTimestamp(), migration.newServer, load.getExtent(), load.getIngestRate(),
+                                load.getQueryRate(), load.getNumEntries()));
+            }
+        }
+        
+        /**
+         * @return the minimum, average and maximum of the tablet server loads
+         */
+        public double[] getSpread() {
+            Map<KeyExtent,Double> weights = weigh(new ArrayList<>(loads.values()));
+            Map<TServerInstance,Double> serverLoads = new HashMap<>();
+            for (TServerInstance tserver : getCurrent().keySet()) {
+                serverLoads.put(tserver, 0.0);
+            }
+            for (Map.Entry<KeyExtent,TServerInstance> location : locations.entrySet()) {
+                serverLoads.put(location.getValue(), serverLoads.get(location.getValue()) + weights.get(location.getKey()));
+            }
+            double min = Double.MAX_VALUE;
+            double max = 0;
+            double total = 0;
+            for (double load : serverLoads.values()) {
+                min = Math.min(min, load);
+                max = Math.max(max, load);
+                total += load;
+            }
+            return new double[] {serverLoads.isEmpty() ? 0 : min, serverLoads.isEmpty() ? 0 : total / serverLoads.size(), max};
+        }
+        
+        @Override
+        protected Iterable<Pair<KeyExtent,Location>> getRawLocationProvider() {
+            return Iterables.transform(locations.entrySet(), input -> new Pair<>(input.getKey(), new Location(input.getValue())));
+        }
+        
+        @Override
+        protected List<TabletLoad> getTabletLoads(TServerInstance tserver) {
+            List<TabletLoad> tserverLoads = new ArrayList<>();
+            for (TabletLoad load : loads.values()) {
+                if (load.getTServer().equals(tserver))
+                    tserverLoads.add(load);
+            }
+            return tserverLoads;
+        }
+        
+        @Override
+        protected long getWaitTime() {
+            return 0;
+        }
+        
+        @Override
+        protected long getLoadWaitTime() {
+            return 0;
+        }
+    }
+}
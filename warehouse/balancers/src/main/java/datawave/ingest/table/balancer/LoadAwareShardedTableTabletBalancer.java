@@ -0,0 +1,296 @@
+package datawave.ingest.table.balancer;
+
+import com.google.common.base.Function;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.core.master.thrift.TabletServerStatus;
+import org.apache.accumulo.core.tabletserver.thrift.TabletStats;
+import org.apache.accumulo.server.master.state.TServerInstance;
+import org.apache.accumulo.server.master.state.TabletMigration;
+import org.apache.log4j.Logger;
+import org.apache.thrift.TException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * A {@link ShardedTableTabletBalancer} that also balances the load of the tablets across the tablet servers. The shard groups are balanced first, as with the
+ * parent balancer. Once the groups are balanced and no migrations are pending, the tablets are weighted by their observed ingest rate, query rate and number
+ * of entries, and tablets of the same group are swapped between the most and least loaded tablet servers until their loads are within a tolerance of the
+ * average. Swapping tablets of the same group leaves the number of tablets of each group on each server unchanged, so the group balance is not undone by the
+ * next pass. This spreads out the shards of the current and most recent days, which take all of the ingest and most of the queries.
+ * <p>
+ * Each of the three rates is taken as a fraction of the table total before it is weighted, so that the weights are comparable. The weights and tolerance can
+ * be set with the table properties {@value #INGEST_WEIGHT}, {@value #QUERY_WEIGHT}, {@value #SIZE_WEIGHT} and {@value #LOAD_TOLERANCE}.
+ * <p>
+ * The tablet loads used for each pass can be recorded by enabling debug on the {@value #SNAPSHOT_LOGGER} logger, with a layout of just the message. The
+ * recorded snapshots can be replayed offline with the {@link LoadAwareBalancerSimulator}.
+ */
+public class LoadAwareShardedTableTabletBalancer extends ShardedTableTabletBalancer {
+    private static final Logger log = Logger.getLogger(LoadAwareShardedTableTabletBalancer.class);
+    
+    public static final String SNAPSHOT_LOGGER = "datawave.ingest.table.balancer.LoadAwareShardedTableTabletBalancer.snapshots";
+    private static final Logger snapshotLog = Logger.getLogger(SNAPSHOT_LOGGER);
+    
+    public static final String INGEST_WEIGHT = "table.custom.balancer.load.ingest.weight";
+    public static final String QUERY_WEIGHT = "table.custom.balancer.load.query.weight";
+    public static final String SIZE_WEIGHT = "table.custom.balancer.load.size.weight";
+    public static final String LOAD_TOLERANCE = "table.custom.balancer.load.tolerance";
+    
+    public static final double DEFAULT_INGEST_WEIGHT = 1.0;
+    public static final double DEFAULT_QUERY_WEIGHT = 1.0;
+    public static final double DEFAULT_SIZE_WEIGHT = 0.25;
+    public static final double DEFAULT_LOAD_TOLERANCE = 0.1;
+    
+    private final String tableId;
+    private long lastLoadBalance = 0;
+    
+    public LoadAwareShardedTableTabletBalancer(String tableId) {
+        super(tableId);
+        this.tableId = tableId;
+    }
+    
+    // synchronized to ensure exclusivity between getAssignments and balance calls
+    @Override
+    public synchronized long balance(SortedMap<TServerInstance,TabletServerStatus> current, Set<KeyExtent> migrations, List<TabletMigration> migrationsOut) {
+        long wait = super.balance(current, migrations, migrationsOut);
+        
+        // Only balance the load once the groups are balanced and all of the migrations for this table are done
+        if (!migrationsOut.isEmpty() || hasMigrations(migrations) || System.currentTimeMillis() - lastLoadBalance < getLoadWaitTime())
+            return wait;
+        lastLoadBalance = System.currentTimeMillis();
+        
+        List<TabletLoad> loads = new ArrayList<>();
+        for (TServerInstance tserver : current.keySet()) {
+            List<TabletLoad> tserverLoads = getTabletLoads(tserver);
+            if (tserverLoads == null)
+                return wait;
+            loads.addAll(tserverLoads);
+        }
+        if (snapshotLog.isDebugEnabled()) {
+            for (TabletLoad load : loads) {
+                snapshotLog.debug(load.toSnapshotLine());
+            }
+        }
+        
+        balanceLoad(current.keySet(), loads, getPartitioner(), migrationsOut);
+        return wait;
+    }
+    
+    private boolean hasMigrations(Set<KeyExtent> migrations) {
+        for (KeyExtent extent : migrations) {
+            if (extent.getTableId().equals(tableId))
+                return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Gets the loads of the tablets of this table on a tablet server, from the tablet stats of the server. Test cases and the simulator override this to
+     * supply their own loads.
+     * 
+     * @return the loads, or null if they could not be retrieved
+     */
+    protected List<TabletLoad> getTabletLoads(TServerInstance tserver) {
+        List<TabletStats> stats;
+        try {
+            stats = getOnlineTabletsForTable(tserver, tableId);
+        } catch (TException e) {
+            log.warn("Unable to get the tablet stats for " + tableId + " from " + tserver + ", skipping load balancing", e);
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        List<TabletLoad> loads = new ArrayList<>(stats.size());
+        for (TabletStats stat : stats) {
+            loads.add(new TabletLoad(now, tserver, new KeyExtent(stat.getExtent()), stat.getIngestRate(), stat.getQueryRate(), stat.getNumEntries()));
+        }
+        return loads;
+    }
+    
+    /**
+     * Weighs each tablet as the sum of its weighted fractions of the total ingest rate, query rate and number of entries of the table.
+     * 
+     * @return the weight of each tablet
+     */
+    protected Map<KeyExtent,Double> weigh(List<TabletLoad> loads) {
+        double totalIngest = 0;
+        double totalQuery = 0;
+        double totalEntries = 0;
+        for (TabletLoad load : loads) {
+            totalIngest += load.getIngestRate();
+            totalQuery += load.getQueryRate();
+            totalEntries += load.getNumEntries();
+        }
+        
+        double ingestWeight = getWeight(INGEST_WEIGHT, DEFAULT_INGEST_WEIGHT);
+        double queryWeight = getWeight(QUERY_WEIGHT, DEFAULT_QUERY_WEIGHT);
+        double sizeWeight = getWeight(SIZE_WEIGHT, DEFAULT_SIZE_WEIGHT);
+        
+        Map<KeyExtent,Double> weights = new HashMap<>();
+        for (TabletLoad load : loads) {
+            double weight = 0;
+            if (totalIngest > 0)
+                weight += ingestWeight * load.getIngestRate() / totalIngest;
+            if (totalQuery > 0)
+                weight += queryWeight * load.getQueryRate() / totalQuery;
+            if (totalEntries > 0)
+                weight += sizeWeight * load.getNumEntries() / totalEntries;
+            weights.put(load.getExtent(), weight);
+        }
+        return weights;
+    }
+    
+    /**
+     * Swaps tablets of the same group between the most and least loaded tablet servers until the load of every server is within the tolerance of the least
+     * loaded, or no swap would bring the most loaded server closer to another by more than the tolerance. A tablet is swapped at most once per pass.
+     * 
+     * @param tservers
+     *            the current tablet servers
+     * @param loads
+     *            the loads of the tablets on the servers
+     * @param partitioner
+     *            the partitioner that groups the tablets
+     * @param migrationsOut
+     *            the list to add the migrations of the swaps to
+     */
+    protected void balanceLoad(Set<TServerInstance> tservers, List<TabletLoad> loads, Function<KeyExtent,String> partitioner,
+                    List<TabletMigration> migrationsOut) {
+        if (tservers.size() < 2 || loads.isEmpty())
+            return;
+        
+        Map<KeyExtent,Double> weights = weigh(loads);
+        Map<TServerInstance,Double> serverLoads = new HashMap<>();
+        Map<TServerInstance,Map<String,List<KeyExtent>>> serverGroups = new HashMap<>();
+        for (TServerInstance tserver : tservers) {
+            serverLoads.put(tserver, 0.0);
+            serverGroups.put(tserver, new HashMap<>());
+        }
+        double total = 0;
+        for (TabletLoad load : loads) {
+            TServerInstance tserver = load.getTServer();
+            if (!serverLoads.containsKey(tserver))
+                continue;
+            double weight = weights.get(load.getExtent());
+            serverLoads.put(tserver, serverLoads.get(tserver) + weight);
+            total += weight;
+            Map<String,List<KeyExtent>> groups = serverGroups.get(tserver);
+            String group = partitioner.apply(load.getExtent());
+            List<KeyExtent> extents = groups.get(group);
+            if (extents == null) {
+                extents = new LinkedList<>();
+                groups.put(group, extents);
+            }
+            extents.add(load.getExtent());
+        }
+        
+        double tolerance = getWeight(LOAD_TOLERANCE, DEFAULT_LOAD_TOLERANCE) * total / tservers.size();
+        if (tolerance <= 0)
+            return;
+        
+        Set<KeyExtent> swapped = new HashSet<>();
+        int swaps = 0;
+        int maxSwaps = getMaxLoadMigrations() / 2;
+        while (swaps < maxSwaps) {
+            List<TServerInstance> byLoad = new ArrayList<>(tservers);
+            byLoad.sort((a, b) -> Double.compare(serverLoads.get(a), serverLoads.get(b)));
+            TServerInstance hottest = byLoad.get(byLoad.size() - 1);
+            double hottestLoad = serverLoads.get(hottest);
+            
+            // Find the swap with the coolest server that brings the pair closest together
+            KeyExtent hot = null;
+            KeyExtent cool = null;
+            TServerInstance coolest = null;
+            for (TServerInstance candidate : byLoad) {
+                double gap = hottestLoad - serverLoads.get(candidate);
+                if (gap <= tolerance)
+                    break;
+                // a swap has to close the gap between the pair by more than the tolerance to be worth the migrations
+                double bestGap = gap - tolerance;
+                for (Map.Entry<String,List<KeyExtent>> group : serverGroups.get(hottest).entrySet()) {
+                    List<KeyExtent> candidateExtents = serverGroups.get(candidate).get(group.getKey());
+                    if (candidateExtents == null)
+                        continue;
+                    for (KeyExtent hotExtent : group.getValue()) {
+                        if (swapped.contains(hotExtent))
+                            continue;
+                        for (KeyExtent coolExtent : candidateExtents) {
+                            double difference = weights.get(hotExtent) - weights.get(coolExtent);
+                            if (swapped.contains(coolExtent) || difference <= 0)
+                                continue;
+                            double newGap = Math.abs(gap - 2 * difference);
+                            if (newGap < bestGap) {
+                                bestGap = newGap;
+                                hot = hotExtent;
+                                cool = coolExtent;
+                            }
+                        }
+                    }
+                }
+                if (hot != null) {
+                    coolest = candidate;
+                    break;
+                }
+            }
+            if (hot == null)
+                break;
+            
+            String group = partitioner.apply(hot);
+            serverGroups.get(hottest).get(group).remove(hot);
+            serverGroups.get(coolest).get(group).remove(cool);
+            swapped.add(hot);
+            swapped.add(cool);
+            double difference = weights.get(hot) - weights.get(cool);
+            serverLoads.put(hottest, hottestLoad - difference);
+            serverLoads.put(coolest, serverLoads.get(coolest) + difference);
+            migrationsOut.add(new TabletMigration(hot, hottest, coolest));
+            migrationsOut.add(new TabletMigration(cool, coolest, hottest));
+            ++swaps;
+            if (log.isDebugEnabled())
+                log.debug("Swapping " + hot + " on " + hottest + " with " + cool + " on " + coolest + " to move a load of " + difference);
+        }
+        if (swaps > 0)
+            log.info("Swapping " + swaps + " pairs of tablets to balance the load of " + tableId);
+    }
+    
+    private double getWeight(String property, double defaultValue) {
+        String value = getTableProperty(property);
+        if (value == null)
+            return defaultValue;
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value " + value + " for " + property + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+    
+    /**
+     * Gets a custom property of the table, or null if the balancer has not been initialized with a context.
+     */
+    protected String getTableProperty(String property) {
+        if (context == null)
+            return null;
+        return context.getServerConfigurationFactory().getTableConfiguration(tableId).getAllPropertiesWithPrefix(Property.TABLE_ARBITRARY_PROP_PREFIX)
+                        .get(property);
+    }
+    
+    /**
+     * @return the minimum time between load balancing passes, which allows the rates of migrated tablets to settle
+     */
+    protected long getLoadWaitTime() {
+        return 5 * 60 * 1000L;
+    }
+    
+    /**
+     * @return the maximum number of migrations made by one load balancing pass
+     */
+    protected int getMaxLoadMigrations() {
+        return 200;
+    }
+}
@@ -0,0 +1,104 @@
+package datawave.ingest.table.balancer;
+
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.server.master.state.TServerInstance;
+import org.apache.hadoop.io.Text;
+
+/**
+ * The observed load of a tablet on the tablet server hosting it, as reported in the tablet stats of the server. A load can be written as a tab separated
+ * snapshot line, which is the format that the {@link LoadAwareShardedTableTabletBalancer} records and the {@link LoadAwareBalancerSimulator} replays:
+ * 
+ * <pre>
+ * timestamp  tserver  tableId  endRow  prevEndRow  ingestRate  queryRate  numEntries
+ * </pre>
+ * 
+ * where a missing end row or previous end row is written as {@value #NULL_ROW}.
+ */
+public class TabletLoad {
+    
+    public static final String NULL_ROW = "-";
+    
+    private final long timestamp;
+    private final TServerInstance tserver;
+    private final KeyExtent extent;
+    private final double ingestRate;
+    private final double queryRate;
+    private final long numEntries;
+    
+    public TabletLoad(long timestamp, TServerInstance tserver, KeyExtent extent, double ingestRate, double queryRate, long numEntries) {
+        this.timestamp = timestamp;
+        this.tserver = tserver;
+        this.extent = extent;
+        this.ingestRate = ingestRate;
+        this.queryRate = queryRate;
+        this.numEntries = numEntries;
+    }
+    
+    public long getTimestamp() {
+        return timestamp;
+    }
+    
+    public TServerInstance getTServer() {
+        return tserver;
+    }
+    
+    public KeyExtent getExtent() {
+        return extent;
+    }
+    
+    public double getIngestRate() {
+        return ingestRate;
+    }
+    
+    public double getQueryRate() {
+        return queryRate;
+    }
+    
+    public long getNumEntries() {
+        return numEntries;
+    }
+    
+    /**
+     * @return this load as a snapshot line
+     */
+    public String toSnapshotLine() {
+        return timestamp + "\t" + tserver.getLocation() + "\t" + extent.getTableId() + "\t" + toRow(extent.getEndRow()) + "\t" + toRow(extent.getPrevEndRow())
+                        + "\t" + ingestRate + "\t" + queryRate + "\t" + numEntries;
+    }
+    
+    /**
+     * Parse a snapshot line. The tablet server of the load is identified by its address only, as the session of a recorded server is of no use offline.
+     * 
+     * @param line
+     *            the snapshot line
+     * @return the load
+     * @throws IllegalArgumentException
+     *             if the line is not a snapshot line
+     */
+    public static TabletLoad parse(String line) {
+        String[] fields = line.split("\t");
+        if (fields.length != 8) {
+            throw new IllegalArgumentException("Expected 8 tab separated fields in snapshot line: " + line);
+        }
+        try {
+            KeyExtent extent = new KeyExtent(fields[2], fromRow(fields[3]), fromRow(fields[4]));
+            return new TabletLoad(Long.parseLong(fields[0]), new TServerInstance(fields[1], 1), extent, Double.parseDouble(fields[5]),
+                            Double.parseDouble(fields[6]), Long.parseLong(fields[7]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in snapshot line: " + line, e);
+        }
+    }
+    
+    private static String toRow(Text row) {
+        return row == null ? NULL_ROW : row.toString();
+    }
+    
+    private static Text fromRow(String row) {
+        return NULL_ROW.equals(row) ? null : new Text(row);
+    }
+    
+    @Override
+    public String toString() {
+        return extent + "@" + tserver + " ingest=" + ingestRate + " query=" + queryRate + " entries=" + numEntries;
+    }
+}
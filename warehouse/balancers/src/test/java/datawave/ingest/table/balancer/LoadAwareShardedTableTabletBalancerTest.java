@@ -0,0 +1,169 @@
+package datawave.ingest.table.balancer;
+
+import com.google.common.collect.Iterables;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.core.master.thrift.TabletServerStatus;
+import org.apache.accumulo.core.util.Pair;
+import org.apache.accumulo.server.master.balancer.GroupBalancer.Location;
+import org.apache.accumulo.server.master.state.TServerInstance;
+import org.apache.accumulo.server.master.state.TabletMigration;
+import org.apache.hadoop.io.Text;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LoadAwareShardedTableTabletBalancerTest {
+    private static final String TNAME = "s";
+    
+    private final List<TServerInstance> tservers = new ArrayList<>();
+    private final SortedMap<KeyExtent,TServerInstance> tabletLocs = new TreeMap<>();
+    private final Map<KeyExtent,Double> queryRates = new HashMap<>();
+    private TestBalancer testBalancer;
+    
+    @Before
+    public void setUp() {
+        testBalancer = new TestBalancer();
+        for (int i = 0; i < 4; i++) {
+            tservers.add(new TServerInstance("127.0.0.1:" + (1000 + i), 6));
+        }
+        
+        // Four days of four shards, with one shard of each day on each server, so the groups are already balanced
+        String prev = null;
+        for (int day = 1; day <= 4; day++) {
+            for (int shard = 0; shard < 4; shard++) {
+                String end = "2010012" + day + "_" + shard;
+                KeyExtent extent = new KeyExtent(TNAME, new Text(end), prev == null ? null : new Text(prev));
+                tabletLocs.put(extent, tservers.get(shard));
+                queryRates.put(extent, 1.0);
+                prev = end;
+            }
+        }
+    }
+    
+    @Test
+    public void testNoMigrationsWhenLoadIsEven() {
+        assertEquals(0, balance().size());
+    }
+    
+    @Test
+    public void testSwapsHotTabletsOfTheSameGroup() {
+        // The first server is taking all of the queries for the two most recent days
+        setQueryRate("20100123_0", 100);
+        setQueryRate("20100124_0", 100);
+        
+        List<TabletMigration> migrations = balance();
+        assertEquals(2, migrations.size());
+        for (TabletMigration migration : migrations) {
+            assertEquals(migration.tablet.getEndRow().toString().substring(0, 8), migrations.get(0).tablet.getEndRow().toString().substring(0, 8));
+        }
+        applyMigrations(migrations);
+        
+        // Each server still has one shard of each day, and the two hot shards are on different servers
+        Map<TServerInstance,Integer> hotShards = new HashMap<>();
+        Map<TServerInstance,Integer> shards = new HashMap<>();
+        for (Map.Entry<KeyExtent,TServerInstance> entry : tabletLocs.entrySet()) {
+            shards.merge(entry.getValue(), 1, Integer::sum);
+            if (queryRates.get(entry.getKey()) > 1.0)
+                hotShards.merge(entry.getValue(), 1, Integer::sum);
+        }
+        for (TServerInstance tserver : tservers) {
+            assertEquals(Integer.valueOf(4), shards.get(tserver));
+        }
+        assertEquals(2, hotShards.size());
+        
+        // Nothing more can be improved by a swap
+        assertEquals(0, balance().size());
+    }
+    
+    @Test
+    public void testSimulatorReplaysSnapshots() throws Exception {
+        setQueryRate("20100123_0", 100);
+        setQueryRate("20100124_0", 100);
+        
+        StringBuilder snapshot = new StringBuilder("some other log line\n");
+        for (Map.Entry<KeyExtent,TServerInstance> entry : tabletLocs.entrySet()) {
+            snapshot.append(new TabletLoad(1000L, entry.getValue(), entry.getKey(), 0, queryRates.get(entry.getKey()), 10).toSnapshotLine()).append('\n');
+        }
+        
+        SortedMap<String,SortedMap<Long,List<TabletLoad>>> snapshots = LoadAwareBalancerSimulator.readSnapshots(new BufferedReader(new StringReader(snapshot
+                        .toString())));
+        assertEquals(1, snapshots.size());
+        List<TabletLoad> loads = snapshots.get(TNAME).get(1000L);
+        assertEquals(tabletLocs.size(), loads.size());
+        
+        List<TabletMigration> migrations = new LoadAwareBalancerSimulator(3, System.out).replay(TNAME, 1000L, loads);
+        assertEquals(2, migrations.size());
+    }
+    
+    private void setQueryRate(String endRow, double rate) {
+        for (KeyExtent extent : tabletLocs.keySet()) {
+            if (extent.getEndRow().toString().equals(endRow)) {
+                queryRates.put(extent, rate);
+            }
+        }
+    }
+    
+    private List<TabletMigration> balance() {
+        SortedMap<TServerInstance,TabletServerStatus> current = new TreeMap<>();
+        for (TServerInstance tserver : tservers) {
+            current.put(tserver, new TabletServerStatus());
+        }
+        List<TabletMigration> migrationsOut = new ArrayList<>();
+        testBalancer.balance(current, new HashSet<>(), migrationsOut);
+        Set<KeyExtent> migrated = new HashSet<>();
+        for (TabletMigration migration : migrationsOut) {
+            assertTrue("Found multiple migrations for the same tablet: " + migration.tablet, migrated.add(migration.tablet));
+        }
+        return migrationsOut;
+    }
+    
+    private void applyMigrations(List<TabletMigration> migrations) {
+        for (TabletMigration migration : migrations) {
+            assertEquals(migration.oldServer, tabletLocs.put(migration.tablet, migration.newServer));
+        }
+    }
+    
+    private class TestBalancer extends LoadAwareShardedTableTabletBalancer {
+        public TestBalancer() {
+            super(TNAME);
+        }
+        
+        @Override
+        protected Iterable<Pair<KeyExtent,Location>> getRawLocationProvider() {
+            return Iterables.transform(tabletLocs.entrySet(), input -> new Pair<>(input.getKey(), new Location(input.getValue())));
+        }
+        
+        @Override
+        protected List<TabletLoad> getTabletLoads(TServerInstance tserver) {
+            List<TabletLoad> loads = new ArrayList<>();
+            for (Map.Entry<KeyExtent,TServerInstance> entry : tabletLocs.entrySet()) {
+                if (entry.getValue().equals(tserver))
+                    loads.add(new TabletLoad(0, tserver, entry.getKey(), 0, queryRates.get(entry.getKey()), 0));
+            }
+            return loads;
+        }
+        
+        @Override
+        protected long getWaitTime() {
+            return 0;
+        }
+        
+        @Override
+        protected long getLoadWaitTime() {
+            return 0;
+        }
+    }
+}
@@ -1,22 +1,51 @@
 package datawave.marking;
 
-import java.util.Collections;
-import java.util.Map;
-
+import org.apache.accumulo.core.data.ArrayByteSequence;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.security.ColumnVisibility;
-import org.apache.commons.collections4.map.LRUMap;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * This is a cache that can be used per process to save parsing column visibilities. The cache is concurrent, so the many threads evaluating documents do not
+ * contend on a single lock, and is bounded by the total size of the cached visibility expressions rather than by a count of visibilities.
+ *
+ * The bound, in bytes of expression, may be set with the datawave.marking.visibility.cache.size system property.
+ */
 public class ColumnVisibilityCache {
-    @SuppressWarnings("unchecked")
-    private static Map<ByteSequence,ColumnVisibility> cache = Collections.synchronizedMap(new LRUMap(256));
+    public static final String CACHE_SIZE_PROP = "datawave.marking.visibility.cache.size";
+    
+    private static final long DEFAULT_CACHE_SIZE = 8 * 1024 * 1024;
+    // an estimate of the per entry overhead of the key and parse tree
+    static final int ENTRY_OVERHEAD = 64;
+    
+    private static final Cache<ByteSequence,ColumnVisibility> cache = CacheBuilder.newBuilder().maximumWeight(Long.getLong(CACHE_SIZE_PROP, DEFAULT_CACHE_SIZE))
+                    .weigher((ByteSequence bytes, ColumnVisibility vis) -> ENTRY_OVERHEAD + 2 * bytes.length()).concurrencyLevel(16).recordStats().build();
     
     public static ColumnVisibility get(ByteSequence bytes) {
-        ColumnVisibility vis = cache.get(bytes);
+        ColumnVisibility vis = cache.getIfPresent(bytes);
         if (vis == null) {
-            vis = new ColumnVisibility(bytes.toArray());
-            cache.put(bytes, vis);
+            // the sequence passed in may be a view on a buffer that is reused, and toArray may return that buffer, so take a copy
+            byte[] expression = bytes.toArray().clone();
+            vis = new ColumnVisibility(expression);
+            cache.put(new ArrayByteSequence(expression), vis);
         }
         return vis;
     }
+    
+    /**
+     * @return the hit, miss and eviction counts of the cache
+     */
+    public static CacheStats getStats() {
+        return cache.stats();
+    }
+    
+    /**
+     * @return the number of cached visibilities
+     */
+    public static long size() {
+        return cache.size();
+    }
 }
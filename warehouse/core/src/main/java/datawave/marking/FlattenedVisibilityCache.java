@@ -1,19 +1,29 @@
 package datawave.marking;
 
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
 
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.security.ColumnVisibility;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
 /**
- * This is a cache that can be used per process to save flattened visibility calculations.
+ * This is a cache that can be used per process to save flattened visibility calculations. Like the {@link ColumnVisibilityCache}, it is concurrent and bounded
+ * by the total size of the cached visibilities.
  *
+ * The bound, in bytes, may be set with the datawave.marking.flattened.visibility.cache.size system property.
  */
 public class FlattenedVisibilityCache {
-    private static Map<ColumnVisibility,byte[]> flattenedVisCache = Collections.synchronizedMap(new HashMap<ColumnVisibility,byte[]>());
+    public static final String CACHE_SIZE_PROP = "datawave.marking.flattened.visibility.cache.size";
+    
+    private static final long DEFAULT_CACHE_SIZE = 8 * 1024 * 1024;
+    
+    private static final Cache<ColumnVisibility,byte[]> flattenedVisCache = CacheBuilder.newBuilder()
+                    .maximumWeight(Long.getLong(CACHE_SIZE_PROP, DEFAULT_CACHE_SIZE))
+                    .weigher((ColumnVisibility vis, byte[] flattened) -> ColumnVisibilityCache.ENTRY_OVERHEAD + vis.getExpression().length + flattened.length)
+                    .concurrencyLevel(16).recordStats().build();
     
     /**
      * Create a flattened visibility, using the cache if possible
@@ -23,7 +33,7 @@ public class FlattenedVisibilityCache {
      * @return the flattened visibility
      */
     public static byte[] flatten(ColumnVisibility vis) {
-        byte[] visBytes = flattenedVisCache.get(vis);
+        byte[] visBytes = flattenedVisCache.getIfPresent(vis);
         if (visBytes == null) {
             visBytes = vis.flatten();
             flattenedVisCache.put(vis, visBytes);
@@ -38,4 +48,18 @@ public class FlattenedVisibilityCache {
     public static boolean equals(ColumnVisibility left, ColumnVisibility right) {
         return Arrays.equals(flatten(left), flatten(right));
     }
+    
+    /**
+     * @return the hit, miss and eviction counts of the cache
+     */
+    public static CacheStats getStats() {
+        return flattenedVisCache.stats();
+    }
+    
+    /**
+     * @return the number of cached visibilities
+     */
+    public static long size() {
+        return flattenedVisCache.size();
+    }
 }
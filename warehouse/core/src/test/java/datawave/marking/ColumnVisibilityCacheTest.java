@@ -0,0 +1,28 @@
+package datawave.marking;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ColumnVisibilityCacheTest {
+    
+    @Test
+    public void testCachedVisibility() {
+        long hits = ColumnVisibilityCache.getStats().hitCount();
+        ColumnVisibility vis = ColumnVisibilityCache.get(new ArrayByteSequence("C|D"));
+        Assert.assertSame(vis, ColumnVisibilityCache.get(new ArrayByteSequence("C|D")));
+        Assert.assertEquals(hits + 1, ColumnVisibilityCache.getStats().hitCount());
+    }
+    
+    @Test
+    public void testReusedBuffer() {
+        // the cache must not key on a view of a buffer that is then overwritten
+        byte[] buffer = "E|F".getBytes();
+        ColumnVisibility vis = ColumnVisibilityCache.get(new ArrayByteSequence(buffer));
+        buffer[0] = 'G';
+        Assert.assertEquals("E|F", new String(vis.getExpression()));
+        Assert.assertEquals("E|F", new String(ColumnVisibilityCache.get(new ArrayByteSequence("E|F")).getExpression()));
+        Assert.assertEquals("G|F", new String(ColumnVisibilityCache.get(new ArrayByteSequence(buffer)).getExpression()));
+    }
+}
@@ -0,0 +1,16 @@
+package datawave.marking;
+
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FlattenedVisibilityCacheTest {
+    
+    @Test
+    public void testFlatten() {
+        ColumnVisibility vis = new ColumnVisibility("B&A");
+        Assert.assertArrayEquals(vis.flatten(), FlattenedVisibilityCache.flatten(vis));
+        Assert.assertTrue(FlattenedVisibilityCache.equals(vis, new ColumnVisibility("A&B")));
+        Assert.assertFalse(FlattenedVisibilityCache.equals(vis, new ColumnVisibility("A|B")));
+    }
+}
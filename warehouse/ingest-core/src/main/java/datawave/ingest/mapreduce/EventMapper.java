@@ -3,6 +3,7 @@ package datawave.ingest.mapreduce;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import datawave.data.normalizer.DateNormalizer;
 import datawave.ingest.data.RawRecordContainer;
 import datawave.ingest.data.Type;
@@ -27,6 +28,7 @@ import datawave.ingest.mapreduce.job.metrics.MetricsConfiguration;
 import datawave.ingest.mapreduce.job.metrics.MetricsService;
 import datawave.ingest.mapreduce.job.metrics.ReusableMetricsLabels;
 import datawave.ingest.mapreduce.job.statsd.StatsDEnabledMapper;
+import datawave.ingest.mapreduce.job.writer.BufferedContextWriter;
 import datawave.ingest.mapreduce.job.writer.BulkContextWriter;
 import datawave.ingest.mapreduce.job.writer.ContextWriter;
 import datawave.ingest.mapreduce.job.writer.LiveContextWriter;
@@ -44,19 +46,27 @@ import datawave.util.time.TraceStopwatch;
 import org.apache.accumulo.core.data.Mutation;
 import org.apache.accumulo.core.data.Value;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
 import org.apache.hadoop.mapreduce.Counter;
 import org.apache.hadoop.mapreduce.CounterGroup;
 import org.apache.hadoop.mapreduce.Counters;
 import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.StatusReporter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.task.TaskInputOutputContextImpl;
 import org.apache.log4j.Logger;
 import org.apache.log4j.NDC;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -66,6 +76,11 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.Stack;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -78,9 +93,11 @@ import java.util.concurrent.TimeUnit;
  * is within the window, then the map will parse the Event into a map of field names and field values, the map method will call the process() method on each
  * DataTypeHandler implementation that has been configured for the Type of Event.
  *
- * This class no longer supports processing events in a multi-threaded fashion as that was proven to NOT be beneficial in the long run (i.e. The bulk of the
- * time is spent in the ContextWriter which is synchronized. Also multithreading mean potentially more memory use which we should already be maximizing per
- * machine in the hadoop map-reduce cluster.)
+ * By default the events are processed in the map thread, as for most data types the bulk of the time is spent in the ContextWriter, and processing in
+ * multiple threads means more memory use, which we should already be maximizing per machine in the hadoop map-reduce cluster. For data types with expensive
+ * handlers the EVENT_PROCESSING_THREADS parameter may be set to process the events on a bounded pool of threads instead. Each of those threads has its own
+ * handlers and validators, as those are not expected to be thread safe, and the output and counters of each event are buffered until the map thread writes
+ * them, in the order the events were mapped. Metrics are only collected when processing in the map thread.
  *
  *
  *
@@ -123,12 +140,22 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
     
     public static final String ID_FILTER_FSTS = "ingest.event.mapper.id.filter.fsts";
     
+    /**
+     * The number of threads processing events. Defaults to 1, where the events are processed in the map thread.
+     */
+    public static final String EVENT_PROCESSING_THREADS = "ingest.event.mapper.processing.threads";
+    
+    /**
+     * The maximum number of events processed by the threads that are waiting to be written. Defaults to twice the number of threads.
+     */
+    public static final String EVENT_PROCESSING_MAX_PENDING = "ingest.event.mapper.processing.max.pending";
+    
     protected Map<String,List<DataTypeHandler<K1>>> typeMap = new HashMap<>();
     
     /**
      * might as well cache the discard interval
      */
-    protected Map<String,Long> dataTypeDiscardIntervalCache = new HashMap<>();
+    protected Map<String,Long> dataTypeDiscardIntervalCache = new ConcurrentHashMap<>();
     
     private FileSplit split = null;
     
@@ -156,6 +183,15 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
     private MetricsService<K2,V2> metricsService;
     private ReusableMetricsLabels metricsLabels;
     
+    private ExecutorService eventProcessingPool = null;
+    private int maxPendingEvents = 0;
+    private final Deque<Future<ProcessedEvent>> pendingEvents = new ArrayDeque<>();
+    
+    // the state of each thread of the event processing pool, which is null for the map thread
+    private final ThreadLocal<EventProcessor> threadProcessor = new ThreadLocal<>();
+    private final List<EventProcessor> eventProcessors = new ArrayList<>();
+    private final Object handlerSetupLock = new Object();
+    
     /**
      * Set up the datatype handlers
      */
@@ -259,6 +295,15 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         
         validators = ArrayListMultimap.create();
         
+        int processingThreads = context.getConfiguration().getInt(EVENT_PROCESSING_THREADS, 1);
+        if (processingThreads > 1 && metricsEnabled) {
+            log.warn("Processing events in the map thread as metrics are enabled");
+        } else if (processingThreads > 1) {
+            maxPendingEvents = context.getConfiguration().getInt(EVENT_PROCESSING_MAX_PENDING, 2 * processingThreads);
+            eventProcessingPool = Executors.newFixedThreadPool(processingThreads, new ThreadFactoryBuilder().setNameFormat("EventMapper-%d").setDaemon(true)
+                            .build());
+        }
+        
         if (null != split) {
             if (filterConf.getBoolean(FILE_NAME_COUNTERS, true)) {
                 getCounter(context, IngestInput.FILE_NAME.name(), split.getPath().toString()).increment(1);
@@ -272,6 +317,9 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         if (log.isInfoEnabled()) {
             log.info("EventMapper configured. Bulk Ingest = true");
             log.info("EventMapper configured with the following filters: " + getDataTypeFilterClassNames());
+            if (eventProcessingPool != null) {
+                log.info("EventMapper configured to process events with " + processingThreads + " threads");
+            }
         }
         
     }
@@ -282,6 +330,29 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
      * @return the data type handlers
      */
     private List<DataTypeHandler<K1>> loadDataType(String typeStr, Context context) {
+        EventProcessor processor = threadProcessor.get();
+        Map<String,List<DataTypeHandler<K1>>> threadTypeMap = (processor == null ? typeMap : processor.typeMap);
+        List<DataTypeHandler<K1>> handlers = threadTypeMap.get(typeStr);
+        if (handlers == null) {
+            // the handlers of each thread are set up one at a time, as their setup is not expected to be thread safe
+            synchronized (handlerSetupLock) {
+                if (processor == null) {
+                    handlers = loadDataType(typeStr, context, typeMap, validators, reporter);
+                } else {
+                    handlers = loadDataType(typeStr, context, processor.typeMap, processor.validators, processor.reporter);
+                }
+            }
+        }
+        return handlers;
+    }
+    
+    /**
+     * Set up the data type handlers and validators for a given type name in the given maps
+     *
+     * @return the data type handlers
+     */
+    private List<DataTypeHandler<K1>> loadDataType(String typeStr, Context context, Map<String,List<DataTypeHandler<K1>>> typeMap,
+                    Multimap<String,FieldValidator> validators, StandaloneStatusReporter reporter) {
         // Do not load the type twice
         if (!typeMap.containsKey(typeStr)) {
             
@@ -381,7 +452,8 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         }
         
         // ensure this datatype's handlers etc are loaded such that the dataTypeDiscardIntervalCache and validators are filled as well
-        List<DataTypeHandler<K1>> typeHandlers = loadDataType(value.getDataType().typeName(), context);
+        // (the threads of the event processing pool load their own, but the map thread's are still the ones returned by getHandlerMap)
+        loadDataType(value.getDataType().typeName(), context);
         
         // This is a little bit fragile, but there is no other way
         // to get the context on a partitioner, and we are only
@@ -389,6 +461,9 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         MultiTableRangePartitioner.setContext(context);
         
         Long myInterval = dataTypeDiscardIntervalCache.get(value.getDataType().typeName());
+        if (null == myInterval) {
+            myInterval = context.getConfiguration().getLong(value.getDataType().typeName() + "." + DISCARD_INTERVAL, interval);
+        }
         
         // setup the configuration on the event
         // this is automatically done by the sequence reader....
@@ -418,6 +493,9 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
             if (log.isInfoEnabled())
                 log.info("Purging event from the " + errorSummary.getTableName() + " table");
             
+            // write the events processed so far before the purge
+            writeProcessedEvents(context, true);
+            
             try {
                 // Load error dataType into typeMap
                 loadDataType(TypeRegistry.ERROR_PREFIX, context);
@@ -450,10 +528,10 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
             return;
         }
         
-        // Add the list of handlers with the ALL specified handlers
-        List<DataTypeHandler<K1>> handlers = new ArrayList<>();
-        handlers.addAll(typeHandlers);
-        handlers.addAll(loadDataType(TypeRegistry.ALL_PREFIX, context));
+        // Add the list of handlers with the ALL specified handlers. These are named by type, as each thread processing events has its own handlers.
+        List<String> handlerTypes = new ArrayList<>();
+        handlerTypes.add(value.getDataType().typeName());
+        handlerTypes.add(TypeRegistry.ALL_PREFIX);
         
         // Always include any event errors in the counters
         for (String error : value.getErrors()) {
@@ -463,10 +541,10 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         // switch over to the errorHandlerList if still a fatal error
         if (value.fatalError()) {
             // now clear out the handlers to avoid processing this event
-            handlers.clear();
+            handlerTypes.clear();
             if (!value.ignorableError()) {
                 // since this is not an ignorable error, lets add the error handlers back into the list
-                handlers.addAll(loadDataType(TypeRegistry.ERROR_PREFIX, context));
+                handlerTypes.add(TypeRegistry.ERROR_PREFIX);
                 
                 getCounter(context, IngestInput.EVENT_FATAL_ERROR).increment(1);
                 getCounter(context, IngestInput.EVENT_FATAL_ERROR.name(), "ValidationError").increment(1);
@@ -478,12 +556,71 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
             context.progress();
         }
         
+        if (eventProcessingPool != null) {
+            submitEvent(key, value, handlerTypes, context);
+            
+            // Remove ORIG_FILE from NDC that was populated by reprocessing events from the error tables
+            if (reprocessedNDCPush) {
+                NDC.pop();
+            }
+            offset++;
+            return;
+        }
+        
         Multimap<String,NormalizedContentInterface> fields = HashMultimap.create();
         try {
+            handleEvent(key, value, handlerTypes, fields, context);
+        } finally {
+            // Remove ORIG_FILE from NDC that was populated by reprocessing events from the error tables
+            if (reprocessedNDCPush) {
+                NDC.pop();
+            }
+            // cleanup the context writer
+            contextWriter.commit(context);
+            context.progress();
+        }
+        
+        getCounter(context, IngestOutput.EVENTS_PROCESSED.name(), value.getDataType().typeName().toUpperCase()).increment(1);
+        
+        offset++;
+        
+        if (metricsEnabled && eventMapperTimer != null) {
+            eventMapperTimer.stop();
+            long timeInEventMapper = eventMapperTimer.elapsed(TimeUnit.MILLISECONDS);
+            
+            metricsLabels.clear();
+            metricsLabels.put("dataType", value.getDataType().typeName());
+            metricsService.collect(Metric.MILLIS_IN_EVENT_MAPPER, metricsLabels.get(), fields, timeInEventMapper);
+        }
+    }
+    
+    /**
+     * Apply the handlers of the given types to an event, and if that fails apply the error handlers instead.
+     *
+     * @param key
+     *            The key of the map process
+     * @param value
+     *            The event
+     * @param handlerTypes
+     *            The types whose handlers to apply
+     * @param fields
+     *            The list which keeps the last set of fields
+     * @param context
+     *            The context
+     * @throws IOException
+     *             if the error handlers fail
+     */
+    private void handleEvent(K1 key, RawRecordContainer value, List<String> handlerTypes, Multimap<String,NormalizedContentInterface> fields, Context context)
+                    throws IOException, InterruptedException {
+        try {
+            List<DataTypeHandler<K1>> handlers = new ArrayList<>();
+            for (String handlerType : handlerTypes) {
+                handlers.addAll(loadDataType(handlerType, context));
+            }
             processEvent(key, value, handlers, fields, context);
         } catch (Exception e) {
             // Rollback anything written for this event
-            contextWriter.rollback();
+            getEventContextWriter().rollback();
             
             // Fail job on constraint violations
             if (e instanceof ConstraintChecker.ConstraintViolationException) {
@@ -521,30 +658,136 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
             for (String exception : exceptions) {
                 getCounter(context, IngestProcess.RUNTIME_EXCEPTION.name(), exception).increment(1);
             }
-        } finally {
-            // Remove ORIG_FILE from NDC that was populated by reprocessing events from the error tables
-            if (reprocessedNDCPush) {
-                NDC.pop();
+        }
+    }
+    
+    /**
+     * Hand an event to the event processing pool, and write the output of the events that have been processed.
+     */
+    @SuppressWarnings("unchecked")
+    private void submitEvent(K1 key, V1 value, final List<String> handlerTypes, final Context context) throws IOException, InterruptedException {
+        // the record reader may reuse the key and event, so the pool gets copies
+        final K1 eventKey = (key instanceof Writable ? (K1) WritableUtils.clone((Writable) key, context.getConfiguration()) : key);
+        final RawRecordContainer event = value.copy();
+        final Stack<?> ndc = NDC.cloneStack();
+        final long eventOffset = offset;
+        pendingEvents.add(eventProcessingPool.submit(() -> processPooledEvent(eventKey, event, handlerTypes, ndc, eventOffset, context)));
+        
+        writeProcessedEvents(context, false);
+    }
+    
+    /**
+     * Process an event on a thread of the event processing pool, buffering its output and counters.
+     */
+    private ProcessedEvent processPooledEvent(K1 key, RawRecordContainer event, List<String> handlerTypes, Stack<?> ndc, long eventOffset, Context context)
+                    throws IOException, InterruptedException {
+        EventProcessor processor = threadProcessor.get();
+        if (processor == null) {
+            processor = new EventProcessor(context);
+            threadProcessor.set(processor);
+            synchronized (eventProcessors) {
+                eventProcessors.add(processor);
             }
-            // cleanup the context writer
-            contextWriter.commit(context);
-            context.progress();
         }
         
-        getCounter(context, IngestOutput.EVENTS_PROCESSED.name(), value.getDataType().typeName().toUpperCase()).increment(1);
-        
-        offset++;
-        
-        if (metricsEnabled && eventMapperTimer != null) {
-            eventMapperTimer.stop();
-            long timeInEventMapper = eventMapperTimer.elapsed(TimeUnit.MILLISECONDS);
+        ProcessedEvent processed = new ProcessedEvent(event.getDataType().typeName());
+        processor.offset = eventOffset;
+        processor.counters = processed.counters;
+        processor.writer = new BufferedContextWriter<>();
+        NDC.inherit(ndc);
+        try {
+            handleEvent(key, event, handlerTypes, HashMultimap.create(), context);
+            processor.writer.commit(context);
+            processed.entries = processor.writer.getCommitted();
+        } finally {
+            NDC.clear();
+            processor.counters = null;
+            processor.writer = null;
+        }
+        return processed;
+    }
+    
+    /**
+     * Write the output and counters of the events processed by the pool, in the order the events were mapped. This waits for the oldest event when there are
+     * too many pending, or for all of them.
+     *
+     * @param context
+     *            The context
+     * @param all
+     *            whether to wait for all of the pending events
+     */
+    private void writeProcessedEvents(Context context, boolean all) throws IOException, InterruptedException {
+        while (!pendingEvents.isEmpty() && (all || pendingEvents.size() > maxPendingEvents || pendingEvents.peek().isDone())) {
+            ProcessedEvent processed;
+            try {
+                processed = pendingEvents.remove().get();
+            } catch (ExecutionException e) {
+                // rethrow the failures that would have ended the map had the event been processed in the map thread
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException("Failed to process an event", cause);
+            }
             
-            metricsLabels.clear();
-            metricsLabels.put("dataType", value.getDataType().typeName());
-            metricsService.collect(Metric.MILLIS_IN_EVENT_MAPPER, metricsLabels.get(), fields, timeInEventMapper);
+            try {
+                contextWriter.write(processed.entries, context);
+            } finally {
+                contextWriter.commit(context);
+            }
+            addCounters(context, processed.counters.getCounters());
+            getCounter(context, IngestOutput.EVENTS_PROCESSED.name(), processed.dataTypeName.toUpperCase()).increment(1);
+            context.progress();
+        }
+    }
+    
+    private void addCounters(Context context, Counters counters) {
+        for (CounterGroup cg : counters) {
+            for (Counter c : cg) {
+                getCounter(context, cg.getName(), c.getName()).increment(c.getValue());
+            }
         }
     }
     
+    /**
+     * The counters of an event processed by the pool are buffered with its output, and added to the context when it is written.
+     */
+    @Override
+    public Counter getCounter(TaskAttemptContext context, String group, String counter) {
+        EventProcessor processor = threadProcessor.get();
+        if (processor != null && processor.counters != null) {
+            return processor.counters.getCounter(group, counter);
+        }
+        return super.getCounter(context, group, counter);
+    }
+    
+    @Override
+    public Counter getCounter(TaskAttemptContext context, Enum<?> counterName) {
+        EventProcessor processor = threadProcessor.get();
+        if (processor != null && processor.counters != null) {
+            return processor.counters.getCounter(counterName);
+        }
+        return super.getCounter(context, counterName);
+    }
+    
+    /**
+     * @return the context writer for the event being processed by this thread
+     */
+    private ContextWriter<K2,V2> getEventContextWriter() {
+        EventProcessor processor = threadProcessor.get();
+        return (processor == null ? contextWriter : processor.writer);
+    }
+    
+    /**
+     * @return the offset of the event being processed by this thread
+     */
+    private long getEventOffset() {
+        EventProcessor processor = threadProcessor.get();
+        return (processor == null ? offset : processor.offset);
+    }
+    
     /**
      * Get an exception synopsis that is suitable as a counter. We want at a minimum the exception name and a useful location. A useful location is defined as
      * the highest location that is in the datawave.ingest package
@@ -598,16 +841,36 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
     @Override
     public void cleanup(Context context) throws IOException, InterruptedException {
         
+        // Write the events still being processed by the pool
+        if (eventProcessingPool != null) {
+            try {
+                writeProcessedEvents(context, true);
+            } finally {
+                eventProcessingPool.shutdownNow();
+            }
+        }
+        
+        // The handlers of the map thread and of each thread of the pool
+        List<Map<String,List<DataTypeHandler<K1>>>> typeMaps = new ArrayList<>();
+        typeMaps.add(typeMap);
+        synchronized (eventProcessors) {
+            for (EventProcessor processor : eventProcessors) {
+                typeMaps.add(processor.typeMap);
+            }
+        }
+        
         // Write the metadata to the output
-        for (List<DataTypeHandler<K1>> handlers : typeMap.values()) {
-            for (DataTypeHandler<K1> h : handlers)
-                if (h.getMetadata() != null) {
-                    try {
-                        contextWriter.write(h.getMetadata().getBulkMetadata(), context);
-                    } finally {
-                        contextWriter.commit(context);
+        for (Map<String,List<DataTypeHandler<K1>>> handlerMap : typeMaps) {
+            for (List<DataTypeHandler<K1>> handlers : handlerMap.values()) {
+                for (DataTypeHandler<K1> h : handlers)
+                    if (h.getMetadata() != null) {
+                        try {
+                            contextWriter.write(h.getMetadata().getBulkMetadata(), context);
+                        } finally {
+                            contextWriter.commit(context);
+                        }
                     }
-                }
+            }
         }
         
         // dump any unflushed metrics
@@ -618,18 +881,21 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         // cleanup the context writer
         contextWriter.cleanup(context);
         
-        for (List<DataTypeHandler<K1>> handlers : typeMap.values()) {
-            for (DataTypeHandler<K1> h : handlers)
-                h.close(context);
+        for (Map<String,List<DataTypeHandler<K1>>> handlerMap : typeMaps) {
+            for (List<DataTypeHandler<K1>> handlers : handlerMap.values()) {
+                for (DataTypeHandler<K1> h : handlers)
+                    h.close(context);
+            }
+            handlerMap.clear();
         }
-        typeMap.clear();
         
-        // Add the counters from the standalone reporter to this context.
-        Counters counters = reporter.getCounters();
-        for (CounterGroup cg : counters) {
-            for (Counter c : cg) {
-                getCounter(context, cg.getName(), c.getName()).increment(c.getValue());
+        // Add the counters from the standalone reporters to this context.
+        addCounters(context, reporter.getCounters());
+        synchronized (eventProcessors) {
+            for (EventProcessor processor : eventProcessors) {
+                addCounters(context, processor.reporter.getCounters());
             }
+            eventProcessors.clear();
         }
         
         super.cleanup(context);
@@ -704,7 +970,8 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
                 previousHelper = thisHelper;
             }
             
-            Collection<FieldValidator> fieldValidators = validators.get(value.getDataType().outputName());
+            EventProcessor processor = threadProcessor.get();
+            Collection<FieldValidator> fieldValidators = (processor == null ? validators : processor.validators).get(value.getDataType().outputName());
             for (FieldValidator validator : fieldValidators) {
                 validator.validate(value, fields);
             }
@@ -763,7 +1030,7 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
             if (null != seqFileName) {
                 StringBuilder seqFile = new StringBuilder(seqFileName);
                 
-                seqFile.append(SRC_FILE_DEL).append(offset);
+                seqFile.append(SRC_FILE_DEL).append(getEventOffset());
                 
                 if (null != splitStart) {
                     seqFile.append(SRC_FILE_DEL).append(splitStart);
@@ -805,16 +1072,21 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         Multimap<BulkIngestKey,Value> r;
         
         if (!(handler instanceof ExtendedDataTypeHandler)) {
-            r = handler.processBulk(key, event, fields, new ContextWrappedStatusReporter(getContext(context)));
+            EventProcessor processor = threadProcessor.get();
+            StatusReporter statusReporter = (processor == null ? new ContextWrappedStatusReporter(getContext(context)) : processor.counters);
+            r = handler.processBulk(key, event, fields, statusReporter);
             if (r == null) {
                 getCounter(context, IngestInput.EVENT_FATAL_ERROR).increment(1);
                 getCounter(context, IngestInput.EVENT_FATAL_ERROR.name(), "NullMultiMap").increment(1);
             } else {
-                contextWriter.write(r, context);
+                getEventContextWriter().write(r, context);
                 count = r.size();
             }
         } else {
-            count = ((ExtendedDataTypeHandler<K1,K2,V2>) handler).process(key, event, fields, context, contextWriter);
+            // on a thread of the event processing pool, the handler gets a context whose counters are buffered with the event's output
+            EventProcessor processor = threadProcessor.get();
+            TaskInputOutputContext<K1,V1,K2,V2> handlerContext = (processor == null ? context : processor.context);
+            count = ((ExtendedDataTypeHandler<K1,K2,V2>) handler).process(key, event, fields, handlerContext, getEventContextWriter());
             if (count == -1) {
                 getCounter(context, IngestInput.EVENT_FATAL_ERROR).increment(1);
                 getCounter(context, IngestInput.EVENT_FATAL_ERROR.name(), "NegOneCount").increment(1);
@@ -854,4 +1126,82 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         return this.typeMap;
     }
     
+    /**
+     * The state of a thread of the event processing pool. The handlers and validators are created per thread, as they are not expected to be thread safe, and
+     * the output and counters of the event being processed are buffered until the map thread writes them.
+     */
+    private class EventProcessor {
+        private final Map<String,List<DataTypeHandler<K1>>> typeMap = new HashMap<>();
+        private final Multimap<String,FieldValidator> validators = ArrayListMultimap.create();
+        private final StandaloneStatusReporter reporter = new StandaloneStatusReporter();
+        private final PooledEventContext context;
+        private long offset;
+        private StandaloneStatusReporter counters;
+        private BufferedContextWriter<K2,V2> writer;
+        
+        private EventProcessor(Context context) {
+            this.context = new PooledEventContext(context);
+        }
+    }
+    
+    /**
+     * The context given to the handlers on a thread of the event processing pool. Its counters are those of the event being processed, and its output has to
+     * go through the context writer, as the map thread writes the output of the events in the order they were mapped.
+     */
+    private class PooledEventContext extends TaskInputOutputContextImpl<K1,V1,K2,V2> {
+        private final Context mapContext;
+        
+        private PooledEventContext(Context mapContext) {
+            super(mapContext.getConfiguration(), mapContext.getTaskAttemptID(), null, null, new StandaloneStatusReporter());
+            this.mapContext = mapContext;
+        }
+        
+        @Override
+        public Counter getCounter(Enum<?> counterName) {
+            return EventMapper.this.getCounter(mapContext, counterName);
+        }
+        
+        @Override
+        public Counter getCounter(String groupName, String counterName) {
+            return EventMapper.this.getCounter(mapContext, groupName, counterName);
+        }
+        
+        @Override
+        public void progress() {
+            mapContext.progress();
+        }
+        
+        @Override
+        public void write(K2 key, V2 value) {
+            throw new UnsupportedOperationException("The handlers of the event processing pool must write through the context writer");
+        }
+        
+        @Override
+        public K1 getCurrentKey() {
+            return null;
+        }
+        
+        @Override
+        public V1 getCurrentValue() {
+            return null;
+        }
+        
+        @Override
+        public boolean nextKeyValue() {
+            return false;
+        }
+    }
+    
+    /**
+     * The output and counters of an event processed by the pool
+     */
+    private static class ProcessedEvent {
+        private final String dataTypeName;
+        private final StandaloneStatusReporter counters = new StandaloneStatusReporter();
+        private Multimap<BulkIngestKey,Value> entries;
+        
+        private ProcessedEvent(String dataTypeName) {
+            this.dataTypeName = dataTypeName;
+        }
+    }
 }
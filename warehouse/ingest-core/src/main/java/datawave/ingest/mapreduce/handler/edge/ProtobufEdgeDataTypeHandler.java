@@ -29,6 +29,7 @@ import datawave.ingest.mapreduce.handler.edge.define.EdgeDefinitionConfiguration
 import datawave.ingest.mapreduce.handler.edge.define.EdgeDirection;
 import datawave.ingest.mapreduce.handler.edge.define.VertexValue;
 import datawave.ingest.mapreduce.handler.edge.define.VertexValue.ValueType;
+import datawave.ingest.mapreduce.handler.edge.evaluation.EdgePrecondition;
 import datawave.ingest.mapreduce.handler.edge.evaluation.EdgePreconditionCacheHelper;
 import datawave.ingest.mapreduce.handler.edge.evaluation.EdgePreconditionJexlContext;
 import datawave.ingest.mapreduce.handler.edge.evaluation.EdgePreconditionJexlEvaluation;
@@ -43,7 +44,6 @@ import datawave.util.time.DateHelper;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.security.ColumnVisibility;
-import org.apache.commons.jexl2.Script;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.StatusReporter;
@@ -126,7 +126,10 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
     private EdgePreconditionJexlContext edgePreconditionContext;
     private EdgePreconditionJexlEvaluation edgePreconditionEvaluation;
     private EdgePreconditionCacheHelper edgePreconditionCacheHelper;
-    private Map<String,Script> scriptCache;
+    private Map<String,EdgePrecondition> preconditionCache;
+    
+    // the results of the preconditions for the current event, as edges may share a precondition
+    private Map<String,Boolean> preconditionResults = new HashMap<>();
     
     protected String edgeTableName = null;
     protected String metadataTableName = null;
@@ -295,7 +298,7 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
             edgePreconditionContext = new EdgePreconditionJexlContext(edges);
             edgePreconditionEvaluation = new EdgePreconditionJexlEvaluation();
             edgePreconditionCacheHelper = new EdgePreconditionCacheHelper();
-            scriptCache = edgePreconditionCacheHelper.createScriptCacheFromEdges(edges);
+            preconditionCache = edgePreconditionCacheHelper.createPreconditionCacheFromEdges(edges);
         } else if (!includeAllEdges) {
             
             // Else remove edges with a precondition. No conditional edge defs will be evaluated possibly resulting in fewer edges
@@ -356,7 +359,7 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
             edgePreconditionContext = new EdgePreconditionJexlContext(edges);
             edgePreconditionEvaluation = new EdgePreconditionJexlEvaluation();
             edgePreconditionCacheHelper = new EdgePreconditionCacheHelper();
-            scriptCache = edgePreconditionCacheHelper.createScriptCacheFromEdges(edges);
+            preconditionCache = edgePreconditionCacheHelper.createPreconditionCacheFromEdges(edges);
         } else {
             
             // Else remove edges with a precondition
@@ -485,8 +488,9 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
          */
         if (evaluatePreconditions) {
             long start = System.currentTimeMillis();
-            edgePreconditionContext.setFilteredContextForNormalizedContentInterface(fields);
+            edgePreconditionContext.setFilteredContextForNormalizedContentInterface(typeName, fields);
             edgePreconditionEvaluation.setJexlContext(edgePreconditionContext);
+            preconditionResults.clear();
             if (log.isTraceEnabled()) {
                 long time = System.currentTimeMillis() - start;
                 // only worth logging those that took some time....
@@ -585,7 +589,12 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
                 if (edgeDef.hasJexlPrecondition()) {
                     jexlPreconditions = edgeDef.getJexlPrecondition();
                     long start = System.currentTimeMillis();
-                    if (!edgePreconditionEvaluation.apply(scriptCache.get(jexlPreconditions))) {
+                    Boolean matched = preconditionResults.get(jexlPreconditions);
+                    if (null == matched) {
+                        matched = preconditionCache.get(jexlPreconditions).evaluate(edgePreconditionEvaluation);
+                        preconditionResults.put(jexlPreconditions, matched);
+                    }
+                    if (!matched) {
                         
                         if (log.isTraceEnabled()) {
                             log.trace("Time to evaluate event(-): " + (System.currentTimeMillis() - start) + "ms.");
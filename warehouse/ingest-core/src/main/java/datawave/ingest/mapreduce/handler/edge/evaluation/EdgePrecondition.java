@@ -0,0 +1,70 @@
+package datawave.ingest.mapreduce.handler.edge.evaluation;
+
+import org.apache.commons.jexl2.Script;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A JEXL precondition of an edge definition, compiled once when the handler is set up, along with the context names of the fields it refers to.
+ * 
+ * The script can only see the values of those fields, so for an event that has none of them the result is the same as against an empty context. That result
+ * is computed once and reused, so the script is only run for the events that have at least one of its fields.
+ */
+public class EdgePrecondition {
+    
+    private final String precondition;
+    private final Script script;
+    private final Set<String> fields;
+    
+    // the result for an event with none of the fields, computed when first needed
+    private Boolean matchedWithoutFields = null;
+    
+    public EdgePrecondition(String precondition, Script script) {
+        this.precondition = precondition;
+        this.script = script;
+        
+        Set<String> names = new HashSet<>();
+        for (List<String> variable : script.getVariables()) {
+            for (String term : variable) {
+                names.add(EdgePreconditionJexlContext.normalizeTerm(EdgePreconditionJexlContext.cleanJexlTerm(term)));
+            }
+        }
+        this.fields = Collections.unmodifiableSet(names);
+    }
+    
+    /**
+     * Evaluate the precondition against a context holding the event
+     * 
+     * @param evaluation
+     *            the evaluation with the context of the event
+     * @return true if the precondition is met
+     */
+    public boolean evaluate(EdgePreconditionJexlEvaluation evaluation) {
+        EdgePreconditionJexlContext context = evaluation.getJexlContext();
+        if (null != context && !context.hasAny(fields)) {
+            if (null == matchedWithoutFields) {
+                matchedWithoutFields = evaluation.isMatched(script.execute(new EdgePreconditionJexlContext()));
+            }
+            return matchedWithoutFields;
+        }
+        return evaluation.apply(script);
+    }
+    
+    public String getPrecondition() {
+        return precondition;
+    }
+    
+    public Script getScript() {
+        return script;
+    }
+    
+    /**
+     * @return the context names of the fields the precondition refers to
+     */
+    public Set<String> getFields() {
+        return fields;
+    }
+}
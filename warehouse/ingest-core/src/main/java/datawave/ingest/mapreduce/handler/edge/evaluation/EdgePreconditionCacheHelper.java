@@ -42,6 +42,20 @@ public class EdgePreconditionCacheHelper {
         return scriptCache;
     }
     
+    /**
+     * Compile the preconditions of the edges once, keyed by the precondition, so that edges sharing a precondition share its evaluation
+     */
+    public Map<String,EdgePrecondition> createPreconditionCacheFromEdges(Map<String,EdgeDefinitionConfigurationHelper> edges) {
+        
+        Map<String,EdgePrecondition> preconditionCache = new HashMap<>();
+        
+        for (Map.Entry<String,Script> entry : createScriptCacheFromEdges(edges).entrySet()) {
+            preconditionCache.put(entry.getKey(), new EdgePrecondition(entry.getKey(), entry.getValue()));
+        }
+        
+        return preconditionCache;
+    }
+    
     public Script createScriptFromString(String jexlPrecondition) {
         return engine.createScript(jexlPrecondition);
     }
@@ -11,6 +11,7 @@ import org.apache.commons.jexl2.Script;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
 //import scala.collection.mutable.MultiMap;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Collection;
@@ -23,6 +24,8 @@ public class EdgePreconditionJexlContext extends MultimapContext {
     
     private HashSet<String> filterFieldKeys;
     
+    private Map<String,HashSet<String>> filterFieldKeysByDataType = new HashMap<>();
+    
     /**
      * This constructor creates a context based on a single list of edge definitions
      *
@@ -52,7 +55,9 @@ public class EdgePreconditionJexlContext extends MultimapContext {
         filterFieldKeys = new HashSet<>();
         for (String dataTypeKey : edgesByDataType.keySet()) {
             EdgeDefinitionConfigurationHelper helper = edgesByDataType.get(dataTypeKey);
-            filterFieldKeys.addAll(createFilterKeysFromEdgeDefinitions(helper.getEdges()));
+            HashSet<String> dataTypeFilterFieldKeys = createFilterKeysFromEdgeDefinitions(helper.getEdges());
+            filterFieldKeysByDataType.put(dataTypeKey, dataTypeFilterFieldKeys);
+            filterFieldKeys.addAll(dataTypeFilterFieldKeys);
         }
     }
     
@@ -94,7 +99,7 @@ public class EdgePreconditionJexlContext extends MultimapContext {
     
     // Small helper method, removes the leading $ escape char from the edge definition term so it may
     // be used as a key within the context.
-    private String cleanJexlTerm(String term) {
+    static String cleanJexlTerm(String term) {
         return term.replace("$", "");
     }
     
@@ -108,6 +113,26 @@ public class EdgePreconditionJexlContext extends MultimapContext {
      *            -- A MultiMap of type NormalizedContentInterface representation of the event.
      */
     public void setFilteredContextForNormalizedContentInterface(Multimap<String,NormalizedContentInterface> nciEvent) {
+        setFilteredContext(nciEvent, filterFieldKeys);
+    }
+    
+    /**
+     * This method will load the sub-set of the fields in an event that could be evaluated by the Jexl Preconditions of the edges of its data type, or of any
+     * data type if this context was not created for it.
+     *
+     * This should only be called once per process() call, and clears the map of event values
+     *
+     * @param dataType
+     *            -- The data type of the event.
+     * @param nciEvent
+     *            -- A MultiMap of type NormalizedContentInterface representation of the event.
+     */
+    public void setFilteredContextForNormalizedContentInterface(String dataType, Multimap<String,NormalizedContentInterface> nciEvent) {
+        HashSet<String> dataTypeFilterFieldKeys = filterFieldKeysByDataType.get(dataType);
+        setFilteredContext(nciEvent, (null == dataTypeFilterFieldKeys ? filterFieldKeys : dataTypeFilterFieldKeys));
+    }
+    
+    private void setFilteredContext(Multimap<String,NormalizedContentInterface> nciEvent, Set<String> filterFieldKeys) {
         clearContext();
         for (String filterFieldKey : filterFieldKeys) {
             Collection<NormalizedContentInterface> nciCollection = nciEvent.get(filterFieldKey);
@@ -125,7 +150,7 @@ public class EdgePreconditionJexlContext extends MultimapContext {
         }
     }
     
-    private String normalizeTerm(String filterFieldKey) {
+    static String normalizeTerm(String filterFieldKey) {
         if (Character.isDigit(filterFieldKey.charAt(0))) {
             return "$" + filterFieldKey;
         }
@@ -139,4 +164,18 @@ public class EdgePreconditionJexlContext extends MultimapContext {
     public void clearContext() {
         this.values.clear();
     }
+    
+    /**
+     * @param names
+     *            -- context names, as normalized terms
+     * @return true if any of the names has a value in this context
+     */
+    public boolean hasAny(Set<String> names) {
+        for (String name : names) {
+            if (this.values.containsKey(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
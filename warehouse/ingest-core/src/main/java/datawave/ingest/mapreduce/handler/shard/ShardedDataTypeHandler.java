@@ -208,6 +208,12 @@ public abstract class ShardedDataTypeHandler<KEYIN> extends StatsDEnabledDataTyp
     boolean isReindexEnabled;
     private Collection<String> requestedFieldsForReindex;
     
+    /**
+     * Determines whether a subclass overrides one of the Multimap-returning column methods, in which case the columns are created through them rather than
+     * written directly into the multimap of the event.
+     */
+    private boolean overridesColumnMethods = true;
+    
     @Override
     public void setup(TaskAttemptContext context) {
         markingFunctions = MarkingFunctions.Factory.createMarkingFunctions();
@@ -282,6 +288,41 @@ public abstract class ShardedDataTypeHandler<KEYIN> extends StatsDEnabledDataTyp
         
         // Event key suppression
         this.suppressEventKeys = conf.getBoolean(SUPPRESS_EVENT_KEYS, false);
+        
+        this.overridesColumnMethods = overridesColumnMethods();
+        if (log.isDebugEnabled()) {
+            log.debug(getClass().getName() + " overrides the column methods: " + this.overridesColumnMethods);
+        }
+    }
+    
+    private boolean overridesColumnMethods() {
+        return isOverridden("createShardEventColumn", RawRecordContainer.class, Text.class, NormalizedContentInterface.class, byte[].class, byte[].class,
+                        MaskedFieldHelper.class, byte[].class)
+                        || isOverridden("createShardFieldIndexColumn", RawRecordContainer.class, String.class, String.class, byte[].class, byte[].class,
+                                        MaskedFieldHelper.class, byte[].class, Value.class)
+                        || isOverridden("createTermIndexColumn", RawRecordContainer.class, String.class, String.class, byte[].class, byte[].class,
+                                        MaskedFieldHelper.class, byte[].class, Text.class, Value.class)
+                        || isOverridden("createStats", IngestHelperInterface.class, RawRecordContainer.class, Multimap.class,
+                                        NormalizedContentInterface.class, byte[].class, byte[].class, MaskedFieldHelper.class, byte[].class, Value.class,
+                                        StatusReporter.class)
+                        || isOverridden("createForwardIndices", IngestHelperInterface.class, RawRecordContainer.class, Multimap.class,
+                                        NormalizedContentInterface.class, byte[].class, byte[].class, MaskedFieldHelper.class, byte[].class, Value.class,
+                                        StatusReporter.class)
+                        || isOverridden("createReverseIndices", IngestHelperInterface.class, RawRecordContainer.class, Multimap.class,
+                                        NormalizedContentInterface.class, byte[].class, byte[].class, MaskedFieldHelper.class, byte[].class, Value.class,
+                                        StatusReporter.class);
+    }
+    
+    private boolean isOverridden(String name, Class<?>... parameterTypes) {
+        for (Class<?> c = getClass(); c != ShardedDataTypeHandler.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod(name, parameterTypes);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // not declared by this class, check its superclass
+            }
+        }
+        return false;
     }
     
     private void setupToReindexIfEnabled(Configuration conf) {
@@ -415,7 +456,8 @@ public abstract class ShardedDataTypeHandler<KEYIN> extends StatsDEnabledDataTyp
     protected Multimap<BulkIngestKey,Value> createColumns(RawRecordContainer event, Multimap<String,NormalizedContentInterface> fields, StatusReporter reporter) {
         IngestHelperInterface helper = this.getHelper(event.getDataType());
         
-        Multimap<BulkIngestKey,Value> values = HashMultimap.create();
+        // most fields produce an event key and a couple of index keys, each with a single value
+        Multimap<BulkIngestKey,Value> values = HashMultimap.create(null == fields ? 16 : 3 * fields.size(), 1);
         
         byte[] maskedVisibility = computeMaskedVisibility(event);
         MaskedFieldHelper maskedFieldHelper = createMaskedFieldHelper(helper, event);
@@ -438,7 +480,11 @@ public abstract class ShardedDataTypeHandler<KEYIN> extends StatsDEnabledDataTyp
                     NormalizedContentInterface value = e.getValue();
                     byte[] visibility = getVisibility(event, value);
                     
-                    values.putAll(createShardEventColumn(event, colf, value, visibility, maskedVisibility, maskedFieldHelper, shardId));
+                    if (overridesColumnMethods) {
+                        values.putAll(createShardEventColumn(event, colf, value, visibility, maskedVisibility, maskedFieldHelper, shardId));
+                    } else {
+                        createShardEventColumn(event, values, colf, value, visibility, maskedVisibility, maskedFieldHelper, shardId);
+                    }
                     
                 }
             }
@@ -450,20 +496,31 @@ public abstract class ShardedDataTypeHandler<KEYIN> extends StatsDEnabledDataTyp
                     log.trace("Is " + e.getKey() + " indexed? " + hasIndexTerm(e.getKey()) + " " + helper.isIndexedField(e.getKey()));
                 }
                 
-                values.putAll(createForwardIndices(helper, event, fields, value, visibility, maskedVisibility, maskedFieldHelper, shardId, indexedValue,
-                                reporter));
+                if (overridesColumnMethods) {
+                    values.putAll(createForwardIndices(helper, event, fields, value, visibility, maskedVisibility, maskedFieldHelper, shardId, indexedValue,
+                                    reporter));
+                } else {
+                    createForwardIndices(event, values, fields, value, visibility, maskedVisibility, maskedFieldHelper, shardId, indexedValue, reporter);
+                }
                 
-                if (getProduceStats())
-                    values.putAll(createStats(helper, event, fields, value, visibility, maskedVisibility, maskedFieldHelper, shardId, indexedValue, reporter));
+                if (getProduceStats()) {
+                    if (overridesColumnMethods) {
+                        values.putAll(createStats(helper, event, fields, value, visibility, maskedVisibility, maskedFieldHelper, shardId, indexedValue,
+                                        reporter));
+                    } else {
+                        createStats(event, values, value, visibility, maskedVisibility, maskedFieldHelper, shardId, indexedValue);
+                    }
+                }
                 
                 if (getShardDictionaryIndexTableName() != null) {
-                    if (dCache.getIfPresent(value.getIndexedFieldName() + value.getIndexedFieldValue() + visibility + maskedVisibility) == null) {
+                    String dictionaryKey = value.getIndexedFieldName() + value.getIndexedFieldValue() + visibility + maskedVisibility;
+                    if (dCache.getIfPresent(dictionaryKey) == null) {
                         createDictionaryColumn(event, values, value.getIndexedFieldName(), value.getIndexedFieldValue(), visibility, maskedVisibility,
                                         maskedFieldHelper, this.SHARD_DINDX_FLABEL, this.getShardDictionaryIndexTableName());
                         createDictionaryColumn(event, values, value.getIndexedFieldName(), StringUtils.reverse(value.getIndexedFieldValue()), visibility,
                                         maskedVisibility, maskedFieldHelper, this.SHARD_DINDX_RLABEL, this.getShardDictionaryIndexTableName());
                     }
-                    dCache.put(value.getIndexedFieldName() + value.getIndexedFieldValue() + visibility + maskedVisibility, e.getValue().getIndexedFieldValue());
+                    dCache.put(dictionaryKey, e.getValue().getIndexedFieldValue());
                 }
                 
             }
@@ -471,8 +528,13 @@ public abstract class ShardedDataTypeHandler<KEYIN> extends StatsDEnabledDataTyp
             for (Entry<String,NormalizedContentInterface> e : getGlobalReverseIndexTerms().entries()) {
                 NormalizedContentInterface value = e.getValue();
                 byte[] visibility = getVisibility(event, value);
-                values.putAll(createReverseIndices(helper, event, fields, value, visibility, maskedVisibility, maskedFieldHelper, shardId, indexedValue,
-                                reporter));
+                if (overridesColumnMethods) {
+                    values.putAll(createReverseIndices(helper, event, fields, value, visibility, maskedVisibility, maskedFieldHelper, shardId, indexedValue,
+                                    reporter));
+                } else {
+                    createTermIndexColumn(event, values, value.getIndexedFieldName(), value.getIndexedFieldValue(), visibility, maskedVisibility,
+                                    maskedFieldHelper, shardId, this.getShardReverseIndexTableName(), indexedValue);
+                }
                 
             }
             
@@ -506,6 +568,20 @@ public abstract class ShardedDataTypeHandler<KEYIN> extends StatsDEnabledDataTyp
         return values;
     }
     
+    /**
+     * Creates the stats columns, adding them to values rather than to a new multimap. Only used when no subclass overrides the column methods.
+     */
+    private void createStats(RawRecordContainer event, Multimap<BulkIngestKey,Value> values, NormalizedContentInterface value, byte[] visibility,
+                    byte[] maskedVisibility, MaskedFieldHelper maskedFieldHelper, byte[] shardId, Value indexValue) {
+        createTermIndexColumn(event, values, value.getIndexedFieldName(), value.getIndexedFieldValue(), visibility, maskedVisibility, maskedFieldHelper,
+                        shardId, this.getIndexStatsTableName(), indexValue);
+        
+        String reverse = new StringBuilder(value.getIndexedFieldValue()).reverse().toString();
+        
+        createTermIndexColumn(event, values, value.getIndexedFieldName(), reverse, visibility, maskedVisibility, maskedFieldHelper, shardId,
+                        this.getIndexStatsTableName(), indexValue);
+    }
+    
     /**
      * @param helper
      * @param event
@@ -537,6 +613,21 @@ public abstract class ShardedDataTypeHandler<KEYIN> extends StatsDEnabledDataTyp
         return values;
     }
     
+    /**
+     * Creates the field index and global index columns, adding them to values rather than to a new multimap. Only used when no subclass overrides the column
+     * methods.
+     */
+    private void createForwardIndices(RawRecordContainer event, Multimap<BulkIngestKey,Value> values, Multimap<String,NormalizedContentInterface> fields,
+                    NormalizedContentInterface value, byte[] visibility, byte[] maskedVisibility, MaskedFieldHelper maskedFieldHelper, byte[] shardId,
+                    Value indexValue, StatusReporter reporter) {
+        String fieldName = value.getIndexedFieldName();
+        String fieldValue = value.getIndexedFieldValue();
+        createShardFieldIndexColumn(event, values, fieldName, fieldValue, visibility, maskedVisibility, maskedFieldHelper, shardId,
+                        createBloomFilter(event, fields, reporter));
+        createTermIndexColumn(event, values, fieldName, fieldValue, visibility, maskedVisibility, maskedFieldHelper, shardId, this.getShardIndexTableName(),
+                        indexValue);
+    }
+    
     protected Multimap<BulkIngestKey,Value> createReverseIndices(IngestHelperInterface helper, RawRecordContainer event,
                     Multimap<String,NormalizedContentInterface> fields, NormalizedContentInterface value, byte[] visibility, byte[] maskedVisibility,
                     MaskedFieldHelper maskedFieldHelper, byte[] shardId, Value indexValue, StatusReporter reporter) {
@@ -656,19 +747,39 @@ public abstract class ShardedDataTypeHandler<KEYIN> extends StatsDEnabledDataTyp
      */
     protected Multimap<BulkIngestKey,Value> createTermIndexColumn(RawRecordContainer event, String column, String fieldValue, byte[] visibility,
                     byte[] maskedVisibility, MaskedFieldHelper maskedFieldHelper, byte[] shardId, Text tableName, Value indexValue) {
+        Multimap<BulkIngestKey,Value> values = ArrayListMultimap.create();
+        createTermIndexColumn(event, values, column, fieldValue, visibility, maskedVisibility, maskedFieldHelper, shardId, tableName, indexValue);
+        return values;
+    }
+    
+    /**
+     * Creates a global index BulkIngestKey and Value, adding them to values rather than to a new multimap, and does apply masking logic. The index helpers
+     * call it directly unless a subclass overrides one of the Multimap-returning column methods.
+     * 
+     * @param event
+     * @param values
+     * @param column
+     * @param fieldValue
+     * @param visibility
+     * @param maskedVisibility
+     * @param maskedFieldHelper
+     * @param shardId
+     * @param tableName
+     * @param indexValue
+     */
+    protected void createTermIndexColumn(RawRecordContainer event, Multimap<BulkIngestKey,Value> values, String column, String fieldValue, byte[] visibility,
+                    byte[] maskedVisibility, MaskedFieldHelper maskedFieldHelper, byte[] shardId, Text tableName, Value indexValue) {
         // Shard Global Index Table Structure
         // Row: Field Value
         // Colf: Field Name
         // Colq: Shard Id : DataType
         // Value: UID
         
-        Multimap<BulkIngestKey,Value> values = ArrayListMultimap.create();
-        
         if (log.isTraceEnabled()) {
             log.trace("Create index column " + tableName);
         }
         if (null == tableName) {
-            return values;
+            return;
         }
         
         // hold on to the helper
@@ -723,8 +834,6 @@ public abstract class ShardedDataTypeHandler<KEYIN> extends StatsDEnabledDataTyp
             values.put(bkey, val);
             
         }
-        
-        return values;
     }
     
     /**
@@ -824,8 +933,26 @@ public abstract class ShardedDataTypeHandler<KEYIN> extends StatsDEnabledDataTyp
      */
     protected Multimap<BulkIngestKey,Value> createShardEventColumn(RawRecordContainer event, Text colf, NormalizedContentInterface nFV, byte[] visibility,
                     byte[] maskedVisibility, MaskedFieldHelper maskedFieldHelper, byte[] shardId) {
-        
         Multimap<BulkIngestKey,Value> values = ArrayListMultimap.create();
+        createShardEventColumn(event, values, colf, nFV, visibility, maskedVisibility, maskedFieldHelper, shardId);
+        return values;
+    }
+    
+    /**
+     * Creates a shard column key, adding it to values rather than to a new multimap, and does apply masking logic. {@link #createColumns} calls
+     * it directly unless a subclass overrides one of the Multimap-returning column methods.
+     * 
+     * @param event
+     * @param values
+     * @param colf
+     * @param nFV
+     * @param visibility
+     * @param maskedVisibility
+     * @param maskedFieldHelper
+     * @param shardId
+     */
+    protected void createShardEventColumn(RawRecordContainer event, Multimap<BulkIngestKey,Value> values, Text colf, NormalizedContentInterface nFV,
+                    byte[] visibility, byte[] maskedVisibility, MaskedFieldHelper maskedFieldHelper, byte[] shardId) {
         // hold on to the helper
         IngestHelperInterface helper = this.getHelper(event.getDataType());
         boolean replaceMalformedUTF8 = helper.getReplaceMalformedUTF8();
@@ -836,12 +963,12 @@ public abstract class ShardedDataTypeHandler<KEYIN> extends StatsDEnabledDataTyp
         String indexedFieldName = nFV.getIndexedFieldName();
         
         if (helper.isIndexOnlyField(indexedFieldName) || null == fieldValue) {
-            return values;
+            return;
         }
         
         // don't put composite fields into the event table, unless it is an overloaded composite field
         if (helper.isCompositeField(indexedFieldName) && !helper.isOverloadedCompositeField(indexedFieldName)) {
-            return values;
+            return;
         }
         
         // Create unmasked colq
@@ -885,9 +1012,6 @@ public abstract class ShardedDataTypeHandler<KEYIN> extends StatsDEnabledDataTyp
                 log.trace("Creating bulk ingest Key " + bKey);
             values.put(bKey, NULL_VALUE);
         }
-        
-        return values;
-        
     }
     
     protected void createMaskedShardEventColumn(RawRecordContainer event, Text colf, byte[] maskedVisibility, byte[] shardId,
@@ -924,62 +1048,8 @@ public abstract class ShardedDataTypeHandler<KEYIN> extends StatsDEnabledDataTyp
      */
     protected Multimap<BulkIngestKey,Value> createShardFieldIndexColumn(RawRecordContainer event, String fieldName, String fieldValue, byte[] visibility,
                     byte[] maskedVisibility, MaskedFieldHelper maskedFieldHelper, byte[] shardId, Value value) {
-        if (log.isTraceEnabled())
-            log.trace("Field value is " + fieldValue);
-        
-        // hold on to the helper
-        IngestHelperInterface helper = this.getHelper(event.getDataType());
-        boolean replaceMalformedUTF8 = helper.getReplaceMalformedUTF8();
-        boolean deleteMode = helper.getDeleteMode();
-        
         Multimap<BulkIngestKey,Value> values = HashMultimap.create();
-        
-        Text colf = new Text("fi");
-        TextUtil.textAppend(colf, fieldName, replaceMalformedUTF8);
-        Text unmaskedColq = new Text(fieldValue);
-        TextUtil.textAppend(unmaskedColq, event.getDataType().outputName(), replaceMalformedUTF8);
-        TextUtil.textAppend(unmaskedColq, event.getId().toString(), replaceMalformedUTF8);
-        
-        if (value == null) {
-            value = NULL_VALUE;
-        }
-        
-        if (null != maskedFieldHelper && maskedFieldHelper.contains(fieldName)) {
-            if (!StringUtils.isEmpty(fieldValue)) {
-                // Put unmasked colq with original visibility
-                Key k = createKey(shardId, colf, unmaskedColq, visibility, event.getDate(), deleteMode);
-                BulkIngestKey bKey = new BulkIngestKey(this.getShardTableName(), k);
-                values.put(bKey, value);
-            }
-            
-            // We need to use the normalized masked values
-            final String normalizedMaskedValue = helper.getNormalizedMaskedValue(fieldName);
-            if (!StringUtils.isEmpty(normalizedMaskedValue)) {
-                Text maskedColq = new Text(normalizedMaskedValue);
-                TextUtil.textAppend(maskedColq, event.getDataType().outputName(), replaceMalformedUTF8);
-                TextUtil.textAppend(maskedColq, event.getId().toString(), replaceMalformedUTF8);
-                
-                // Put masked colq with masked visibility
-                Key k = createKey(shardId, colf, maskedColq, maskedVisibility, event.getDate(), deleteMode);
-                BulkIngestKey bKey = new BulkIngestKey(this.getShardTableName(), k);
-                values.put(bKey, value);
-            }
-        } else if (!StringUtils.isEmpty(fieldValue)) {
-            /**
-             * For values that are not being masked, we use the "unmaskedValue" and the masked visibility e.g. release the value as it was in the event at the
-             * lower visibility
-             */
-            byte[] refVisibility = visibility;
-            
-            if (null != maskedFieldHelper) {
-                refVisibility = maskedVisibility;
-            }
-            
-            Key k = createKey(shardId, colf, unmaskedColq, refVisibility, event.getDate(), deleteMode);
-            BulkIngestKey bKey = new BulkIngestKey(this.getShardTableName(), k);
-            values.put(bKey, value);
-        }
-        
+        createShardFieldIndexColumn(event, values, fieldName, fieldValue, visibility, maskedVisibility, maskedFieldHelper, shardId, value);
         return values;
     }
     
@@ -996,6 +1066,9 @@ public abstract class ShardedDataTypeHandler<KEYIN> extends StatsDEnabledDataTyp
      */
     protected void createShardFieldIndexColumn(RawRecordContainer event, Multimap<BulkIngestKey,Value> values, String fieldName, String fieldValue,
                     byte[] visibility, byte[] maskedVisibility, MaskedFieldHelper maskedFieldHelper, byte[] shardId, Value value) {
+        if (log.isTraceEnabled())
+            log.trace("Field value is " + fieldValue);
+        
         // hold on to the helper
         IngestHelperInterface helper = this.getHelper(event.getDataType());
         boolean replaceMalformedUTF8 = helper.getReplaceMalformedUTF8();
@@ -1194,7 +1267,7 @@ public abstract class ShardedDataTypeHandler<KEYIN> extends StatsDEnabledDataTyp
         Text colq = new Text(fieldName);
         
         Key k = this.createIndexKey(fieldValue.getBytes(), colf, colq, visibility, event.getDate(), false);
-        Value val = new Value("".getBytes());
+        Value val = NULL_VALUE;
         
         BulkIngestKey bKey = new BulkIngestKey(tableName, k);
         values.put(bKey, val);
@@ -1232,7 +1305,7 @@ public abstract class ShardedDataTypeHandler<KEYIN> extends StatsDEnabledDataTyp
             Text colf = new Text(directionColFam);
             Text colq = new Text(fieldName);
             
-            Value val = new Value("".getBytes());
+            Value val = NULL_VALUE;
             
             // Dont create index entries for empty values
             if (!StringUtils.isEmpty(normalizedMaskedValue)) {
@@ -1255,7 +1328,7 @@ public abstract class ShardedDataTypeHandler<KEYIN> extends StatsDEnabledDataTyp
             Text colq = new Text(fieldName);
             // TextUtil.textAppend(colq, event.getDataType().outputName(), helper.getReplaceMalformedUTF8());
             
-            Value val = new Value("".getBytes());
+            Value val = NULL_VALUE;
             
             /**
              * For values that are not being masked, we use the "unmaskedValue" and the masked visibility e.g. release the value as it was in the event at the
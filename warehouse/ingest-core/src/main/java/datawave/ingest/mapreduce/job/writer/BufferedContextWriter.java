@@ -0,0 +1,73 @@
+package datawave.ingest.mapreduce.job.writer;
+
+import java.io.IOException;
+
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+
+import org.apache.accumulo.core.data.Value;
+
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.Multimap;
+
+/**
+ * A context writer that keeps what is written in memory, in the order it was written, until it is taken with {@link #getCommitted()} and written to the real
+ * context writer. This allows the keys and values of an event to be produced by one thread and written to the context by another. A commit moves the pending
+ * entries to the committed ones, and a rollback discards the pending entries, as with the other context writers.
+ * 
+ * @param <OK>
+ *            The output key
+ * @param <OV>
+ *            The output value
+ */
+public class BufferedContextWriter<OK,OV> implements ContextWriter<OK,OV> {
+    
+    private Multimap<BulkIngestKey,Value> committed = LinkedListMultimap.create();
+    private Multimap<BulkIngestKey,Value> pending = LinkedListMultimap.create();
+    
+    @Override
+    public void setup(Configuration conf, boolean outputTableCounters) throws IOException, InterruptedException {
+        // nothing to set up
+    }
+    
+    @Override
+    public void write(BulkIngestKey key, Value value, TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+        pending.put(key, value);
+    }
+    
+    @Override
+    public void write(Multimap<BulkIngestKey,Value> entries, TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+        pending.putAll(entries);
+    }
+    
+    @Override
+    public void commit(TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+        if (committed.isEmpty()) {
+            committed = pending;
+        } else {
+            committed.putAll(pending);
+        }
+        pending = LinkedListMultimap.create();
+    }
+    
+    @Override
+    public void rollback() throws IOException, InterruptedException {
+        pending = LinkedListMultimap.create();
+    }
+    
+    @Override
+    public void cleanup(TaskInputOutputContext<?,?,OK,OV> context) throws IOException, InterruptedException {
+        commit(context);
+    }
+    
+    /**
+     * @return the entries committed so far, which are no longer held by this writer
+     */
+    public Multimap<BulkIngestKey,Value> getCommitted() {
+        Multimap<BulkIngestKey,Value> entries = committed;
+        committed = LinkedListMultimap.create();
+        return entries;
+    }
+}
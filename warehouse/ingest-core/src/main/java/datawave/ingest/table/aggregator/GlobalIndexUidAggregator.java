@@ -1,5 +1,7 @@
 package datawave.ingest.table.aggregator;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 
@@ -7,26 +9,42 @@ import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.log4j.Logger;
 
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
-
-import datawave.ingest.protobuf.Uid;
+import com.google.protobuf.WireFormat;
 
 /**
  * Implementation of an Aggregator that aggregates objects of the type Uid.List. This is an optimization for the shardIndex and shardReverseIndex, where the
  * list of UIDs for events will be maintained in the global index for low cardinality terms.
  * 
- * 
+ * The Uid.List values are merged directly from their serialized form: the fields of each value are read in a single pass without building a Uid.List, the
+ * UIDs are compared as bytes in place, and the aggregate is written without a builder. The result is the same as parsing and building the Uid.List.
  * 
  */
 public class GlobalIndexUidAggregator extends PropogatingCombiner {
     private static final Logger log = Logger.getLogger(GlobalIndexUidAggregator.class);
-    private Uid.List.Builder builder = Uid.List.newBuilder();
+    
+    /**
+     * The field numbers of the Uid.List
+     */
+    private static final int IGNORE_FIELD = 1;
+    private static final int COUNT_FIELD = 2;
+    private static final int UID_FIELD = 3;
+    private static final int REMOVEDUID_FIELD = 4;
+    private static final int QUARANTINEUID_FIELD = 5;
+    
+    private static final int IGNORE_TAG = IGNORE_FIELD << 3 | WireFormat.WIRETYPE_VARINT;
+    private static final int COUNT_TAG = COUNT_FIELD << 3 | WireFormat.WIRETYPE_VARINT;
+    private static final int UID_TAG = UID_FIELD << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int REMOVEDUID_TAG = REMOVEDUID_FIELD << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int QUARANTINEUID_TAG = QUARANTINEUID_FIELD << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
     
     /**
      * Using a set instead of a list so that duplicate UIDs are filtered out of the list. This might happen in the case of rows with masked fields that share a
      * UID.
      */
-    private HashSet<String> uids = new HashSet<String>();
+    private UidSet uids = new UidSet();
     
     public GlobalIndexUidAggregator(int max) {
         this.maxUids = max;
@@ -39,17 +57,17 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
     /**
      * List of UIDs to remove.
      */
-    private HashSet<String> uidsToRemove = new HashSet<String>();
+    private UidSet uidsToRemove = new UidSet();
     
     /**
      * List of UIDs to remove.
      */
-    private HashSet<String> quarantinedIds = new HashSet<String>();
+    private UidSet quarantinedIds = new UidSet();
     
     /**
      * List of UIDs to remove.
      */
-    private HashSet<String> releasedUids = new HashSet<String>();
+    private UidSet releasedUids = new UidSet();
     
     /**
      * flag for whether or not we have seen ignore
@@ -76,21 +94,28 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
      */
     protected HashSet<String> tempSet;
     
+    /**
+     * The IGNORE and COUNT of the value being merged
+     */
+    private boolean valueIgnore;
+    private long valueCount;
+    
+    /**
+     * The UIDs of the value being merged, as triples of field number, offset and length in the value
+     */
+    private int[] entries = new int[3 * 16];
+    private int entryCount = 0;
+    
     public Value aggregate() {
         
         // as a backup, we remove the intersection of the UID sets
         
-        builder.setCOUNT(count);
-        
-        if (seenIgnore || count > maxUids) {
-            builder.setIGNORE(true);
-            builder.clearUID();
+        boolean ignore = seenIgnore || count > maxUids;
+        if (ignore) {
             // if we catch seenIgnore, then there is
             // no need to propogate removals.
             propogate = false;
         } else {
-            builder.setIGNORE(false);
-            
             uidsToRemove.removeAll(quarantinedIds);
             uidsToRemove.removeAll(releasedUids);
             quarantinedIds.removeAll(releasedUids);
@@ -103,27 +128,64 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
                     log.debug("Adding released UIDS");
                 uids.addAll(releasedUids);
             }
-            
-            builder.addAllUID(uids);
         }
         
         if (log.isDebugEnabled())
             log.debug("Propogating: " + propogate);
         
-        // clear all removals
-        builder.clearREMOVEDUID();
-        
+        int size = CodedOutputStream.computeBoolSize(IGNORE_FIELD, ignore) + CodedOutputStream.computeUInt64Size(COUNT_FIELD, count);
+        if (!ignore) {
+            size += serializedSize(UID_FIELD, uids);
+        }
         if (propogate) {
-            
-            builder.addAllREMOVEDUID(uidsToRemove);
-            builder.addAllQUARANTINEUID(quarantinedIds);
+            size += serializedSize(REMOVEDUID_FIELD, uidsToRemove) + serializedSize(QUARANTINEUID_FIELD, quarantinedIds);
+        }
+        
+        byte[] bytes = new byte[size];
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        try {
+            output.writeBool(IGNORE_FIELD, ignore);
+            output.writeUInt64(COUNT_FIELD, count);
+            if (!ignore) {
+                write(output, UID_FIELD, uids);
+            }
+            if (propogate) {
+                write(output, REMOVEDUID_FIELD, uidsToRemove);
+                write(output, QUARANTINEUID_FIELD, quarantinedIds);
+            }
+            output.checkNoSpaceLeft();
+        } catch (IOException e) {
+            throw new RuntimeException("Serializing the aggregate to a byte array threw an IOException (should never happen).", e);
         }
+        
         if (log.isDebugEnabled())
-            log.debug("Building aggregate. Count is " + count + ", uids.size() is " + uids.size() + ". builder size is " + builder.getUIDList().size());
-        return new Value(builder.build().toByteArray());
+            log.debug("Building aggregate. Count is " + count + ", uids.size() is " + uids.size() + ". aggregate size is " + size);
+        return new Value(bytes);
         
     }
     
+    private static int serializedSize(int field, UidSet set) {
+        int size = 0;
+        for (int i = 0; i < set.slots(); i++) {
+            byte[] uid = set.get(i);
+            if (uid != null) {
+                size += CodedOutputStream.computeTagSize(field) + CodedOutputStream.computeRawVarint32Size(uid.length) + uid.length;
+            }
+        }
+        return size;
+    }
+    
+    private static void write(CodedOutputStream output, int field, UidSet set) throws IOException {
+        for (int i = 0; i < set.slots(); i++) {
+            byte[] uid = set.get(i);
+            if (uid != null) {
+                output.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                output.writeRawVarint32(uid.length);
+                output.writeRawBytes(uid);
+            }
+        }
+    }
+    
     /**
      * We should closely examine the possible use cases to ensure that we have covered all scenarios.
      * 
@@ -139,95 +201,149 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
     public Value reduce(Key key, Iterator<Value> iter) {
         if (log.isTraceEnabled())
             log.trace("has next ? " + iter.hasNext());
+        long start = (log.isDebugEnabled() ? System.nanoTime() : 0);
+        int merged = 0;
         while (iter.hasNext()) {
             
             Value value = iter.next();
             
             // Collect the values, which are serialized Uid.List objects
             try {
-                Uid.List v = Uid.List.parseFrom(value.get());
-                
-                long delta = v.getCOUNT();
-                
-                count += delta;
-                /**
-                 * Fail fast approach.
-                 */
-                if (v.getIGNORE()) {
-                    seenIgnore = true;
-                    if (log.isDebugEnabled())
-                        log.debug("SeenIgnore is true. Skipping collections");
+                byte[] bytes = value.get();
+                read(bytes);
+                merge(bytes);
+                merged++;
+            } catch (IOException e) {
+                if (key.isDeleted()) {
+                    log.warn("Value passed to aggregator for a delete key was not of type Uid.List");
+                } else {
+                    log.error("Value passed to aggregator was not of type Uid.List", e);
                 }
-                
-                // if delta > 0, we are collecting the uid list
-                // in the protobuf into our object's uid list.
-                if (delta > 0) {
-                    
-                    for (String uid : v.getQUARANTINEUIDList()) {
-                        
-                        quarantinedIds.remove(uid);
-                        releasedUids.add(uid);
-                    }
+            }
+        }
+        Value aggregate = aggregate();
+        if (log.isDebugEnabled())
+            log.debug("Merged " + merged + " values for " + key + " in " + ((System.nanoTime() - start) / 1000) + " us");
+        return aggregate;
+    }
+    
+    /**
+     * Reads the fields of a serialized Uid.List, checking it is complete before any of it is merged.
+     */
+    private void read(byte[] bytes) throws IOException {
+        CodedInputStream input = CodedInputStream.newInstance(bytes);
+        boolean hasIgnore = false;
+        boolean hasCount = false;
+        entryCount = 0;
+        
+        boolean done = false;
+        while (!done) {
+            int tag = input.readTag();
+            if (tag == 0) {
+                done = true;
+            } else if (tag == IGNORE_TAG) {
+                valueIgnore = input.readBool();
+                hasIgnore = true;
+            } else if (tag == COUNT_TAG) {
+                valueCount = input.readUInt64();
+                hasCount = true;
+            } else if (tag == UID_TAG || tag == REMOVEDUID_TAG || tag == QUARANTINEUID_TAG) {
+                int length = input.readRawVarint32();
+                addEntry(tag >>> 3, input.getTotalBytesRead(), length);
+                input.skipRawBytes(length);
+            } else if (!input.skipField(tag)) {
+                done = true;
+            }
+        }
+        
+        if (!hasIgnore || !hasCount) {
+            throw new InvalidProtocolBufferException("Message missing required fields: " + (hasIgnore ? "" : "IGNORE ") + (hasCount ? "" : "COUNT"));
+        }
+    }
+    
+    private void addEntry(int field, int offset, int length) {
+        if (3 * entryCount == entries.length) {
+            entries = Arrays.copyOf(entries, 2 * entries.length);
+        }
+        entries[3 * entryCount] = field;
+        entries[3 * entryCount + 1] = offset;
+        entries[3 * entryCount + 2] = length;
+        entryCount++;
+    }
+    
+    /**
+     * Merges the value that was last read into the aggregate.
+     */
+    private void merge(byte[] bytes) {
+        long delta = valueCount;
+        
+        count += delta;
+        /**
+         * Fail fast approach.
+         */
+        if (valueIgnore) {
+            seenIgnore = true;
+            if (log.isDebugEnabled())
+                log.debug("SeenIgnore is true. Skipping collections");
+        }
+        
+        // if delta > 0, we are collecting the uid list
+        // in the protobuf into our object's uid list.
+        if (delta > 0) {
+            
+            for (int i = 0; i < 3 * entryCount; i += 3) {
+                if (entries[i] == QUARANTINEUID_FIELD) {
+                    quarantinedIds.remove(bytes, entries[i + 1], entries[i + 2]);
+                    releasedUids.add(bytes, entries[i + 1], entries[i + 2]);
+                }
+            }
+            
+            // once we have our MAX uids, there is nothing more to add
+            for (int i = 0; i < 3 * entryCount && uids.size() < maxUids; i += 3) {
+                if (entries[i] == UID_FIELD) {
+                    int offset = entries[i + 1];
+                    int length = entries[i + 2];
                     
-                    for (String uid : v.getUIDList()) {
-                        
-                        // check that a removal has not occurred
-                        // if it has, we decrement the count, from above.
-                        if (!uidsToRemove.contains(uid) && !quarantinedIds.contains(uid)) {
-                            
-                            // add the UID iff we are under our MAX
-                            if (uids.size() < maxUids)
-                                uids.add(uid);
-                            
-                        }
-                        
+                    // check that a removal has not occurred
+                    if (!uidsToRemove.contains(bytes, offset, length) && !quarantinedIds.contains(bytes, offset, length)) {
+                        uids.add(bytes, offset, length);
                     }
-                    
-                    if (log.isDebugEnabled())
-                        log.debug("Adding uids " + delta + " " + count);
-                    
-                    // if our delta is < 0, then we can remove, iff seenIgnore is false. If it is true, there is no need to proceed with removals
-                } else if (delta < 0 && !seenIgnore) {
-                    
+                }
+            }
+            
+            if (log.isDebugEnabled())
+                log.debug("Adding uids " + delta + " " + count);
+            
+            // if our delta is < 0, then we can remove, iff seenIgnore is false. If it is true, there is no need to proceed with removals
+        } else if (delta < 0 && !seenIgnore) {
+            
+            for (int i = 0; i < 3 * entryCount; i += 3) {
+                if (entries[i] == REMOVEDUID_FIELD) {
                     // so that we can perform the decrement
-                    for (String uid : v.getREMOVEDUIDList()) {
-                        
-                        uidsToRemove.add(uid);
-                        
-                        if (uids.contains(uid)) {
-                            
-                            uids.remove(uid);
-                        }
-                        
-                    }
-                    
-                    for (String uid : v.getQUARANTINEUIDList()) {
-                        quarantinedIds.add(uid);
-                    }
-                    
-                    /**
-                     * This is added for backwards compatability. The removal list was added to ensure that removals are propogated across compactions. In the
-                     * case where compactions did not occur, and the indices are converted into the newer protobuff, we must use the UID list to maintain
-                     * removals for deltas less than 0
-                     */
-                    for (String uid : v.getUIDList()) {
-                        // add to uidsToRemove, and decrement count if the uid is in UIDS
-                        uidsToRemove.add(uid);
-                        if (uids.contains(uid)) {
-                            uids.remove(uid);
-                        }
-                    }
+                    uidsToRemove.add(bytes, entries[i + 1], entries[i + 2]);
+                    uids.remove(bytes, entries[i + 1], entries[i + 2]);
                 }
-                
-            } catch (InvalidProtocolBufferException e) {
-                if (key.isDeleted()) {
-                    log.warn("Value passed to aggregator for a delete key was not of type Uid.List");
-                } else {
-                    log.error("Value passed to aggregator was not of type Uid.List", e);
+            }
+            
+            for (int i = 0; i < 3 * entryCount; i += 3) {
+                if (entries[i] == QUARANTINEUID_FIELD) {
+                    quarantinedIds.add(bytes, entries[i + 1], entries[i + 2]);
+                }
+            }
+            
+            /**
+             * This is added for backwards compatability. The removal list was added to ensure that removals are propogated across compactions. In the case
+             * where compactions did not occur, and the indices are converted into the newer protobuff, we must use the UID list to maintain removals for deltas
+             * less than 0
+             */
+            for (int i = 0; i < 3 * entryCount; i += 3) {
+                if (entries[i] == UID_FIELD) {
+                    // add to uidsToRemove, and decrement count if the uid is in UIDS
+                    uidsToRemove.add(bytes, entries[i + 1], entries[i + 2]);
+                    uids.remove(bytes, entries[i + 1], entries[i + 2]);
                 }
             }
         }
-        return aggregate();
     }
     
     public void reset() {
@@ -235,7 +351,6 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
             log.debug("Resetting GlobalIndexUidAggregator");
         count = 0;
         seenIgnore = false;
-        builder = Uid.List.newBuilder();
         uids.clear();
         uidsToRemove.clear();
         releasedUids.clear();
@@ -256,15 +371,14 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
         if ((seenIgnore && count > maxUids) || quarantinedIds.size() > 0)
             return true;
         
-        HashSet<String> uidsCopy = new HashSet<String>(uids);
-        uidsCopy.removeAll(uidsToRemove);
+        int remaining = uids.countNotIn(uidsToRemove);
         
         if (log.isDebugEnabled()) {
-            log.debug(count + " " + uids.size() + " " + uidsToRemove.size() + " " + uidsCopy.size() + " removing " + (count == 0 && uidsCopy.size() == 0));
+            log.debug(count + " " + uids.size() + " " + uidsToRemove.size() + " " + remaining + " removing " + (count == 0 && remaining == 0));
         }
         
         // if <= 0 and uids is empty, we can safely remove
-        if (count <= 0 && uidsCopy.size() == 0)
+        if (count <= 0 && remaining == 0)
             return false;
         else
             return true;
@@ -0,0 +1,204 @@
+package datawave.ingest.table.aggregator;
+
+import java.util.Arrays;
+
+/**
+ * A set of UIDs held as their encoded bytes in an open addressing table with linear probing. The UIDs are looked up directly in the serialized Uid.List they
+ * were read from, so a UID is only copied when it is added, and there are no strings or hash entries per UID.
+ * 
+ * The entries of the table are accessed by slot, from 0 to {@link #slots()}, where an empty slot is null.
+ */
+final class UidSet {
+    
+    private static final int DEFAULT_CAPACITY = 32;
+    
+    // a table grown beyond this by a large merge is released on clear
+    private static final int MAX_RETAINED_CAPACITY = 1024;
+    
+    private byte[][] keys;
+    private int[] hashes;
+    private int mask;
+    private int size = 0;
+    
+    UidSet() {
+        allocate(DEFAULT_CAPACITY);
+    }
+    
+    private void allocate(int capacity) {
+        keys = new byte[capacity][];
+        hashes = new int[capacity];
+        mask = capacity - 1;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    boolean isEmpty() {
+        return size == 0;
+    }
+    
+    int slots() {
+        return keys.length;
+    }
+    
+    byte[] get(int slot) {
+        return keys[slot];
+    }
+    
+    boolean contains(byte[] uid) {
+        return contains(uid, 0, uid.length);
+    }
+    
+    boolean contains(byte[] bytes, int offset, int length) {
+        return find(bytes, offset, length, hash(bytes, offset, length)) >= 0;
+    }
+    
+    boolean add(byte[] uid) {
+        return add(uid, 0, uid.length, false);
+    }
+    
+    /**
+     * Add the UID of the given bytes, copying them if it is not already in the set
+     */
+    boolean add(byte[] bytes, int offset, int length) {
+        return add(bytes, offset, length, true);
+    }
+    
+    private boolean add(byte[] bytes, int offset, int length, boolean copy) {
+        int hash = hash(bytes, offset, length);
+        int slot = find(bytes, offset, length, hash);
+        if (slot >= 0) {
+            return false;
+        }
+        if (2 * (size + 1) > keys.length) {
+            rehash(2 * keys.length);
+            slot = find(bytes, offset, length, hash);
+        }
+        slot = -slot - 1;
+        keys[slot] = (copy || offset != 0 || length != bytes.length) ? Arrays.copyOfRange(bytes, offset, offset + length) : bytes;
+        hashes[slot] = hash;
+        size++;
+        return true;
+    }
+    
+    boolean remove(byte[] uid) {
+        return remove(uid, 0, uid.length);
+    }
+    
+    boolean remove(byte[] bytes, int offset, int length) {
+        int slot = find(bytes, offset, length, hash(bytes, offset, length));
+        if (slot < 0) {
+            return false;
+        }
+        keys[slot] = null;
+        size--;
+        
+        // shift back the entries after the removed one that would no longer be found past the empty slot
+        int empty = slot;
+        for (int i = (slot + 1) & mask; keys[i] != null; i = (i + 1) & mask) {
+            int home = hashes[i] & mask;
+            boolean reachable = (i > empty) ? (home > empty && home <= i) : (home > empty || home <= i);
+            if (!reachable) {
+                keys[empty] = keys[i];
+                hashes[empty] = hashes[i];
+                keys[i] = null;
+                empty = i;
+            }
+        }
+        return true;
+    }
+    
+    void addAll(UidSet other) {
+        for (byte[] uid : other.keys) {
+            if (uid != null) {
+                add(uid);
+            }
+        }
+    }
+    
+    void removeAll(UidSet other) {
+        if (other.isEmpty() || isEmpty()) {
+            return;
+        }
+        for (byte[] uid : other.keys) {
+            if (uid != null) {
+                remove(uid);
+            }
+        }
+    }
+    
+    /**
+     * @return the number of UIDs in this set that are not in the other
+     */
+    int countNotIn(UidSet other) {
+        int count = 0;
+        for (byte[] uid : keys) {
+            if (uid != null && !other.contains(uid)) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    void clear() {
+        if (keys.length > MAX_RETAINED_CAPACITY) {
+            allocate(DEFAULT_CAPACITY);
+        } else if (size > 0) {
+            Arrays.fill(keys, null);
+        }
+        size = 0;
+    }
+    
+    /**
+     * @return the slot of the UID, or -(insertion slot) - 1 if it is not in the set
+     */
+    private int find(byte[] bytes, int offset, int length, int hash) {
+        for (int i = hash & mask;; i = (i + 1) & mask) {
+            byte[] key = keys[i];
+            if (key == null) {
+                return -i - 1;
+            }
+            if (hashes[i] == hash && equals(key, bytes, offset, length)) {
+                return i;
+            }
+        }
+    }
+    
+    private void rehash(int capacity) {
+        byte[][] oldKeys = keys;
+        int[] oldHashes = hashes;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = oldHashes[i] & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+    
+    private static int hash(byte[] bytes, int offset, int length) {
+        int hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        // spread the high bits, as the table only uses the low ones
+        return hash ^ (hash >>> 16);
+    }
+    
+    private static boolean equals(byte[] key, byte[] bytes, int offset, int length) {
+        if (key.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key[i] != bytes[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -7,12 +7,17 @@ import datawave.ingest.data.Type;
 import datawave.ingest.data.TypeRegistry;
 import datawave.ingest.data.config.BaseNormalizedContent;
 import datawave.ingest.data.config.NormalizedContentInterface;
+import datawave.ingest.mapreduce.handler.ExtendedDataTypeHandler;
 import datawave.ingest.mapreduce.job.BulkIngestKey;
 import datawave.ingest.mapreduce.job.metrics.*;
 import datawave.ingest.mapreduce.job.writer.ContextWriter;
+import datawave.ingest.metric.IngestOutput;
+import datawave.ingest.metric.IngestProcess;
+import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
 import org.apache.hadoop.mrunit.mapreduce.MapDriver;
 import org.junit.Before;
 import org.junit.Test;
@@ -20,10 +25,42 @@ import org.junit.Test;
 import static org.junit.Assert.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class EventMapperTest {
     
+    private static final int EVENTS = 8;
+    
+    /**
+     * Writes a row for each event, named after its record number, and fails for the events whose data is "fail". The earlier events take longer to process, so
+     * that the threads of the event processing pool finish the later ones first.
+     */
+    public static class PooledTestHandler<K> extends SimpleDataTypeHandler<K> implements ExtendedDataTypeHandler<K,BulkIngestKey,Value> {
+        private static final AtomicInteger running = new AtomicInteger();
+        private static final AtomicInteger maxRunning = new AtomicInteger();
+        
+        @Override
+        public long process(K key, RawRecordContainer event, Multimap<String,NormalizedContentInterface> fields,
+                        TaskInputOutputContext<K,? extends RawRecordContainer,BulkIngestKey,Value> context, ContextWriter<BulkIngestKey,Value> contextWriter)
+                        throws IOException, InterruptedException {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                if (new String(event.getRawData()).equals("fail")) {
+                    throw new IllegalStateException("Failed to process event " + event.getRawRecordNumber());
+                }
+                Thread.sleep((EVENTS - event.getRawRecordNumber()) * 10);
+                context.getCounter("PooledTestHandler", "EVENTS").increment(1);
+                contextWriter.write(new BulkIngestKey(TABLE, new Key("event" + event.getRawRecordNumber())), new Value("1".getBytes()), context);
+                return 1;
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+    
     private Configuration conf;
     private MapDriver<LongWritable,RawRecordContainer,BulkIngestKey,Value> driver;
     private SimpleRawRecord record;
@@ -119,6 +156,125 @@ public class EventMapperTest {
         assertEquals(4, written.size());
     }
     
+    @Test
+    public void shouldWriteEventsProcessedByThreads() throws IOException {
+        conf.setInt(EventMapper.EVENT_PROCESSING_THREADS, 2);
+        
+        driver.setInput(new LongWritable(1), record);
+        driver.run();
+        
+        Multimap<BulkIngestKey,Value> written = TestContextWriter.getWritten();
+        
+        // two fields mutations + LOAD_DATE + ORIG_FILE + RAW_FILE, written by the map thread
+        assertEquals(5, written.size());
+        assertEquals(1, driver.getCounters().findCounter(IngestOutput.EVENTS_PROCESSED.name(), "FILE").getValue());
+        
+        Map.Entry<BulkIngestKey,Value> entry = getRawFileName(written);
+        assertEquals("/some/filename", entry.getKey().getKey().getColumnQualifier().toString());
+    }
+    
+    @Test
+    public void shouldWritePooledEventsInOrder() throws IOException {
+        conf.setInt(EventMapper.EVENT_PROCESSING_THREADS, 4);
+        addPooledEvents(-1);
+        driver.run();
+        
+        // the output is written in the order the events were mapped, with the counters the handlers got from their context
+        assertEquals(getExpectedEventRows(-1), getEventRows(TestContextWriter.getWritten()));
+        assertEquals(EVENTS, driver.getCounters().findCounter("PooledTestHandler", "EVENTS").getValue());
+        assertEquals(EVENTS, driver.getCounters().findCounter(IngestOutput.EVENTS_PROCESSED.name(), "POOLED").getValue());
+    }
+    
+    @Test
+    public void shouldWriteFailedPooledEventsToErrorHandlers() throws IOException {
+        conf.setInt(EventMapper.EVENT_PROCESSING_THREADS, 4);
+        registerType(TypeRegistry.ERROR_PREFIX, SimpleDataTypeHandler.class);
+        addPooledEvents(3);
+        driver.run();
+        
+        Multimap<BulkIngestKey,Value> written = TestContextWriter.getWritten();
+        
+        // the failed event is written by the error handler, and the other events are not affected
+        assertEquals(getExpectedEventRows(3), getEventRows(written));
+        assertNotNull(getFieldEntry(written, "fileExtension"));
+        assertEquals(1, driver.getCounters().findCounter(IngestProcess.RUNTIME_EXCEPTION).getValue());
+        assertEquals(EVENTS - 1, driver.getCounters().findCounter("PooledTestHandler", "EVENTS").getValue());
+        assertEquals(EVENTS, driver.getCounters().findCounter(IngestOutput.EVENTS_PROCESSED.name(), "POOLED").getValue());
+    }
+    
+    @Test
+    public void shouldFailMapWhenPooledErrorHandlersFail() {
+        conf.setInt(EventMapper.EVENT_PROCESSING_THREADS, 4);
+        registerType(TypeRegistry.ERROR_PREFIX, PooledTestHandler.class);
+        addPooledEvents(3);
+        
+        // a failure of the error handlers on a thread of the pool fails the map, as it would on the map thread
+        try {
+            driver.run();
+            fail("Expected the map to fail");
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+    
+    @Test
+    public void shouldLimitPendingPooledEvents() throws IOException {
+        conf.setInt(EventMapper.EVENT_PROCESSING_THREADS, 4);
+        conf.setInt(EventMapper.EVENT_PROCESSING_MAX_PENDING, 1);
+        PooledTestHandler.maxRunning.set(0);
+        addPooledEvents(-1);
+        driver.run();
+        
+        // the map thread waits for the oldest event once more than one is pending, so no more than two are processed at once
+        assertEquals(getExpectedEventRows(-1), getEventRows(TestContextWriter.getWritten()));
+        assertTrue(PooledTestHandler.maxRunning.get() <= 2);
+    }
+    
+    private Type registerType(String name, Class<?> handlerClass) {
+        Type type = new Type(name, null, null, new String[] {handlerClass.getName()}, 10, null);
+        TypeRegistry.getInstance(conf).put(type.typeName(), type);
+        return type;
+    }
+    
+    /**
+     * Add the events of a type handled by the {@link PooledTestHandler}, failing the event with the given record number
+     */
+    private void addPooledEvents(long failed) {
+        Type type = registerType("pooled", PooledTestHandler.class);
+        for (long i = 0; i < EVENTS; i++) {
+            SimpleRawRecord event = new SimpleRawRecord();
+            event.setRawFileTimestamp(record.getRawFileTimestamp());
+            event.setDataType(type);
+            event.setDate(record.getDate());
+            event.setRawFileName("/some/filename");
+            event.setRawRecordNumber(i);
+            event.setRawData((i == failed ? "fail" : "some data").getBytes());
+            event.generateId(null);
+            driver.addInput(new LongWritable(i), event);
+        }
+    }
+    
+    private List<String> getExpectedEventRows(long failed) {
+        List<String> rows = new ArrayList<>();
+        for (long i = 0; i < EVENTS; i++) {
+            if (i != failed) {
+                rows.add("event" + i);
+            }
+        }
+        return rows;
+    }
+    
+    private List<String> getEventRows(Multimap<BulkIngestKey,Value> written) {
+        List<String> rows = new ArrayList<>();
+        for (BulkIngestKey key : written.keySet()) {
+            String row = key.getKey().getRow().toString();
+            if (row.startsWith("event")) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+    
     private Map.Entry<BulkIngestKey,Value> getMetric(Multimap<BulkIngestKey,Value> written) {
         return getFieldEntry(written, Metric.EVENT_COUNT.toString());
     }
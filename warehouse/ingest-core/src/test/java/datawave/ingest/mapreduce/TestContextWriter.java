@@ -1,6 +1,6 @@
 package datawave.ingest.mapreduce;
 
-import com.google.common.collect.HashMultimap;
+import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Multimap;
 import datawave.ingest.mapreduce.job.BulkIngestKey;
 import datawave.ingest.mapreduce.job.writer.ContextWriter;
@@ -13,11 +13,12 @@ import java.io.IOException;
 /**
  * A {@link ContextWriter} implementation for testing. Saves data into a static memory buffer and allows unit tests to fetch the written results.
  * <p/>
- * We use a static memory buffer so that classes such as EventMapper can dynamically create it but write to a place where we can check it.
+ * We use a static memory buffer so that classes such as EventMapper can dynamically create it but write to a place where we can check it. The entries are
+ * kept in the order they were first written.
  */
 public class TestContextWriter<OK,OV> implements ContextWriter<OK,OV> {
     
-    private static final Multimap<BulkIngestKey,Value> written = HashMultimap.create();
+    private static final Multimap<BulkIngestKey,Value> written = LinkedHashMultimap.create();
     
     public TestContextWriter() {
         synchronized (written) {
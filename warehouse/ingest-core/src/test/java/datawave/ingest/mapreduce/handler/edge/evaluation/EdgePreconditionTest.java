@@ -0,0 +1,64 @@
+package datawave.ingest.mapreduce.handler.edge.evaluation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class EdgePreconditionTest {
+    
+    private EdgePreconditionCacheHelper helper;
+    private EdgePreconditionJexlContext context;
+    private EdgePreconditionJexlEvaluation evaluation;
+    
+    @Before
+    public void setup() {
+        helper = new EdgePreconditionCacheHelper();
+        context = new EdgePreconditionJexlContext();
+        evaluation = new EdgePreconditionJexlEvaluation(context);
+    }
+    
+    private EdgePrecondition precondition(String jexl) {
+        return new EdgePrecondition(jexl, helper.createScriptFromString(jexl));
+    }
+    
+    @Test
+    public void testFields() {
+        assertEquals(Collections.singleton("FOO"), precondition("FOO == 'bar'").getFields());
+        assertEquals(Sets.newHashSet("FOO", "$1BAR"), precondition("FOO == 'bar' && $1BAR == 'baz'").getFields());
+    }
+    
+    @Test
+    public void testWithFields() {
+        EdgePrecondition equals = precondition("FOO == 'bar'");
+        EdgePrecondition notEquals = precondition("FOO != 'bar'");
+        
+        context.set("FOO", "bar");
+        assertTrue(equals.evaluate(evaluation));
+        assertFalse(notEquals.evaluate(evaluation));
+    }
+    
+    @Test
+    public void testWithoutFields() {
+        EdgePrecondition equals = precondition("FOO == 'bar'");
+        EdgePrecondition notEquals = precondition("FOO != 'bar'");
+        
+        // the precondition is decided without running the script, with the same result as running it
+        context.set("BAZ", "qux");
+        assertEquals(evaluation.apply(equals.getScript()), equals.evaluate(evaluation));
+        assertEquals(evaluation.apply(notEquals.getScript()), notEquals.evaluate(evaluation));
+        
+        // and the result is reused once the fields are absent again
+        context.clearContext();
+        context.set("FOO", "bar");
+        assertTrue(equals.evaluate(evaluation));
+        context.clearContext();
+        assertEquals(evaluation.apply(equals.getScript()), equals.evaluate(evaluation));
+    }
+}
@@ -1,17 +1,175 @@
 package datawave.ingest.mapreduce.handler.shard;
 
+import java.util.HashSet;
+import java.util.Set;
+
+import datawave.ingest.data.RawRecordContainer;
+import datawave.ingest.data.RawRecordContainerImplTest;
+import datawave.ingest.data.TypeRegistry;
+import datawave.ingest.data.config.BaseNormalizedContent;
+import datawave.ingest.data.config.DataTypeHelper.Properties;
+import datawave.ingest.data.config.NormalizedContentInterface;
+import datawave.ingest.data.config.ingest.BaseIngestHelper;
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+import datawave.policy.IngestPolicyEnforcer;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.ColumnVisibility;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.TaskAttemptID;
 import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.junit.Assert;
+import org.junit.Before;
 import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
 
 public class ShardedDataTypeHandlerTest {
     
+    private Configuration conf;
+    
+    /**
+     * Overrides the methods that create the columns of an event, as handlers outside of this project may, counting the calls and dropping the BAR event key
+     */
+    private static class OverridingColumnBasedHandler extends AbstractColumnBasedHandler<Text> {
+        private int shardEventColumns = 0;
+        private int shardFieldIndexColumns = 0;
+        private int termIndexColumns = 0;
+        
+        @Override
+        protected Multimap<BulkIngestKey,Value> createShardEventColumn(RawRecordContainer event, Text colf, NormalizedContentInterface nFV,
+                        byte[] visibility, byte[] maskedVisibility, MaskedFieldHelper maskedFieldHelper, byte[] shardId) {
+            shardEventColumns++;
+            if (nFV.getEventFieldName().equals("BAR")) {
+                return HashMultimap.create();
+            }
+            return super.createShardEventColumn(event, colf, nFV, visibility, maskedVisibility, maskedFieldHelper, shardId);
+        }
+        
+        @Override
+        protected Multimap<BulkIngestKey,Value> createShardFieldIndexColumn(RawRecordContainer event, String fieldName, String fieldValue,
+                        byte[] visibility, byte[] maskedVisibility, MaskedFieldHelper maskedFieldHelper, byte[] shardId, Value value) {
+            shardFieldIndexColumns++;
+            return super.createShardFieldIndexColumn(event, fieldName, fieldValue, visibility, maskedVisibility, maskedFieldHelper, shardId, value);
+        }
+        
+        @Override
+        protected Multimap<BulkIngestKey,Value> createTermIndexColumn(RawRecordContainer event, String column, String fieldValue, byte[] visibility,
+                        byte[] maskedVisibility, MaskedFieldHelper maskedFieldHelper, byte[] shardId, Text tableName, Value indexValue) {
+            termIndexColumns++;
+            return super.createTermIndexColumn(event, column, fieldValue, visibility, maskedVisibility, maskedFieldHelper, shardId, tableName, indexValue);
+        }
+    }
+    
+    @Before
+    public void setupConfiguration() {
+        conf = new Configuration();
+        conf.set("num.shards", "11");
+        conf.set("data.name", "testdatatype");
+        conf.set("testdatatype.ingest.helper.class", TestIngestHelper.class.getName());
+        conf.set("testdatatype.handler.classes", AbstractColumnBasedHandler.class.getName());
+        conf.set("testdatatype" + BaseIngestHelper.INDEX_FIELDS, "FOO");
+        conf.set("testdatatype" + BaseIngestHelper.REVERSE_INDEX_FIELDS, "FOO");
+        conf.set("all" + Properties.INGEST_POLICY_ENFORCER_CLASS, IngestPolicyEnforcer.NoOpIngestPolicyEnforcer.class.getName());
+        conf.set(ShardedDataTypeHandler.SHARD_TNAME, "shard");
+        conf.set(ShardedDataTypeHandler.SHARD_GIDX_TNAME, "shardIndex");
+        conf.set(ShardedDataTypeHandler.SHARD_GRIDX_TNAME, "shardReverseIndex");
+        
+        TypeRegistry.reset();
+        TypeRegistry.getInstance(conf);
+    }
+    
     @Test(expected = IllegalArgumentException.class)
     public void testSetup() {
         Configuration conf = new Configuration();
         ShardedDataTypeHandler<Text> handler = new AbstractColumnBasedHandler<>();
         handler.setup(new TaskAttemptContextImpl(conf, new TaskAttemptID()));
     }
+    
+    @Test
+    public void testCreateColumns() {
+        AbstractColumnBasedHandler<Text> handler = new AbstractColumnBasedHandler<>();
+        handler.setup(new TaskAttemptContextImpl(conf, new TaskAttemptID()));
+        RawRecordContainer event = getEvent();
+        
+        // the columns are written directly into the multimap of the event
+        Assert.assertFalse(Whitebox.<Boolean> getInternalState(handler, "overridesColumnMethods"));
+        
+        // the same keys that were created before the columns were written into a single multimap
+        String shardId = new ShardIdFactory(conf).getShardId(event);
+        String uid = event.getId().toString();
+        Set<String> expected = new HashSet<>();
+        expected.add("shard " + shardId + " testdatatype\0" + uid + " FOO\0bar");
+        expected.add("shard " + shardId + " testdatatype\0" + uid + " BAR\0baz");
+        expected.add("shard " + shardId + " fi\0FOO bar\0testdatatype\0" + uid);
+        expected.add("shardIndex bar FOO " + shardId + "\0testdatatype");
+        expected.add("shardReverseIndex rab FOO " + shardId + "\0testdatatype");
+        
+        Assert.assertEquals(expected, toStrings(handler.processBulk(null, event, getEventFields(), null)));
+    }
+    
+    @Test
+    public void testOverriddenColumnMethods() {
+        OverridingColumnBasedHandler handler = new OverridingColumnBasedHandler();
+        handler.setup(new TaskAttemptContextImpl(conf, new TaskAttemptID()));
+        RawRecordContainer event = getEvent();
+        Assert.assertTrue(Whitebox.<Boolean> getInternalState(handler, "overridesColumnMethods"));
+        
+        Set<String> columns = toStrings(handler.processBulk(null, event, getEventFields(), null));
+        
+        // the overridden methods create every column
+        Assert.assertEquals(2, handler.shardEventColumns);
+        Assert.assertEquals(1, handler.shardFieldIndexColumns);
+        Assert.assertEquals(2, handler.termIndexColumns);
+        Assert.assertEquals(4, columns.size());
+        for (String column : columns) {
+            Assert.assertFalse(column.contains("BAR\0baz"));
+        }
+    }
+    
+    private Multimap<String,NormalizedContentInterface> getEventFields() {
+        Multimap<String,NormalizedContentInterface> eventFields = HashMultimap.create();
+        eventFields.put("FOO", new BaseNormalizedContent("FOO", "bar"));
+        eventFields.put("BAR", new BaseNormalizedContent("BAR", "baz"));
+        return eventFields;
+    }
+    
+    private RawRecordContainer getEvent() {
+        RawRecordContainerImplTest.ValidatingRawRecordContainerImpl event = new RawRecordContainerImplTest.ValidatingRawRecordContainerImpl();
+        event.setDataType(TypeRegistry.getType("testdatatype"));
+        event.setSecurityMarkings(null);
+        event.setVisibility(new ColumnVisibility("A&B"));
+        event.setDate(1367322791000L);
+        event.setRawFileName("ShardedDataTypeHandlerTest.data");
+        event.setRawRecordNumber(1l);
+        event.setRawData("FOO=bar,BAR=baz".getBytes());
+        event.generateId(null);
+        event.validate();
+        return event;
+    }
+    
+    private Set<String> toStrings(Multimap<BulkIngestKey,Value> values) {
+        Set<String> strings = new HashSet<>();
+        for (BulkIngestKey bulkIngestKey : values.keySet()) {
+            Key key = bulkIngestKey.getKey();
+            strings.add(bulkIngestKey.getTableName() + " " + key.getRow() + " " + key.getColumnFamily() + " " + key.getColumnQualifier());
+        }
+        return strings;
+    }
+    
+    public static class TestIngestHelper extends BaseIngestHelper {
+        @Override
+        public Multimap<String,NormalizedContentInterface> getEventFields(RawRecordContainer event) {
+            Multimap<String,NormalizedContentInterface> eventFields = HashMultimap.create();
+            for (String field : new String(event.getRawData()).split(",")) {
+                String[] nameAndValue = field.split("=");
+                eventFields.put(nameAndValue[0], new BaseNormalizedContent(nameAndValue[0], nameAndValue[1]));
+            }
+            return eventFields;
+        }
+    }
 }
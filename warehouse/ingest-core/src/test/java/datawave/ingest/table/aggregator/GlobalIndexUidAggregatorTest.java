@@ -229,4 +229,23 @@ public class GlobalIndexUidAggregatorTest {
         assertTrue(resultList.getUIDCount() == 1);
         
     }
+    
+    @Test
+    public void testRemovalAndQuarantine() throws Exception {
+        agg.reset();
+        Collection<Value> values = Lists.newArrayList();
+        values.add(new Value(createNewUidList().setIGNORE(false).setCOUNT(2).addUID("a").addUID("b").build().toByteArray()));
+        values.add(new Value(createNewUidList().setIGNORE(false).setCOUNT(-1).addREMOVEDUID("a").build().toByteArray()));
+        values.add(new Value(createNewUidList().setIGNORE(false).setCOUNT(-1).addQUARANTINEUID("c").build().toByteArray()));
+        values.add(new Value(createNewUidList().setIGNORE(false).setCOUNT(1).addUID("c").addUID("b").build().toByteArray()));
+        
+        Value result = agg.reduce(new Key("key"), values.iterator());
+        Uid.List resultList = Uid.List.parseFrom(result.get());
+        assertEquals(1, resultList.getCOUNT());
+        assertFalse(resultList.getIGNORE());
+        assertEquals(Lists.newArrayList("b"), resultList.getUIDList());
+        assertEquals(Lists.newArrayList("a"), resultList.getREMOVEDUIDList());
+        assertEquals(Lists.newArrayList("c"), resultList.getQUARANTINEUIDList());
+        assertTrue(agg.propogateKey());
+    }
 }
@@ -0,0 +1,83 @@
+package datawave.ingest.table.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class UidSetTest {
+    
+    private static Set<String> toSet(UidSet uids) {
+        Set<String> set = new HashSet<>();
+        for (int i = 0; i < uids.slots(); i++) {
+            if (uids.get(i) != null) {
+                set.add(new String(uids.get(i)));
+            }
+        }
+        return set;
+    }
+    
+    @Test
+    public void testAddFromBuffer() {
+        byte[] buffer = "xxuid.1yy".getBytes();
+        UidSet uids = new UidSet();
+        assertTrue(uids.add(buffer, 2, 5));
+        assertFalse(uids.add("uid.1".getBytes()));
+        assertTrue(uids.contains("uid.1".getBytes()));
+        
+        // the uid was copied out of the buffer
+        buffer[2] = 'z';
+        assertTrue(uids.contains("uid.1".getBytes()));
+        assertFalse(uids.contains(buffer, 2, 5));
+    }
+    
+    @Test
+    public void testMatchesHashSet() {
+        Random random = new Random(42);
+        UidSet uids = new UidSet();
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < 20000; i++) {
+            // a small key space so that there are many collisions, removals and re-additions
+            String uid = "uid." + random.nextInt(500);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(uid), uids.remove(uid.getBytes()));
+            } else {
+                assertEquals(expected.add(uid), uids.add(uid.getBytes()));
+            }
+            assertEquals(expected.size(), uids.size());
+        }
+        assertEquals(expected, toSet(uids));
+        for (int i = 0; i < 500; i++) {
+            assertEquals(expected.contains("uid." + i), uids.contains(("uid." + i).getBytes()));
+        }
+    }
+    
+    @Test
+    public void testSetOperations() {
+        UidSet left = new UidSet();
+        UidSet right = new UidSet();
+        for (int i = 0; i < 100; i++) {
+            left.add(("uid." + i).getBytes());
+            if (i % 2 == 0) {
+                right.add(("uid." + i).getBytes());
+            }
+        }
+        assertEquals(50, left.countNotIn(right));
+        
+        left.removeAll(right);
+        assertEquals(50, left.size());
+        assertFalse(left.contains("uid.2".getBytes()));
+        
+        left.addAll(right);
+        assertEquals(100, left.size());
+        
+        left.clear();
+        assertTrue(left.isEmpty());
+        assertFalse(left.contains("uid.1".getBytes()));
+    }
+}
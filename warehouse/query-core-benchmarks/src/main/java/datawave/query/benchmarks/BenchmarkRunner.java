@@ -0,0 +1,19 @@
+package datawave.query.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the query-core benchmarks with the GC profiler enabled so that the allocation rate is reported alongside the throughput. Accepts the standard JMH
+ * command line options, e.g. a benchmark regex, <code>-p numEvents=1000000</code> or <code>-rf json</code>.
+ */
+public class BenchmarkRunner {
+    
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder().parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class).build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,92 @@
+package datawave.query.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import datawave.query.iterator.NestedIterator;
+import datawave.query.iterator.SeekableNestedIterator;
+import datawave.query.iterator.logic.AndIterator;
+import datawave.query.iterator.logic.IndexIterator;
+import datawave.query.iterator.logic.IndexIteratorBridge;
+import datawave.query.iterator.logic.OrIterator;
+
+/**
+ * Drives the field index iterators and the boolean logic iterators built on top of them over a synthetic shard, as the QueryIterator would for a query of
+ * the form <code>FIELD_A == 'value1' &amp;&amp; FIELD_B == 'value1'</code> or <code>FIELD_A == 'value1' || FIELD_B == 'value2'</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BooleanLogicBenchmark {
+    
+    private static final List<ByteSequence> NO_COLUMN_FAMILIES = Collections.emptyList();
+    
+    @Param({"100000"})
+    public int numEvents;
+    
+    @Param({"10", "1000"})
+    public int cardinality;
+    
+    private SyntheticShardData shardData;
+    
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        shardData = SyntheticShardData.create(numEvents, cardinality);
+    }
+    
+    private NestedIterator<Key> indexIterator(String field, String value) {
+        return new IndexIteratorBridge(IndexIterator.builder(new Text(field), new Text(value), shardData.source()).build());
+    }
+    
+    private void drain(NestedIterator<Key> iterator, Blackhole blackhole) throws Exception {
+        SeekableNestedIterator<Key> seekable = new SeekableNestedIterator<>(iterator);
+        seekable.seek(shardData.shardRange(), NO_COLUMN_FAMILIES, false);
+        seekable.initialize();
+        while (seekable.hasNext()) {
+            blackhole.consume(seekable.next());
+        }
+    }
+    
+    @Benchmark
+    public void indexIterator(Blackhole blackhole) throws Exception {
+        drain(indexIterator("FIELD_A", "value1"), blackhole);
+    }
+    
+    @Benchmark
+    public void andIterator(Blackhole blackhole) throws Exception {
+        List<NestedIterator<Key>> terms = new ArrayList<>(2);
+        terms.add(indexIterator("FIELD_A", "value1"));
+        terms.add(indexIterator("FIELD_B", "value1"));
+        drain(new AndIterator<>(terms), blackhole);
+    }
+    
+    @Benchmark
+    public void orIterator(Blackhole blackhole) throws Exception {
+        List<NestedIterator<Key>> terms = new ArrayList<>(2);
+        terms.add(indexIterator("FIELD_A", "value1"));
+        terms.add(indexIterator("FIELD_B", "value2"));
+        drain(new OrIterator<>(terms, true), blackhole);
+    }
+}
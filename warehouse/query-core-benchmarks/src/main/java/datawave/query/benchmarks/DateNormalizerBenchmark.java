@@ -0,0 +1,52 @@
+package datawave.query.benchmarks;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import datawave.data.normalizer.DateNormalizer;
+
+/**
+ * Parses a date of each of the common shapes with the DateNormalizer formats, both with the shape recognizer and by trying each format in turn.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DateNormalizerBenchmark {
+    
+    // a copy of the formats is not recognized by shape, so is parsed by trying each format in turn
+    private static final String[] EACH_FORMAT = DateNormalizer.FORMAT_STRINGS.clone();
+    
+    @Param({"20141020172020", "2014-10-20 17:20:20", "2014-10-20T17:20:20.001Z", "2014-10-20T17:20:20+00:00", "Mon Oct 20 17:20:20 GMT 2014"})
+    public String date;
+    
+    private final DateNormalizer normalizer = new DateNormalizer();
+    
+    @Benchmark
+    public Date recognizeShape() throws Exception {
+        return DateNormalizer.parseDate(date, DateNormalizer.FORMAT_STRINGS);
+    }
+    
+    @Benchmark
+    public Date tryEachFormat() throws Exception {
+        return DateNormalizer.parseDate(date, EACH_FORMAT);
+    }
+    
+    @Benchmark
+    public String normalize() {
+        return normalizer.normalize(date);
+    }
+}
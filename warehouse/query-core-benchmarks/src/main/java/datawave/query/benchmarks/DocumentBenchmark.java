@@ -0,0 +1,124 @@
+package datawave.query.benchmarks;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Maps;
+
+import datawave.query.attributes.Document;
+import datawave.query.function.JexlEvaluation;
+import datawave.query.function.KeyToDocumentData;
+import datawave.query.function.deserializer.DocumentDeserializer;
+import datawave.query.function.deserializer.KryoDocumentDeserializer;
+import datawave.query.function.deserializer.WritableDocumentDeserializer;
+import datawave.query.function.serializer.DocumentSerializer;
+import datawave.query.function.serializer.KryoDocumentSerializer;
+import datawave.query.function.serializer.WritableDocumentSerializer;
+import datawave.query.iterator.aggregation.DocumentData;
+import datawave.query.jexl.DatawaveJexlContext;
+import datawave.query.util.Tuple3;
+import datawave.query.util.TypeMetadata;
+
+/**
+ * Drives the per document stages of the QueryIterator over a synthetic shard: aggregating the event keys, evaluating the query against the document, and
+ * serializing the document to be returned to the client.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DocumentBenchmark {
+    
+    private static final Collection<String> QUERY_FIELDS = Arrays.asList("FIELD_A", "FIELD_B");
+    
+    @Param({"10000"})
+    public int numEvents;
+    
+    @Param({"10"})
+    public int cardinality;
+    
+    @Param({"FIELD_A == 'value1' && FIELD_B =~ 'value1.*'"})
+    public String query;
+    
+    private SyntheticShardData shardData;
+    private Key documentKey;
+    private KeyToDocumentData keyToDocumentData;
+    private JexlEvaluation evaluation;
+    private Document document;
+    private DocumentSerializer kryoSerializer;
+    private DocumentDeserializer kryoDeserializer;
+    private DocumentSerializer writableSerializer;
+    private DocumentDeserializer writableDeserializer;
+    private Entry<Key,Value> kryoSerialized;
+    private Entry<Key,Value> writableSerialized;
+    
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        shardData = SyntheticShardData.create(numEvents, cardinality);
+        List<Key> documentKeys = shardData.getDocumentKeys();
+        documentKey = documentKeys.get(documentKeys.size() / 2);
+        keyToDocumentData = new KeyToDocumentData(shardData.source());
+        evaluation = new JexlEvaluation(query);
+        document = aggregate();
+        
+        kryoSerializer = new KryoDocumentSerializer();
+        kryoDeserializer = new KryoDocumentDeserializer();
+        writableSerializer = new WritableDocumentSerializer(false);
+        writableDeserializer = new WritableDocumentDeserializer();
+        kryoSerialized = kryoSerializer.apply(Maps.immutableEntry(documentKey, document));
+        writableSerialized = writableSerializer.apply(Maps.immutableEntry(documentKey, document));
+    }
+    
+    @Benchmark
+    public Document aggregate() {
+        DocumentData data = keyToDocumentData.apply(Maps.immutableEntry(documentKey, new Document())).getKey();
+        return new Document(data.getKey(), data.getDocKeys(), data.getData().iterator(), new TypeMetadata(), null, false, false, null);
+    }
+    
+    @Benchmark
+    public boolean evaluate() {
+        DatawaveJexlContext context = new DatawaveJexlContext();
+        document.visit(QUERY_FIELDS, context);
+        return evaluation.apply(new Tuple3<>(documentKey, document, context));
+    }
+    
+    @Benchmark
+    public Entry<Key,Value> kryoSerialize() {
+        return kryoSerializer.apply(Maps.immutableEntry(documentKey, document));
+    }
+    
+    @Benchmark
+    public Entry<Key,Document> kryoDeserialize() {
+        return kryoDeserializer.apply(kryoSerialized);
+    }
+    
+    @Benchmark
+    public Entry<Key,Value> writableSerialize() {
+        return writableSerializer.apply(Maps.immutableEntry(documentKey, document));
+    }
+    
+    @Benchmark
+    public Entry<Key,Document> writableDeserialize() {
+        return writableDeserializer.apply(writableSerialized);
+    }
+}
@@ -0,0 +1,93 @@
+package datawave.query.benchmarks;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.PartialKey;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.base.Predicates;
+
+import datawave.core.iterators.DatawaveFieldIndexCachingIteratorJexl;
+import datawave.core.iterators.DatawaveFieldIndexRegexIteratorJexl;
+import datawave.query.predicate.TimeFilter;
+
+/**
+ * Drives a regex ivarator over a synthetic shard, including filling and persisting the sorted set cache to the local file system. The buffer size controls how
+ * often the cache is spilled to disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class IvaratorBenchmark {
+    
+    private static final List<ByteSequence> NO_COLUMN_FAMILIES = Collections.emptyList();
+    
+    @Param({"100000"})
+    public int numEvents;
+    
+    @Param({"1000"})
+    public int cardinality;
+    
+    @Param({"1000", "10000"})
+    public int bufferSize;
+    
+    @Param({"", "org.apache.hadoop.io.compress.DefaultCodec"})
+    public String compressionCodec;
+    
+    private SyntheticShardData shardData;
+    private FileSystem fs;
+    private File cacheDir;
+    
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        shardData = SyntheticShardData.create(numEvents, cardinality);
+        fs = FileSystem.getLocal(new Configuration()).getRaw();
+        cacheDir = File.createTempFile("ivarator", ".cache");
+        cacheDir.delete();
+        cacheDir.mkdirs();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        fs.delete(new Path(cacheDir.toURI()), true);
+    }
+    
+    @Benchmark
+    public void regexIvarator(Blackhole blackhole) throws Exception {
+        DatawaveFieldIndexCachingIteratorJexl ivarator = DatawaveFieldIndexRegexIteratorJexl.builder().withFieldName(new Text("FIELD_B"))
+                        .withFieldValue(new Text("value1.*")).withTimeFilter(TimeFilter.alwaysTrue()).withDatatypeFilter(Predicates.alwaysTrue())
+                        .negated(false).withScanThreshold(bufferSize).withHdfsBackedSetBufferSize(bufferSize).withFileSystem(fs)
+                        .withUniqueDir(new Path(cacheDir.toURI())).allowDirResuse(false).withReturnKeyType(PartialKey.ROW_COLFAM_COLQUAL_COLVIS_TIME)
+                        .withSortedUUIDs(true).withHdfsFileCompressionCodec(compressionCodec).build();
+        ivarator.init(shardData.source(), null, null);
+        ivarator.seek(shardData.shardRange(), NO_COLUMN_FAMILIES, false);
+        while (ivarator.hasTop()) {
+            blackhole.consume(ivarator.getTopKey());
+            ivarator.next();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package datawave.query.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+
+import datawave.accumulo.inmemory.InMemoryInstance;
+
+/**
+ * Generates a single shard of synthetic event and field index data, loaded through an in-memory accumulo instance. Each event has one value for each of the
+ * {@link #FIELDS}, where the value of the n'th field cycles through <code>cardinality * (n + 1)</code> distinct values. This gives the index iterators terms
+ * of differing selectivity to intersect and union.
+ * 
+ * Event keys: row = shard, cf = datatype\0uid, cq = field\0value
+ * 
+ * Field index keys: row = shard, cf = fi\0field, cq = value\0datatype\0uid
+ */
+public class SyntheticShardData {
+    
+    public static final String TABLE_NAME = "shard";
+    public static final String SHARD = "20180101_0";
+    public static final String DATATYPE = "test";
+    public static final String VISIBILITY = "PUBLIC";
+    public static final Authorizations AUTHS = new Authorizations(VISIBILITY);
+    public static final String[] FIELDS = {"FIELD_A", "FIELD_B", "FIELD_C", "FIELD_D"};
+    
+    private static final long TIMESTAMP = 1514764800000L;
+    private static final Value EMPTY_VALUE = new Value(new byte[0]);
+    
+    private final SortedMap<Key,Value> data;
+    private final List<Key> documentKeys;
+    
+    private SyntheticShardData(SortedMap<Key,Value> data, List<Key> documentKeys) {
+        this.data = Collections.unmodifiableSortedMap(data);
+        this.documentKeys = Collections.unmodifiableList(documentKeys);
+    }
+    
+    /**
+     * Write the synthetic shard into a new in-memory accumulo instance and read it back
+     * 
+     * @param numEvents
+     *            the number of events in the shard
+     * @param cardinality
+     *            the number of distinct values of the first field
+     * @return the synthetic shard data
+     * @throws Exception
+     */
+    public static SyntheticShardData create(int numEvents, int cardinality) throws Exception {
+        Connector connector = new InMemoryInstance().getConnector("root", new PasswordToken(""));
+        connector.securityOperations().changeUserAuthorizations("root", AUTHS);
+        connector.tableOperations().create(TABLE_NAME);
+        
+        ColumnVisibility visibility = new ColumnVisibility(VISIBILITY);
+        List<Key> documentKeys = new ArrayList<>(numEvents);
+        BatchWriter writer = connector.createBatchWriter(TABLE_NAME, new BatchWriterConfig());
+        try {
+            for (int i = 0; i < numEvents; i++) {
+                String uid = uid(i);
+                Mutation m = new Mutation(SHARD);
+                for (int f = 0; f < FIELDS.length; f++) {
+                    String value = value(i, f, cardinality);
+                    m.put(DATATYPE + '\0' + uid, FIELDS[f] + '\0' + value, visibility, TIMESTAMP, EMPTY_VALUE);
+                    m.put("fi\0" + FIELDS[f], value + '\0' + DATATYPE + '\0' + uid, visibility, TIMESTAMP, EMPTY_VALUE);
+                }
+                writer.addMutation(m);
+                documentKeys.add(new Key(SHARD, DATATYPE + '\0' + uid));
+            }
+        } finally {
+            writer.close();
+        }
+        
+        SortedMap<Key,Value> data = new TreeMap<>();
+        Scanner scanner = connector.createScanner(TABLE_NAME, AUTHS);
+        for (Map.Entry<Key,Value> entry : scanner) {
+            data.put(entry.getKey(), entry.getValue());
+        }
+        return new SyntheticShardData(data, documentKeys);
+    }
+    
+    public static String uid(int event) {
+        return String.format("uid%08d", event);
+    }
+    
+    public static String value(int event, int field, int cardinality) {
+        return "value" + (event % (cardinality * (field + 1)));
+    }
+    
+    /**
+     * @return a new source over the shard, as the tserver would hand to the query iterators without any of the scan overhead
+     */
+    public SortedKeyValueIterator<Key,Value> source() {
+        return new SortedMapIterator(data);
+    }
+    
+    public Range shardRange() {
+        return new Range(SHARD);
+    }
+    
+    public SortedMap<Key,Value> getData() {
+        return data;
+    }
+    
+    public List<Key> getDocumentKeys() {
+        return documentKeys;
+    }
+}
@@ -13,6 +13,7 @@ import datawave.query.iterator.profile.SourceTrackingIterator;
 import datawave.query.predicate.TimeFilter;
 import datawave.query.util.sortedset.HdfsBackedSortedSet;
 import datawave.query.util.sortedset.KeyValueSerializable;
+import datawave.query.util.sortedset.KeyValueSortedSetFileFormat;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.PartialKey;
@@ -70,7 +71,9 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         private int maxRangeSplit = 11;
         private FileSystem fs;
         private Path uniqueDir;
+        private String hdfsFileCompressionCodec;
         private QueryLock queryLock;
+        private String queryId;
         private boolean allowDirReuse;
         private long scanThreshold = 10000;
         private int hdfsBackedSetBufferSize = 10000;
@@ -154,11 +157,21 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
             return self();
         }
         
+        public B withHdfsFileCompressionCodec(String hdfsFileCompressionCodec) {
+            this.hdfsFileCompressionCodec = hdfsFileCompressionCodec;
+            return self();
+        }
+        
         public B withQueryLock(QueryLock queryLock) {
             this.queryLock = queryLock;
             return self();
         }
         
+        public B withQueryId(String queryId) {
+            this.queryId = queryId;
+            return self();
+        }
+        
         public B allowDirResuse(boolean allowDirReuse) {
             this.allowDirReuse = allowDirReuse;
             return self();
@@ -225,8 +238,12 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     private final FileSystem fs;
     // the directory for the hdfs cache
     private final Path uniqueDir;
+    // the compression codec used for the hdfs cache files (may be null)
+    private final String hdfsFileCompressionCodec;
     // A query lock to verify if the query is still running
     private final QueryLock queryLock;
+    // used to schedule the fill tasks fairly with those of other queries
+    private final String queryId;
     // are we allowing reuse of the hdfs directories
     private final boolean allowDirReuse;
     // the max number of scanned keys before we force persistance of the hdfs cache
@@ -289,6 +306,9 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     
     private Map<String,Map<String,CompositePredicateFilter>> compositePredicateFilters;
     
+    // the tserver wide cache of completed results, used to pick up where a previous scan of the same row left off
+    private IvaratorResultCache resultCache = IvaratorResultCache.getInstance();
+    
     // -------------------------------------------------------------------------
     // ------------- Constructors
     
@@ -305,7 +325,9 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         
         this.fs = null;
         this.queryLock = null;
+        this.queryId = null;
         this.uniqueDir = null;
+        this.hdfsFileCompressionCodec = null;
         this.allowDirReuse = false;
         this.scanThreshold = 10000;
         this.hdfsBackedSetBufferSize = 10000;
@@ -317,15 +339,16 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     
     protected DatawaveFieldIndexCachingIteratorJexl(Builder builder) {
         this(builder.fieldName, builder.fieldValue, builder.timeFilter, builder.datatypeFilter, builder.negated, builder.scanThreshold, builder.scanTimeout,
-                        builder.hdfsBackedSetBufferSize, builder.maxRangeSplit, builder.maxOpenFiles, builder.fs, builder.uniqueDir, builder.queryLock,
-                        builder.allowDirReuse, builder.returnKeyType, builder.sortedUIDs, builder.compositePredicateFilters);
+                        builder.hdfsBackedSetBufferSize, builder.maxRangeSplit, builder.maxOpenFiles, builder.fs, builder.uniqueDir,
+                        builder.hdfsFileCompressionCodec, builder.queryLock, builder.allowDirReuse, builder.returnKeyType, builder.sortedUIDs,
+                        builder.compositePredicateFilters, builder.queryId);
     }
     
     @SuppressWarnings("hiding")
     private DatawaveFieldIndexCachingIteratorJexl(Text fieldName, Text fieldValue, TimeFilter timeFilter, Predicate<Key> datatypeFilter, boolean neg,
                     long scanThreshold, long scanTimeout, int bufferSize, int maxRangeSplit, int maxOpenFiles, FileSystem fs, Path uniqueDir,
-                    QueryLock queryLock, boolean allowDirReuse, PartialKey returnKeyType, boolean sortedUIDs,
-                    Map<String,Map<String,CompositePredicateFilter>> compositePredicateFilters) {
+                    String hdfsFileCompressionCodec, QueryLock queryLock, boolean allowDirReuse, PartialKey returnKeyType, boolean sortedUIDs,
+                    Map<String,Map<String,CompositePredicateFilter>> compositePredicateFilters, String queryId) {
         if (fieldName.toString().startsWith("fi" + NULL_BYTE)) {
             this.fieldName = new Text(fieldName.toString().substring(3));
             this.fiName = fieldName;
@@ -342,7 +365,9 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         
         this.fs = fs;
         this.queryLock = queryLock;
+        this.queryId = queryId;
         this.uniqueDir = uniqueDir;
+        this.hdfsFileCompressionCodec = hdfsFileCompressionCodec;
         this.allowDirReuse = allowDirReuse;
         this.scanThreshold = scanThreshold;
         this.scanTimeout = scanTimeout;
@@ -367,7 +392,9 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         
         this.fs = other.fs;
         this.queryLock = other.queryLock;
+        this.queryId = other.queryId;
         this.uniqueDir = other.uniqueDir;
+        this.hdfsFileCompressionCodec = other.hdfsFileCompressionCodec;
         this.allowDirReuse = other.allowDirReuse;
         this.scanThreshold = other.scanThreshold;
         this.scanTimeout = other.scanTimeout;
@@ -381,6 +408,7 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         this.maxRangeSplit = other.maxRangeSplit;
         
         this.sortedUIDs = other.sortedUIDs;
+        this.resultCache = other.resultCache;
         
         try {
             this.setControl.takeOwnership(this.currentRow, this);
@@ -683,7 +711,16 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
                 
                 // now get the keys. Get them all and sorted if needed, otherwise just get the next one.
                 if (sortedUIDs) {
-                    fillSortedSets();
+                    // use the results of a previous scan of this row if they are cached, otherwise fill the sets and cache the results
+                    IvaratorResultCache.ResultKey resultKey = getResultKey();
+                    List<KeyValueSerializable> cachedResults = (resultKey == null ? null : resultCache.get(resultKey, lastRangeSeeked));
+                    if (cachedResults != null) {
+                        this.keyValues = cachedResults.iterator();
+                        moveToNextRow();
+                    } else {
+                        fillSortedSets();
+                        cacheResults(resultKey);
+                    }
                 } else {
                     getNextUnsortedKey();
                 }
@@ -780,6 +817,50 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         moveToNextRow();
     }
     
+    /**
+     * Get the key of the results of this ivarator in the current row in the result cache
+     * 
+     * @return the key, or null if the results of this ivarator cannot be cached
+     */
+    private IvaratorResultCache.ResultKey getResultKey() {
+        if (!resultCache.isEnabled() || queryId == null) {
+            return null;
+        }
+        Object term = getResultCacheTerm();
+        if (term == null) {
+            return null;
+        }
+        return new IvaratorResultCache.ResultKey(queryId, fiRow.toString(), getClass().getName(), fieldName.toString(), term, negated, returnKeyType,
+                        boundingFiRanges);
+    }
+    
+    /**
+     * Cache the results of the row just filled. Only the results still held in memory are cached, as larger sets are persisted and can be reused from the
+     * hdfs directory.
+     * 
+     * @param resultKey
+     *            the key of the results, may be null
+     */
+    private void cacheResults(IvaratorResultCache.ResultKey resultKey) {
+        if (resultKey == null || this.set == null || this.set.hasPersistedData() || this.setControl.isCancelledQuery() || isTimedOut()) {
+            return;
+        }
+        List<KeyValueSerializable> results = resultCache.put(resultKey, lastRangeSeeked, this.set);
+        if (results != null) {
+            this.keyValues = results.iterator();
+        }
+    }
+    
+    /**
+     * The term of this ivarator that, along with its field and bounding field index ranges, determines the keys it matches. This is used to identify its
+     * results in the result cache. By default this is the string representation of the ivarator.
+     * 
+     * @return the term, or null if the results of this ivarator cannot be cached
+     */
+    protected Object getResultCacheTerm() {
+        return toString();
+    }
+    
     private void getNextUnsortedKey() throws IOException {
         this.keyValues = null;
         
@@ -970,7 +1051,8 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
             }
         };
         
-        return IteratorThreadPoolManager.executeIvarator(runnable, DatawaveFieldIndexCachingIteratorJexl.this.toString() + " in " + boundingFiRange.toString());
+        return IteratorThreadPoolManager.executeIvarator(queryId, runnable,
+                        DatawaveFieldIndexCachingIteratorJexl.this.toString() + " in " + boundingFiRange.toString());
         
     }
     
@@ -1034,7 +1116,8 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
                 this.createdRowDir = false;
             }
             
-            this.set = new HdfsBackedSortedSet<KeyValueSerializable>(null, hdfsBackedSetBufferSize, fs, rowDir, maxOpenFiles);
+            this.set = new HdfsBackedSortedSet<KeyValueSerializable>(null, hdfsBackedSetBufferSize, fs, rowDir, maxOpenFiles, new KeyValueSortedSetFileFormat(
+                            hdfsFileCompressionCodec));
             this.threadSafeSet = Collections.synchronizedSortedSet(this.set);
             this.currentRow = row;
             this.setControl.takeOwnership(row, this);
@@ -1373,6 +1456,10 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         this.querySpanCollector = querySpanCollector;
     }
     
+    public void setResultCache(IvaratorResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+    
     @Override
     public void addCompositePredicates(Set<JexlNode> compositePredicates) {
         if (compositePredicateFilters != null) {
@@ -85,6 +85,14 @@ public class DatawaveFieldIndexFilterIteratorJexl extends DatawaveFieldIndexRang
         return builder.toString();
     }
     
+    /**
+     * The filter cannot be compared with the filters of other ivarators, so the results are not cached
+     */
+    @Override
+    protected Object getResultCacheTerm() {
+        return null;
+    }
+    
     /**
      * Unlike the super class's buildBoundingFiRanges, we want the same bounding range even if we are negated. negation in this case only refers to the supplied
      * filter.
@@ -103,6 +103,14 @@ public class DatawaveFieldIndexListIteratorJexl extends DatawaveFieldIndexCachin
         return builder.toString();
     }
     
+    /**
+     * The values identify the results, but an FST cannot be compared with the FSTs of other ivarators, so those results are not cached
+     */
+    @Override
+    protected Object getResultCacheTerm() {
+        return fst == null ? values : null;
+    }
+    
     @Override
     protected List<Range> buildBoundingFiRanges(Text rowId, Text fiName, Text fieldValue) {
         if (fst != null || isNegated()) {
@@ -0,0 +1,406 @@
+package datawave.core.iterators;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded work queue for a thread pool that is shared by many queries. The tasks are queued per query, and the queries are served round robin so that a
+ * query with thousands of queued tasks does not hold up a query that only has a few. The number of tasks queued overall and the number queued for any one
+ * query are bounded: {@link #offer(Runnable)} fails when either bound is reached and {@link #put(Runnable)} waits for room, which pushes back on the thread
+ * submitting the tasks.
+ * 
+ * Tasks that are not a {@link QueryTask} are queued together as if they belonged to a single query.
+ */
+public class FairTaskQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+    
+    private static final String NO_QUERY_ID = "";
+    
+    /**
+     * A task that is tagged with the query it is run for
+     */
+    public static class QueryTask extends FutureTask<Object> {
+        private final String queryId;
+        private long enqueueTime;
+        
+        public QueryTask(String queryId, Runnable task) {
+            super(task, null);
+            this.queryId = (queryId == null ? NO_QUERY_ID : queryId);
+        }
+        
+        public String getQueryId() {
+            return queryId;
+        }
+    }
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    
+    // the queued tasks per query, and the order in which the queries are served
+    private final Map<String,ArrayDeque<Runnable>> queued = new HashMap<>();
+    private final ArrayDeque<String> rotation = new ArrayDeque<>();
+    private int count = 0;
+    
+    private volatile int capacity;
+    private volatile int queryCapacity;
+    
+    private final AtomicLong numDequeued = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    
+    /**
+     * @param capacity
+     *            the maximum number of tasks queued overall
+     * @param queryCapacity
+     *            the maximum number of tasks queued for any one query
+     */
+    public FairTaskQueue(int capacity, int queryCapacity) {
+        setCapacity(capacity, queryCapacity);
+    }
+    
+    public void setCapacity(int capacity, int queryCapacity) {
+        if (capacity <= 0 || queryCapacity <= 0) {
+            throw new IllegalArgumentException("Capacities must be positive: " + capacity + ", " + queryCapacity);
+        }
+        lock.lock();
+        try {
+            this.capacity = capacity;
+            this.queryCapacity = queryCapacity;
+            // the capacities may have grown
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    public int getQueryCapacity() {
+        return queryCapacity;
+    }
+    
+    private static String queryId(Runnable task) {
+        return (task instanceof QueryTask ? ((QueryTask) task).getQueryId() : NO_QUERY_ID);
+    }
+    
+    private boolean isFull(String queryId) {
+        if (count >= capacity) {
+            return true;
+        }
+        ArrayDeque<Runnable> tasks = queued.get(queryId);
+        return (tasks != null && tasks.size() >= queryCapacity);
+    }
+    
+    private void enqueue(String queryId, Runnable task) {
+        ArrayDeque<Runnable> tasks = queued.get(queryId);
+        if (tasks == null) {
+            tasks = new ArrayDeque<>();
+            queued.put(queryId, tasks);
+            rotation.addLast(queryId);
+        }
+        if (task instanceof QueryTask) {
+            ((QueryTask) task).enqueueTime = System.nanoTime();
+        }
+        tasks.addLast(task);
+        count++;
+        notEmpty.signal();
+    }
+    
+    /**
+     * Take the next task from the query at the head of the rotation, and move that query to the back of the rotation
+     */
+    private Runnable dequeue() {
+        String queryId = rotation.pollFirst();
+        ArrayDeque<Runnable> tasks = queued.get(queryId);
+        Runnable task = tasks.pollFirst();
+        if (tasks.isEmpty()) {
+            queued.remove(queryId);
+        } else {
+            rotation.addLast(queryId);
+        }
+        count--;
+        // a single task may free room for waiters on different queries
+        notFull.signalAll();
+        
+        if (task instanceof QueryTask) {
+            long wait = System.nanoTime() - ((QueryTask) task).enqueueTime;
+            totalWaitNanos.addAndGet(wait);
+            long max = maxWaitNanos.get();
+            while (wait > max && !maxWaitNanos.compareAndSet(max, wait)) {
+                max = maxWaitNanos.get();
+            }
+        }
+        numDequeued.incrementAndGet();
+        return task;
+    }
+    
+    @Override
+    public boolean offer(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        String queryId = queryId(task);
+        lock.lock();
+        try {
+            if (isFull(queryId)) {
+                return false;
+            }
+            enqueue(queryId, task);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public void put(Runnable task) throws InterruptedException {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        String queryId = queryId(task);
+        lock.lockInterruptibly();
+        try {
+            while (isFull(queryId)) {
+                notFull.await();
+            }
+            enqueue(queryId, task);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        String queryId = queryId(task);
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (isFull(queryId)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(queryId, task);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Queue a task regardless of the capacities. This is for a task submitted by one of the threads draining this queue, which must never wait on the queue
+     * or it could wait forever.
+     * 
+     * @param task
+     */
+    public void putOverCapacity(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        lock.lock();
+        try {
+            enqueue(queryId(task), task);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public Runnable take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public Runnable poll() {
+        lock.lock();
+        try {
+            return (count == 0 ? null : dequeue());
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            return (count == 0 ? null : queued.get(rotation.peekFirst()).peekFirst());
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Runnable)) {
+            return false;
+        }
+        String queryId = queryId((Runnable) o);
+        lock.lock();
+        try {
+            ArrayDeque<Runnable> tasks = queued.get(queryId);
+            if (tasks == null || !tasks.remove(o)) {
+                return false;
+            }
+            if (tasks.isEmpty()) {
+                queued.remove(queryId);
+                rotation.remove(queryId);
+            }
+            count--;
+            notFull.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            return Math.max(0, capacity - count);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        lock.lock();
+        try {
+            int n = 0;
+            while (n < maxElements && count > 0) {
+                c.add(dequeue());
+                n++;
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * @return a snapshot of the queued tasks, in no particular order
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        lock.lock();
+        try {
+            List<Runnable> tasks = new ArrayList<>(count);
+            for (ArrayDeque<Runnable> queryTasks : queued.values()) {
+                tasks.addAll(queryTasks);
+            }
+            return tasks.iterator();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * @return the number of queries that currently have tasks queued
+     */
+    public int getNumQueries() {
+        lock.lock();
+        try {
+            return queued.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * @param queryId
+     * @return the number of tasks currently queued for the query
+     */
+    public int getNumQueued(String queryId) {
+        lock.lock();
+        try {
+            ArrayDeque<Runnable> tasks = queued.get(queryId == null ? NO_QUERY_ID : queryId);
+            return (tasks == null ? 0 : tasks.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * @return the number of tasks taken from the queue
+     */
+    public long getNumDequeued() {
+        return numDequeued.get();
+    }
+    
+    /**
+     * @return the total time tasks have spent waiting in the queue, in milliseconds
+     */
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get());
+    }
+    
+    /**
+     * @return the longest time a task has spent waiting in the queue, in milliseconds
+     */
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+}
@@ -4,10 +4,12 @@ import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import datawave.core.iterators.FairTaskQueue.QueryTask;
+
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
 import org.apache.accumulo.core.conf.AccumuloConfiguration.PropertyFilter;
 import org.apache.accumulo.core.util.NamingThreadFactory;
@@ -18,7 +20,9 @@ import org.apache.accumulo.server.util.time.SimpleTimer;
 import org.apache.log4j.Logger;
 
 /**
- * 
+ * Manages the ivarator and evaluation thread pools shared by all of the queries running on a tserver. The tasks in each pool are queued per query and the
+ * queries are served round robin (see {@link FairTaskQueue}), so a large query cannot starve the smaller ones. The queues are bounded overall and per query;
+ * when a queue is full the submitting thread waits for room rather than letting the queue grow without bound.
  */
 public class IteratorThreadPoolManager {
     private static final Logger log = Logger.getLogger(IteratorThreadPoolManager.class);
@@ -26,11 +30,15 @@ public class IteratorThreadPoolManager {
     private static final String IVARATOR_THREAD_NAME = "DATAWAVE Ivarator";
     private static final String EVALUATOR_THREAD_PROP = "tserver.datawave.evaluation.threads";
     private static final String EVALUATOR_THREAD_NAME = "DATAWAVE Evaluation";
+    private static final String QUEUE_SIZE_PROP_SUFFIX = ".queue.size";
+    private static final String QUERY_QUEUE_SIZE_PROP_SUFFIX = ".queue.size.per.query";
     private ExecutorService ivaratorThreadPool;
     private ExecutorService evaluationThreadPool;
     private static final int DEFAULT_THREAD_POOL_SIZE = 100;
+    private static final int DEFAULT_QUEUE_SIZE = 10000;
+    private static final int DEFAULT_QUERY_QUEUE_SIZE = 2500;
     
-    private Map<String,ExecutorService> threadPools = new TreeMap<String,ExecutorService>();
+    private Map<String,ThreadPoolExecutor> threadPools = new TreeMap<String,ThreadPoolExecutor>();
     
     private ServerConfigurationFactory confFactory;
     
@@ -50,7 +58,9 @@ public class IteratorThreadPoolManager {
     }
     
     private ThreadPoolExecutor createExecutorService(final String prop, final String name) {
-        final ThreadPoolExecutor service = createExecutorService(getMaxThreads(prop), name + " (" + instanceId + ')');
+        final FairTaskQueue queue = new FairTaskQueue(getProperty(prop + QUEUE_SIZE_PROP_SUFFIX, DEFAULT_QUEUE_SIZE), getProperty(prop
+                        + QUERY_QUEUE_SIZE_PROP_SUFFIX, DEFAULT_QUERY_QUEUE_SIZE));
+        final ThreadPoolExecutor service = createExecutorService(getMaxThreads(prop), name + " (" + instanceId + ')', queue);
         threadPools.put(name, service);
         SimpleTimer.getInstance(AccumuloConfiguration.getDefaultConfiguration()).schedule(() -> {
             try {
@@ -61,6 +71,21 @@ public class IteratorThreadPoolManager {
                     service.setCorePoolSize(max);
                     service.setMaximumPoolSize(max);
                 }
+                
+                int queueSize = getProperty(prop + QUEUE_SIZE_PROP_SUFFIX, DEFAULT_QUEUE_SIZE);
+                int queryQueueSize = getProperty(prop + QUERY_QUEUE_SIZE_PROP_SUFFIX, DEFAULT_QUERY_QUEUE_SIZE);
+                if (queue.getCapacity() != queueSize || queue.getQueryCapacity() != queryQueueSize) {
+                    log.info("Changing " + prop + QUEUE_SIZE_PROP_SUFFIX + " to " + queueSize + " and " + prop + QUERY_QUEUE_SIZE_PROP_SUFFIX + " to "
+                                    + queryQueueSize);
+                    queue.setCapacity(queueSize, queryQueueSize);
+                }
+                
+                if (log.isDebugEnabled()) {
+                    long dequeued = queue.getNumDequeued();
+                    log.debug(name + ": " + service.getActiveCount() + " active threads, " + queue.size() + " queued tasks for " + queue.getNumQueries()
+                                    + " queries, " + (dequeued == 0 ? 0 : queue.getTotalWaitMillis() / dequeued) + "ms average wait, "
+                                    + queue.getMaxWaitMillis() + "ms max wait");
+                }
             } catch (Throwable t) {
                 log.error(t, t);
             }
@@ -68,14 +93,40 @@ public class IteratorThreadPoolManager {
         return service;
     }
     
-    private ThreadPoolExecutor createExecutorService(int maxThreads, String name) {
-        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, 5 * 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
-                        new NamingThreadFactory(name));
+    private ThreadPoolExecutor createExecutorService(int maxThreads, String name, FairTaskQueue queue) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, 5 * 60, TimeUnit.SECONDS, queue, new NamingThreadFactory(name),
+                        (r, executor) -> waitForRoom(queue, r, executor));
         pool.allowCoreThreadTimeOut(true);
         return pool;
     }
     
+    /**
+     * Called when a task is rejected because the queue is full. Rather than failing the task, wait for room in the queue which pushes back on the thread
+     * submitting the task.
+     * 
+     * @param queue
+     * @param task
+     * @param executor
+     */
+    private static void waitForRoom(FairTaskQueue queue, Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("The thread pool has been shut down");
+        }
+        try {
+            queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted waiting to queue " + task, e);
+        }
+        // the pool threads may have timed out while we were waiting
+        executor.prestartCoreThread();
+    }
+    
     private int getMaxThreads(final String prop) {
+        return getProperty(prop, DEFAULT_THREAD_POOL_SIZE);
+    }
+    
+    private int getProperty(final String prop, int defaultValue) {
         if (this.confFactory != null) {
             AccumuloConfiguration conf = this.confFactory.getConfiguration();
             Map<String,String> properties = new TreeMap<String,String>();
@@ -84,7 +135,7 @@ public class IteratorThreadPoolManager {
                 return Integer.parseInt(properties.get(prop));
             }
         }
-        return DEFAULT_THREAD_POOL_SIZE;
+        return defaultValue;
     }
     
     private static IteratorThreadPoolManager instance() {
@@ -98,8 +149,8 @@ public class IteratorThreadPoolManager {
         return instance;
     }
     
-    private Future<?> execute(String name, final Runnable task, final String taskName) {
-        return threadPools.get(name).submit(() -> {
+    private Future<?> execute(String name, String queryId, final Runnable task, final String taskName) {
+        QueryTask queryTask = new QueryTask(queryId, () -> {
             String oldName = Thread.currentThread().getName();
             Thread.currentThread().setName(oldName + " -> " + taskName);
             try {
@@ -108,14 +159,59 @@ public class IteratorThreadPoolManager {
                 Thread.currentThread().setName(oldName);
             }
         });
+        threadPools.get(name).execute(queryTask);
+        return queryTask;
     }
     
     public static Future<?> executeIvarator(Runnable task, String taskName) {
-        return instance().execute(IVARATOR_THREAD_NAME, task, taskName);
+        return executeIvarator(null, task, taskName);
+    }
+    
+    /**
+     * Run an ivarator task, queued fairly with the tasks of the other queries. This will wait if the ivarator queue is full.
+     * 
+     * @param queryId
+     *            the query the task is run for, may be null
+     * @param task
+     * @param taskName
+     * @return the future for the task
+     */
+    public static Future<?> executeIvarator(String queryId, Runnable task, String taskName) {
+        return instance().execute(IVARATOR_THREAD_NAME, queryId, task, taskName);
     }
     
     public static Future<?> executeEvaluation(Runnable task, String taskName) {
-        return instance().execute(EVALUATOR_THREAD_NAME, task, taskName);
+        return executeEvaluation(null, task, taskName);
+    }
+    
+    /**
+     * Run an evaluation task, queued fairly with the tasks of the other queries. This will wait if the evaluation queue is full.
+     * 
+     * @param queryId
+     *            the query the task is run for, may be null
+     * @param task
+     * @param taskName
+     * @return the future for the task
+     */
+    public static Future<?> executeEvaluation(String queryId, Runnable task, String taskName) {
+        return instance().execute(EVALUATOR_THREAD_NAME, queryId, task, taskName);
+    }
+    
+    /**
+     * @param queryId
+     *            the query the evaluation tasks are run for, may be null
+     * @return true if the evaluation tasks of the query are queueing up behind busy threads
+     */
+    public static boolean isEvaluationPoolSaturated(String queryId) {
+        return getEvaluationQueue().getNumQueued(queryId) > 0;
+    }
+    
+    public static FairTaskQueue getIvaratorQueue() {
+        return (FairTaskQueue) instance().threadPools.get(IVARATOR_THREAD_NAME).getQueue();
+    }
+    
+    public static FairTaskQueue getEvaluationQueue() {
+        return (FairTaskQueue) instance().threadPools.get(EVALUATOR_THREAD_NAME).getQueue();
     }
     
 }
@@ -0,0 +1,258 @@
+package datawave.core.iterators;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import datawave.query.util.sortedset.KeyValueSerializable;
+
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.server.client.HdfsZooInstance;
+import org.apache.accumulo.server.conf.ServerConfigurationFactory;
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
+/**
+ * A tserver wide cache of the completed sorted sets of the ivarators, so that an ivarator that is torn down and re-seeked within the same row (a yield, the end
+ * of a batch, or a client re-scan) can pick up its results from memory instead of from its hdfs directory or by sweeping the field index again.
+ * <p>
+ * The sets are keyed by the query, shard row, term and bounding field index ranges of the ivarator. The cache is bounded by the estimated size in bytes of the
+ * cached keys and values, evicting the least recently used sets, and a single set may take at most a quarter of the cache. The size is set with the
+ * {@value #CACHE_SIZE_PROP} tserver property, and the cache is disabled when it is 0 (the default). Sets that have not been used for the
+ * {@value #CACHE_EXPIRATION_PROP} are dropped, as their query is most likely done.
+ */
+public class IvaratorResultCache {
+    private static final Logger log = Logger.getLogger(IvaratorResultCache.class);
+    private static final String CACHE_SIZE_PROP = "tserver.datawave.ivarator.result.cache.size";
+    private static final String CACHE_EXPIRATION_PROP = "tserver.datawave.ivarator.result.cache.expiration";
+    private static final long DEFAULT_CACHE_SIZE = 0;
+    private static final long DEFAULT_CACHE_EXPIRATION = 10 * 60 * 1000L;
+    
+    // the estimated overhead of a cached key value on top of its bytes
+    private static final int ENTRY_OVERHEAD = 96;
+    
+    private static final Object instanceSemaphore = new Object();
+    private static volatile IvaratorResultCache instance;
+    
+    private final Cache<ResultKey,Results> cache;
+    private final long maxResultsSize;
+    
+    /**
+     * @param maxSize
+     *            the maximum estimated size in bytes of the cached sets, 0 to disable the cache
+     * @param expiration
+     *            the time in milliseconds after which a set that has not been used is dropped
+     */
+    public IvaratorResultCache(long maxSize, long expiration) {
+        this.maxResultsSize = Math.min(maxSize / 4, Integer.MAX_VALUE);
+        if (maxSize > 0) {
+            this.cache = CacheBuilder.newBuilder().maximumWeight(maxSize).weigher(new Weigher<ResultKey,Results>() {
+                @Override
+                public int weigh(ResultKey key, Results value) {
+                    return value.size;
+                }
+            }).expireAfterAccess(expiration, TimeUnit.MILLISECONDS).concurrencyLevel(10).build();
+        } else {
+            this.cache = null;
+        }
+    }
+    
+    public static IvaratorResultCache getInstance() {
+        if (instance == null) {
+            synchronized (instanceSemaphore) {
+                if (instance == null) {
+                    instance = createInstance();
+                }
+            }
+        }
+        return instance;
+    }
+    
+    private static IvaratorResultCache createInstance() {
+        long size = DEFAULT_CACHE_SIZE;
+        long expiration = DEFAULT_CACHE_EXPIRATION;
+        try {
+            AccumuloConfiguration conf = new ServerConfigurationFactory(HdfsZooInstance.getInstance()).getConfiguration();
+            Map<String,String> properties = new TreeMap<String,String>();
+            conf.getProperties(properties, new AccumuloConfiguration.MatchFilter(CACHE_SIZE_PROP));
+            conf.getProperties(properties, new AccumuloConfiguration.MatchFilter(CACHE_EXPIRATION_PROP));
+            if (properties.containsKey(CACHE_SIZE_PROP)) {
+                size = AccumuloConfiguration.getMemoryInBytes(properties.get(CACHE_SIZE_PROP));
+            }
+            if (properties.containsKey(CACHE_EXPIRATION_PROP)) {
+                expiration = AccumuloConfiguration.getTimeInMillis(properties.get(CACHE_EXPIRATION_PROP));
+            }
+        } catch (Throwable e) {
+            log.error("Unable to get the accumulo configuration, the ivarator result cache is disabled");
+        }
+        if (size > 0) {
+            log.info("Caching up to " + size + " bytes of ivarator results");
+        }
+        return new IvaratorResultCache(size, expiration);
+    }
+    
+    public boolean isEnabled() {
+        return cache != null;
+    }
+    
+    /**
+     * Get the cached results of an ivarator
+     * 
+     * @param key
+     *            the key of the ivarator
+     * @param range
+     *            the range the ivarator was seeked to
+     * @return the cached results, or null if there are none that cover the range
+     */
+    public List<KeyValueSerializable> get(ResultKey key, Range range) {
+        if (cache == null) {
+            return null;
+        }
+        Results results = cache.getIfPresent(key);
+        if (results == null || !covers(results.range, range)) {
+            return null;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Using " + results.keyValues.size() + " cached ivarator results for " + key);
+        }
+        return results.keyValues;
+    }
+    
+    /**
+     * Cache the completed results of an ivarator. The results are only cached if they fit in a quarter of the cache.
+     * 
+     * @param key
+     *            the key of the ivarator
+     * @param range
+     *            the range the ivarator was seeked to, which bounds the results
+     * @param keyValues
+     *            the sorted results
+     * @return the cached results, or null if they were not cached
+     */
+    public List<KeyValueSerializable> put(ResultKey key, Range range, Iterable<KeyValueSerializable> keyValues) {
+        if (cache == null) {
+            return null;
+        }
+        List<KeyValueSerializable> copy = new ArrayList<>();
+        long size = 0;
+        for (KeyValueSerializable keyValue : keyValues) {
+            size += keyValue.key.getSize() + keyValue.value.length + ENTRY_OVERHEAD;
+            if (size > maxResultsSize) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Not caching the ivarator results for " + key + " as they exceed " + maxResultsSize + " bytes");
+                }
+                return null;
+            }
+            copy.add(keyValue);
+        }
+        List<KeyValueSerializable> results = Collections.unmodifiableList(copy);
+        cache.put(key, new Results(range, results, (int) size));
+        return results;
+    }
+    
+    public void clear() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+    
+    /**
+     * Does the range the cached results were gathered for cover the range being seeked
+     */
+    private static boolean covers(Range cached, Range range) {
+        Key start = range.getStartKey();
+        Key end = range.getEndKey();
+        if (start == null) {
+            if (cached.getStartKey() != null) {
+                return false;
+            }
+        } else if (start.equals(cached.getStartKey())) {
+            if (range.isStartKeyInclusive() && !cached.isStartKeyInclusive()) {
+                return false;
+            }
+        } else if (!cached.contains(start)) {
+            return false;
+        }
+        if (end == null) {
+            return cached.getEndKey() == null;
+        } else if (end.equals(cached.getEndKey())) {
+            return !range.isEndKeyInclusive() || cached.isEndKeyInclusive();
+        }
+        return cached.contains(end);
+    }
+    
+    private static class Results {
+        private final Range range;
+        private final List<KeyValueSerializable> keyValues;
+        private final int size;
+        
+        private Results(Range range, List<KeyValueSerializable> keyValues, int size) {
+            this.range = range;
+            this.keyValues = keyValues;
+            this.size = size;
+        }
+    }
+    
+    /**
+     * Identifies the results of an ivarator: the query, the shard row, the ivarator type, field and term, and the bounding field index ranges it scans in the
+     * row.
+     */
+    public static class ResultKey {
+        private final String queryId;
+        private final String row;
+        private final String ivarator;
+        private final String field;
+        private final Object term;
+        private final boolean negated;
+        private final PartialKey returnKeyType;
+        private final List<Range> ranges;
+        private final int hashCode;
+        
+        public ResultKey(String queryId, String row, String ivarator, String field, Object term, boolean negated, PartialKey returnKeyType,
+                        List<Range> ranges) {
+            this.queryId = queryId;
+            this.row = row;
+            this.ivarator = ivarator;
+            this.field = field;
+            this.term = term;
+            this.negated = negated;
+            this.returnKeyType = returnKeyType;
+            this.ranges = new ArrayList<>(ranges);
+            this.hashCode = Objects.hashCode(queryId, row, ivarator, field, term, negated, returnKeyType, this.ranges);
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ResultKey)) {
+                return false;
+            }
+            ResultKey other = (ResultKey) o;
+            return hashCode == other.hashCode && negated == other.negated && Objects.equal(queryId, other.queryId) && Objects.equal(row, other.row)
+                            && Objects.equal(ivarator, other.ivarator) && Objects.equal(field, other.field) && Objects.equal(term, other.term)
+                            && returnKeyType == other.returnKeyType && Objects.equal(ranges, other.ranges);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+        
+        @Override
+        public String toString() {
+            return ivarator + "{queryId=" + queryId + ", row=" + row + ", field=" + field + ", term=" + term + ", negated=" + negated + "}";
+        }
+    }
+}
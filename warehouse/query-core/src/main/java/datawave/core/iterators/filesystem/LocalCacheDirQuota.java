@@ -0,0 +1,283 @@
+package datawave.core.iterators.filesystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Tracks the local disk space used by ivarator caches on this tserver. The local directories are used in preference to hdfs as long as there is space
+ * available. The usage of a directory is computed by walking it, and the result is cached for a short interval as this check is done every time an ivarator
+ * is created.
+ * 
+ * The webserver cannot remove the local directories of a query when it closes, so each tserver periodically sweeps the query directories that have not been
+ * modified within an expiration period.
+ */
+public class LocalCacheDirQuota {
+    private static final Logger log = Logger.getLogger(LocalCacheDirQuota.class);
+    
+    // the number of milliseconds a computed directory usage is trusted
+    public static final long USAGE_REFRESH_INTERVAL = 10 * 1000L;
+    
+    // the number of milliseconds between sweeps of the expired query directories
+    public static final long SWEEP_INTERVAL = 10 * 60 * 1000L;
+    
+    private static final Map<String,Usage> usages = new ConcurrentHashMap<>();
+    
+    private static final AtomicLong lastSweep = new AtomicLong(0);
+    
+    private static class Usage {
+        private final long computed;
+        private final long bytes;
+        
+        private Usage(long computed, long bytes) {
+            this.computed = computed;
+            this.bytes = bytes;
+        }
+    }
+    
+    private LocalCacheDirQuota() {}
+    
+    /**
+     * Can we put more ivarator caches in the specified local directory.
+     * 
+     * @param localDir
+     *            The local directory being considered
+     * @param allLocalDirs
+     *            All of the local directories, used to calculate the total usage on this tserver
+     * @param maxBytes
+     *            The max number of bytes to be used across all of the local directories. A value less than or equal to 0 disables the quota.
+     * @param minFreeBytes
+     *            The minimum number of bytes that must be left available on the volume containing the local directory
+     * @return true if the directory can be used
+     */
+    public static boolean hasCapacity(String localDir, Collection<String> allLocalDirs, long maxBytes, long minFreeBytes) {
+        File dir = toFile(localDir);
+        long available = getUsableSpace(dir);
+        if (available < minFreeBytes) {
+            if (log.isDebugEnabled()) {
+                log.debug("Not using " + localDir + " for ivarator cache: " + available + " bytes available is less than " + minFreeBytes);
+            }
+            return false;
+        }
+        if (maxBytes > 0) {
+            long used = 0;
+            for (String other : allLocalDirs) {
+                long dirUsage = getUsage(toFile(other));
+                if (dirUsage == Long.MAX_VALUE) {
+                    used = dirUsage;
+                    break;
+                }
+                used += dirUsage;
+            }
+            if (used >= maxBytes) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Not using " + localDir + " for ivarator cache: " + used + " bytes used meets the quota of " + maxBytes);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Remove the query directories under the local directories that have not been modified within the expiration period. This is done at most once per
+     * {@link #SWEEP_INTERVAL} on this tserver, by whichever caller gets there first.
+     * 
+     * @param localDirs
+     *            The local directories
+     * @param expiration
+     *            The number of milliseconds after its last modification that a query directory is removed. A value less than or equal to 0 disables the sweep.
+     * @param queryId
+     *            The query being run by the caller, whose directory is never removed
+     */
+    public static void sweep(Collection<String> localDirs, long expiration, String queryId) {
+        long now = System.currentTimeMillis();
+        long last = lastSweep.get();
+        if (expiration <= 0 || (now - last) < SWEEP_INTERVAL || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        for (String localDir : localDirs) {
+            File dir = toFile(localDir);
+            if (removeExpired(dir, expiration, queryId, now) > 0) {
+                // the usage is computed again on the next check
+                usages.remove(dir.getAbsolutePath());
+            }
+        }
+    }
+    
+    /**
+     * Remove the query directories under the specified local directory that have not been modified within the expiration period at the specified time
+     * 
+     * @param dir
+     * @param expiration
+     * @param queryId
+     * @param now
+     * @return the number of query directories removed
+     */
+    static int removeExpired(File dir, long expiration, String queryId, long now) {
+        File[] queryDirs = dir.listFiles();
+        if (queryDirs == null) {
+            return 0;
+        }
+        int removed = 0;
+        for (File queryDir : queryDirs) {
+            if (queryDir.isDirectory() && !queryDir.getName().equals(queryId) && (now - getLastModified(queryDir)) > expiration) {
+                try {
+                    delete(queryDir);
+                    removed++;
+                    if (log.isDebugEnabled()) {
+                        log.debug("Removed expired ivarator cache directory " + queryDir);
+                    }
+                } catch (IOException e) {
+                    log.warn("Unable to remove expired ivarator cache directory " + queryDir, e);
+                }
+            }
+        }
+        return removed;
+    }
+    
+    /**
+     * Get the latest modification time of the specified directory or anything under it
+     * 
+     * @param dir
+     * @return the last modified time, or now if it cannot be determined
+     */
+    private static long getLastModified(File dir) {
+        final AtomicLong lastModified = new AtomicLong(0);
+        try {
+            Files.walkFileTree(dir.toPath(), new SkipMissingFileVisitor() {
+                @Override
+                public FileVisitResult preVisitDirectory(java.nio.file.Path subdir, BasicFileAttributes attrs) {
+                    lastModified.set(Math.max(lastModified.get(), attrs.lastModifiedTime().toMillis()));
+                    return FileVisitResult.CONTINUE;
+                }
+                
+                @Override
+                public FileVisitResult visitFile(java.nio.file.Path file, BasicFileAttributes attrs) {
+                    lastModified.set(Math.max(lastModified.get(), attrs.lastModifiedTime().toMillis()));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Unable to determine when " + dir + " was last modified, assuming it is in use", e);
+            return System.currentTimeMillis();
+        }
+        return lastModified.get();
+    }
+    
+    private static void delete(File dir) throws IOException {
+        Files.walkFileTree(dir.toPath(), new SkipMissingFileVisitor() {
+            @Override
+            public FileVisitResult visitFile(java.nio.file.Path file, BasicFileAttributes attrs) throws IOException {
+                Files.deleteIfExists(file);
+                return FileVisitResult.CONTINUE;
+            }
+            
+            @Override
+            public FileVisitResult postVisitDirectory(java.nio.file.Path subdir, IOException exc) throws IOException {
+                if (exc != null && !(exc instanceof NoSuchFileException)) {
+                    throw exc;
+                }
+                Files.deleteIfExists(subdir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+    
+    /**
+     * Convert a local directory path or file URI into a file
+     * 
+     * @param localDir
+     * @return the file
+     */
+    public static File toFile(String localDir) {
+        URI uri = URI.create(localDir);
+        return new File(uri.getScheme() == null ? localDir : uri.getPath());
+    }
+    
+    /**
+     * Get the usable space on the volume containing the specified directory, using the nearest existing parent if the directory has not been created yet.
+     * 
+     * @param dir
+     * @return the usable space in bytes
+     */
+    private static long getUsableSpace(File dir) {
+        File existing = dir.getAbsoluteFile();
+        while (existing != null && !existing.exists()) {
+            existing = existing.getParentFile();
+        }
+        return (existing == null ? 0 : existing.getUsableSpace());
+    }
+    
+    /**
+     * Get the (possibly cached) number of bytes used under the specified directory
+     * 
+     * @param dir
+     * @return the number of bytes used
+     */
+    static long getUsage(File dir) {
+        return getUsage(dir, System.currentTimeMillis());
+    }
+    
+    /**
+     * Get the number of bytes used under the specified directory, computing it again if the cached usage is older than the refresh interval at the specified
+     * time
+     * 
+     * @param dir
+     * @param now
+     * @return the number of bytes used
+     */
+    static long getUsage(File dir, long now) {
+        String key = dir.getAbsolutePath();
+        Usage usage = usages.get(key);
+        if (usage == null || (now - usage.computed) > USAGE_REFRESH_INTERVAL) {
+            usage = new Usage(now, computeUsage(dir));
+            usages.put(key, usage);
+        }
+        return usage.bytes;
+    }
+    
+    private static long computeUsage(File dir) {
+        if (!dir.exists()) {
+            return 0;
+        }
+        final AtomicLong bytes = new AtomicLong(0);
+        try {
+            Files.walkFileTree(dir.toPath(), new SkipMissingFileVisitor() {
+                @Override
+                public FileVisitResult visitFile(java.nio.file.Path file, BasicFileAttributes attrs) {
+                    bytes.addAndGet(attrs.size());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Unable to compute the usage of " + dir + ", assuming it is full", e);
+            return Long.MAX_VALUE;
+        }
+        return bytes.get();
+    }
+    
+    /**
+     * Walks a directory, ignoring the files that are removed during the walk as ivarators complete and are cleaned up
+     */
+    private static class SkipMissingFileVisitor extends SimpleFileVisitor<java.nio.file.Path> {
+        @Override
+        public FileVisitResult visitFileFailed(java.nio.file.Path file, IOException exc) throws IOException {
+            if (exc instanceof NoSuchFileException) {
+                return FileVisitResult.CONTINUE;
+            }
+            throw exc;
+        }
+    }
+}
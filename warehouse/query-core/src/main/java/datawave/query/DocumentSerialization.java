@@ -37,6 +37,7 @@ public class DocumentSerialization {
     public static final ReturnType DEFAULT_RETURN_TYPE = ReturnType.kryo;
     
     private static final int DOC_MAGIC = 0x8b2f;
+    private static final int DOC_BATCH_MAGIC = 0x8b30;
     
     public static final byte NONE = 0;
     public static final byte GZIP = 1;
@@ -94,11 +95,35 @@ public class DocumentSerialization {
     
     public static byte[] getHeader(int compression) {
         
-        return new byte[] {(byte) DOC_MAGIC, // Magic number (short)
-                (byte) (DOC_MAGIC >> 8), // Magic number (short)
+        return getHeader(DOC_MAGIC, compression);
+    }
+    
+    /**
+     * Get the header for a value holding a {@link datawave.query.attributes.ColumnarDocumentBatch} of documents
+     *
+     * @param compression
+     * @return the header
+     */
+    public static byte[] getBatchHeader(int compression) {
+        return getHeader(DOC_BATCH_MAGIC, compression);
+    }
+    
+    private static byte[] getHeader(int magic, int compression) {
+        return new byte[] {(byte) magic, // Magic number (short)
+                (byte) (magic >> 8), // Magic number (short)
                 (byte) compression};
     }
     
+    /**
+     * Does the value hold a batch of documents rather than a single document
+     *
+     * @param data
+     * @return true if the data starts with the batch header
+     */
+    public static boolean isBatch(byte[] data) {
+        return (null != data && 3 <= data.length && (byte) DOC_BATCH_MAGIC == data[0] && (byte) (DOC_BATCH_MAGIC >> 8) == data[1]);
+    }
+    
     public static byte[] writeBody(byte[] data, int compression) throws InvalidDocumentHeader {
         if (NONE == compression) {
             return data;
@@ -122,6 +147,14 @@ public class DocumentSerialization {
     }
     
     public static InputStream consumeHeader(byte[] data) throws InvalidDocumentHeader {
+        return consumeHeader(data, DOC_MAGIC);
+    }
+    
+    public static InputStream consumeBatchHeader(byte[] data) throws InvalidDocumentHeader {
+        return consumeHeader(data, DOC_BATCH_MAGIC);
+    }
+    
+    private static InputStream consumeHeader(byte[] data, int expectedMagic) throws InvalidDocumentHeader {
         if (null == data || 3 > data.length) {
             QueryException qe = new QueryException(DatawaveErrorCode.DATA_INVALID_ERROR, MessageFormat.format("Length: {0}",
                             (null != data ? data.length : null)));
@@ -131,7 +164,7 @@ public class DocumentSerialization {
         ByteArrayInputStream bais = new ByteArrayInputStream(data);
         int magic = readUShort(bais);
         
-        if (DOC_MAGIC != magic) {
+        if (expectedMagic != magic) {
             NotFoundQueryException qe = new NotFoundQueryException(DatawaveErrorCode.EXPECTED_HEADER_NOT_FOUND);
             throw new InvalidDocumentHeader(qe);
         }
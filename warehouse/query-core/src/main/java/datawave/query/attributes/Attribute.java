@@ -174,9 +174,7 @@ public abstract class Attribute<T extends Comparable<T>> implements WritableComp
         if (!reducedResponse) {
             output.writeBoolean(isMetadataSet());
             if (isMetadataSet()) {
-                byte[] cvBytes = getColumnVisibility().getExpression();
-                output.writeInt(cvBytes.length, true);
-                output.writeBytes(cvBytes);
+                BatchDictionary.writeVisibility(kryo, output, getColumnVisibility());
                 output.writeLong(getTimestamp());
             }
         }
@@ -205,9 +203,7 @@ public abstract class Attribute<T extends Comparable<T>> implements WritableComp
         
         if (!reducedResponse) {
             if (input.readBoolean()) {
-                int size = input.readInt(true);
-                
-                this.setMetadata(new ColumnVisibility(input.readBytes(size)), input.readLong());
+                this.setMetadata(BatchDictionary.readVisibility(kryo, input), input.readLong());
             } else {
                 this.clearMetadata();
             }
@@ -69,6 +69,26 @@ public class AttributeFactory {
         return cf.toString();
     }
     
+    /**
+     * Get the class for the specified name, using the cache of previously loaded classes. This is used when deserializing documents as the class name is
+     * written out for every attribute.
+     * 
+     * @param clazz
+     *            the class name
+     * @return the class
+     * @throws ClassNotFoundException
+     */
+    public static Class<?> classForName(String clazz) throws ClassNotFoundException {
+        try {
+            return clazzCache.get(clazz);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ClassNotFoundException) {
+                throw (ClassNotFoundException) e.getCause();
+            }
+            throw new ClassNotFoundException(clazz, e.getCause());
+        }
+    }
+    
     public Attribute<?> create(String fieldName, String data, Key key, boolean toKeep) {
         
         return this.create(fieldName, data, key, extractIngestDataTypeFromKey(key), toKeep, false);
@@ -141,7 +141,7 @@ public class Attributes extends AttributeBag<Attributes> implements Serializable
             
             // Get the name of the concrete Attribute
             try {
-                clz = Class.forName(attrClassName);
+                clz = AttributeFactory.classForName(attrClassName);
             } catch (ClassNotFoundException e) {
                 throw new IOException(e);
             }
@@ -295,7 +295,7 @@ public class Attributes extends AttributeBag<Attributes> implements Serializable
         
         for (Attribute<? extends Comparable<?>> attr : this.attributes) {
             // Write out the concrete Attribute class
-            output.writeString(attr.getClass().getName());
+            BatchDictionary.writeString(kryo, output, attr.getClass().getName());
             
             // Defer to the concrete instance to write() itself
             attr.write(kryo, output, reducedResponse);
@@ -310,12 +310,12 @@ public class Attributes extends AttributeBag<Attributes> implements Serializable
         
         this.attributes = new LinkedHashSet<>();
         for (int i = 0; i < numAttrs; i++) {
-            String attrClassName = input.readString();
+            String attrClassName = BatchDictionary.readString(kryo, input);
             Class<?> clz;
             
             // Get the name of the concrete Attribute
             try {
-                clz = Class.forName(attrClassName);
+                clz = AttributeFactory.classForName(attrClassName);
             } catch (ClassNotFoundException e) {
                 log.error("could not find class for \"" + attrClassName + "\"");
                 throw new RuntimeException(e);
@@ -0,0 +1,152 @@
+package datawave.query.attributes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.security.ColumnVisibility;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Dictionary of the field names, class names and column visibilities repeated across the documents in a {@link ColumnarDocumentBatch}. While a dictionary is
+ * set in the context of the Kryo instance, the attributes write dictionary ids in place of those values. Without a dictionary the attributes are written
+ * exactly as they always have been.
+ */
+public class BatchDictionary {
+    
+    static final String CONTEXT_KEY = BatchDictionary.class.getName();
+    
+    private final Map<String,Integer> stringIds = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    
+    private final Map<ByteSequence,Integer> visibilityIds = new HashMap<>();
+    private final List<byte[]> visibilities = new ArrayList<>();
+    private final List<ColumnVisibility> parsedVisibilities = new ArrayList<>();
+    
+    public int getStringId(String value) {
+        Integer id = stringIds.get(value);
+        if (id == null) {
+            id = strings.size();
+            strings.add(value);
+            stringIds.put(value, id);
+        }
+        return id;
+    }
+    
+    public String getString(int id) {
+        return strings.get(id);
+    }
+    
+    public int getVisibilityId(ByteSequence visibility) {
+        Integer id = visibilityIds.get(visibility);
+        if (id == null) {
+            id = visibilities.size();
+            byte[] bytes = visibility.toArray();
+            visibilities.add(bytes);
+            parsedVisibilities.add(null);
+            visibilityIds.put(new ArrayByteSequence(bytes), id);
+        }
+        return id;
+    }
+    
+    public byte[] getVisibilityBytes(int id) {
+        return visibilities.get(id);
+    }
+    
+    /**
+     * Get the parsed column visibility, which is only parsed once regardless of how many attributes carry it
+     * 
+     * @param id
+     * @return the column visibility
+     */
+    public ColumnVisibility getVisibility(int id) {
+        ColumnVisibility visibility = parsedVisibilities.get(id);
+        if (visibility == null) {
+            visibility = new ColumnVisibility(visibilities.get(id));
+            parsedVisibilities.set(id, visibility);
+        }
+        return visibility;
+    }
+    
+    public void write(Output output) {
+        output.writeInt(strings.size(), true);
+        for (String value : strings) {
+            output.writeString(value);
+        }
+        output.writeInt(visibilities.size(), true);
+        for (byte[] visibility : visibilities) {
+            output.writeInt(visibility.length, true);
+            output.writeBytes(visibility);
+        }
+    }
+    
+    public static BatchDictionary read(Input input) {
+        BatchDictionary dictionary = new BatchDictionary();
+        int numStrings = input.readInt(true);
+        for (int i = 0; i < numStrings; i++) {
+            dictionary.getStringId(input.readString());
+        }
+        int numVisibilities = input.readInt(true);
+        for (int i = 0; i < numVisibilities; i++) {
+            dictionary.getVisibilityId(new ArrayByteSequence(input.readBytes(input.readInt(true))));
+        }
+        return dictionary;
+    }
+    
+    static BatchDictionary get(Kryo kryo) {
+        return (BatchDictionary) kryo.getContext().get(CONTEXT_KEY);
+    }
+    
+    static void set(Kryo kryo, BatchDictionary dictionary) {
+        if (dictionary == null) {
+            kryo.getContext().remove(CONTEXT_KEY);
+        } else {
+            kryo.getContext().put(CONTEXT_KEY, dictionary);
+        }
+    }
+    
+    static void writeString(Kryo kryo, Output output, String value) {
+        BatchDictionary dictionary = get(kryo);
+        if (dictionary == null) {
+            output.writeString(value);
+        } else {
+            output.writeInt(dictionary.getStringId(value), true);
+        }
+    }
+    
+    static String readString(Kryo kryo, Input input) {
+        BatchDictionary dictionary = get(kryo);
+        if (dictionary == null) {
+            return input.readString();
+        } else {
+            return dictionary.getString(input.readInt(true));
+        }
+    }
+    
+    static void writeVisibility(Kryo kryo, Output output, ColumnVisibility visibility) {
+        byte[] cvBytes = visibility.getExpression();
+        BatchDictionary dictionary = get(kryo);
+        if (dictionary == null) {
+            output.writeInt(cvBytes.length, true);
+            output.writeBytes(cvBytes);
+        } else {
+            output.writeInt(dictionary.getVisibilityId(new ArrayByteSequence(cvBytes)), true);
+        }
+    }
+    
+    static ColumnVisibility readVisibility(Kryo kryo, Input input) {
+        BatchDictionary dictionary = get(kryo);
+        if (dictionary == null) {
+            int size = input.readInt(true);
+            return new ColumnVisibility(input.readBytes(size));
+        } else {
+            return dictionary.getVisibility(input.readInt(true));
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package datawave.query.attributes;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.google.common.collect.Maps;
+
+/**
+ * Serializes a batch of documents into a single buffer using a column oriented layout. The attributes of all of the documents are grouped by field name, and
+ * the field names, attribute class names, rows and column visibilities are dictionary encoded across the batch. For wide documents that share most of their
+ * fields and visibilities this is considerably smaller, and faster to read back, than serializing each document individually.
+ * 
+ * The layout is:
+ * <ul>
+ * <li>the {@link BatchDictionary}</li>
+ * <li>the number of documents, followed by the key and document level state of each document</li>
+ * <li>the number of columns, followed by each column: the field name id, the number of attributes and each attribute as the delta from the previous document
+ * index, the class name id and the attribute itself</li>
+ * </ul>
+ */
+public class ColumnarDocumentBatch {
+    
+    private static final int DEFAULT_BUFFER_SIZE = 4096;
+    
+    private final Kryo kryo = new Kryo();
+    private final boolean reducedResponse;
+    private final Output body = new Output(DEFAULT_BUFFER_SIZE, -1);
+    private final Output output = new Output(DEFAULT_BUFFER_SIZE, -1);
+    
+    public ColumnarDocumentBatch() {
+        this(false);
+    }
+    
+    public ColumnarDocumentBatch(boolean reducedResponse) {
+        this.reducedResponse = reducedResponse;
+    }
+    
+    /**
+     * The attributes of one field across the batch
+     */
+    private static class Column {
+        private final List<Integer> documents = new ArrayList<>();
+        private final List<Attribute<?>> attributes = new ArrayList<>();
+    }
+    
+    public byte[] serialize(List<Entry<Key,Document>> documents) {
+        BatchDictionary dictionary = new BatchDictionary();
+        BatchDictionary.set(kryo, dictionary);
+        try {
+            body.clear();
+            body.writeInt(documents.size(), true);
+            
+            Map<String,Column> columns = new LinkedHashMap<>();
+            for (int i = 0; i < documents.size(); i++) {
+                Entry<Key,Document> entry = documents.get(i);
+                writeKey(dictionary, entry.getKey());
+                entry.getValue().writeState(body);
+                
+                for (Entry<String,Attribute<? extends Comparable<?>>> attribute : entry.getValue().dict.entrySet()) {
+                    Column column = columns.get(attribute.getKey());
+                    if (column == null) {
+                        column = new Column();
+                        columns.put(attribute.getKey(), column);
+                    }
+                    column.documents.add(i);
+                    column.attributes.add(attribute.getValue());
+                }
+            }
+            
+            body.writeInt(columns.size(), true);
+            for (Entry<String,Column> column : columns.entrySet()) {
+                body.writeInt(dictionary.getStringId(column.getKey()), true);
+                body.writeInt(column.getValue().documents.size(), true);
+                int previous = 0;
+                for (int i = 0; i < column.getValue().documents.size(); i++) {
+                    int document = column.getValue().documents.get(i);
+                    body.writeInt(document - previous, true);
+                    previous = document;
+                    
+                    Attribute<?> attribute = column.getValue().attributes.get(i);
+                    body.writeInt(dictionary.getStringId(attribute.getClass().getName()), true);
+                    attribute.write(kryo, body, reducedResponse);
+                }
+            }
+            
+            // the dictionary is only complete once everything else has been written
+            output.clear();
+            dictionary.write(output);
+            output.writeBytes(body.getBuffer(), 0, body.position());
+            return output.toBytes();
+        } finally {
+            BatchDictionary.set(kryo, null);
+        }
+    }
+    
+    public List<Entry<Key,Document>> deserialize(InputStream data) {
+        Input input = new Input(data, DEFAULT_BUFFER_SIZE);
+        BatchDictionary dictionary = BatchDictionary.read(input);
+        BatchDictionary.set(kryo, dictionary);
+        try {
+            int numDocuments = input.readInt(true);
+            Key[] keys = new Key[numDocuments];
+            Document[] documents = new Document[numDocuments];
+            for (int i = 0; i < numDocuments; i++) {
+                keys[i] = readKey(dictionary, input);
+                documents[i] = new Document();
+                documents[i].readState(input);
+            }
+            
+            int numColumns = input.readInt(true);
+            for (int c = 0; c < numColumns; c++) {
+                String fieldName = dictionary.getString(input.readInt(true));
+                int numAttributes = input.readInt(true);
+                int document = 0;
+                for (int i = 0; i < numAttributes; i++) {
+                    document += input.readInt(true);
+                    Attribute<?> attribute = newAttribute(dictionary.getString(input.readInt(true)));
+                    attribute.read(kryo, input);
+                    documents[document].dict.put(fieldName, attribute);
+                }
+            }
+            
+            List<Entry<Key,Document>> entries = new ArrayList<>(numDocuments);
+            for (int i = 0; i < numDocuments; i++) {
+                documents[i].invalidateMetadata();
+                entries.add(Maps.immutableEntry(keys[i], documents[i]));
+            }
+            return entries;
+        } finally {
+            BatchDictionary.set(kryo, null);
+            input.close();
+        }
+    }
+    
+    private void writeKey(BatchDictionary dictionary, Key key) {
+        body.writeInt(dictionary.getStringId(key.getRow().toString()), true);
+        writeBytes(key.getColumnFamilyData());
+        writeBytes(key.getColumnQualifierData());
+        body.writeInt(dictionary.getVisibilityId(key.getColumnVisibilityData()), true);
+        body.writeLong(key.getTimestamp());
+        body.writeBoolean(key.isDeleted());
+    }
+    
+    private void writeBytes(ByteSequence bytes) {
+        body.writeInt(bytes.length(), true);
+        body.writeBytes(bytes.getBackingArray(), bytes.offset(), bytes.length());
+    }
+    
+    private Key readKey(BatchDictionary dictionary, Input input) {
+        byte[] row = dictionary.getString(input.readInt(true)).getBytes(StandardCharsets.UTF_8);
+        byte[] cf = input.readBytes(input.readInt(true));
+        byte[] cq = input.readBytes(input.readInt(true));
+        byte[] cv = dictionary.getVisibilityBytes(input.readInt(true));
+        long timestamp = input.readLong();
+        boolean deleted = input.readBoolean();
+        return new Key(row, cf, cq, cv, timestamp, deleted);
+    }
+    
+    private Attribute<?> newAttribute(String attrClassName) {
+        Class<?> clz;
+        try {
+            clz = AttributeFactory.classForName(attrClassName);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+        
+        if (!Attribute.class.isAssignableFrom(clz)) {
+            throw new ClassCastException("Found class that was not an instance of Attribute");
+        }
+        
+        try {
+            return (Attribute<?>) clz.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -563,7 +563,7 @@ public class Document extends AttributeBag<Document> implements Serializable {
             
             // Get the Class for the name of the class of the concrete Attribute
             try {
-                clz = Class.forName(attrClassName);
+                clz = AttributeFactory.classForName(attrClassName);
             } catch (ClassNotFoundException e) {
                 throw new IOException(e);
             }
@@ -765,10 +765,10 @@ public class Document extends AttributeBag<Document> implements Serializable {
             // Write out the field name
             // writeAscii fails to be read correctly if the value has only one character
             // need to use writeString here
-            output.writeString(entry.getKey());
+            BatchDictionary.writeString(kryo, output, entry.getKey());
             
             Attribute<?> attribute = entry.getValue();
-            output.writeString(attribute.getClass().getName());
+            BatchDictionary.writeString(kryo, output, attribute.getClass().getName());
             attribute.write(kryo, output, reducedResponse);
         }
         
@@ -787,15 +787,15 @@ public class Document extends AttributeBag<Document> implements Serializable {
         
         for (int i = 0; i < numAttrs; i++) {
             // Get the fieldName
-            String fieldName = input.readString();
+            String fieldName = BatchDictionary.readString(kryo, input);
             
             // Get the class name for the concrete Attribute
-            String attrClassName = input.readString();
+            String attrClassName = BatchDictionary.readString(kryo, input);
             Class<?> clz;
             
             // Get the Class for the name of the class of the concrete Attribute
             try {
-                clz = Class.forName(attrClassName);
+                clz = AttributeFactory.classForName(attrClassName);
             } catch (ClassNotFoundException e) {
                 throw new RuntimeException(e);
             }
@@ -824,6 +824,32 @@ public class Document extends AttributeBag<Document> implements Serializable {
         this.invalidateMetadata();
     }
     
+    /**
+     * Write the document level state without the attributes, for serializers that write the attributes themselves
+     * 
+     * @param output
+     */
+    void writeState(Output output) {
+        output.writeInt(this._count, true);
+        output.writeBoolean(trackSizes);
+        output.writeLong(this._bytes, true);
+        output.writeLong(this.shardTimestamp);
+    }
+    
+    /**
+     * Read the document level state written by {@link #writeState(Output)}. The attributes are to be put directly into the dictionary by the caller, after
+     * which the metadata must be invalidated.
+     * 
+     * @param input
+     */
+    void readState(Input input) {
+        this._count = input.readInt(true);
+        trackSizes = input.readBoolean();
+        this._bytes = input.readLong(true);
+        this.shardTimestamp = input.readLong();
+        this.dict = new TreeMap<>();
+    }
+    
     @Override
     public Document copy() {
         Document d = new Document(this.getMetadata(), this.isToKeep(), trackSizes);
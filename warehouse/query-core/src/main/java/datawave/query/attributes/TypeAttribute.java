@@ -132,7 +132,7 @@ public class TypeAttribute<T extends Comparable<T>> extends Attribute<TypeAttrib
     
     @Override
     public void write(Kryo kryo, Output output, Boolean reducedResponse) {
-        output.writeString(datawaveType.getClass().getName());
+        BatchDictionary.writeString(kryo, output, datawaveType.getClass().getName());
         super.writeMetadata(kryo, output, reducedResponse);
         
         output.writeString(this.datawaveType.getDelegateAsString());
@@ -141,7 +141,7 @@ public class TypeAttribute<T extends Comparable<T>> extends Attribute<TypeAttrib
     @Override
     public void read(Kryo kryo, Input input) {
         try {
-            setDatawaveType(input.readString());
+            setDatawaveType(BatchDictionary.readString(kryo, input));
         } catch (InstantiationException | IllegalAccessException | ClassNotFoundException e) {
             log.warn("could not read datawateType from input: " + e);
         }
@@ -161,7 +161,7 @@ public class TypeAttribute<T extends Comparable<T>> extends Attribute<TypeAttrib
     }
     
     private void setDatawaveType(String datawaveTypeString) throws InstantiationException, IllegalAccessException, ClassNotFoundException {
-        this.datawaveType = (Type<T>) Class.forName(datawaveTypeString).newInstance();
+        this.datawaveType = (Type<T>) AttributeFactory.classForName(datawaveTypeString).newInstance();
     }
     
     /*
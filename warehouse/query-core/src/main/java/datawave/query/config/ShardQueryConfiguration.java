@@ -239,6 +239,14 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration {
     private String zookeeperConfig = null;
     
     private List<String> ivaratorCacheBaseURIs = null;
+    // local directories used for ivarator caches in preference to the base URIs above
+    private List<String> ivaratorCacheLocalDirs = null;
+    // the max bytes of ivarator caches across the local directories on one tserver (<= 0 for no quota)
+    private long ivaratorCacheLocalMaxBytes = 0L;
+    // the min bytes that must remain available on a local volume for it to be used
+    private long ivaratorCacheLocalMinFreeBytes = 1024L * 1024 * 1024;
+    // the time after their last modification that the local directories of a query are removed (<= 0 to never remove them)
+    private long ivaratorCacheLocalExpiration = 1000L * 60 * 60 * 24;
     private String ivaratorFstHdfsBaseURIs = null;
     private int ivaratorCacheBufferSize = 10000;
     private long ivaratorCacheScanPersistThreshold = 100000L;
@@ -249,6 +257,7 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration {
     private int maxIvaratorSources = 33;
     private int maxEvaluationPipelines = 25;
     private int maxPipelineCachedResults = 25;
+    private boolean adaptiveEvaluationPipelines = false;
     
     private boolean expandAllTerms = false;
     
@@ -270,6 +279,8 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration {
     
     private boolean compressServerSideResults = false;
     
+    private int resultBatchSize = 0;
+    
     private boolean indexOnlyFilterFunctionsEnabled = false;
     
     private boolean compositeFilterFunctionsEnabled = false;
@@ -902,6 +913,57 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration {
         }
     }
     
+    public List<String> getIvaratorCacheLocalDirsAsList() {
+        return ivaratorCacheLocalDirs;
+    }
+    
+    public String getIvaratorCacheLocalDirs() {
+        if (ivaratorCacheLocalDirs == null) {
+            return null;
+        } else {
+            StringBuilder builder = new StringBuilder();
+            for (String localDir : ivaratorCacheLocalDirs) {
+                if (builder.length() > 0) {
+                    builder.append(',');
+                }
+                builder.append(localDir);
+            }
+            return builder.toString();
+        }
+    }
+    
+    public void setIvaratorCacheLocalDirs(String ivaratorCacheLocalDirs) {
+        if (ivaratorCacheLocalDirs == null || ivaratorCacheLocalDirs.isEmpty()) {
+            this.ivaratorCacheLocalDirs = null;
+        } else {
+            this.ivaratorCacheLocalDirs = Arrays.asList(StringUtils.split(ivaratorCacheLocalDirs, ','));
+        }
+    }
+    
+    public long getIvaratorCacheLocalMaxBytes() {
+        return ivaratorCacheLocalMaxBytes;
+    }
+    
+    public void setIvaratorCacheLocalMaxBytes(long ivaratorCacheLocalMaxBytes) {
+        this.ivaratorCacheLocalMaxBytes = ivaratorCacheLocalMaxBytes;
+    }
+    
+    public long getIvaratorCacheLocalMinFreeBytes() {
+        return ivaratorCacheLocalMinFreeBytes;
+    }
+    
+    public void setIvaratorCacheLocalMinFreeBytes(long ivaratorCacheLocalMinFreeBytes) {
+        this.ivaratorCacheLocalMinFreeBytes = ivaratorCacheLocalMinFreeBytes;
+    }
+    
+    public long getIvaratorCacheLocalExpiration() {
+        return ivaratorCacheLocalExpiration;
+    }
+    
+    public void setIvaratorCacheLocalExpiration(long ivaratorCacheLocalExpiration) {
+        this.ivaratorCacheLocalExpiration = ivaratorCacheLocalExpiration;
+    }
+    
     public String getIvaratorFstHdfsBaseURIs() {
         return ivaratorFstHdfsBaseURIs;
     }
@@ -966,6 +1028,14 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration {
         this.maxEvaluationPipelines = maxEvaluationPipelines;
     }
     
+    public boolean isAdaptiveEvaluationPipelines() {
+        return adaptiveEvaluationPipelines;
+    }
+    
+    public void setAdaptiveEvaluationPipelines(boolean adaptiveEvaluationPipelines) {
+        this.adaptiveEvaluationPipelines = adaptiveEvaluationPipelines;
+    }
+    
     public int getMaxPipelineCachedResults() {
         return maxPipelineCachedResults;
     }
@@ -1412,6 +1482,14 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration {
         this.compressServerSideResults = compressServerSideResults;
     }
     
+    public int getResultBatchSize() {
+        return resultBatchSize;
+    }
+    
+    public void setResultBatchSize(int resultBatchSize) {
+        this.resultBatchSize = resultBatchSize;
+    }
+    
     /**
      * Returns a value indicating whether index-only filter functions (e.g., #INCLUDE, #EXCLUDE) should be enabled. If true, the use of such filters can
      * potentially consume a LOT of memory.
@@ -1603,6 +1681,10 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration {
         this.setZookeeperConfig(copy.getZookeeperConfig());
         
         this.setIvaratorCacheBaseURIs(copy.getIvaratorCacheBaseURIs());
+        this.setIvaratorCacheLocalDirs(copy.getIvaratorCacheLocalDirs());
+        this.setIvaratorCacheLocalMaxBytes(copy.getIvaratorCacheLocalMaxBytes());
+        this.setIvaratorCacheLocalMinFreeBytes(copy.getIvaratorCacheLocalMinFreeBytes());
+        this.setIvaratorCacheLocalExpiration(copy.getIvaratorCacheLocalExpiration());
         this.setIvaratorFstHdfsBaseURIs(copy.getIvaratorFstHdfsBaseURIs());
         this.setIvaratorCacheBufferSize(copy.getIvaratorCacheBufferSize());
         this.setIvaratorCacheScanPersistThreshold(copy.getIvaratorCacheScanPersistThreshold());
@@ -1613,6 +1695,7 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration {
         this.setMaxIvaratorSources(copy.getMaxIvaratorSources());
         this.setMaxEvaluationPipelines(copy.getMaxEvaluationPipelines());
         this.setMaxPipelineCachedResults(copy.getMaxPipelineCachedResults());
+        this.setAdaptiveEvaluationPipelines(copy.isAdaptiveEvaluationPipelines());
         
         this.setYieldThresholdMs(copy.getYieldThresholdMs());
         
@@ -1622,6 +1705,7 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration {
         this.setHitList(copy.isHitList());
         this.setTypeMetadataInHdfs(copy.isTypeMetadataInHdfs());
         this.setCompressServerSideResults(copy.isCompressServerSideResults());
+        this.setResultBatchSize(copy.getResultBatchSize());
         this.setMetadataTableName(copy.metadataTableName);
         
         // Allow index-only JEXL functions, which can potentially use a huge
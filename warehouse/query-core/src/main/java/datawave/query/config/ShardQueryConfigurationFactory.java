@@ -108,6 +108,10 @@ public class ShardQueryConfigurationFactory {
         config.setZookeeperConfig(configuredLogic.getZookeeperConfig());
         
         config.setIvaratorCacheBaseURIs(configuredLogic.getIvaratorCacheBaseURIs());
+        config.setIvaratorCacheLocalDirs(configuredLogic.getIvaratorCacheLocalDirs());
+        config.setIvaratorCacheLocalMaxBytes(configuredLogic.getIvaratorCacheLocalMaxBytes());
+        config.setIvaratorCacheLocalMinFreeBytes(configuredLogic.getIvaratorCacheLocalMinFreeBytes());
+        config.setIvaratorCacheLocalExpiration(configuredLogic.getIvaratorCacheLocalExpiration());
         config.setIvaratorFstHdfsBaseURIs(configuredLogic.getIvaratorFstHdfsBaseURIs());
         config.setIvaratorCacheBufferSize(configuredLogic.getIvaratorCacheBufferSize());
         config.setIvaratorCacheScanPersistThreshold(configuredLogic.getIvaratorCacheScanPersistThreshold());
@@ -118,6 +122,7 @@ public class ShardQueryConfigurationFactory {
         config.setMaxIvaratorSources(configuredLogic.getMaxIvaratorSources());
         config.setMaxEvaluationPipelines(configuredLogic.getMaxEvaluationPipelines());
         config.setMaxPipelineCachedResults(configuredLogic.getMaxPipelineCachedResults());
+        config.setAdaptiveEvaluationPipelines(configuredLogic.isAdaptiveEvaluationPipelines());
         
         config.setReducedResponse(configuredLogic.isReducedResponse());
         config.setDisableEvaluation(configuredLogic.isDisableEvaluation());
@@ -125,6 +130,7 @@ public class ShardQueryConfigurationFactory {
         config.setHitList(configuredLogic.isHitList());
         config.setTypeMetadataInHdfs(configuredLogic.isTypeMetadataInHdfs());
         config.setCompressServerSideResults(configuredLogic.isCompressServerSideResults());
+        config.setResultBatchSize(configuredLogic.isResultBatchingSupported() ? configuredLogic.getResultBatchSize() : 0);
         
         // Allow index-only JEXL functions, which can potentially use a huge
         // amount of memory, to be turned on or off
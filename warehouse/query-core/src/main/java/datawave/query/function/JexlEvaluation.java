@@ -4,6 +4,8 @@ import datawave.query.Constants;
 import datawave.query.attributes.Attributes;
 import datawave.query.jexl.ArithmeticJexlEngines;
 import datawave.query.jexl.DefaultArithmetic;
+import datawave.query.jexl.compiler.CompiledScript;
+import datawave.query.jexl.compiler.JexlCompiler;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.security.ColumnVisibility;
 import org.apache.commons.jexl2.JexlArithmetic;
@@ -34,6 +36,11 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
      */
     protected Script script;
     
+    /**
+     * The query compiled into predicates, evaluated in place of the script when set
+     */
+    protected CompiledScript compiledScript;
+    
     public JexlEvaluation(String query) {
         this(query, new DefaultArithmetic());
     }
@@ -47,6 +54,7 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
         
         // Evaluate the JexlContext against the Script
         this.script = this.engine.createScript(query);
+        this.compiledScript = JexlCompiler.compile(this.engine, arithmetic, this.engine.parse(query));
     }
     
     public JexlArithmetic getArithmetic() {
@@ -68,7 +76,7 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
     @Override
     public boolean apply(Tuple3<Key,Document,DatawaveJexlContext> input) {
         
-        Object o = script.execute(input.third());
+        Object o = (compiledScript != null ? compiledScript.execute(input.third()) : script.execute(input.third()));
         
         if (log.isTraceEnabled()) {
             log.trace("Evaluation of " + query + " against " + input.third() + " returned " + o);
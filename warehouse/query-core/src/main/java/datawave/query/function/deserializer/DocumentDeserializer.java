@@ -5,6 +5,7 @@ import java.util.Map.Entry;
 
 import datawave.query.DocumentSerialization;
 import datawave.query.attributes.Document;
+import datawave.query.function.serializer.DocumentValue;
 
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
@@ -16,6 +17,11 @@ public abstract class DocumentDeserializer implements Function<Entry<Key,Value>,
     
     @Override
     public Entry<Key,Document> apply(Entry<Key,Value> from) {
+        // documents from a batch have already been deserialized
+        if (from.getValue() instanceof DocumentValue) {
+            return Maps.immutableEntry(from.getKey(), ((DocumentValue) from.getValue()).getDocument());
+        }
+        
         InputStream is = DocumentSerialization.consumeHeader(from.getValue().get());
         
         Document document = deserialize(is);
@@ -6,6 +6,7 @@ import java.io.Serializable;
 import datawave.query.attributes.Attribute;
 import datawave.query.attributes.Document;
 import datawave.query.function.KryoCVAwareSerializableSerializer;
+import datawave.query.function.serializer.KryoDocumentSerializer;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
@@ -21,13 +22,19 @@ public class KryoDocumentDeserializer extends DocumentDeserializer implements Se
     
     final transient Kryo kryo = new Kryo();
     
+    // reused across documents, the stream is replaced for each document
+    private transient Input input = null;
+    
     public KryoDocumentDeserializer() {
         kryo.addDefaultSerializer(Attribute.class, new KryoCVAwareSerializableSerializer(true));
     }
     
     @Override
     public Document deserialize(InputStream data) {
-        Input input = new Input(data);
+        if (null == input) {
+            input = new Input(KryoDocumentSerializer.DEFAULT_BUFFER_SIZE);
+        }
+        input.setInputStream(data);
         Document document = kryo.readObject(input, Document.class);
         
         if (null == document) {
@@ -0,0 +1,23 @@
+package datawave.query.function.serializer;
+
+import java.util.Map.Entry;
+
+import datawave.query.attributes.Document;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Maps;
+
+/**
+ * Defers the serialization of the Document to a later stage by wrapping it in a {@link DocumentValue}.
+ */
+public class DeferredDocumentSerializer implements Function<Entry<Key,Document>,Entry<Key,Value>> {
+    
+    @Override
+    public Entry<Key,Value> apply(Entry<Key,Document> from) {
+        return Maps.<Key,Value> immutableEntry(from.getKey(), new DocumentValue(from.getValue()));
+    }
+    
+}
@@ -48,11 +48,7 @@ public abstract class DocumentSerializer implements Function<Entry<Key,Document>
             s = Trace.start("Document Serialization");
             s.data("Serialization type", this.concreteName);
             
-            byte[] bytes = serialize(from.getValue());
-            
-            s.data("Raw size", Integer.toString(bytes.length));
-            
-            Value v = getValue(bytes, s);
+            Value v = serializeValue(from.getValue(), s);
             
             return Maps.immutableEntry(from.getKey(), v);
         } finally {
@@ -64,12 +60,32 @@ public abstract class DocumentSerializer implements Function<Entry<Key,Document>
     
     public abstract byte[] serialize(Document d);
     
+    /**
+     * Serialize the document into a value including the header. Implementations that can write the header and document into the same buffer should
+     * override this to avoid copying the serialized document.
+     * 
+     * @param document
+     * @param span
+     * @return the value
+     */
+    protected Value serializeValue(Document document, Span span) {
+        byte[] bytes = serialize(document);
+        
+        span.data("Raw size", Integer.toString(bytes.length));
+        
+        return getValue(bytes, span);
+    }
+    
+    protected boolean shouldCompress(int length) {
+        return DocumentSerialization.NONE != this.compression && length > minCompressionSize;
+    }
+    
     protected Value getValue(byte[] document, Span span) {
         byte[] header;
         byte[] dataToWrite;
         
         // Only compress the data if it's greater than minCompressionSize in size (bytes)
-        if (DocumentSerialization.NONE != this.compression && document.length > minCompressionSize) {
+        if (shouldCompress(document.length)) {
             header = DocumentSerialization.getHeader(compression);
             dataToWrite = DocumentSerialization.writeBody(document, this.compression);
             span.data("Compressed size", Integer.toString(dataToWrite.length));
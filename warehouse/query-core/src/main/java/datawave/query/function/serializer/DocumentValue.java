@@ -0,0 +1,30 @@
+package datawave.query.function.serializer;
+
+import datawave.query.attributes.Document;
+
+import org.apache.accumulo.core.data.Value;
+
+/**
+ * A value that holds a document which has not been serialized. This is used to pass documents to a stage that serializes many documents at once, e.g. the
+ * {@link datawave.query.iterator.ResultBatchingIterator} on the tserver, or to hand documents that were deserialized in bulk to the
+ * {@link datawave.query.function.deserializer.DocumentDeserializer} in the webserver. It must never be returned from an iterator.
+ */
+public class DocumentValue extends Value {
+    
+    private final Document document;
+    
+    public DocumentValue(Document document) {
+        super(new byte[0]);
+        this.document = document;
+    }
+    
+    public Document getDocument() {
+        return document;
+    }
+    
+    @Override
+    public byte[] get() {
+        throw new IllegalStateException("The document has not been serialized");
+    }
+    
+}
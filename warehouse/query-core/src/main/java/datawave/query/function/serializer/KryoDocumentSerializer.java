@@ -1,11 +1,14 @@
 package datawave.query.function.serializer;
 
-import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
 
+import datawave.query.DocumentSerialization;
 import datawave.query.attributes.Attribute;
 import datawave.query.attributes.Document;
 import datawave.query.function.KryoCVAwareSerializableSerializer;
 
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.trace.instrument.Span;
 import org.apache.log4j.Logger;
 
 import com.esotericsoftware.kryo.Kryo;
@@ -13,14 +16,18 @@ import com.esotericsoftware.kryo.io.Output;
 
 /**
  * Transform the Document into a Kryo-serialized version. Ordering of Attributes is <b>not</b> guaranteed across serialization.
- *
  * 
- *
+ * The output buffer is reused across documents, and when the document is not compressed the header and document are written into the same buffer so that
+ * the value is created with a single copy.
+ * 
  */
 public class KryoDocumentSerializer extends DocumentSerializer {
     private static final Logger log = Logger.getLogger(KryoDocumentSerializer.class);
+    private static final byte[] HEADER = DocumentSerialization.getHeader();
+    public static final int DEFAULT_BUFFER_SIZE = 4096;
+    
     final Kryo kryo = new Kryo();
-    final ByteArrayOutputStream baos = new ByteArrayOutputStream(4096);
+    final Output output = new Output(DEFAULT_BUFFER_SIZE, -1);
     
     public KryoDocumentSerializer() {
         this(false, false);
@@ -37,15 +44,28 @@ public class KryoDocumentSerializer extends DocumentSerializer {
     
     @Override
     public byte[] serialize(Document doc) {
-        baos.reset();
-        
-        Output output = new Output(baos);
+        output.clear();
         
         kryo.writeObject(output, doc);
         
-        output.close();
+        return output.toBytes();
+    }
+    
+    @Override
+    protected Value serializeValue(Document document, Span span) {
+        output.clear();
+        output.writeBytes(HEADER);
+        
+        kryo.writeObject(output, document);
+        
+        int length = output.position() - HEADER.length;
+        span.data("Raw size", Integer.toString(length));
+        
+        if (shouldCompress(length)) {
+            return getValue(Arrays.copyOfRange(output.getBuffer(), HEADER.length, output.position()), span);
+        }
         
-        return baos.toByteArray();
+        return new Value(Arrays.copyOf(output.getBuffer(), output.position()));
     }
     
 }
@@ -5,8 +5,11 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.SortedSet;
 
 import org.apache.commons.jexl2.parser.ASTDelayedPredicate;
 import org.apache.commons.jexl2.parser.ASTOrNode;
@@ -25,6 +28,7 @@ import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
 
 import datawave.query.jexl.JexlNodeFactory;
@@ -55,14 +59,15 @@ public class IndexInfo implements Writable, UidIntersector {
     }
     
     public IndexInfo(Iterable<?> ids) {
-        Set<IndexMatch> matches = Sets.newTreeSet();
+        // sorted once when built rather than on every insert into a tree
+        ImmutableSortedSet.Builder<IndexMatch> matches = ImmutableSortedSet.naturalOrder();
         for (Object id : ids) {
             if (id instanceof IndexMatch) {
                 matches.add((IndexMatch) id);
             } else
                 matches.add(new IndexMatch(id.toString()));
         }
-        this.uids = ImmutableSortedSet.copyOf(matches);
+        this.uids = matches.build();
         count = this.uids.size();
     }
     
@@ -339,34 +344,10 @@ public class IndexInfo implements Writable, UidIntersector {
             merged.count = count + o.count;
             merged.uids = ImmutableSortedSet.of();
         } else {
-            HashMultimap<String,JexlNode> ids = HashMultimap.create();
-            
             /**
-             * Concatenate all UIDs, and merge the individual nodes
+             * Merge the sorted UIDs, and merge the individual nodes
              */
-            for (IndexMatch match : Iterables.concat(uids, o.uids)) {
-                
-                JexlNode newNode = match.getNode();
-                if (null != newNode)
-                    ids.put(match.uid, newNode);
-            }
-            
-            Set<IndexMatch> matches = Sets.newHashSet();
-            
-            for (String uid : ids.keySet()) {
-                
-                Set<JexlNode> nodes = Sets.newHashSet(ids.get(uid));
-                if (nodes.size() > 0) {
-                    nodes.addAll(delayedNodes);
-                    
-                    IndexMatch currentMatch = new IndexMatch(nodes, uid, IndexMatchType.OR);
-                    
-                    matches.add(currentMatch);
-                }
-                
-            }
-            
-            merged.uids = ImmutableSortedSet.copyOf(matches);
+            merged.uids = unionSorted(uids, o.uids, delayedNodes);
             merged.count = merged.uids.size();
             
         }
@@ -449,6 +430,8 @@ public class IndexInfo implements Writable, UidIntersector {
         IndexInfo merged = new IndexInfo();
         Set<JexlNode> allNodes = Sets.newHashSet();
         Multimap<TreeHashNode,JexlNode> nodesMap = ArrayListMultimap.create();
+        // the infinite nodes are shared by every uid, only hash each node once
+        Set<JexlNode> hashedNodes = Sets.newIdentityHashSet();
         if (ids.keySet().size() == 0) {
             merged.count = maxPossibilities;
         } else {
@@ -459,6 +442,9 @@ public class IndexInfo implements Writable, UidIntersector {
                 if ((nodes.size() + infiniteNodes.size()) > 1) {
                     nodes.addAll(infiniteNodes);
                     for (JexlNode node : nodes) {
+                        if (!hashedNodes.add(node)) {
+                            continue;
+                        }
                         JexlNode sourceNode = getSourceNode(node);
                         
                         JexlNode topLevelOr = getOrNode(sourceNode);
@@ -562,6 +548,7 @@ public class IndexInfo implements Writable, UidIntersector {
              * C) Both are small, so we have an easy case where we can prune much of this sub query. Must propogate delayed nodes, though.
              */
             
+            // copying an ImmutableSortedSet in uid order returns it as is
             merged.uids = ImmutableSortedSet.copyOf(uidIntersector.intersect(uids, o.uids, delayedNodes));
             merged.count = merged.uids.size();
             
@@ -580,34 +567,18 @@ public class IndexInfo implements Writable, UidIntersector {
                      */
                     merged.count = count;
                     
-                    HashMultimap<String,JexlNode> ids = HashMultimap.create();
-                    for (IndexMatch match : uids) {
-                        JexlNode newNode = match.getNode();
-                        if (null != newNode)
-                            ids.put(match.uid, newNode);
-                    }
-                    
                     List<JexlNode> ourDelayedNodes = Lists.newArrayList();
                     ourDelayedNodes.addAll(delayedNodes);
                     // we may actually have no node on o
                     if (null != o.getNode())
                         ourDelayedNodes.add(o.getNode());
                     
-                    Set<IndexMatch> matches = buildNodeList(ids, IndexMatchType.AND, true, ourDelayedNodes);
-                    
-                    merged.uids = ImmutableSortedSet.copyOf(matches);
+                    merged.uids = intersectSorted(uids, ourDelayedNodes);
                     merged.count = merged.uids.size();
                 } else if (o.onlyEvents()) {
                     /**
                      * E) We have LARGE AND SMALL
                      */
-                    HashMultimap<String,JexlNode> ids = HashMultimap.create();
-                    for (IndexMatch match : o.uids) {
-                        JexlNode newNode = match.getNode();
-                        if (null != newNode)
-                            ids.put(match.uid, newNode);
-                    }
-                    
                     List<JexlNode> ourDelayedNodes = Lists.newArrayList();
                     ourDelayedNodes.addAll(delayedNodes);
                     // possible, depending on how query is processed
@@ -615,9 +586,7 @@ public class IndexInfo implements Writable, UidIntersector {
                     if (null != getNode())
                         ourDelayedNodes.add(getNode());
                     
-                    Set<IndexMatch> matches = buildNodeList(ids, IndexMatchType.AND, true, ourDelayedNodes);
-                    
-                    merged.uids = ImmutableSortedSet.copyOf(matches);
+                    merged.uids = intersectSorted(o.uids, ourDelayedNodes);
                     merged.count = merged.uids.size();
                 } else {
                     
@@ -639,6 +608,10 @@ public class IndexInfo implements Writable, UidIntersector {
     
     @Override
     public Set<IndexMatch> intersect(Set<IndexMatch> uids1, Set<IndexMatch> uids2, List<JexlNode> delayedNodes) {
+        if (isSortedByUid(uids1) && isSortedByUid(uids2)) {
+            return intersectSorted((SortedSet<IndexMatch>) uids1, (SortedSet<IndexMatch>) uids2, delayedNodes);
+        }
+        
         HashMultimap<String,JexlNode> ids = HashMultimap.create();
         for (IndexMatch match : Iterables.concat(uids1, uids2)) {
             JexlNode newNode = match.getNode();
@@ -651,6 +624,128 @@ public class IndexInfo implements Writable, UidIntersector {
         return buildNodeList(ids, IndexMatchType.AND, false, delayedNodes);
     }
     
+    private static boolean isSortedByUid(Set<IndexMatch> uids) {
+        if (uids instanceof SortedSet) {
+            Comparator<?> comparator = ((SortedSet<IndexMatch>) uids).comparator();
+            return comparator == null || comparator == Ordering.natural();
+        }
+        return false;
+    }
+    
+    private static IndexMatch next(Iterator<IndexMatch> itr) {
+        return itr.hasNext() ? itr.next() : null;
+    }
+    
+    /**
+     * The nodes of the matches for one uid
+     */
+    private static Set<JexlNode> nodes(IndexMatch match1, IndexMatch match2) {
+        Set<JexlNode> nodes = Sets.newHashSet();
+        JexlNode node = (match1 == null ? null : match1.getNode());
+        if (null != node)
+            nodes.add(node);
+        node = (match2 == null ? null : match2.getNode());
+        if (null != node)
+            nodes.add(node);
+        return nodes;
+    }
+    
+    /**
+     * Intersect two sets of uids in uid order in a single pass, rather than hashing every uid of both sets and sorting the result. Only the uids in both sets
+     * with more than one node between them are kept, with the delayed nodes added.
+     * 
+     * @param uids1
+     * @param uids2
+     * @param delayedNodes
+     * @return the intersected uids
+     */
+    protected ImmutableSortedSet<IndexMatch> intersectSorted(SortedSet<IndexMatch> uids1, SortedSet<IndexMatch> uids2, List<JexlNode> delayedNodes) {
+        ImmutableSortedSet.Builder<IndexMatch> matches = ImmutableSortedSet.naturalOrder();
+        Iterator<IndexMatch> itr1 = uids1.iterator();
+        Iterator<IndexMatch> itr2 = uids2.iterator();
+        IndexMatch match1 = next(itr1);
+        IndexMatch match2 = next(itr2);
+        while (null != match1 && null != match2) {
+            int cmp = match1.uid.compareTo(match2.uid);
+            if (cmp < 0) {
+                match1 = next(itr1);
+            } else if (cmp > 0) {
+                match2 = next(itr2);
+            } else {
+                Set<JexlNode> nodes = nodes(match1, match2);
+                if (nodes.size() > 1) {
+                    nodes.addAll(delayedNodes);
+                    matches.add(new IndexMatch(nodes, match1.uid, IndexMatchType.AND));
+                }
+                match1 = next(itr1);
+                match2 = next(itr2);
+            }
+        }
+        return matches.build();
+    }
+    
+    /**
+     * Intersect a set of uids with nodes that have no uids of their own. Each uid with a node is kept as long as there is at least one other node.
+     * 
+     * @param uids
+     * @param otherNodes
+     * @return the intersected uids
+     */
+    protected ImmutableSortedSet<IndexMatch> intersectSorted(SortedSet<IndexMatch> uids, List<JexlNode> otherNodes) {
+        ImmutableSortedSet.Builder<IndexMatch> matches = ImmutableSortedSet.naturalOrder();
+        if (otherNodes.isEmpty()) {
+            return matches.build();
+        }
+        for (IndexMatch match : uids) {
+            Set<JexlNode> nodes = nodes(match, null);
+            if (!nodes.isEmpty()) {
+                nodes.addAll(otherNodes);
+                matches.add(new IndexMatch(nodes, match.uid, IndexMatchType.AND));
+            }
+        }
+        return matches.build();
+    }
+    
+    /**
+     * Union two sets of uids in uid order in a single pass. Each uid with a node in either set is kept, with the delayed nodes added.
+     * 
+     * @param uids1
+     * @param uids2
+     * @param delayedNodes
+     * @return the merged uids
+     */
+    protected ImmutableSortedSet<IndexMatch> unionSorted(SortedSet<IndexMatch> uids1, SortedSet<IndexMatch> uids2, List<JexlNode> delayedNodes) {
+        ImmutableSortedSet.Builder<IndexMatch> matches = ImmutableSortedSet.naturalOrder();
+        Iterator<IndexMatch> itr1 = uids1.iterator();
+        Iterator<IndexMatch> itr2 = uids2.iterator();
+        IndexMatch match1 = next(itr1);
+        IndexMatch match2 = next(itr2);
+        while (null != match1 || null != match2) {
+            int cmp = (null == match1 ? 1 : (null == match2 ? -1 : match1.uid.compareTo(match2.uid)));
+            Set<JexlNode> nodes;
+            String uid;
+            if (cmp < 0) {
+                uid = match1.uid;
+                nodes = nodes(match1, null);
+                match1 = next(itr1);
+            } else if (cmp > 0) {
+                uid = match2.uid;
+                nodes = nodes(null, match2);
+                match2 = next(itr2);
+            } else {
+                uid = match1.uid;
+                nodes = nodes(match1, match2);
+                match1 = next(itr1);
+                match2 = next(itr2);
+            }
+            if (!nodes.isEmpty()) {
+                nodes.addAll(delayedNodes);
+                matches.add(new IndexMatch(nodes, uid, IndexMatchType.OR));
+            }
+        }
+        return matches.build();
+    }
+    
     protected Set<IndexMatch> buildNodeList(HashMultimap<String,JexlNode> ids, IndexMatchType type, boolean allowsDelayed, List<JexlNode> delayedNodes) {
         Set<IndexMatch> matches = Sets.newHashSet();
         for (String uid : ids.keySet()) {
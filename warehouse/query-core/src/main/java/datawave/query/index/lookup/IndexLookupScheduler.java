@@ -0,0 +1,185 @@
+package datawave.query.index.lookup;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import datawave.core.iterators.FairTaskQueue;
+import datawave.webservice.query.Query;
+
+import org.apache.log4j.Logger;
+
+/**
+ * The process wide thread pools used by the query planners to look up terms in the global index. Rather than every {@link RangeStream} and
+ * {@link datawave.query.jexl.visitors.ParallelIndexExpansion} creating (and tearing down) thread pools of their own, each query gets a
+ * {@link QueryLookupExecutor} over these shared pools which limits how many of its lookups run at once. The queued lookups are served round robin across the
+ * queries (see {@link FairTaskQueue}), so a query planning thousands of lookups does not hold up the others.
+ * 
+ * There are two pools: one for the lookups themselves, and one for the index scans they wait on. Keeping them apart means a lookup waiting on its scan can
+ * never hold the thread that scan needs.
+ * 
+ * The pool sizes may be set with the datawave.query.index.lookup.threads and datawave.query.index.stream.threads system properties, and the queue bounds with
+ * datawave.query.index.lookup.queue.size and datawave.query.index.lookup.queue.size.per.query.
+ */
+public class IndexLookupScheduler {
+    private static final Logger log = Logger.getLogger(IndexLookupScheduler.class);
+    
+    public static final String LOOKUP_THREADS_PROP = "datawave.query.index.lookup.threads";
+    public static final String STREAM_THREADS_PROP = "datawave.query.index.stream.threads";
+    public static final String QUEUE_SIZE_PROP = "datawave.query.index.lookup.queue.size";
+    public static final String QUERY_QUEUE_SIZE_PROP = "datawave.query.index.lookup.queue.size.per.query";
+    
+    private static final int DEFAULT_THREADS = 100;
+    private static final int DEFAULT_QUEUE_SIZE = 10000;
+    private static final int DEFAULT_QUERY_QUEUE_SIZE = 2500;
+    
+    private static volatile IndexLookupScheduler instance;
+    
+    /**
+     * A thread of one of the pools, which knows the queue it drains
+     */
+    private static class PoolThread extends Thread {
+        private final FairTaskQueue queue;
+        
+        PoolThread(FairTaskQueue queue, Runnable r, String name) {
+            super(r, name);
+            this.queue = queue;
+        }
+    }
+    
+    private final ThreadPoolExecutor lookupPool;
+    private final ThreadPoolExecutor streamPool;
+    
+    IndexLookupScheduler(int lookupThreads, int streamThreads, int queueSize, int queryQueueSize) {
+        this.lookupPool = createPool("Datawave Index Lookup", lookupThreads, queueSize, queryQueueSize);
+        this.streamPool = createPool("Datawave Index Stream", streamThreads, queueSize, queryQueueSize);
+    }
+    
+    public static IndexLookupScheduler getInstance() {
+        if (instance == null) {
+            synchronized (IndexLookupScheduler.class) {
+                if (instance == null) {
+                    instance = new IndexLookupScheduler(Integer.getInteger(LOOKUP_THREADS_PROP, DEFAULT_THREADS), Integer.getInteger(STREAM_THREADS_PROP,
+                                    DEFAULT_THREADS), Integer.getInteger(QUEUE_SIZE_PROP, DEFAULT_QUEUE_SIZE), Integer.getInteger(QUERY_QUEUE_SIZE_PROP,
+                                    DEFAULT_QUERY_QUEUE_SIZE));
+                }
+            }
+        }
+        return instance;
+    }
+    
+    private static ThreadPoolExecutor createPool(final String name, int threads, int queueSize, int queryQueueSize) {
+        final FairTaskQueue queue = new FairTaskQueue(queueSize, queryQueueSize);
+        final AtomicInteger threadNum = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread thread = new PoolThread(queue, r, name + " -" + threadNum.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, queue, threadFactory, (r, executor) -> waitForRoom(queue, r,
+                        executor));
+        pool.allowCoreThreadTimeOut(true);
+        log.info("Created the " + name + " pool with " + threads + " threads");
+        return pool;
+    }
+    
+    /**
+     * Called when a task is rejected because the queue is full. Rather than failing the task, wait for room in the queue which pushes back on the query
+     * planning the lookups.
+     * 
+     * @param queue
+     * @param task
+     * @param executor
+     */
+    private static void waitForRoom(FairTaskQueue queue, Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("The thread pool has been shut down");
+        }
+        // a completing lookup hands over the next lookup of its query from a pool thread, which must not wait on its own pool
+        Thread current = Thread.currentThread();
+        if (current instanceof PoolThread && ((PoolThread) current).queue == queue) {
+            queue.putOverCapacity(task);
+            return;
+        }
+        try {
+            queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted waiting to queue " + task, e);
+        }
+        // the pool threads may have timed out while we were waiting
+        executor.prestartCoreThread();
+    }
+    
+    /**
+     * Get an executor for the global index lookups of a query
+     * 
+     * @param settings
+     *            the query, may be null
+     * @param maxConcurrent
+     *            the maximum number of lookups of the query to run at once
+     * @return the executor, which must be shut down when the query is done with it
+     */
+    public QueryLookupExecutor newLookupExecutor(Query settings, int maxConcurrent) {
+        return newLookupExecutor(settings, null, maxConcurrent);
+    }
+    
+    /**
+     * Get an executor for the global index lookups of a query
+     * 
+     * @param settings
+     *            the query, may be null
+     * @param name
+     *            a name for the lookups, added to the name of the thread running them
+     * @param maxConcurrent
+     *            the maximum number of lookups of the query to run at once
+     * @return the executor, which must be shut down when the query is done with it
+     */
+    public QueryLookupExecutor newLookupExecutor(Query settings, String name, int maxConcurrent) {
+        return new QueryLookupExecutor(lookupPool, queryId(settings), name, handler(settings), maxConcurrent);
+    }
+    
+    /**
+     * Get an executor for the index scans of a query
+     * 
+     * @param settings
+     *            the query, may be null
+     * @param maxConcurrent
+     *            the maximum number of scans of the query to run at once
+     * @return the executor, which must be shut down when the query is done with it
+     */
+    public QueryLookupExecutor newStreamExecutor(Query settings, int maxConcurrent) {
+        return new QueryLookupExecutor(streamPool, queryId(settings), null, handler(settings), maxConcurrent);
+    }
+    
+    private static String queryId(Query settings) {
+        return (settings == null || settings.getId() == null ? null : settings.getId().toString());
+    }
+    
+    private static UncaughtExceptionHandler handler(Query settings) {
+        return (settings == null ? null : settings.getUncaughtExceptionHandler());
+    }
+    
+    public FairTaskQueue getLookupQueue() {
+        return (FairTaskQueue) lookupPool.getQueue();
+    }
+    
+    public FairTaskQueue getStreamQueue() {
+        return (FairTaskQueue) streamPool.getQueue();
+    }
+    
+    @Override
+    public String toString() {
+        return "lookups: " + describe(lookupPool) + ", streams: " + describe(streamPool);
+    }
+    
+    private static String describe(ThreadPoolExecutor pool) {
+        FairTaskQueue queue = (FairTaskQueue) pool.getQueue();
+        long dequeued = queue.getNumDequeued();
+        return pool.getActiveCount() + " active threads, " + queue.size() + " queued tasks for " + queue.getNumQueries() + " queries, "
+                        + (dequeued == 0 ? 0 : queue.getTotalWaitMillis() / dequeued) + "ms average wait, " + queue.getMaxWaitMillis() + "ms max wait";
+    }
+}
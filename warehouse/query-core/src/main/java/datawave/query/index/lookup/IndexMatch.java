@@ -64,11 +64,6 @@ public class IndexMatch implements WritableComparable<IndexMatch> {
         shard = "";
     }
     
-    private boolean contains(JexlNode node) {
-        return nodeStrings.contains(JexlStringBuildingVisitor.buildQueryWithoutParse(node));
-        
-    }
-    
     public String getUid() {
         return uid;
     }
@@ -145,8 +140,8 @@ public class IndexMatch implements WritableComparable<IndexMatch> {
      * @param node
      */
     public void add(JexlNode node) {
-        if (!contains(node)) {
-            nodeStrings.add(JexlStringBuildingVisitor.buildQueryWithoutParse(node));
+        // build the query string once, it is the expensive part of adding a node
+        if (nodeStrings.add(JexlStringBuildingVisitor.buildQueryWithoutParse(node))) {
             myNodes.add(node);
         }
         
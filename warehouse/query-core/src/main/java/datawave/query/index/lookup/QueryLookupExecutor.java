@@ -0,0 +1,208 @@
+package datawave.query.index.lookup;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import datawave.core.iterators.FairTaskQueue.QueryTask;
+
+import org.apache.log4j.Logger;
+
+/**
+ * The executor one query uses for its global index lookups, over one of the shared {@link IndexLookupScheduler} pools. At most maxConcurrent tasks of the
+ * query are handed to the shared pool at once; the rest wait here, so a query with many lookups neither fills the shared queue nor occupies more than its
+ * share of the threads.
+ * 
+ * Shutting this executor down only affects the tasks of this query, the shared pool carries on.
+ * 
+ * While a task runs, the pool thread has the uncaught exception handler of the query, as the threads of the per-query pools this replaces did. The failure of
+ * a task given to {@link #execute(Runnable)} is passed to that handler, as it would have escaped such a thread. The failure of a task given to one of the
+ * submit or invoke methods is surfaced through its Future instead.
+ */
+public class QueryLookupExecutor extends AbstractExecutorService {
+    private static final Logger log = Logger.getLogger(QueryLookupExecutor.class);
+    
+    private final ThreadPoolExecutor pool;
+    private final String queryId;
+    private final String label;
+    private final UncaughtExceptionHandler handler;
+    private final int maxConcurrent;
+    
+    private final ArrayDeque<Runnable> pending = new ArrayDeque<>();
+    private final Set<LookupTask> running = new HashSet<>();
+    private boolean shutdown = false;
+    private int numSubmitted = 0;
+    
+    /**
+     * A task handed to the shared pool, which hands over the next pending task when it completes
+     */
+    private class LookupTask extends QueryTask {
+        private final Runnable task;
+        
+        LookupTask(Runnable task) {
+            super(queryId, task);
+            this.task = task;
+        }
+        
+        @Override
+        public void run() {
+            Thread thread = Thread.currentThread();
+            String name = thread.getName();
+            UncaughtExceptionHandler threadHandler = thread.getUncaughtExceptionHandler();
+            thread.setName(name + " -> " + label);
+            if (handler != null) {
+                thread.setUncaughtExceptionHandler(handler);
+            }
+            try {
+                super.run();
+            } finally {
+                thread.setName(name);
+                if (handler != null) {
+                    thread.setUncaughtExceptionHandler(threadHandler);
+                }
+            }
+        }
+        
+        @Override
+        protected void done() {
+            // a task that is not a Future has no other way to report its failure
+            if (handler != null && !(task instanceof Future) && !isCancelled()) {
+                try {
+                    get();
+                } catch (ExecutionException e) {
+                    handler.uncaughtException(Thread.currentThread(), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            finished(this);
+        }
+    }
+    
+    QueryLookupExecutor(ThreadPoolExecutor pool, String queryId, String name, UncaughtExceptionHandler handler, int maxConcurrent) {
+        this.pool = pool;
+        this.queryId = queryId;
+        this.label = (name == null ? "" : name + " Session ") + (queryId == null ? "(unknown)" : queryId);
+        this.handler = handler;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+    }
+    
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        LookupTask next;
+        synchronized (this) {
+            if (shutdown) {
+                throw new RejectedExecutionException("The index lookups for " + queryId + " have been shut down");
+            }
+            numSubmitted++;
+            pending.add(command);
+            next = nextTask();
+        }
+        submit(next);
+    }
+    
+    /**
+     * @return the next pending task to hand to the pool, or null if there is none or the query is at its limit
+     */
+    private synchronized LookupTask nextTask() {
+        if (running.size() >= maxConcurrent || pending.isEmpty()) {
+            return null;
+        }
+        LookupTask task = new LookupTask(pending.poll());
+        running.add(task);
+        return task;
+    }
+    
+    private void submit(LookupTask task) {
+        // this may wait for room in the shared queue, so it must not hold the lock
+        if (task != null) {
+            try {
+                pool.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.cancel(false);
+                throw e;
+            }
+        }
+    }
+    
+    private void finished(LookupTask task) {
+        LookupTask next;
+        synchronized (this) {
+            running.remove(task);
+            next = nextTask();
+            if (next == null && running.isEmpty()) {
+                notifyAll();
+            }
+        }
+        submit(next);
+    }
+    
+    @Override
+    public synchronized void shutdown() {
+        shutdown = true;
+        if (running.isEmpty() && pending.isEmpty()) {
+            notifyAll();
+        }
+    }
+    
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> notRun;
+        List<LookupTask> toCancel;
+        synchronized (this) {
+            shutdown = true;
+            notRun = new ArrayList<>(pending);
+            pending.clear();
+            toCancel = new ArrayList<>(running);
+        }
+        for (LookupTask task : toCancel) {
+            task.cancel(true);
+            // a cancelled task will never be run, so do not leave it on the shared queue
+            pool.remove(task);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Shut down the index lookups for " + queryId + " after " + numSubmitted + " tasks, " + notRun.size() + " not run");
+        }
+        return notRun;
+    }
+    
+    @Override
+    public synchronized boolean isShutdown() {
+        return shutdown;
+    }
+    
+    @Override
+    public synchronized boolean isTerminated() {
+        return shutdown && running.isEmpty() && pending.isEmpty();
+    }
+    
+    @Override
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!isTerminated()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+    
+    @Override
+    public String toString() {
+        return "QueryLookupExecutor(" + queryId + ")";
+    }
+}
@@ -17,12 +17,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingDeque;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 import org.apache.accumulo.core.client.BatchScanner;
 import org.apache.accumulo.core.client.IteratorSetting;
@@ -120,8 +115,6 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
     protected Class<? extends SortedKeyValueIterator<Key,Value>> createCondensedUidIteratorClass = CondensedUidIterator.class;
     protected Multimap<String,Type<?>> fieldDataTypes;
     
-    protected BlockingQueue<Runnable> runnables;
-    
     protected JexlNode tree = null;
     
     protected UidIntersector uidIntersector = new IndexInfo();
@@ -150,10 +143,9 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
         this.scanners = scanners;
         this.metadataHelper = metadataHelper;
         int maxLookup = (int) Math.max(Math.ceil(config.getNumIndexLookupThreads()), 1);
-        executor = Executors.newFixedThreadPool(maxLookup);
-        runnables = new LinkedBlockingDeque<>();
-        int executeLookupMin = (int) Math.max(maxLookup / 2, 1);
-        streamExecutor = new ThreadPoolExecutor(executeLookupMin, maxLookup, 100, TimeUnit.MILLISECONDS, runnables);
+        // the lookups and scans run on the shared index lookup pools, limited to maxLookup at once for this query
+        executor = IndexLookupScheduler.getInstance().newLookupExecutor(config.getQuery(), maxLookup);
+        streamExecutor = IndexLookupScheduler.getInstance().newStreamExecutor(config.getQuery(), maxLookup);
         fieldDataTypes = config.getQueryFieldsDatatypes();
         collapseUids = config.getCollapseUids();
         try {
@@ -31,6 +31,7 @@ import datawave.query.function.LimitFields;
 import datawave.query.function.MaskedValueFilterFactory;
 import datawave.query.function.MaskedValueFilterInterface;
 import datawave.query.function.RemoveGroupingContext;
+import datawave.query.function.serializer.DeferredDocumentSerializer;
 import datawave.query.function.serializer.KryoDocumentSerializer;
 import datawave.query.function.serializer.ToStringDocumentSerializer;
 import datawave.query.function.serializer.WritableDocumentSerializer;
@@ -359,6 +360,7 @@ public class QueryIterator extends QueryOptions implements SortedKeyValueIterato
                             yield, yieldThresholdMs);
             
             pipelineIter.setCollectTimingDetails(collectTimingDetails);
+            pipelineIter.setAdaptivePipelines(isAdaptiveEvaluationPipelines());
             // TODO pipelineIter.setStatsdHostAndPort(statsdHostAndPort);
             
             pipelineIter.startPipeline();
@@ -374,6 +376,12 @@ public class QueryIterator extends QueryOptions implements SortedKeyValueIterato
                 this.serializedDocuments = new KeyAdjudicator<Value>(serializedDocuments, yield);
             }
             
+            // combine the documents into columnar batches
+            if (isBatchResults()) {
+                this.serializedDocuments = new ResultBatchingIterator(serializedDocuments, getResultBatchSize(), isReducedResponse(), isCompressResults(),
+                                yield);
+            }
+            
             // only add the final document tracking iterator which sends stats back to the client if collectTimingDetails is true
             if (collectTimingDetails) {
                 Range r = (documentRange == null) ? this.range : documentRange;
@@ -780,7 +788,10 @@ public class QueryIterator extends QueryOptions implements SortedKeyValueIterato
             documents = new PipelineQuerySpanCollectionIterator(querySpanCollector, trackingSpan, documents);
         }
         
-        if (this.getReturnType() == ReturnType.kryo) {
+        if (isBatchResults()) {
+            // The Documents are serialized in batches by the ResultBatchingIterator
+            return Iterators.transform(documents, new DeferredDocumentSerializer());
+        } else if (this.getReturnType() == ReturnType.kryo) {
             // Serialize the Document using Kryo
             return Iterators.transform(documents, new KryoDocumentSerializer(isReducedResponse(), isCompressResults()));
         } else if (this.getReturnType() == ReturnType.writable) {
@@ -794,6 +805,15 @@ public class QueryIterator extends QueryOptions implements SortedKeyValueIterato
         }
     }
     
+    /**
+     * Are the documents returned in columnar batches. This is only supported for kryo serialization.
+     * 
+     * @return true if batching the results
+     */
+    protected boolean isBatchResults() {
+        return (getResultBatchSize() > 0 && getReturnType() == ReturnType.kryo);
+    }
+    
     protected Iterator<Entry<Key,Document>> getEvaluation(SortedKeyValueIterator<Key,Value> sourceDeepCopy, Iterator<Entry<Key,Document>> documents,
                     CompositeMetadata compositeMetadata, TypeMetadata typeMetadataForEval) {
         return getEvaluation(null, sourceDeepCopy, documents, compositeMetadata, typeMetadataForEval);
@@ -1198,7 +1218,11 @@ public class QueryIterator extends QueryOptions implements SortedKeyValueIterato
                         .setFieldsToAggregate(this.getNonEventFields()).setAttrFilter(this.getEvaluationFilter())
                         .setDatatypeFilter(this.getFieldIndexKeyDataTypeFilter()).setFiAggregator(this.fiAggregator)
                         .setHdfsFileSystem(this.getFileSystemCache()).setQueryLock(this.getQueryLock())
-                        .setIvaratorCacheDirURIAlternatives(this.getIvaratorCacheBaseURIsAsList()).setQueryId(this.getQueryId()).setScanId(this.getScanId())
+                        .setIvaratorCacheDirURIAlternatives(this.getIvaratorCacheBaseURIsAsList())
+                        .setIvaratorCacheLocalDirs(this.getIvaratorCacheLocalDirsAsList())
+                        .setIvaratorCacheLocalQuota(this.getIvaratorCacheLocalMaxBytes(), this.getIvaratorCacheLocalMinFreeBytes())
+                        .setIvaratorCacheLocalExpiration(this.getIvaratorCacheLocalExpiration())
+                        .setQueryId(this.getQueryId()).setScanId(this.getScanId())
                         .setIvaratorCacheSubDirPrefix(this.getHdfsCacheSubDirPrefix()).setHdfsFileCompressionCodec(this.getHdfsFileCompressionCodec())
                         .setIvaratorCacheBufferSize(this.getIvaratorCacheBufferSize())
                         .setIvaratorCacheScanPersistThreshold(this.getIvaratorCacheScanPersistThreshold())
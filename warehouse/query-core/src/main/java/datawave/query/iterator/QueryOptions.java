@@ -184,6 +184,14 @@ public class QueryOptions implements OptionDescriber {
     
     public static final String IVARATOR_CACHE_BASE_URI_ALTERNATIVES = "ivarator.cache.base.uri.alternatives";
     
+    public static final String IVARATOR_CACHE_LOCAL_DIRS = "ivarator.cache.local.dirs";
+    
+    public static final String IVARATOR_CACHE_LOCAL_MAX_BYTES = "ivarator.cache.local.max.bytes";
+    
+    public static final String IVARATOR_CACHE_LOCAL_MIN_FREE_BYTES = "ivarator.cache.local.min.free.bytes";
+    
+    public static final String IVARATOR_CACHE_LOCAL_EXPIRATION = "ivarator.cache.local.expiration";
+    
     public static final String IVARATOR_CACHE_BUFFER_SIZE = "ivarator.cache.buffer.size";
     
     public static final String IVARATOR_SCAN_PERSIST_THRESHOLD = "ivarator.scan.persist.threshold";
@@ -200,10 +208,14 @@ public class QueryOptions implements OptionDescriber {
     
     public static final String COMPRESS_SERVER_SIDE_RESULTS = "compress.server.side.results";
     
+    public static final String RESULT_BATCH_SIZE = "result.batch.size";
+    
     public static final String MAX_EVALUATION_PIPELINES = "max.evaluation.pipelines";
     
     public static final String SERIAL_EVALUATION_PIPELINE = "serial.evaluation.pipeline";
     
+    public static final String ADAPTIVE_EVALUATION_PIPELINES = "adaptive.evaluation.pipelines";
+    
     public static final String MAX_PIPELINE_CACHED_RESULTS = "max.pipeline.cached.results";
     
     public static final String BATCHED_QUERY = "query.iterator.batch";
@@ -258,6 +270,7 @@ public class QueryOptions implements OptionDescriber {
     
     protected int maxEvaluationPipelines = 25;
     protected int maxPipelineCachedResults = 25;
+    protected boolean adaptiveEvaluationPipelines = false;
     
     protected Set<String> indexOnlyFields = Sets.newHashSet();
     protected Set<String> ignoreColumnFamilies = Sets.newHashSet();
@@ -294,6 +307,10 @@ public class QueryOptions implements OptionDescriber {
     protected String zookeeperConfig = null;
     
     protected List<String> ivaratorCacheBaseURIAlternatives = null;
+    protected List<String> ivaratorCacheLocalDirs = null;
+    protected long ivaratorCacheLocalMaxBytes = 0L;
+    protected long ivaratorCacheLocalMinFreeBytes = 1024L * 1024 * 1024;
+    protected long ivaratorCacheLocalExpiration = 1000L * 60 * 60 * 24;
     protected long ivaratorCacheScanPersistThreshold = 100000L;
     protected long ivaratorCacheScanTimeout = 1000L * 60 * 60;
     protected int ivaratorCacheBufferSize = 10000;
@@ -318,6 +335,9 @@ public class QueryOptions implements OptionDescriber {
     
     protected boolean compressResults = false;
     
+    // the number of documents to return in each columnar batch, 0 to return each document individually
+    protected int resultBatchSize = 0;
+    
     protected Boolean compressedMappings = false;
     protected boolean limitOverride = false;
     
@@ -412,6 +432,10 @@ public class QueryOptions implements OptionDescriber {
         this.fiAggregator = other.fiAggregator;
         
         this.ivaratorCacheBaseURIAlternatives = other.ivaratorCacheBaseURIAlternatives;
+        this.ivaratorCacheLocalDirs = other.ivaratorCacheLocalDirs;
+        this.ivaratorCacheLocalMaxBytes = other.ivaratorCacheLocalMaxBytes;
+        this.ivaratorCacheLocalMinFreeBytes = other.ivaratorCacheLocalMinFreeBytes;
+        this.ivaratorCacheLocalExpiration = other.ivaratorCacheLocalExpiration;
         this.hdfsSiteConfigURLs = other.hdfsSiteConfigURLs;
         this.ivaratorCacheBufferSize = other.ivaratorCacheBufferSize;
         this.ivaratorCacheScanPersistThreshold = other.ivaratorCacheScanPersistThreshold;
@@ -424,6 +448,7 @@ public class QueryOptions implements OptionDescriber {
         this.yieldThresholdMs = other.yieldThresholdMs;
         
         this.compressResults = other.compressResults;
+        this.resultBatchSize = other.resultBatchSize;
         this.limitFieldsMap = other.limitFieldsMap;
         this.limitFieldsPreQueryEvaluation = other.limitFieldsPreQueryEvaluation;
         this.limitFieldsField = other.limitFieldsField;
@@ -457,6 +482,7 @@ public class QueryOptions implements OptionDescriber {
         this.batchedQueries = other.batchedQueries;
         this.batchStack = other.batchStack;
         this.maxEvaluationPipelines = other.maxEvaluationPipelines;
+        this.adaptiveEvaluationPipelines = other.adaptiveEvaluationPipelines;
         
         this.dateIndexTimeTravel = other.dateIndexTimeTravel;
         
@@ -817,6 +843,42 @@ public class QueryOptions implements OptionDescriber {
         }
     }
     
+    public List<String> getIvaratorCacheLocalDirsAsList() {
+        return ivaratorCacheLocalDirs;
+    }
+    
+    public void setIvaratorCacheLocalDirs(String ivaratorCacheLocalDirs) {
+        if (ivaratorCacheLocalDirs == null || ivaratorCacheLocalDirs.isEmpty()) {
+            this.ivaratorCacheLocalDirs = null;
+        } else {
+            this.ivaratorCacheLocalDirs = Arrays.asList(StringUtils.split(ivaratorCacheLocalDirs, ','));
+        }
+    }
+    
+    public long getIvaratorCacheLocalMaxBytes() {
+        return ivaratorCacheLocalMaxBytes;
+    }
+    
+    public void setIvaratorCacheLocalMaxBytes(long ivaratorCacheLocalMaxBytes) {
+        this.ivaratorCacheLocalMaxBytes = ivaratorCacheLocalMaxBytes;
+    }
+    
+    public long getIvaratorCacheLocalMinFreeBytes() {
+        return ivaratorCacheLocalMinFreeBytes;
+    }
+    
+    public void setIvaratorCacheLocalMinFreeBytes(long ivaratorCacheLocalMinFreeBytes) {
+        this.ivaratorCacheLocalMinFreeBytes = ivaratorCacheLocalMinFreeBytes;
+    }
+    
+    public long getIvaratorCacheLocalExpiration() {
+        return ivaratorCacheLocalExpiration;
+    }
+    
+    public void setIvaratorCacheLocalExpiration(long ivaratorCacheLocalExpiration) {
+        this.ivaratorCacheLocalExpiration = ivaratorCacheLocalExpiration;
+    }
+    
     public int getIvaratorCacheBufferSize() {
         return ivaratorCacheBufferSize;
     }
@@ -873,6 +935,14 @@ public class QueryOptions implements OptionDescriber {
         this.compressResults = compressResults;
     }
     
+    public int getResultBatchSize() {
+        return resultBatchSize;
+    }
+    
+    public void setResultBatchSize(int resultBatchSize) {
+        this.resultBatchSize = resultBatchSize;
+    }
+    
     public Map<String,Integer> getLimitFieldsMap() {
         return limitFieldsMap;
     }
@@ -1008,6 +1078,14 @@ public class QueryOptions implements OptionDescriber {
         options.put(HDFS_FILE_COMPRESSION_CODEC, "A hadoop compression codec to use for files if supported");
         options.put(IVARATOR_CACHE_BASE_URI_ALTERNATIVES,
                         "A list of URIs of where all query's caches are to be located for ivarators (caching field index iterators)");
+        options.put(IVARATOR_CACHE_LOCAL_DIRS,
+                        "A list of tserver local directories to be used for ivarator caches before falling back to the ivarator cache base URI alternatives");
+        options.put(IVARATOR_CACHE_LOCAL_MAX_BYTES,
+                        "The max number of bytes of ivarator caches across the local directories on one tserver.  Default is 0 (no quota).");
+        options.put(IVARATOR_CACHE_LOCAL_MIN_FREE_BYTES,
+                        "The min number of bytes that must remain available on a local directory's volume for it to be used.  Default is 1GB.");
+        options.put(IVARATOR_CACHE_LOCAL_EXPIRATION,
+                        "The number of milliseconds after their last modification that a query's local ivarator directories are removed.  Default is 1 day.");
         options.put(IVARATOR_CACHE_BUFFER_SIZE, "The size of the hdfs cache buffer size (items held in memory before dumping to hdfs).  Default is 10000.");
         options.put(IVARATOR_SCAN_PERSIST_THRESHOLD,
                         "The number of underlying field index keys scanned before the hdfs cache buffer is forced to persist).  Default is 100000.");
@@ -1021,8 +1099,10 @@ public class QueryOptions implements OptionDescriber {
         options.put(YIELD_THRESHOLD_MS,
                         "The threshold in milliseconds that the query iterator will evaluate consecutive documents to false before yielding the scan.");
         options.put(COMPRESS_SERVER_SIDE_RESULTS, "GZIP compress the serialized Documents before returning to the webserver");
+        options.put(RESULT_BATCH_SIZE, "The number of kryo serialized Documents to return to the webserver in each columnar batch, 0 to disable batching");
         options.put(MAX_EVALUATION_PIPELINES, "The max number of evaluation pipelines");
         options.put(SERIAL_EVALUATION_PIPELINE, "Forces us to use the serial pipeline. Allows us to still have a single thread for evaluation");
+        options.put(ADAPTIVE_EVALUATION_PIPELINES, "Adjust the number of active evaluation pipelines, up to the max, to the cost of evaluating the documents");
         options.put(MAX_PIPELINE_CACHED_RESULTS, "The max number of non-null evaluated results to cache beyond the evaluation pipelines in queue");
         options.put(DATE_INDEX_TIME_TRAVEL, "Whether the shards from before the event should be gathered from the dateIndex");
         
@@ -1357,6 +1437,22 @@ public class QueryOptions implements OptionDescriber {
             this.setIvaratorCacheBaseURIAlternatives(options.get(IVARATOR_CACHE_BASE_URI_ALTERNATIVES));
         }
         
+        if (options.containsKey(IVARATOR_CACHE_LOCAL_DIRS)) {
+            this.setIvaratorCacheLocalDirs(options.get(IVARATOR_CACHE_LOCAL_DIRS));
+        }
+        
+        if (options.containsKey(IVARATOR_CACHE_LOCAL_MAX_BYTES)) {
+            this.setIvaratorCacheLocalMaxBytes(Long.parseLong(options.get(IVARATOR_CACHE_LOCAL_MAX_BYTES)));
+        }
+        
+        if (options.containsKey(IVARATOR_CACHE_LOCAL_MIN_FREE_BYTES)) {
+            this.setIvaratorCacheLocalMinFreeBytes(Long.parseLong(options.get(IVARATOR_CACHE_LOCAL_MIN_FREE_BYTES)));
+        }
+        
+        if (options.containsKey(IVARATOR_CACHE_LOCAL_EXPIRATION)) {
+            this.setIvaratorCacheLocalExpiration(Long.parseLong(options.get(IVARATOR_CACHE_LOCAL_EXPIRATION)));
+        }
+        
         if (options.containsKey(IVARATOR_CACHE_BUFFER_SIZE)) {
             this.setIvaratorCacheBufferSize(Integer.parseInt(options.get(IVARATOR_CACHE_BUFFER_SIZE)));
         }
@@ -1389,6 +1485,10 @@ public class QueryOptions implements OptionDescriber {
             this.setCompressResults(Boolean.parseBoolean(options.get(COMPRESS_SERVER_SIDE_RESULTS)));
         }
         
+        if (options.containsKey(RESULT_BATCH_SIZE)) {
+            this.setResultBatchSize(Integer.parseInt(options.get(RESULT_BATCH_SIZE)));
+        }
+        
         if (options.containsKey(MAX_EVALUATION_PIPELINES)) {
             this.setMaxEvaluationPipelines(Integer.parseInt(options.get(MAX_EVALUATION_PIPELINES)));
         }
@@ -1397,6 +1497,10 @@ public class QueryOptions implements OptionDescriber {
             this.setSerialEvaluationPipeline(Boolean.parseBoolean(options.get(SERIAL_EVALUATION_PIPELINE)));
         }
         
+        if (options.containsKey(ADAPTIVE_EVALUATION_PIPELINES)) {
+            this.setAdaptiveEvaluationPipelines(Boolean.parseBoolean(options.get(ADAPTIVE_EVALUATION_PIPELINES)));
+        }
+        
         if (options.containsKey(MAX_PIPELINE_CACHED_RESULTS)) {
             this.setMaxPipelineCachedResults(Integer.parseInt(options.get(MAX_PIPELINE_CACHED_RESULTS)));
         }
@@ -1786,6 +1890,14 @@ public class QueryOptions implements OptionDescriber {
         this.maxEvaluationPipelines = maxEvaluationPipelines;
     }
     
+    public boolean isAdaptiveEvaluationPipelines() {
+        return adaptiveEvaluationPipelines;
+    }
+    
+    public void setAdaptiveEvaluationPipelines(boolean adaptiveEvaluationPipelines) {
+        this.adaptiveEvaluationPipelines = adaptiveEvaluationPipelines;
+    }
+    
     public int getMaxPipelineCachedResults() {
         return maxPipelineCachedResults;
     }
@@ -0,0 +1,129 @@
+package datawave.query.iterator;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import datawave.query.DocumentSerialization;
+import datawave.query.attributes.ColumnarDocumentBatch;
+import datawave.query.attributes.Document;
+import datawave.query.function.serializer.DocumentSerializer;
+import datawave.query.function.serializer.DocumentValue;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Combines the unserialized documents ({@link DocumentValue}s) from the source into values holding a {@link ColumnarDocumentBatch} of up to batchSize
+ * documents. The key of each batch is the key of the last document in the batch, so a scan that is torn down and re-seeked after the batch resumes after all
+ * of the documents in it. Any other value from the source (e.g. the final timing document) is passed through as is.
+ */
+public class ResultBatchingIterator implements Iterator<Entry<Key,Value>> {
+    private static final Logger log = Logger.getLogger(ResultBatchingIterator.class);
+    
+    private final Iterator<Entry<Key,Value>> source;
+    private final int batchSize;
+    private final boolean compress;
+    private final YieldCallbackWrapper<Key> yield;
+    private final ColumnarDocumentBatch batchSerializer;
+    
+    private final List<Entry<Key,Document>> batch;
+    private Entry<Key,Value> passThrough = null;
+    private Entry<Key,Value> next = null;
+    private Key yieldPosition = null;
+    
+    public ResultBatchingIterator(Iterator<Entry<Key,Value>> source, int batchSize, boolean reducedResponse, boolean compress,
+                    YieldCallbackWrapper<Key> yield) {
+        this.source = source;
+        this.batchSize = batchSize;
+        this.compress = compress;
+        this.yield = yield;
+        this.batchSerializer = new ColumnarDocumentBatch(reducedResponse);
+        this.batch = new ArrayList<>(batchSize);
+    }
+    
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = getNext();
+        }
+        return (next != null);
+    }
+    
+    @Override
+    public Entry<Key,Value> next() {
+        Entry<Key,Value> result = next;
+        if (result == null) {
+            result = getNext();
+        }
+        next = null;
+        return result;
+    }
+    
+    private Entry<Key,Value> getNext() {
+        if (passThrough != null) {
+            Entry<Key,Value> result = passThrough;
+            passThrough = null;
+            return result;
+        }
+        
+        // once the source has yielded it is not consulted again
+        while (yieldPosition == null && batch.size() < batchSize && source.hasNext()) {
+            Entry<Key,Value> entry = source.next();
+            if (entry.getValue() instanceof DocumentValue) {
+                batch.add(Maps.immutableEntry(entry.getKey(), ((DocumentValue) entry.getValue()).getDocument()));
+            } else if (batch.isEmpty()) {
+                return entry;
+            } else {
+                passThrough = entry;
+                break;
+            }
+        }
+        
+        // If the source yielded, then the documents already in the batch are returned first and the yield is deferred until they have been.
+        if (yield != null && yield.hasYielded()) {
+            yieldPosition = yield.getPositionAndReset();
+        }
+        
+        if (!batch.isEmpty()) {
+            return flush();
+        }
+        
+        if (yieldPosition != null) {
+            yield.yield(yieldPosition);
+            yieldPosition = null;
+        }
+        return null;
+    }
+    
+    private Entry<Key,Value> flush() {
+        Key key = batch.get(batch.size() - 1).getKey();
+        byte[] bytes = batchSerializer.serialize(batch);
+        if (log.isTraceEnabled()) {
+            log.trace("Serialized a batch of " + batch.size() + " documents into " + bytes.length + " bytes");
+        }
+        batch.clear();
+        
+        byte[] header;
+        if (compress && bytes.length > DocumentSerializer.DEFAULT_MIN_COMPRESS_SIZE) {
+            header = DocumentSerialization.getBatchHeader(DocumentSerialization.GZIP);
+            bytes = DocumentSerialization.writeBody(bytes, DocumentSerialization.GZIP);
+        } else {
+            header = DocumentSerialization.getBatchHeader(DocumentSerialization.NONE);
+        }
+        
+        byte[] value = new byte[header.length + bytes.length];
+        System.arraycopy(header, 0, value, 0, header.length);
+        System.arraycopy(bytes, 0, value, header.length, bytes.length);
+        return Maps.immutableEntry(key, new Value(value));
+    }
+    
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
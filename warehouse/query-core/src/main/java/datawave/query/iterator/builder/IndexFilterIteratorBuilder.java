@@ -76,8 +76,9 @@ public class IndexFilterIteratorBuilder extends IvaratorBuilder implements Itera
                                 .withTimeFilter(timeFilter).withDatatypeFilter(datatypeFilter).negated(false)
                                 .withScanThreshold(ivaratorCacheScanPersistThreshold).withScanTimeout(ivaratorCacheScanTimeout)
                                 .withHdfsBackedSetBufferSize(ivaratorCacheBufferSize).withMaxRangeSplit(maxRangeSplit).withMaxOpenFiles(ivaratorMaxOpenFiles)
-                                .withFileSystem(hdfsFileSystem).withUniqueDir(new Path(hdfsCacheURI)).withQueryLock(queryLock).allowDirResuse(true)
-                                .withReturnKeyType(PartialKey.ROW_COLFAM_COLQUAL_COLVIS_TIME).withSortedUUIDs(sortedUIDs)
+                                .withFileSystem(hdfsFileSystem).withUniqueDir(new Path(hdfsCacheURI)).withQueryLock(queryLock).withQueryId(queryId)
+                                .allowDirResuse(true).withReturnKeyType(PartialKey.ROW_COLFAM_COLQUAL_COLVIS_TIME).withSortedUUIDs(sortedUIDs)
+                                .withHdfsFileCompressionCodec(hdfsFileCompressionCodec)
                                 .withCompositePredicateFilters(createCompositePredicateFilters(range.getFieldName())).build();
                 
                 if (collectTimingDetails) {
@@ -100,8 +100,9 @@ public class IndexListIteratorBuilder extends IvaratorBuilder implements Iterato
                                     .withDatatypeFilter(datatypeFilter).negated(negated).withScanThreshold(ivaratorCacheScanPersistThreshold)
                                     .withScanTimeout(ivaratorCacheScanTimeout).withHdfsBackedSetBufferSize(ivaratorCacheBufferSize)
                                     .withMaxRangeSplit(maxRangeSplit).withMaxOpenFiles(ivaratorMaxOpenFiles).withFileSystem(hdfsFileSystem)
-                                    .withUniqueDir(new Path(hdfsCacheURI)).withQueryLock(queryLock).allowDirResuse(true)
+                                    .withUniqueDir(new Path(hdfsCacheURI)).withQueryLock(queryLock).withQueryId(queryId).allowDirResuse(true)
                                     .withReturnKeyType(PartialKey.ROW_COLFAM_COLQUAL_COLVIS_TIME).withSortedUUIDs(sortedUIDs)
+                                    .withHdfsFileCompressionCodec(hdfsFileCompressionCodec)
                                     .withCompositePredicateFilters(createCompositePredicateFilters(field)).build();
                     
                 } else {
@@ -110,8 +111,9 @@ public class IndexListIteratorBuilder extends IvaratorBuilder implements Iterato
                                     .withDatatypeFilter(datatypeFilter).negated(negated).withScanThreshold(ivaratorCacheScanPersistThreshold)
                                     .withScanTimeout(ivaratorCacheScanTimeout).withHdfsBackedSetBufferSize(ivaratorCacheBufferSize)
                                     .withMaxRangeSplit(maxRangeSplit).withMaxOpenFiles(ivaratorMaxOpenFiles).withFileSystem(hdfsFileSystem)
-                                    .withUniqueDir(new Path(hdfsCacheURI)).withQueryLock(queryLock).allowDirResuse(true)
+                                    .withUniqueDir(new Path(hdfsCacheURI)).withQueryLock(queryLock).withQueryId(queryId).allowDirResuse(true)
                                     .withReturnKeyType(PartialKey.ROW_COLFAM_COLQUAL_COLVIS_TIME).withSortedUUIDs(sortedUIDs)
+                                    .withHdfsFileCompressionCodec(hdfsFileCompressionCodec)
                                     .withCompositePredicateFilters(createCompositePredicateFilters(field)).build();
                     
                 }
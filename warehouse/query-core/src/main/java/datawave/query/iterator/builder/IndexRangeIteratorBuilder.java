@@ -68,8 +68,9 @@ public class IndexRangeIteratorBuilder extends IvaratorBuilder implements Iterat
                                 .withDatatypeFilter(this.datatypeFilter).negated(false).withScanThreshold(ivaratorCacheScanPersistThreshold)
                                 .withScanTimeout(ivaratorCacheScanTimeout).withHdfsBackedSetBufferSize(ivaratorCacheBufferSize)
                                 .withMaxRangeSplit(maxRangeSplit).withMaxOpenFiles(ivaratorMaxOpenFiles).withFileSystem(hdfsFileSystem)
-                                .withUniqueDir(new Path(hdfsCacheURI)).withQueryLock(queryLock).allowDirResuse(true)
+                                .withUniqueDir(new Path(hdfsCacheURI)).withQueryLock(queryLock).withQueryId(queryId).allowDirResuse(true)
                                 .withReturnKeyType(PartialKey.ROW_COLFAM_COLQUAL_COLVIS_TIME).withSortedUUIDs(sortedUIDs)
+                                .withHdfsFileCompressionCodec(hdfsFileCompressionCodec)
                                 .withCompositePredicateFilters(createCompositePredicateFilters(range.getFieldName())).build();
                 
                 if (collectTimingDetails) {
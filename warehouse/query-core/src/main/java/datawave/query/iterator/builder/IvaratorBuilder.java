@@ -12,6 +12,7 @@ public abstract class IvaratorBuilder extends IndexIteratorBuilder {
     protected FileSystem hdfsFileSystem;
     protected String hdfsFileCompressionCodec;
     protected QueryLock queryLock;
+    protected String queryId;
     protected String ivaratorCacheDirURI;
     protected long ivaratorCacheScanPersistThreshold = 100000L;
     protected long ivaratorCacheScanTimeout = 1000L * 60 * 60;
@@ -45,6 +46,14 @@ public abstract class IvaratorBuilder extends IndexIteratorBuilder {
         this.queryLock = queryLock;
     }
     
+    public String getQueryId() {
+        return queryId;
+    }
+    
+    public void setQueryId(String queryId) {
+        this.queryId = queryId;
+    }
+    
     public String getIvaratorCacheDirURI() {
         return ivaratorCacheDirURI;
     }
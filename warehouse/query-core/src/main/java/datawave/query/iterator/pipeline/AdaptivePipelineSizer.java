@@ -0,0 +1,107 @@
+package datawave.query.iterator.pipeline;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Determines how many evaluation pipelines a {@link PipelineIterator} should keep active, between 1 and the configured max, from the observed cost of
+ * evaluating its documents. Every {@link #ADJUST_INTERVAL} documents the size is adjusted:
+ * <ul>
+ * <li>documents that are cheaper to evaluate than to hand to another thread halve the size</li>
+ * <li>evaluations of this query queueing up behind the busy threads of the evaluation thread pool shrink the size, leaving the threads to the other
+ * queries</li>
+ * <li>when the iterator mostly had to wait for the evaluations the size is doubled. The evaluations the iterator runs itself with a single pipeline count as
+ * waits, so that the size grows back when the documents become expensive again.</li>
+ * <li>with a yield threshold the size is capped so that the evaluation work in flight, which is discarded when the scan yields, is about one yield period</li>
+ * </ul>
+ * The size starts at the max so that expensive queries are not held back while the cost is learned.
+ */
+public class AdaptivePipelineSizer {
+    private static final Logger log = Logger.getLogger(AdaptivePipelineSizer.class);
+    
+    // below this the cost of handing the document to another thread outweighs evaluating it in parallel
+    public static final long CHEAP_EVALUATION_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+    public static final int ADJUST_INTERVAL = 16;
+    private static final double SMOOTHING = 0.2;
+    
+    private final int maxPipelines;
+    private final long yieldThresholdNanos;
+    private final BooleanSupplier poolSaturated;
+    
+    private int activePipelines;
+    private double averageEvaluationNanos = -1;
+    private int observations = 0;
+    private int waits = 0;
+    
+    /**
+     * @param maxPipelines
+     *            the max number of pipelines
+     * @param yieldThresholdMs
+     *            the yield threshold, or Long.MAX_VALUE if not yielding
+     * @param poolSaturated
+     *            whether the evaluations of the query are currently queued behind the busy threads of the evaluation thread pool
+     */
+    public AdaptivePipelineSizer(int maxPipelines, long yieldThresholdMs, BooleanSupplier poolSaturated) {
+        this.maxPipelines = Math.max(1, maxPipelines);
+        // toNanos saturates at Long.MAX_VALUE
+        this.yieldThresholdNanos = (yieldThresholdMs <= 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(yieldThresholdMs));
+        this.poolSaturated = poolSaturated;
+        this.activePipelines = this.maxPipelines;
+    }
+    
+    /**
+     * Record the evaluation of a document
+     * 
+     * @param evaluationNanos
+     *            the time taken to evaluate the document
+     * @param waitNanos
+     *            the time the iterator had to wait for the evaluation to complete, which is the whole evaluation when the iterator ran it itself
+     */
+    public void record(long evaluationNanos, long waitNanos) {
+        if (averageEvaluationNanos < 0) {
+            averageEvaluationNanos = evaluationNanos;
+        } else {
+            averageEvaluationNanos += SMOOTHING * (evaluationNanos - averageEvaluationNanos);
+        }
+        observations++;
+        if (waitNanos > 0) {
+            waits++;
+        }
+        if (observations >= ADJUST_INTERVAL) {
+            adjust();
+            observations = 0;
+            waits = 0;
+        }
+    }
+    
+    private void adjust() {
+        int size = activePipelines;
+        if (averageEvaluationNanos < CHEAP_EVALUATION_NANOS) {
+            size = Math.max(1, size / 2);
+        } else if (poolSaturated.getAsBoolean()) {
+            size = Math.max(1, size - Math.max(1, size / 4));
+        } else if (waits * 2 > observations) {
+            size = Math.min(maxPipelines, size * 2);
+        }
+        
+        if (yieldThresholdNanos != Long.MAX_VALUE && averageEvaluationNanos >= 1) {
+            size = (int) Math.max(1, Math.min(size, yieldThresholdNanos / (long) averageEvaluationNanos));
+        }
+        
+        if (size != activePipelines && log.isDebugEnabled()) {
+            log.debug("Changing the active pipelines from " + activePipelines + " to " + size + " at an average evaluation of " + (long) averageEvaluationNanos
+                            + "ns with " + waits + " waits in " + observations + " evaluations");
+        }
+        activePipelines = size;
+    }
+    
+    public int getActivePipelines() {
+        return activePipelines;
+    }
+    
+    public long getAverageEvaluationNanos() {
+        return (long) averageEvaluationNanos;
+    }
+}
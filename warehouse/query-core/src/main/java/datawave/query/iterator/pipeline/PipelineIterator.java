@@ -6,6 +6,7 @@ import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -46,6 +47,10 @@ public class PipelineIterator implements Iterator<Entry<Key,Value>> {
     final protected QuerySpan querySpan;
     protected boolean collectTimingDetails = false;
     protected IteratorEnvironment env;
+    // used to schedule the evaluations fairly with those of other queries
+    final protected String queryId;
+    // set when the number of active pipelines adapts to the evaluation cost
+    protected AdaptivePipelineSizer sizer = null;
     
     public PipelineIterator(NestedIterator<Key> documents, int maxPipelines, int maxCachedResults, QuerySpanCollector querySpanCollector, QuerySpan querySpan,
                     QueryIterator sourceIterator, SortedKeyValueIterator<Key,Value> sourceForDeepCopy, IteratorEnvironment env,
@@ -60,12 +65,31 @@ public class PipelineIterator implements Iterator<Entry<Key,Value>> {
         this.env = env;
         this.yield = yieldCallback;
         this.yieldThresholdMs = yieldThresholdMs;
+        this.queryId = (sourceIterator == null ? null : sourceIterator.getQueryId());
     }
     
     public void setCollectTimingDetails(boolean collectTimingDetails) {
         this.collectTimingDetails = collectTimingDetails;
     }
     
+    /**
+     * Adapt the number of active pipelines to the observed evaluation cost rather than always keeping the max number active. This must be set before the
+     * pipeline is started.
+     * 
+     * @param adaptive
+     */
+    public void setAdaptivePipelines(boolean adaptive) {
+        if (adaptive) {
+            this.sizer = new AdaptivePipelineSizer(pipelines.maxPipelines, yieldThresholdMs, this::isEvaluationPoolSaturated);
+        } else {
+            this.sizer = null;
+        }
+    }
+    
+    private int getActivePipelines() {
+        return (sizer == null ? pipelines.maxPipelines : sizer.getActivePipelines());
+    }
+    
     /*
      * (non-Javadoc)
      * 
@@ -214,28 +238,37 @@ public class PipelineIterator implements Iterator<Entry<Key,Value>> {
         Tuple2<Future<?>,Pipeline> nextFuture = evaluationQueue.poll();
         
         // wait for it to complete if not already done
-        if (!nextFuture.first().isDone()) {
-            long start = System.currentTimeMillis();
+        long waitNanos = 0;
+        if (nextFuture.first() instanceof InlineEvaluation) {
+            // the iterator waited for the whole of an evaluation it ran itself
+            waitNanos = nextFuture.second().getEvaluationNanos();
+        } else if (!nextFuture.first().isDone()) {
+            long start = System.nanoTime();
             
             nextFuture.first().get(waitMs, TimeUnit.MILLISECONDS);
             
+            waitNanos = System.nanoTime() - start;
             if (log.isDebugEnabled()) {
-                long wait = System.currentTimeMillis() - start;
-                log.debug("Waited " + wait + "ms for the top evaluation in a queue of " + evaluationQueue.size() + " pipelines");
+                log.debug("Waited " + TimeUnit.NANOSECONDS.toMillis(waitNanos) + "ms for the top evaluation in a queue of " + evaluationQueue.size()
+                                + " pipelines");
             }
         }
         
         // pull the result
         Entry<Key,Value> result = nextFuture.second().getResult();
         
+        if (sizer != null) {
+            sizer.record(nextFuture.second().getEvaluationNanos(), waitNanos);
+        }
+        
         // record the last evaluated key
         lastKeyEvaluated = nextFuture.second().getSource().getKey();
         
         // return the pipeline for reuse
         pipelines.checkIn(nextFuture.second());
         
-        // start a new evaluation if we can
-        if (docSource.hasNext()) {
+        // start new evaluations if we can, up to the number of active pipelines
+        while (evaluationQueue.size() < getActivePipelines() && docSource.hasNext()) {
             Key keySource = docSource.next();
             NestedQuery<Key> nestedQuery = null;
             if (docSource instanceof NestedQueryIterator) {
@@ -295,7 +328,42 @@ public class PipelineIterator implements Iterator<Entry<Key,Value>> {
     private void evaluate(Key key, Document document, NestedQuery<Key> nestedQuery) {
         Pipeline pipeline = pipelines.checkOut(key, document, nestedQuery);
         
-        evaluationQueue.add(new Tuple2<Future<?>,Pipeline>(IteratorThreadPoolManager.executeEvaluation(pipeline, pipeline.toString()), pipeline));
+        Future<?> future;
+        if (sizer != null && sizer.getActivePipelines() == 1 && evaluationQueue.isEmpty()) {
+            // a single pipeline of cheap evaluations is not worth the hand off to another thread
+            FutureTask<?> task = new InlineEvaluation(pipeline);
+            task.run();
+            future = task;
+        } else {
+            future = executeEvaluation(pipeline);
+        }
+        evaluationQueue.add(new Tuple2<Future<?>,Pipeline>(future, pipeline));
+    }
+    
+    /**
+     * Run the evaluation of a pipeline on the evaluation thread pool, queued fairly with the evaluations of the other queries
+     * 
+     * @param pipeline
+     * @return the future for the evaluation
+     */
+    protected Future<?> executeEvaluation(Pipeline pipeline) {
+        return IteratorThreadPoolManager.executeEvaluation(queryId, pipeline, pipeline.toString());
+    }
+    
+    /**
+     * @return true if the evaluations of this query are queueing up behind the busy threads of the evaluation thread pool
+     */
+    protected boolean isEvaluationPoolSaturated() {
+        return IteratorThreadPoolManager.isEvaluationPoolSaturated(queryId);
+    }
+    
+    /**
+     * An evaluation run by the iterator itself rather than handed to the evaluation thread pool
+     */
+    private static class InlineEvaluation extends FutureTask<Object> {
+        private InlineEvaluation(Runnable pipeline) {
+            super(pipeline, null);
+        }
     }
     
     /*
@@ -34,6 +34,13 @@ public class DatawaveJexlEngine extends JexlEngine {
         return new DatawaveInterpreter(this, context, strictFlag, silentFlag);
     }
     
+    /**
+     * @return an interpreter for the context with the strict and silent flags of this engine
+     */
+    public Interpreter newInterpreter(JexlContext context) {
+        return createInterpreter(context);
+    }
+    
     public ASTJexlScript parse(CharSequence expression) {
         return super.parse(expression, null, null);
     }
@@ -0,0 +1,487 @@
+package datawave.query.jexl.compiler;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import datawave.query.collections.FunctionalSet;
+import datawave.query.jexl.DatawaveJexlEngine;
+import datawave.query.jexl.HitListArithmetic;
+import datawave.query.jexl.functions.QueryFunctions;
+
+import org.apache.commons.jexl2.Interpreter;
+import org.apache.commons.jexl2.JexlArithmetic;
+import org.apache.commons.jexl2.JexlContext;
+import org.apache.commons.jexl2.JexlException;
+import org.apache.commons.jexl2.parser.JexlNode;
+
+/**
+ * A node of a compiled jexl query tree. Each node evaluates its part of the query against the context of a document, returning the same values the
+ * {@link datawave.query.jexl.DatawaveInterpreter} returns for the jexl node it was compiled from, and calling the arithmetic the same way so that the hits of a
+ * {@link HitListArithmetic} are the same.
+ */
+abstract class CompiledNode {
+    
+    abstract Object evaluate(Evaluation evaluation);
+    
+    /**
+     * @return the estimated relative cost of evaluating this node, used to order the children of a conjunction or disjunction
+     */
+    int getCost() {
+        return 1;
+    }
+    
+    /**
+     * The state of a single evaluation of a compiled query
+     */
+    static final class Evaluation {
+        final DatawaveJexlEngine engine;
+        final JexlArithmetic arithmetic;
+        final JexlContext context;
+        private Interpreter interpreter;
+        
+        Evaluation(DatawaveJexlEngine engine, JexlArithmetic arithmetic, JexlContext context) {
+            this.engine = engine;
+            this.arithmetic = arithmetic;
+            this.context = context;
+        }
+        
+        /**
+         * @return an interpreter for the parts of the query that are not compiled, created on first use and shared for the rest of the evaluation
+         */
+        Interpreter getInterpreter() {
+            if (interpreter == null) {
+                interpreter = engine.newInterpreter(context);
+            }
+            return interpreter;
+        }
+    }
+    
+    /**
+     * A literal, evaluated when the query is compiled
+     */
+    static final class Constant extends CompiledNode {
+        final Object value;
+        
+        Constant(Object value) {
+            this.value = value;
+        }
+        
+        @Override
+        Object evaluate(Evaluation evaluation) {
+            return value;
+        }
+        
+        @Override
+        int getCost() {
+            return 0;
+        }
+    }
+    
+    /**
+     * A field of the document
+     */
+    static final class Identifier extends CompiledNode {
+        final String name;
+        
+        Identifier(String name) {
+            this.name = name;
+        }
+        
+        @Override
+        Object evaluate(Evaluation evaluation) {
+            return evaluation.context.get(name);
+        }
+        
+        @Override
+        int getCost() {
+            return 0;
+        }
+    }
+    
+    /**
+     * A part of the query that is not compiled, such as a function, which is handed to the interpreter
+     */
+    static final class Interpreted extends CompiledNode {
+        final JexlNode node;
+        final int cost;
+        final boolean predicate;
+        
+        /**
+         * @param node
+         *            the jexl node to interpret
+         * @param cost
+         *            the estimated cost of interpreting the node
+         * @param predicate
+         *            whether the node always returns a boolean value, as a function that is not paired with a method does
+         */
+        Interpreted(JexlNode node, int cost, boolean predicate) {
+            this.node = node;
+            this.cost = cost;
+            this.predicate = predicate;
+        }
+        
+        @Override
+        Object evaluate(Evaluation evaluation) {
+            return evaluation.getInterpreter().interpret(node);
+        }
+        
+        @Override
+        int getCost() {
+            return cost;
+        }
+    }
+    
+    /**
+     * The assignment of a constant to a field, as done by the query property markers
+     */
+    static final class Assignment extends CompiledNode {
+        final String name;
+        final Object value;
+        
+        Assignment(String name, Object value) {
+            this.name = name;
+            this.value = value;
+        }
+        
+        @Override
+        Object evaluate(Evaluation evaluation) {
+            evaluation.context.set(name, value);
+            return value;
+        }
+        
+        @Override
+        int getCost() {
+            return 0;
+        }
+    }
+    
+    static final class Not extends CompiledNode {
+        final CompiledNode child;
+        
+        Not(CompiledNode child) {
+            this.child = child;
+        }
+        
+        @Override
+        Object evaluate(Evaluation evaluation) {
+            return evaluation.arithmetic.toBoolean(child.evaluate(evaluation)) ? Boolean.FALSE : Boolean.TRUE;
+        }
+        
+        @Override
+        int getCost() {
+            return child.getCost();
+        }
+    }
+    
+    /**
+     * A comparison of two operands, such as {@code FIELD == 'value'} or {@code FIELD =~ 'regex'}
+     */
+    static final class Comparison extends CompiledNode {
+        enum Operator {
+            EQ("=="), NE("!="), ER("=~"), NR("!~"), LT("<"), LE("<="), GT(">"), GE(">=");
+            
+            private final String error;
+            
+            Operator(String image) {
+                this.error = image + " error";
+            }
+        }
+        
+        final JexlNode node;
+        final Operator operator;
+        final CompiledNode left;
+        final CompiledNode right;
+        
+        Comparison(JexlNode node, Operator operator, CompiledNode left, CompiledNode right) {
+            this.node = node;
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        Object evaluate(Evaluation evaluation) {
+            Object leftValue = left.evaluate(evaluation);
+            Object rightValue = right.evaluate(evaluation);
+            JexlArithmetic arithmetic = evaluation.arithmetic;
+            try {
+                boolean result;
+                switch (operator) {
+                    case EQ:
+                        result = arithmetic.equals(leftValue, rightValue);
+                        break;
+                    case NE:
+                        result = !arithmetic.equals(leftValue, rightValue);
+                        break;
+                    case ER:
+                        result = arithmetic.matches(leftValue, rightValue);
+                        break;
+                    case NR:
+                        result = !arithmetic.matches(leftValue, rightValue);
+                        break;
+                    case LT:
+                        result = arithmetic.lessThan(leftValue, rightValue);
+                        break;
+                    case LE:
+                        result = arithmetic.lessThanOrEqual(leftValue, rightValue);
+                        break;
+                    case GT:
+                        result = arithmetic.greaterThan(leftValue, rightValue);
+                        break;
+                    case GE:
+                        result = arithmetic.greaterThanOrEqual(leftValue, rightValue);
+                        break;
+                    default:
+                        throw new IllegalStateException("Unexpected operator " + operator);
+                }
+                return result ? Boolean.TRUE : Boolean.FALSE;
+            } catch (ArithmeticException xrt) {
+                throw new JexlException(node, operator.error, xrt);
+            }
+        }
+        
+        @Override
+        int getCost() {
+            int cost = (operator == Operator.ER || operator == Operator.NR ? 4 : 1);
+            return cost + left.getCost() + right.getCost();
+        }
+    }
+    
+    /**
+     * A bounded range of a field, such as {@code FIELD >= 'a' && FIELD <= 'b'}, which is evaluated as a between function so that it works for fields with
+     * multiple values
+     */
+    static final class Range extends CompiledNode {
+        final String name;
+        final Object lower;
+        final boolean lowerInclusive;
+        final Object upper;
+        final boolean upperInclusive;
+        final boolean numeric;
+        
+        Range(String name, Object lower, boolean lowerInclusive, Object upper, boolean upperInclusive) {
+            this.name = name;
+            this.lowerInclusive = lowerInclusive;
+            this.upperInclusive = upperInclusive;
+            this.numeric = lower instanceof Number && upper instanceof Number;
+            if (numeric) {
+                this.lower = ((Number) lower).floatValue();
+                this.upper = ((Number) upper).floatValue();
+            } else {
+                this.lower = String.valueOf(lower);
+                this.upper = String.valueOf(upper);
+            }
+        }
+        
+        @SuppressWarnings("unchecked")
+        @Override
+        Object evaluate(Evaluation evaluation) {
+            Object fieldValue = evaluation.context.get(name);
+            Collection<?> hits;
+            if (numeric) {
+                if (fieldValue instanceof Collection) {
+                    hits = QueryFunctions.between((Collection) fieldValue, (Float) lower, lowerInclusive, (Float) upper, upperInclusive);
+                } else {
+                    hits = QueryFunctions.between(fieldValue, (Float) lower, lowerInclusive, (Float) upper, upperInclusive);
+                }
+            } else {
+                if (fieldValue instanceof Collection) {
+                    hits = QueryFunctions.between((Collection) fieldValue, (String) lower, lowerInclusive, (String) upper, upperInclusive);
+                } else {
+                    hits = QueryFunctions.between(fieldValue, (String) lower, lowerInclusive, (String) upper, upperInclusive);
+                }
+            }
+            if (evaluation.arithmetic instanceof HitListArithmetic) {
+                Set<String> hitSet = ((HitListArithmetic) evaluation.arithmetic).getHitSet();
+                if (hitSet != null) {
+                    hitSet.addAll((Collection<String>) hits);
+                }
+            }
+            return hits;
+        }
+        
+        @Override
+        int getCost() {
+            return 2;
+        }
+    }
+    
+    /**
+     * A conjunction or disjunction of two nodes. As in the interpreter, a side that returns a collection of hits does not short circuit the evaluation, and
+     * the hits of both sides are returned together.
+     */
+    static final class Junction extends CompiledNode {
+        final JexlNode node;
+        final boolean and;
+        final CompiledNode left;
+        final CompiledNode right;
+        
+        Junction(JexlNode node, boolean and, CompiledNode left, CompiledNode right) {
+            this.node = node;
+            this.and = and;
+            this.left = left;
+            this.right = right;
+        }
+        
+        @SuppressWarnings("unchecked")
+        @Override
+        Object evaluate(Evaluation evaluation) {
+            Object leftValue = left.evaluate(evaluation);
+            if (leftValue == null) {
+                leftValue = FunctionalSet.empty();
+            }
+            if (!(leftValue instanceof Collection) && toBoolean(evaluation, leftValue, 0) != and) {
+                return Boolean.valueOf(!and);
+            }
+            Object rightValue = right.evaluate(evaluation);
+            if (rightValue == null) {
+                rightValue = FunctionalSet.empty();
+            }
+            if (!(rightValue instanceof Collection) && toBoolean(evaluation, rightValue, 1) != and) {
+                return Boolean.valueOf(!and);
+            }
+            
+            if (leftValue instanceof Collection && rightValue instanceof Collection) {
+                Collection<?> leftHits = (Collection<?>) leftValue;
+                Collection<?> rightHits = (Collection<?>) rightValue;
+                if (and && (leftHits.isEmpty() || rightHits.isEmpty())) {
+                    return Boolean.FALSE;
+                }
+                FunctionalSet functionalSet = new FunctionalSet(leftHits);
+                functionalSet.addAll(rightHits);
+                return functionalSet;
+            } else if (!and && leftValue instanceof Collection) {
+                return new FunctionalSet((Collection<?>) leftValue);
+            } else if (!and && rightValue instanceof Collection) {
+                return new FunctionalSet((Collection<?>) rightValue);
+            }
+            
+            // one side is a collection of hits and the other is true
+            boolean leftMatched = leftValue instanceof Collection ? !((Collection<?>) leftValue).isEmpty() : evaluation.arithmetic.toBoolean(leftValue);
+            boolean rightMatched = rightValue instanceof Collection ? !((Collection<?>) rightValue).isEmpty() : evaluation.arithmetic.toBoolean(rightValue);
+            return and ? leftMatched && rightMatched : leftMatched || rightMatched;
+        }
+        
+        private boolean toBoolean(Evaluation evaluation, Object value, int child) {
+            try {
+                return evaluation.arithmetic.toBoolean(value);
+            } catch (ArithmeticException xrt) {
+                throw new JexlException(node.jjtGetChild(child), "boolean coercion error", xrt);
+            }
+        }
+        
+        @Override
+        int getCost() {
+            return left.getCost() + right.getCost();
+        }
+    }
+    
+    /**
+     * A conjunction or disjunction of any number of nodes that all return a boolean value, such as field comparisons and functions, whose children are
+     * evaluated cheapest and most selective first. The children start out ordered by their estimated cost, and every {@value #REORDER_INTERVAL} evaluations
+     * they are reordered by their cost over the observed rate at which they short circuit the evaluation (are false in a conjunction or true in a
+     * disjunction), so that a cheap equality that rules out most documents is evaluated before an expensive phrase or regex function.
+     * <p>
+     * As every child returns a boolean value the order does not change the result. It can change the hits of a {@link HitListArithmetic}, as a junction stops
+     * at the first child that decides it: a disjunction at its first matching child, and a conjunction at its first failing child, which drops the hits of the
+     * children after it that matched, e.g. of A in (A && B) || C. So a junction is only reordered when the hits are not being collected.
+     */
+    static final class OrderedJunction extends CompiledNode {
+        static final int REORDER_INTERVAL = 128;
+        
+        final JexlNode node;
+        final boolean and;
+        final boolean reorder;
+        final CompiledNode[] children;
+        // the evaluations of each child, and the evaluations in which the child short circuited the junction
+        final long[] evaluated;
+        final long[] decided;
+        private long evaluations = 0;
+        
+        OrderedJunction(JexlNode node, boolean and, boolean reorder, List<CompiledNode> children) {
+            this.node = node;
+            this.and = and;
+            this.reorder = reorder;
+            this.children = children.toArray(new CompiledNode[children.size()]);
+            this.evaluated = new long[this.children.length];
+            this.decided = new long[this.children.length];
+            if (reorder) {
+                reorder();
+            }
+        }
+        
+        @Override
+        Object evaluate(Evaluation evaluation) {
+            boolean result = and;
+            for (int i = 0; i < children.length; i++) {
+                Object value = children[i].evaluate(evaluation);
+                evaluated[i]++;
+                // as in the interpreter, a null value does not short circuit the evaluation but fails a conjunction
+                if (value == null) {
+                    result = false;
+                    continue;
+                }
+                boolean matched;
+                try {
+                    matched = evaluation.arithmetic.toBoolean(value);
+                } catch (ArithmeticException xrt) {
+                    throw new JexlException(node, "boolean coercion error", xrt);
+                }
+                if (matched != and) {
+                    decided[i]++;
+                    result = matched;
+                    break;
+                }
+            }
+            if (reorder && ++evaluations % REORDER_INTERVAL == 0) {
+                reorder();
+            }
+            return Boolean.valueOf(result);
+        }
+        
+        /**
+         * Sorts the children by their cost over the smoothed rate at which they short circuit the evaluation, keeping the current order of equal children
+         */
+        private void reorder() {
+            double[] ranks = new double[children.length];
+            for (int i = 0; i < children.length; i++) {
+                ranks[i] = rank(i);
+            }
+            for (int i = 1; i < children.length; i++) {
+                for (int j = i; j > 0 && ranks[j] < ranks[j - 1]; j--) {
+                    swap(ranks, j, j - 1);
+                }
+            }
+        }
+        
+        private double rank(int child) {
+            double selectivity = (decided[child] + 1.0d) / (evaluated[child] + 2.0d);
+            return (children[child].getCost() + 1) / selectivity;
+        }
+        
+        private void swap(double[] ranks, int i, int j) {
+            double rank = ranks[i];
+            ranks[i] = ranks[j];
+            ranks[j] = rank;
+            CompiledNode child = children[i];
+            children[i] = children[j];
+            children[j] = child;
+            long count = evaluated[i];
+            evaluated[i] = evaluated[j];
+            evaluated[j] = count;
+            count = decided[i];
+            decided[i] = decided[j];
+            decided[j] = count;
+        }
+        
+        @Override
+        int getCost() {
+            int cost = 0;
+            for (CompiledNode child : children) {
+                cost += child.getCost();
+            }
+            return cost;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package datawave.query.jexl.compiler;
+
+import datawave.query.jexl.DatawaveJexlEngine;
+
+import org.apache.commons.jexl2.JexlArithmetic;
+import org.apache.commons.jexl2.JexlContext;
+
+/**
+ * A query compiled by the {@link JexlCompiler}, which is evaluated in place of the jexl script of the query. Like the arithmetic it is bound to, a compiled
+ * script is not meant to be shared between threads.
+ */
+public class CompiledScript {
+    
+    private final DatawaveJexlEngine engine;
+    private final JexlArithmetic arithmetic;
+    final CompiledNode root;
+    
+    CompiledScript(DatawaveJexlEngine engine, JexlArithmetic arithmetic, CompiledNode root) {
+        this.engine = engine;
+        this.arithmetic = arithmetic;
+        this.root = root;
+    }
+    
+    /**
+     * Evaluate the query against a context
+     * 
+     * @param context
+     *            the context of the document
+     * @return the same result as executing the script of the query against the context
+     */
+    public Object execute(JexlContext context) {
+        return root.evaluate(new CompiledNode.Evaluation(engine, arithmetic, context));
+    }
+}
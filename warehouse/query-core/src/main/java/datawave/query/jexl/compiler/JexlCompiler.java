@@ -0,0 +1,263 @@
+package datawave.query.jexl.compiler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import datawave.query.jexl.DatawaveJexlEngine;
+import datawave.query.jexl.HitListArithmetic;
+import datawave.query.jexl.compiler.CompiledNode.Comparison.Operator;
+import datawave.query.jexl.functions.ContentFunctions;
+
+import org.apache.commons.jexl2.JexlArithmetic;
+import org.apache.commons.jexl2.MapContext;
+import org.apache.commons.jexl2.parser.ASTAndNode;
+import org.apache.commons.jexl2.parser.ASTAssignment;
+import org.apache.commons.jexl2.parser.ASTEQNode;
+import org.apache.commons.jexl2.parser.ASTERNode;
+import org.apache.commons.jexl2.parser.ASTFalseNode;
+import org.apache.commons.jexl2.parser.ASTFunctionNode;
+import org.apache.commons.jexl2.parser.ASTGENode;
+import org.apache.commons.jexl2.parser.ASTGTNode;
+import org.apache.commons.jexl2.parser.ASTIdentifier;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.ASTLENode;
+import org.apache.commons.jexl2.parser.ASTLTNode;
+import org.apache.commons.jexl2.parser.ASTMethodNode;
+import org.apache.commons.jexl2.parser.ASTNENode;
+import org.apache.commons.jexl2.parser.ASTNRNode;
+import org.apache.commons.jexl2.parser.ASTNotNode;
+import org.apache.commons.jexl2.parser.ASTNullLiteral;
+import org.apache.commons.jexl2.parser.ASTNumberLiteral;
+import org.apache.commons.jexl2.parser.ASTOrNode;
+import org.apache.commons.jexl2.parser.ASTReference;
+import org.apache.commons.jexl2.parser.ASTReferenceExpression;
+import org.apache.commons.jexl2.parser.ASTStringLiteral;
+import org.apache.commons.jexl2.parser.ASTTrueNode;
+import org.apache.commons.jexl2.parser.ASTUnaryMinusNode;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.log4j.Logger;
+
+/**
+ * Compiles a jexl query into a tree of {@link CompiledNode}s that evaluates a document without walking the jexl tree with the interpreter. The field lookups,
+ * literals, comparisons, ranges and boolean operators of the query are bound once when the query is compiled: literals are evaluated up front, ranges are
+ * found once instead of for every and node of every document, and the arithmetic is called directly. Functions, methods and anything else that is not
+ * compiled are left to the {@link datawave.query.jexl.DatawaveInterpreter}, so the compiled query returns the same result as the script for every document.
+ * <p>
+ * The operands of conjunctions and disjunctions that all return a boolean value are evaluated in the order of their estimated cost and observed selectivity
+ * rather than in query order, see {@link CompiledNode.OrderedJunction}.
+ */
+public class JexlCompiler {
+    private static final Logger log = Logger.getLogger(JexlCompiler.class);
+    
+    // the estimated cost of a content function, such as a phrase, and of any other function
+    private static final int CONTENT_FUNCTION_COST = 50;
+    private static final int FUNCTION_COST = 10;
+    
+    private final DatawaveJexlEngine engine;
+    private final JexlArithmetic arithmetic;
+    
+    private JexlCompiler(DatawaveJexlEngine engine, JexlArithmetic arithmetic) {
+        this.engine = engine;
+        this.arithmetic = arithmetic;
+    }
+    
+    /**
+     * Compile a parsed query
+     * 
+     * @param engine
+     *            the engine the query was parsed with
+     * @param arithmetic
+     *            the arithmetic to evaluate the query with
+     * @param script
+     *            the parsed query
+     * @return the compiled query, or null if none of the query can be compiled and it is better left to the script
+     */
+    public static CompiledScript compile(DatawaveJexlEngine engine, JexlArithmetic arithmetic, ASTJexlScript script) {
+        if (script.jjtGetNumChildren() != 1) {
+            return null;
+        }
+        try {
+            CompiledNode root = new JexlCompiler(engine, arithmetic).compile(script.jjtGetChild(0));
+            if (root instanceof CompiledNode.Interpreted) {
+                return null;
+            }
+            return new CompiledScript(engine, arithmetic, root);
+        } catch (RuntimeException e) {
+            log.warn("Unable to compile the query, it will be interpreted", e);
+            return null;
+        }
+    }
+    
+    private CompiledNode compile(JexlNode node) {
+        node = dereference(node);
+        if (isConstant(node)) {
+            return new CompiledNode.Constant(engine.newInterpreter(new MapContext()).interpret(node));
+        } else if (node instanceof ASTIdentifier) {
+            return new CompiledNode.Identifier(node.image);
+        } else if (node instanceof ASTEQNode) {
+            return compileComparison(node, Operator.EQ);
+        } else if (node instanceof ASTNENode) {
+            return compileComparison(node, Operator.NE);
+        } else if (node instanceof ASTERNode) {
+            return compileMatch(node, Operator.ER);
+        } else if (node instanceof ASTNRNode) {
+            return compileMatch(node, Operator.NR);
+        } else if (node instanceof ASTLTNode) {
+            return compileComparison(node, Operator.LT);
+        } else if (node instanceof ASTLENode) {
+            return compileComparison(node, Operator.LE);
+        } else if (node instanceof ASTGTNode) {
+            return compileComparison(node, Operator.GT);
+        } else if (node instanceof ASTGENode) {
+            return compileComparison(node, Operator.GE);
+        } else if (node instanceof ASTNotNode) {
+            CompiledNode child = compile(node.jjtGetChild(0));
+            return child instanceof CompiledNode.Interpreted ? interpreted(node) : new CompiledNode.Not(child);
+        } else if (node instanceof ASTAndNode && node.jjtGetNumChildren() == 2) {
+            return compileAnd(node);
+        } else if (node instanceof ASTOrNode && node.jjtGetNumChildren() == 2) {
+            return compileJunction(node, false);
+        } else if (node instanceof ASTAssignment) {
+            return compileAssignment(node);
+        }
+        return interpreted(node);
+    }
+    
+    private CompiledNode compileComparison(JexlNode node, Operator operator) {
+        CompiledNode left = compile(node.jjtGetChild(0));
+        CompiledNode right = compile(node.jjtGetChild(1));
+        if (left instanceof CompiledNode.Interpreted && right instanceof CompiledNode.Interpreted) {
+            return interpreted(node);
+        }
+        return new CompiledNode.Comparison(node, operator, left, right);
+    }
+    
+    /**
+     * The interpreter only matches a regex against the left operand when the right operand is a string, so anything else is left to it
+     */
+    private CompiledNode compileMatch(JexlNode node, Operator operator) {
+        CompiledNode right = compile(node.jjtGetChild(1));
+        if (!(right instanceof CompiledNode.Constant) || !(((CompiledNode.Constant) right).value instanceof String)) {
+            return interpreted(node);
+        }
+        return new CompiledNode.Comparison(node, operator, compile(node.jjtGetChild(0)), right);
+    }
+    
+    private CompiledNode compileJunction(JexlNode node, boolean and) {
+        CompiledNode left = compile(node.jjtGetChild(0));
+        CompiledNode right = compile(node.jjtGetChild(1));
+        if (left instanceof CompiledNode.Interpreted && right instanceof CompiledNode.Interpreted && !isPredicate(left) && !isPredicate(right)) {
+            return interpreted(node);
+        }
+        if (isPredicate(left) && isPredicate(right)) {
+            // merge the nested junctions of the same kind, so that all of the operands of a chain like A && B && C can be reordered
+            List<CompiledNode> children = new ArrayList<>();
+            addOperands(children, left, and);
+            addOperands(children, right, and);
+            // the hits depend on which operands are evaluated, e.g. (A && B) || C only collects the hit of A when A is evaluated before B fails
+            boolean reorder = !(arithmetic instanceof HitListArithmetic);
+            return new CompiledNode.OrderedJunction(node, and, reorder, children);
+        }
+        return new CompiledNode.Junction(node, and, left, right);
+    }
+    
+    private static void addOperands(List<CompiledNode> operands, CompiledNode node, boolean and) {
+        if (node instanceof CompiledNode.OrderedJunction && ((CompiledNode.OrderedJunction) node).and == and) {
+            Collections.addAll(operands, ((CompiledNode.OrderedJunction) node).children);
+        } else {
+            operands.add(node);
+        }
+    }
+    
+    /**
+     * Does the node always return a boolean value, rather than a collection of hits or an arbitrary value
+     */
+    private static boolean isPredicate(CompiledNode node) {
+        if (node instanceof CompiledNode.Interpreted) {
+            return ((CompiledNode.Interpreted) node).predicate;
+        } else if (node instanceof CompiledNode.Assignment) {
+            return ((CompiledNode.Assignment) node).value instanceof Boolean;
+        }
+        return node instanceof CompiledNode.Comparison || node instanceof CompiledNode.Not || node instanceof CompiledNode.OrderedJunction;
+    }
+    
+    private CompiledNode interpreted(JexlNode node) {
+        boolean predicate = node instanceof ASTNotNode || node instanceof ASTERNode || node instanceof ASTNRNode || node instanceof ASTEQNode
+                        || node instanceof ASTNENode || (node instanceof ASTFunctionNode && !hasSiblings(node));
+        return new CompiledNode.Interpreted(node, estimateCost(node), predicate);
+    }
+    
+    private static int estimateCost(JexlNode node) {
+        if (node instanceof ASTFunctionNode) {
+            String namespace = node.jjtGetChild(0).image;
+            return ContentFunctions.CONTENT_FUNCTION_NAMESPACE.equals(namespace) ? CONTENT_FUNCTION_COST : FUNCTION_COST;
+        }
+        int cost = 1;
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            cost += estimateCost(node.jjtGetChild(i));
+        }
+        return cost;
+    }
+    
+    /**
+     * As in the interpreter, a function is paired with a method, such as {@code size()}, and returns its collection of hits when it has siblings
+     */
+    private static boolean hasSiblings(JexlNode node) {
+        JexlNode parent = node.jjtGetParent();
+        return parent != null && (parent.jjtGetNumChildren() > 1 || parent.jjtGetParent() instanceof ASTMethodNode);
+    }
+    
+    /**
+     * An and node of a lower and upper bound of the same field is evaluated by the interpreter as a range, which is compiled when the bounds are literals
+     */
+    private CompiledNode compileAnd(JexlNode node) {
+        JexlNode lower = node.jjtGetChild(0);
+        JexlNode upper = node.jjtGetChild(1);
+        if (lower instanceof ASTLENode || lower instanceof ASTLTNode) {
+            JexlNode temp = lower;
+            lower = upper;
+            upper = temp;
+        }
+        if ((lower instanceof ASTGENode || lower instanceof ASTGTNode) && (upper instanceof ASTLENode || upper instanceof ASTLTNode)) {
+            JexlNode lowerIdentifier = dereference(lower.jjtGetChild(0));
+            JexlNode upperIdentifier = dereference(upper.jjtGetChild(0));
+            if (lowerIdentifier instanceof ASTIdentifier && upperIdentifier instanceof ASTIdentifier && lowerIdentifier.image.equals(upperIdentifier.image)) {
+                CompiledNode lowerValue = compile(lower.jjtGetChild(1));
+                CompiledNode upperValue = compile(upper.jjtGetChild(1));
+                if (lowerValue instanceof CompiledNode.Constant && upperValue instanceof CompiledNode.Constant) {
+                    return new CompiledNode.Range(lowerIdentifier.image, ((CompiledNode.Constant) lowerValue).value, lower instanceof ASTGENode,
+                                    ((CompiledNode.Constant) upperValue).value, upper instanceof ASTLENode);
+                }
+                return interpreted(node);
+            }
+        }
+        return compileJunction(node, true);
+    }
+    
+    private CompiledNode compileAssignment(JexlNode node) {
+        JexlNode left = node.jjtGetChild(0);
+        if (left instanceof ASTReference && left.jjtGetNumChildren() == 1 && left.jjtGetChild(0) instanceof ASTIdentifier) {
+            CompiledNode right = compile(node.jjtGetChild(1));
+            if (right instanceof CompiledNode.Constant) {
+                return new CompiledNode.Assignment(left.jjtGetChild(0).image, ((CompiledNode.Constant) right).value);
+            }
+        }
+        return interpreted(node);
+    }
+    
+    private static JexlNode dereference(JexlNode node) {
+        while (node.jjtGetNumChildren() == 1 && (node instanceof ASTReferenceExpression || node instanceof ASTReference)) {
+            node = node.jjtGetChild(0);
+        }
+        return node;
+    }
+    
+    private static boolean isConstant(JexlNode node) {
+        if (node instanceof ASTUnaryMinusNode) {
+            return isConstant(dereference(node.jjtGetChild(0)));
+        }
+        return node instanceof ASTStringLiteral || node instanceof ASTNumberLiteral || node instanceof ASTTrueNode || node instanceof ASTFalseNode
+                        || node instanceof ASTNullLiteral;
+    }
+}
@@ -8,6 +8,7 @@ import com.google.common.collect.Sets;
 import datawave.core.iterators.SourcePool;
 import datawave.core.iterators.ThreadLocalPooledSource;
 import datawave.core.iterators.filesystem.FileSystemCache;
+import datawave.core.iterators.filesystem.LocalCacheDirQuota;
 import datawave.core.iterators.querylock.QueryLock;
 import datawave.query.Constants;
 import datawave.query.attributes.ValueTuple;
@@ -80,10 +81,13 @@ import org.apache.commons.jexl2.parser.ASTSizeMethod;
 import org.apache.commons.jexl2.parser.ASTStringLiteral;
 import org.apache.commons.jexl2.parser.JexlNode;
 import org.apache.commons.jexl2.parser.ParserTreeConstants;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocalFileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.Text;
 import org.apache.log4j.Logger;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URI;
@@ -124,6 +128,10 @@ public class IteratorBuildingVisitor extends BaseVisitor {
     protected String hdfsFileCompressionCodec;
     protected QueryLock queryLock;
     protected List<String> ivaratorCacheDirURIs;
+    protected List<String> ivaratorCacheLocalDirs;
+    protected long ivaratorCacheLocalMaxBytes = 0L;
+    protected long ivaratorCacheLocalMinFreeBytes = 1024L * 1024 * 1024;
+    protected long ivaratorCacheLocalExpiration = 1000L * 60 * 60 * 24;
     protected String queryId;
     protected String scanId;
     protected String ivaratorCacheSubDirPrefix = "";
@@ -985,8 +993,27 @@ public class IteratorBuildingVisitor extends BaseVisitor {
     }
     
     /**
-     * Create a cache directory path for a specified regex node. If alternatives have been specified, then random alternatives will be attempted until one is
-     * found that can be written to.
+     * Get the query and scan specific cache directory under a base cache directory
+     * 
+     * @param baseDirURI
+     * @param subdirectory
+     * @return A path
+     */
+    private Path getCacheDir(String baseDirURI, String subdirectory) {
+        Path path = new Path(baseDirURI, queryId);
+        if (scanId == null) {
+            log.warn("Running query iterator for " + queryId + " without a scan id.  This could cause ivarator directory conflicts.");
+        } else {
+            path = new Path(path, scanId);
+        }
+        return new Path(path, subdirectory);
+    }
+    
+    /**
+     * Create a cache directory path for a specified regex node. The local directories are attempted first. A local directory that already contains this
+     * ivarator's directory (i.e. from a previous scan session) is reused, otherwise a local directory is used only if the tserver's local quota and the
+     * volume's free space allow. If no local directory is available, then the alternatives will be attempted in order until one is found that can be written
+     * to.
      * 
      * @return A path
      */
@@ -994,22 +1021,51 @@ public class IteratorBuildingVisitor extends BaseVisitor {
         // first lets increment the count for a unique subdirectory
         String subdirectory = ivaratorCacheSubDirPrefix + "term" + Integer.toString(++ivaratorCount);
         
+        if (ivaratorCacheLocalDirs != null && !ivaratorCacheLocalDirs.isEmpty()) {
+            // the webserver cannot remove local directories, so remove those of queries that have not used them in a while
+            LocalCacheDirQuota.sweep(ivaratorCacheLocalDirs, ivaratorCacheLocalExpiration, queryId);
+            
+            // if a previous scan session already created this directory, then continue to use it to allow reuse of persisted results
+            for (String localDir : ivaratorCacheLocalDirs) {
+                Path path = getCacheDir(LocalCacheDirQuota.toFile(localDir).toURI().toString(), subdirectory);
+                if (new File(path.toUri().getPath()).exists()) {
+                    return path.toUri();
+                }
+            }
+            for (String localDir : ivaratorCacheLocalDirs) {
+                Path path = getCacheDir(LocalCacheDirQuota.toFile(localDir).toURI().toString(), subdirectory);
+                if (LocalCacheDirQuota.hasCapacity(localDir, ivaratorCacheLocalDirs, ivaratorCacheLocalMaxBytes, ivaratorCacheLocalMinFreeBytes)
+                                && isUsable(path)) {
+                    return path.toUri();
+                }
+            }
+        }
+        
         if (ivaratorCacheDirURIs != null && !ivaratorCacheDirURIs.isEmpty()) {
             for (int i = 0; i < ivaratorCacheDirURIs.size(); i++) {
-                String hdfsCacheDirURI = ivaratorCacheDirURIs.get(i);
-                Path path = new Path(hdfsCacheDirURI, queryId);
-                if (scanId == null) {
-                    log.warn("Running query iterator for " + queryId + " without a scan id.  This could cause ivarator directory conflicts.");
-                } else {
-                    path = new Path(path, scanId);
-                }
-                path = new Path(path, subdirectory);
+                Path path = getCacheDir(ivaratorCacheDirURIs.get(i), subdirectory);
                 if (isUsable(path)) {
                     return path.toUri();
                 }
             }
         }
-        throw new IOException("Unable to find a usable hdfs cache dir out of " + ivaratorCacheDirURIs);
+        throw new IOException("Unable to find a usable hdfs cache dir out of " + ivaratorCacheLocalDirs + " and " + ivaratorCacheDirURIs);
+    }
+    
+    /**
+     * Get the file system for a cache directory. For local directories the raw local file system is used as the checksum files are unnecessary overhead for
+     * the sorted set files which are verified when written.
+     * 
+     * @param path
+     * @return the file system
+     * @throws IOException
+     */
+    private FileSystem getCacheFileSystem(URI path) throws IOException {
+        FileSystem fs = hdfsFileSystem.getFileSystem(path);
+        if (fs instanceof LocalFileSystem) {
+            fs = ((LocalFileSystem) fs).getRawFileSystem();
+        }
+        return fs;
     }
     
     /**
@@ -1229,9 +1285,10 @@ public class IteratorBuildingVisitor extends BaseVisitor {
         builder.setDatatypeFilter(datatypeFilter);
         builder.setKeyTransform(fiAggregator);
         URI path = getTemporaryCacheDir();
-        builder.setHdfsFileSystem(hdfsFileSystem.getFileSystem(path));
+        builder.setHdfsFileSystem(getCacheFileSystem(path));
         builder.setHdfsFileCompressionCodec(hdfsFileCompressionCodec);
         builder.setQueryLock(queryLock);
+        builder.setQueryId(queryId);
         builder.setIvaratorCacheDirURI(path.toString());
         builder.setIvaratorCacheBufferSize(ivaratorCacheBufferSize);
         builder.setIvaratorCacheScanPersistThreshold(ivaratorCacheScanPersistThreshold);
@@ -1410,6 +1467,22 @@ public class IteratorBuildingVisitor extends BaseVisitor {
         return this;
     }
     
+    public IteratorBuildingVisitor setIvaratorCacheLocalDirs(List<String> ivaratorCacheLocalDirs) {
+        this.ivaratorCacheLocalDirs = ivaratorCacheLocalDirs;
+        return this;
+    }
+    
+    public IteratorBuildingVisitor setIvaratorCacheLocalQuota(long ivaratorCacheLocalMaxBytes, long ivaratorCacheLocalMinFreeBytes) {
+        this.ivaratorCacheLocalMaxBytes = ivaratorCacheLocalMaxBytes;
+        this.ivaratorCacheLocalMinFreeBytes = ivaratorCacheLocalMinFreeBytes;
+        return this;
+    }
+    
+    public IteratorBuildingVisitor setIvaratorCacheLocalExpiration(long ivaratorCacheLocalExpiration) {
+        this.ivaratorCacheLocalExpiration = ivaratorCacheLocalExpiration;
+        return this;
+    }
+    
     public IteratorBuildingVisitor setQueryId(String queryId) {
         this.queryId = queryId;
         return this;
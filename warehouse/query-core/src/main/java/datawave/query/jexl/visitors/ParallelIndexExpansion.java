@@ -14,9 +14,7 @@ import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.ThreadFactory;
 
 import datawave.data.type.Type;
 import datawave.query.model.QueryModel;
@@ -24,6 +22,7 @@ import datawave.query.Constants;
 import datawave.query.config.ShardQueryConfiguration;
 import datawave.query.exceptions.CannotExpandUnfieldedTermFatalException;
 import datawave.query.exceptions.DatawaveFatalQueryException;
+import datawave.query.index.lookup.IndexLookupScheduler;
 import datawave.query.jexl.JexlASTHelper;
 import datawave.query.jexl.JexlNodeFactory;
 import datawave.query.jexl.JexlNodeFactory.ContainerType;
@@ -38,7 +37,6 @@ import datawave.query.planner.pushdown.Cost;
 import datawave.query.planner.pushdown.CostEstimator;
 import datawave.query.tables.ScannerFactory;
 import datawave.query.util.MetadataHelper;
-import datawave.webservice.query.Query;
 
 import org.apache.accumulo.core.client.TableNotFoundException;
 import org.apache.commons.jexl2.parser.ASTAndNode;
@@ -115,35 +113,9 @@ public class ParallelIndexExpansion extends RebuildingVisitor {
         costAnalysis = new CostEstimator(config, scannerFactory, helper);
     }
     
-    protected class ParallelExpansionFactory implements ThreadFactory {
-        
-        private ThreadFactory dtf = Executors.defaultThreadFactory();
-        private int threadNum = 1;
-        private String threadIdentifier;
-        protected String name = "Datawave ParallelIndexExpansion";
-        
-        public ParallelExpansionFactory(Query query, String name) {
-            if (query == null || query.getId() == null) {
-                this.threadIdentifier = "(unknown)";
-            } else {
-                this.threadIdentifier = query.getId().toString();
-            }
-            this.name = name;
-        }
-        
-        public Thread newThread(Runnable r) {
-            Thread thread = dtf.newThread(r);
-            thread.setName(name + " Session " + threadIdentifier + " -" + threadNum++);
-            thread.setDaemon(true);
-            thread.setUncaughtExceptionHandler(config.getQuery().getUncaughtExceptionHandler());
-            return thread;
-        }
-        
-    }
-    
     protected void setupThreadResources() {
         int threads = this.config.getNumIndexLookupThreads().intValue();
-        executor = Executors.newFixedThreadPool((int) Math.max(Math.ceil(threads), 10), new ParallelExpansionFactory(this.config.getQuery(), this.threadName));
+        executor = IndexLookupScheduler.getInstance().newLookupExecutor(this.config.getQuery(), this.threadName, (int) Math.max(Math.ceil(threads), 10));
     }
     
     @Override
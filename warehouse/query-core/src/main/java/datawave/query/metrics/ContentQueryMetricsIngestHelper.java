@@ -83,6 +83,25 @@ public class ContentQueryMetricsIngestHelper extends CSVIngestHelper implements
         return normalize(delegate.getEventFieldsToWrite(updatedQueryMetric));
     }
     
+    /**
+     * Get the fields of the updated metric that are not already stored, so that only the changed values and new page metrics are written
+     * 
+     * @param updatedQueryMetric
+     *            the updated metric
+     * @param storedQueryMetric
+     *            the last stored metric, or null to write every field
+     * @return the fields to write
+     */
+    public Multimap<String,NormalizedContentInterface> getEventFieldsToWrite(BaseQueryMetric updatedQueryMetric, BaseQueryMetric storedQueryMetric) {
+        Multimap<String,String> fields = delegate.getEventFieldsToWrite(updatedQueryMetric);
+        if (storedQueryMetric != null) {
+            for (Map.Entry<String,String> storedField : delegate.getEventFieldsToWrite(storedQueryMetric).entries()) {
+                fields.remove(storedField.getKey(), storedField.getValue());
+            }
+        }
+        return normalize(fields);
+    }
+    
     @Override
     public boolean isTermFrequencyField(String field) {
         return contentIndexFields.contains(field);
@@ -230,12 +249,20 @@ public class ContentQueryMetricsIngestHelper extends CSVIngestHelper implements
             fields.put("SEEK_COUNT", Long.toString(updatedQueryMetric.getSeekCount()));
             fields.put("DOC_RANGES", Long.toString(updatedQueryMetric.getDocRanges()));
             fields.put("FI_RANGES", Long.toString(updatedQueryMetric.getFiRanges()));
+            fields.put("PREFETCHED_RESULTS", Long.toString(updatedQueryMetric.getPrefetchedResults()));
+            fields.put("PREFETCHED_BYTES", Long.toString(updatedQueryMetric.getPrefetchedBytes()));
             Set<Prediction> predictions = updatedQueryMetric.getPredictions();
             if (predictions != null && predictions.isEmpty() == false) {
                 for (Prediction prediction : predictions) {
                     fields.put("PREDICTION", prediction.getName() + ":" + prediction.getPrediction());
                 }
             }
+            Map<String,Long> delegateLatencies = updatedQueryMetric.getDelegateLatencies();
+            if (delegateLatencies != null) {
+                for (Map.Entry<String,Long> delegateLatency : delegateLatencies.entrySet()) {
+                    fields.put("DELEGATE_LATENCY", delegateLatency.getKey() + ":" + delegateLatency.getValue());
+                }
+            }
             
             putExtendedFieldsToWrite(updatedQueryMetric, fields);
             
@@ -330,6 +357,21 @@ public class ContentQueryMetricsIngestHelper extends CSVIngestHelper implements
             if (updatedQueryMetric.getFiRanges() != storedQueryMetric.getFiRanges()) {
                 fields.put("FI_RANGES", Long.toString(storedQueryMetric.getFiRanges()));
             }
+            if (updatedQueryMetric.getPrefetchedResults() != storedQueryMetric.getPrefetchedResults()) {
+                fields.put("PREFETCHED_RESULTS", Long.toString(storedQueryMetric.getPrefetchedResults()));
+            }
+            if (updatedQueryMetric.getPrefetchedBytes() != storedQueryMetric.getPrefetchedBytes()) {
+                fields.put("PREFETCHED_BYTES", Long.toString(storedQueryMetric.getPrefetchedBytes()));
+            }
+            Map<String,Long> storedLatencies = storedQueryMetric.getDelegateLatencies();
+            if (storedLatencies != null) {
+                Map<String,Long> updatedLatencies = updatedQueryMetric.getDelegateLatencies();
+                for (Map.Entry<String,Long> delegateLatency : storedLatencies.entrySet()) {
+                    if (updatedLatencies == null || !delegateLatency.getValue().equals(updatedLatencies.get(delegateLatency.getKey()))) {
+                        fields.put("DELEGATE_LATENCY", delegateLatency.getKey() + ":" + delegateLatency.getValue());
+                    }
+                }
+            }
             
             putExtendedFieldsToDelete(updatedQueryMetric, fields);
             
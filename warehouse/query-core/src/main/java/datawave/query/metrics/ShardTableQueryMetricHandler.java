@@ -16,7 +16,10 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
 
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
@@ -27,6 +30,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.Striped;
 
 import datawave.configuration.DatawaveEmbeddedProjectStageHolder;
 import datawave.data.hash.UID;
@@ -60,7 +64,6 @@ import datawave.webservice.query.logic.QueryLogicFactory;
 import datawave.webservice.query.metric.BaseQueryMetric;
 import datawave.webservice.query.metric.BaseQueryMetric.PageMetric;
 import datawave.webservice.query.metric.BaseQueryMetric.Lifecycle;
-import datawave.webservice.query.metric.BaseQueryMetricListResponse;
 import datawave.webservice.query.metric.QueryMetric;
 import datawave.webservice.query.metric.QueryMetricListResponse;
 import datawave.webservice.query.metric.QueryMetricsDetailListResponse;
@@ -145,6 +148,18 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
     @SuppressWarnings("unchecked")
     private static Map metricsCache = Collections.synchronizedMap(new LRUMap(5000));
     
+    // the number of queries with pending updates at which the updates are written without waiting for a flush
+    private static final int MAX_PENDING_UPDATES = 1000;
+    
+    // the updates that have not been written yet, coalesced per query id
+    private final ConcurrentMap<String,QueryMetric> pendingUpdates = new ConcurrentHashMap<>();
+    
+    // the last metric written for each query since the record writer was last flushed, to write again if the flush fails
+    private final ConcurrentMap<String,QueryMetric> unflushedUpdates = new ConcurrentHashMap<>();
+    
+    // static like the metrics cache, to order the writes of a query across instances of this class
+    private static final Striped<Lock> queryLocks = Striped.lock(64);
+    
     private final Configuration conf = new Configuration();
     private final StatusReporter reporter = new MockStatusReporter();
     private final AtomicBoolean tablesChecked = new AtomicBoolean(false);
@@ -194,9 +209,34 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
         this.recordWriter.close(null);
     }
     
+    /**
+     * Writes the pending updates and flushes the record writer. If the flush fails, the metrics written since the last flush are evicted from the cache and
+     * queued again, so that the next flush writes them in full, deleting whatever values of them did reach the table.
+     */
     @Override
     public void flush() throws Exception {
-        this.recordWriter.flush();
+        writePendingUpdates();
+        Map<String,QueryMetric> written = new HashMap<>(unflushedUpdates);
+        try {
+            this.recordWriter.flush();
+        } catch (Exception e) {
+            for (Entry<String,QueryMetric> entry : written.entrySet()) {
+                Lock lock = queryLocks.get(entry.getKey());
+                lock.lock();
+                try {
+                    if (unflushedUpdates.remove(entry.getKey(), entry.getValue())) {
+                        metricsCache.remove(entry.getKey());
+                        requeueUpdate(entry.getValue());
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            throw e;
+        }
+        for (Entry<String,QueryMetric> entry : written.entrySet()) {
+            unflushedUpdates.remove(entry.getKey(), entry.getValue());
+        }
     }
     
     private void verifyTables() {
@@ -219,7 +259,7 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
         }
     }
     
-    private void writeMetrics(QueryMetric updatedQueryMetric, List<QueryMetric> storedQueryMetrics, Date lastUpdated, boolean delete) throws Exception {
+    protected void writeMetrics(QueryMetric updatedQueryMetric, QueryMetric storedQueryMetric, Date lastUpdated, boolean delete) throws Exception {
         LiveContextWriter contextWriter = null;
         
         MapContext<Text,RawRecordContainer,Text,Mutation> context = null;
@@ -231,23 +271,21 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
             TaskAttemptID taskId = new TaskAttemptID(new TaskID(new JobID(JOB_ID, 1), TaskType.MAP, 1), 1);
             context = new MapContextImpl<>(conf, taskId, null, recordWriter, null, reporter, null);
             
-            for (QueryMetric storedQueryMetric : storedQueryMetrics) {
-                AbstractColumnBasedHandler<Key> handler = new ContentQueryMetricsHandler<>();
-                handler.setup(context);
-                
-                Multimap<BulkIngestKey,Value> r = getEntries(handler, updatedQueryMetric, storedQueryMetric, lastUpdated, delete);
+            AbstractColumnBasedHandler<Key> handler = new ContentQueryMetricsHandler<>();
+            handler.setup(context);
+            
+            Multimap<BulkIngestKey,Value> r = getEntries(handler, updatedQueryMetric, storedQueryMetric, lastUpdated, delete);
+            
+            try {
+                if (r != null) {
+                    contextWriter.write(r, context);
+                }
                 
-                try {
-                    if (r != null) {
-                        contextWriter.write(r, context);
-                    }
-                    
-                    if (handler.getMetadata() != null) {
-                        contextWriter.write(handler.getMetadata().getBulkMetadata(), context);
-                    }
-                } finally {
-                    contextWriter.commit(context);
+                if (handler.getMetadata() != null) {
+                    contextWriter.write(handler.getMetadata().getBulkMetadata(), context);
                 }
+            } finally {
+                contextWriter.commit(context);
             }
         } finally {
             if (contextWriter != null && context != null) {
@@ -275,28 +313,31 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
         
         ingestHelper.setup(conf);
         
+        // deletes are written for the stored metric, and the changes since the stored metric for the updated one
+        QueryMetric eventQueryMetric = delete ? storedQueryMetric : updatedQueryMetric;
+        
         RawRecordContainerImpl event = new RawRecordContainerImpl();
         event.setConf(this.conf);
         event.setDataType(type);
-        event.setDate(storedQueryMetric.getCreateDate().getTime());
+        event.setDate(eventQueryMetric.getCreateDate().getTime());
         // get security marking set in the config, otherwise default to PUBLIC
         if (visibilityString != null) {
             event.setVisibility(new ColumnVisibility(visibilityString));
         } else {
             event.setVisibility(new ColumnVisibility(DEFAULT_SECURITY_MARKING));
         }
-        event.setAuxData(storedQueryMetric);
+        event.setAuxData(eventQueryMetric);
         event.setRawRecordNumber(1000L);
         
         // must happen after validate
-        event.setId(uidBuilder.newId(storedQueryMetric.getQueryId().getBytes(), (Date) null));
+        event.setId(uidBuilder.newId(eventQueryMetric.getQueryId().getBytes(), (Date) null));
         
         final Multimap<String,NormalizedContentInterface> fields;
         
         if (delete) {
             fields = ingestHelper.getEventFieldsToDelete(updatedQueryMetric, storedQueryMetric);
         } else {
-            fields = ingestHelper.getEventFieldsToWrite(updatedQueryMetric);
+            fields = ingestHelper.getEventFieldsToWrite(updatedQueryMetric, storedQueryMetric);
         }
         
         Key key = new Key();
@@ -342,7 +383,7 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
                 entry.getKey().getKey().setTimestamp(lastUpdated.getTime());
             } else {
                 // this will ensure that the QueryMetrics can be found within second precision in most cases
-                entry.getKey().getKey().setTimestamp(storedQueryMetric.getCreateDate().getTime() + storedQueryMetric.getNumUpdates());
+                entry.getKey().getKey().setTimestamp(eventQueryMetric.getCreateDate().getTime() + eventQueryMetric.getNumUpdates());
             }
             entry.getKey().getKey().setDeleted(delete);
         }
@@ -350,100 +391,150 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
         return r;
     }
     
-    @SuppressWarnings("unchecked")
+    /**
+     * Coalesces the update with any other updates of the same query that have not been written yet. The updates are written by {@link #flush()}, or once
+     * {@value #MAX_PENDING_UPDATES} queries have pending updates, so that a busy query is written once per batch rather than once per update.
+     */
     @Override
     public void updateMetric(QueryMetric updatedQueryMetric, DatawavePrincipal datawavePrincipal) throws Exception {
-        Date lastUpdated = updatedQueryMetric.getLastUpdated();
+        final QueryMetric update = (QueryMetric) updatedQueryMetric.duplicate();
+        pendingUpdates.compute(updatedQueryMetric.getQueryId(), (queryId, pending) -> {
+            if (pending != null) {
+                update.setPageTimes(mergePageMetrics(pending.getPageTimes(), update.getPageTimes()));
+            }
+            return update;
+        });
         
+        if (pendingUpdates.size() >= MAX_PENDING_UPDATES) {
+            writePendingUpdates();
+        }
+    }
+    
+    private void writePendingUpdates() throws Exception {
         try {
             enableLogs(false);
-            String sid = updatedQueryMetric.getUser();
-            if (sid == null) {
-                sid = datawavePrincipal.getShortName();
-            }
-            
-            // find and remove previous entries
-            BaseQueryMetricListResponse response = new QueryMetricListResponse();
-            Date end = new Date();
-            Date begin = DateUtils.setYears(end, 2000);
-            
-            // user's DatawavePrincipal must have the Administrator role to use the Metrics query logic
-            QueryMetric cachedQueryMetric;
-            QueryMetric newCachedQueryMetric;
-            synchronized (ShardTableQueryMetricHandler.class) {
-                cachedQueryMetric = (QueryMetric) metricsCache.get(updatedQueryMetric.getQueryId());
-                // duplicate updatedQueryMetric because we're counting on the cache to be a snapshot of the QueryMetric
-                // so that we can retrieve it next update call to create the delete Mutations for the values written to Accumulo
-                Map<Long,PageMetric> storedPageMetricMap = new TreeMap<>();
-                if (cachedQueryMetric != null) {
-                    List<PageMetric> cachedPageMetrics = cachedQueryMetric.getPageTimes();
-                    if (cachedPageMetrics != null) {
-                        for (PageMetric p : cachedPageMetrics) {
-                            storedPageMetricMap.put(p.getPageNumber(), p);
+            for (String queryId : pendingUpdates.keySet()) {
+                // the updates of a query are written in order, but the updates of different queries do not wait on each other
+                Lock lock = queryLocks.get(queryId);
+                lock.lock();
+                try {
+                    QueryMetric updatedQueryMetric = pendingUpdates.remove(queryId);
+                    if (updatedQueryMetric != null) {
+                        try {
+                            writeUpdate(updatedQueryMetric);
+                        } catch (Exception e) {
+                            // the cache was not updated, so the update is written again by the next flush
+                            requeueUpdate(updatedQueryMetric);
+                            throw e;
                         }
                     }
+                } finally {
+                    lock.unlock();
                 }
-                // combine all of the page metrics from the cached metric and the updated metric
-                for (PageMetric p : updatedQueryMetric.getPageTimes()) {
-                    storedPageMetricMap.put(p.getPageNumber(), p);
-                }
-                newCachedQueryMetric = (QueryMetric) updatedQueryMetric.duplicate();
-                ArrayList<PageMetric> newPageMetrics = new ArrayList<>();
-                newPageMetrics.addAll(storedPageMetricMap.values());
-                newCachedQueryMetric.setPageTimes(newPageMetrics);
-                metricsCache.put(updatedQueryMetric.getQueryId(), newCachedQueryMetric);
             }
-            
-            List<QueryMetric> queryMetrics = new ArrayList<>();
-            queryMetrics.add(new QueryMetric());
-            
-            if (cachedQueryMetric == null) {
-                // if numPages > 0 or Lifecycle > DEFINED, then we should have a metric cached already
-                // if we don't, then query for the current stored metric
-                if (updatedQueryMetric.getNumPages() > 0 || updatedQueryMetric.getLifecycle().compareTo(Lifecycle.DEFINED) > 0) {
-                    QueryImpl query = new QueryImpl();
-                    query.setBeginDate(begin);
-                    query.setEndDate(end);
-                    query.setQueryLogicName(QUERY_METRICS_LOGIC_NAME);
-                    query.setQuery("QUERY_ID == '" + updatedQueryMetric.getQueryId() + "'");
-                    query.setQueryName(QUERY_METRICS_LOGIC_NAME);
-                    query.setColumnVisibility(visibilityString);
-                    query.setQueryAuthorizations(connectorAuthorizations);
-                    query.setUserDN(sid);
-                    query.setExpirationDate(DateUtils.addDays(new Date(), 1));
-                    query.setPagesize(1000);
-                    query.setId(UUID.randomUUID());
-                    query.setParameters(ImmutableMap.of(QueryOptions.INCLUDE_GROUPING_CONTEXT, "true"));
-                    queryMetrics = getQueryMetrics(response, query, callerPrincipal);
+        } finally {
+            enableLogs(true);
+        }
+    }
+    
+    /**
+     * Queue an update that failed to be written, keeping any newer update of the query that was queued in the meantime
+     */
+    private void requeueUpdate(QueryMetric failedQueryMetric) {
+        pendingUpdates.merge(failedQueryMetric.getQueryId(), failedQueryMetric, (pending, failed) -> {
+            pending.setPageTimes(mergePageMetrics(failed.getPageTimes(), pending.getPageTimes()));
+            return pending;
+        });
+    }
+    
+    /**
+     * Writes the changes of the metric since it was last written: deletes for the values it replaces and the changed fields and new page metrics. The last
+     * written metric is kept in the metrics cache. If the metric is not cached, but was already written before it fell out of the cache or before a restart,
+     * then its stored values are read from the shard table and deleted, and it is written in full.
+     * 
+     * The read cannot be avoided by writing entries that replace the stored ones. The metric is written as an event of the shard table, so the value of each
+     * field is part of the keys of its event, field index and global index entries (FIELD\0value, fi\0FIELD value, and the value as the row of the index). A
+     * new value of a field, or of a page metric, is a new key rather than a new version of the old one, and the old key is only removed by a delete that
+     * names its value. QueryMetricQueryLogic queries the metrics through these keys, so they cannot be keyed by field name or page number instead.
+     */
+    private void writeUpdate(QueryMetric updatedQueryMetric) throws Exception {
+        Date lastUpdated = updatedQueryMetric.getLastUpdated();
+        QueryMetric storedQueryMetric = (QueryMetric) metricsCache.get(updatedQueryMetric.getQueryId());
+        List<PageMetric> storedPageMetrics = null;
+        
+        long nextUpdateNumber = 1;
+        if (storedQueryMetric != null) {
+            writeMetrics(updatedQueryMetric, storedQueryMetric, lastUpdated, true);
+            nextUpdateNumber = storedQueryMetric.getNumUpdates() + 1;
+            storedPageMetrics = storedQueryMetric.getPageTimes();
+        } else if (updatedQueryMetric.getNumPages() > 0 || updatedQueryMetric.getLifecycle().compareTo(Lifecycle.DEFINED) > 0) {
+            // if numPages > 0 or Lifecycle > DEFINED, then the metric should have been written already
+            for (QueryMetric m : getStoredQueryMetrics(updatedQueryMetric)) {
+                if (m == null) {
+                    continue;
                 }
-            } else {
-                queryMetrics = Collections.singletonList(cachedQueryMetric);
-            }
-            
-            if (queryMetrics.size() > 0) {
-                writeMetrics(updatedQueryMetric, queryMetrics, lastUpdated, true);
+                writeMetrics(updatedQueryMetric, m, lastUpdated, true);
+                nextUpdateNumber = Math.max(nextUpdateNumber, m.getNumUpdates() + 1);
+                storedPageMetrics = mergePageMetrics(storedPageMetrics, m.getPageTimes());
             }
-            
-            long nextUpdateNumber = 0;
-            
-            for (BaseQueryMetric m : queryMetrics) {
-                if ((m.getNumUpdates() + 1) > nextUpdateNumber) {
-                    nextUpdateNumber = m.getNumUpdates() + 1;
-                }
+        }
+        updatedQueryMetric.setNumUpdates(nextUpdateNumber);
+        
+        // write the changed fields, or every field if the metric was not cached
+        writeMetrics(updatedQueryMetric, storedQueryMetric, lastUpdated, false);
+        
+        // cache a snapshot of the written metric, with all of its page metrics, to create the deletes and changes of the next update
+        QueryMetric newCachedQueryMetric = (QueryMetric) updatedQueryMetric.duplicate();
+        newCachedQueryMetric.setPageTimes(mergePageMetrics(storedPageMetrics, updatedQueryMetric.getPageTimes()));
+        metricsCache.put(updatedQueryMetric.getQueryId(), newCachedQueryMetric);
+        unflushedUpdates.put(updatedQueryMetric.getQueryId(), newCachedQueryMetric);
+    }
+    
+    /**
+     * Reads the stored values of a metric that is not cached from the shard table
+     * 
+     * @param updatedQueryMetric
+     *            the updated metric
+     * @return the stored metrics with the query id of the updated metric
+     */
+    protected List<QueryMetric> getStoredQueryMetrics(QueryMetric updatedQueryMetric) {
+        String sid = updatedQueryMetric.getUser();
+        if (sid == null) {
+            sid = callerPrincipal.getShortName();
+        }
+        Date end = new Date();
+        Date begin = DateUtils.setYears(end, 2000);
+        
+        // user's DatawavePrincipal must have the Administrator role to use the Metrics query logic
+        QueryImpl query = new QueryImpl();
+        query.setBeginDate(begin);
+        query.setEndDate(end);
+        query.setQueryLogicName(QUERY_METRICS_LOGIC_NAME);
+        query.setQuery("QUERY_ID == '" + updatedQueryMetric.getQueryId() + "'");
+        query.setQueryName(QUERY_METRICS_LOGIC_NAME);
+        query.setColumnVisibility(visibilityString);
+        query.setQueryAuthorizations(connectorAuthorizations);
+        query.setUserDN(sid);
+        query.setExpirationDate(DateUtils.addDays(new Date(), 1));
+        query.setPagesize(1000);
+        query.setId(UUID.randomUUID());
+        query.setParameters(ImmutableMap.of(QueryOptions.INCLUDE_GROUPING_CONTEXT, "true"));
+        return getQueryMetrics(new QueryMetricListResponse(), query, callerPrincipal);
+    }
+    
+    private static ArrayList<PageMetric> mergePageMetrics(List<PageMetric> pageMetrics, List<PageMetric> updatedPageMetrics) {
+        Map<Long,PageMetric> pageMetricMap = new TreeMap<>();
+        if (pageMetrics != null) {
+            for (PageMetric p : pageMetrics) {
+                pageMetricMap.put(p.getPageNumber(), p);
             }
-            
-            updatedQueryMetric.setNumUpdates(nextUpdateNumber);
-            
-            synchronized (ShardTableQueryMetricHandler.class) {
-                newCachedQueryMetric.setNumUpdates(nextUpdateNumber);
-                metricsCache.put(updatedQueryMetric.getQueryId(), newCachedQueryMetric);
+        }
+        if (updatedPageMetrics != null) {
+            for (PageMetric p : updatedPageMetrics) {
+                pageMetricMap.put(p.getPageNumber(), p);
             }
-            
-            // write new entry
-            writeMetrics(updatedQueryMetric, Collections.singletonList(updatedQueryMetric), lastUpdated, false);
-        } finally {
-            enableLogs(true);
         }
+        return new ArrayList<>(pageMetricMap.values());
     }
     
     private List<QueryMetric> getQueryMetrics(BaseResponse response, Query query, DatawavePrincipal datawavePrincipal) {
@@ -704,7 +795,10 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
                         
                         String[] parts = StringUtils.split(fieldValue, "/");
                         PageMetric pageMetric = null;
-                        if (parts.length == 7) {
+                        if (parts.length == 8) {
+                            pageMetric = new PageMetric(Long.valueOf(parts[0]), Long.valueOf(parts[1]), Long.valueOf(parts[2]), Long.valueOf(parts[3]),
+                                            Long.valueOf(parts[4]), Long.valueOf(parts[5]), Long.valueOf(parts[6]), Long.valueOf(parts[7]));
+                        } else if (parts.length == 7) {
                             pageMetric = new PageMetric(Long.valueOf(parts[0]), Long.valueOf(parts[1]), Long.valueOf(parts[2]), Long.valueOf(parts[3]),
                                             Long.valueOf(parts[4]), Long.valueOf(parts[5]), Long.valueOf(parts[6]));
                         } else if (parts.length == 5) {
@@ -775,6 +869,19 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
                 
                 else if (fieldName.equals("FI_RANGES")) {
                     m.setFiRanges(Long.parseLong(fieldValue));
+                }
+                
+                else if (fieldName.equals("PREFETCHED_RESULTS")) {
+                    m.setPrefetchedResults(Long.parseLong(fieldValue));
+                }
+                
+                else if (fieldName.equals("PREFETCHED_BYTES")) {
+                    m.setPrefetchedBytes(Long.parseLong(fieldValue));
+                }
+                
+                else if (fieldName.equals("DELEGATE_LATENCY")) {
+                    int separator = fieldValue.lastIndexOf(':');
+                    m.addDelegateLatency(fieldValue.substring(0, separator), Long.parseLong(fieldValue.substring(separator + 1)));
                 } else {
                     log.error("encountered unanticipated field name: " + fieldName);
                 }
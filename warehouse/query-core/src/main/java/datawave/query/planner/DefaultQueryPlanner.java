@@ -1465,8 +1465,15 @@ public class DefaultQueryPlanner extends QueryPlanner {
      * Get the list of alternatives, randomizing the order so that the tserver spread out the disk usage.
      */
     protected String getIvaratorQueryCacheBaseUriAlternatives(ShardQueryConfiguration config) {
+        return getRandomizedAlternatives(config.getIvaratorCacheBaseURIsAsList());
+    }
+    
+    /**
+     * Randomize the order of a list of alternatives, returning them as a comma delimited string.
+     */
+    protected String getRandomizedAlternatives(List<String> alternativeList) {
         StringBuilder baseUriAlternatives = new StringBuilder();
-        List<String> alternatives = new LinkedList<>(config.getIvaratorCacheBaseURIsAsList());
+        List<String> alternatives = new LinkedList<>(alternativeList);
         Random random = new Random();
         while (!alternatives.isEmpty()) {
             if (baseUriAlternatives.length() > 0) {
@@ -1522,6 +1529,14 @@ public class DefaultQueryPlanner extends QueryPlanner {
                             if (config.getIvaratorCacheBaseURIs() != null) {
                                 addOption(cfg, QueryOptions.IVARATOR_CACHE_BASE_URI_ALTERNATIVES, getIvaratorQueryCacheBaseUriAlternatives(config), false);
                             }
+                            if (config.getIvaratorCacheLocalDirs() != null) {
+                                addOption(cfg, QueryOptions.IVARATOR_CACHE_LOCAL_DIRS, getRandomizedAlternatives(config.getIvaratorCacheLocalDirsAsList()),
+                                                false);
+                                addOption(cfg, QueryOptions.IVARATOR_CACHE_LOCAL_MAX_BYTES, Long.toString(config.getIvaratorCacheLocalMaxBytes()), false);
+                                addOption(cfg, QueryOptions.IVARATOR_CACHE_LOCAL_MIN_FREE_BYTES, Long.toString(config.getIvaratorCacheLocalMinFreeBytes()),
+                                                false);
+                                addOption(cfg, QueryOptions.IVARATOR_CACHE_LOCAL_EXPIRATION, Long.toString(config.getIvaratorCacheLocalExpiration()), false);
+                            }
                             addOption(cfg, QueryOptions.IVARATOR_CACHE_BUFFER_SIZE, Integer.toString(config.getIvaratorCacheBufferSize()), false);
                             addOption(cfg, QueryOptions.IVARATOR_SCAN_PERSIST_THRESHOLD, Long.toString(config.getIvaratorCacheScanPersistThreshold()), false);
                             addOption(cfg, QueryOptions.IVARATOR_SCAN_TIMEOUT, Long.toString(config.getIvaratorCacheScanTimeout()), false);
@@ -1530,6 +1545,7 @@ public class DefaultQueryPlanner extends QueryPlanner {
                             addOption(cfg, QueryOptions.MAX_IVARATOR_OPEN_FILES, Integer.toString(config.getIvaratorMaxOpenFiles()), false);
                             addOption(cfg, QueryOptions.MAX_EVALUATION_PIPELINES, Integer.toString(config.getMaxEvaluationPipelines()), false);
                             addOption(cfg, QueryOptions.MAX_PIPELINE_CACHED_RESULTS, Integer.toString(config.getMaxPipelineCachedResults()), false);
+                            addOption(cfg, QueryOptions.ADAPTIVE_EVALUATION_PIPELINES, Boolean.toString(config.isAdaptiveEvaluationPipelines()), false);
                             addOption(cfg, QueryOptions.MAX_IVARATOR_SOURCES, Integer.toString(config.getMaxIvaratorSources()), false);
                             
                             if (config.getYieldThresholdMs() != Long.MAX_VALUE && config.getYieldThresholdMs() > 0) {
@@ -1780,6 +1796,7 @@ public class DefaultQueryPlanner extends QueryPlanner {
         addOption(cfg, QueryOptions.ALLOW_FIELD_INDEX_EVALUATION, Boolean.toString(config.isAllowFieldIndexEvaluation()), false);
         addOption(cfg, QueryOptions.ALLOW_TERM_FREQUENCY_LOOKUP, Boolean.toString(config.isAllowTermFrequencyLookup()), false);
         addOption(cfg, QueryOptions.COMPRESS_SERVER_SIDE_RESULTS, Boolean.toString(config.isCompressServerSideResults()), false);
+        addOption(cfg, QueryOptions.RESULT_BATCH_SIZE, Integer.toString(config.getResultBatchSize()), false);
     }
     
     /**
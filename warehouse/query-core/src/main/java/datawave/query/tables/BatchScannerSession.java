@@ -16,6 +16,8 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.accumulo.core.client.impl.ScannerOptions;
 import org.apache.accumulo.core.client.impl.TabletLocator;
@@ -58,6 +60,11 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
     
     private static final double QUEUE_MULTIPLIER = 25;
     
+    /**
+     * The max time to wait for a scan completion signal before rechecking whether this session is still running.
+     */
+    private static final long MAX_PARK_MILLIS = 100;
+    
     /**
      * Delegates scanners to us, blocking if none are available or used by other sources.
      */
@@ -100,6 +107,13 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
     
     protected AtomicInteger runnableCount = new AtomicInteger(0);
     
+    /**
+     * Signalled whenever a scan completes (or fails) so that the scheduling loop can submit more work as soon as capacity frees up.
+     */
+    protected final ReentrantLock scanCompletionLock = new ReentrantLock();
+    
+    protected final Condition scanCompleted = scanCompletionLock.newCondition();
+    
     protected boolean backoffEnabled = false;
     
     protected boolean speculativeScanning = false;
@@ -296,10 +310,15 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
                 
             } else {
                 if (log.isTraceEnabled()) {
-                    log.trace("Parking for 10 milliseconds until we have additional work that can be done; " + threadCount + " "
+                    log.trace("Parking until a scan completes and we have additional work that can be done; " + threadCount + " "
                                     + (threadCount * RANGE_MULTIPLIER) + " " + currentBatch.size() + " >= " + (threadCount * QUEUE_MULTIPLIER));
                 }
-                Thread.sleep(10);
+                try {
+                    awaitRunnableBelow(threadCount * RANGE_MULTIPLIER);
+                } catch (InterruptedException e) {
+                    service.shutdownNow();
+                    throw new InterruptedException("Interrupted while parking");
+                }
                 if (Thread.interrupted() || !isRunning()) {
                     service.shutdownNow();
                     throw new InterruptedException("Interrupted while parking");
@@ -310,27 +329,57 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
         if (log.isTraceEnabled())
             log.trace("waiting " + runnableCount.get());
         submitTasks();
-        while (runnableCount.get() > 0) {
-            Thread.sleep(1);
-            // if a failure did not occur, let's check the interrupted status
-            if (isRunning()) {
-                
-                if (Thread.interrupted()) {
-                    service.shutdownNow();
-                    throw new InterruptedException("Interrupted while parking");
-                }
-            } else {
-                if (log.isTraceEnabled())
-                    log.trace(" no longer running");
-                service.shutdownNow();
-                return;
-            }
+        try {
+            awaitRunnableBelow(1);
+        } catch (InterruptedException e) {
+            service.shutdownNow();
+            throw new InterruptedException("Interrupted while parking");
+        }
+        // if a failure did not occur, let's check the interrupted status
+        if (!isRunning()) {
+            if (log.isTraceEnabled())
+                log.trace(" no longer running");
+            service.shutdownNow();
+            return;
+        } else if (Thread.interrupted()) {
+            service.shutdownNow();
+            throw new InterruptedException("Interrupted while parking");
         }
         service.shutdown();
         while (!service.awaitTermination(250, TimeUnit.MILLISECONDS)) {}
         
     }
     
+    /**
+     * Block until the number of running scans drops below the specified limit, or this session is no longer running. Scan completions signal the waiting
+     * thread so that new work is submitted as soon as capacity is available rather than on a polling interval.
+     * 
+     * @param limit
+     * @throws InterruptedException
+     */
+    protected void awaitRunnableBelow(double limit) throws InterruptedException {
+        scanCompletionLock.lock();
+        try {
+            while (runnableCount.get() >= limit && isRunning()) {
+                scanCompleted.await(MAX_PARK_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            scanCompletionLock.unlock();
+        }
+    }
+    
+    /**
+     * Wake up the scheduling loop if it is waiting on scan completions
+     */
+    protected void signalScanCompletion() {
+        scanCompletionLock.lock();
+        try {
+            scanCompleted.signalAll();
+        } finally {
+            scanCompletionLock.unlock();
+        }
+    }
+    
     @Override
     protected long getPollTime() {
         return 5;
@@ -505,8 +554,6 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
          */
         
         if (finishedScan.finished()) {
-            runnableCount.decrementAndGet();
-            
             finishedScan.close();
             
             if (null != stats && null != finishedScan.getStats()) {
@@ -514,6 +561,9 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
                     stats.merge(finishedScan.getStats());
                 }
             }
+            
+            runnableCount.decrementAndGet();
+            signalScanCompletion();
         } else {
             // we've timed out
             AtomicInteger failCount = serverFailureMap.get(finishedScan.getScanLocation());
@@ -538,6 +588,7 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
     @Override
     public void onFailure(Throwable t) {
         stop();
+        signalScanCompletion();
         if (null != settings.getUncaughtExceptionHandler())
             settings.getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), t);
         throw new RuntimeException(t);
@@ -630,6 +681,7 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
          * 
          */
         protected void shutdownServices() {
+            signalScanCompletion();
             service.shutdownNow();
             listenerService.shutdownNow();
             int count = 0;
@@ -52,4 +52,12 @@ public class CountingShardQueryLogic extends ShardQueryLogic {
         return scheduler;
     }
     
+    /**
+     * The ResultCountingIterator counts the key/value pairs returned by the stack, so the documents cannot be combined into batches
+     */
+    @Override
+    public boolean isResultBatchingSupported() {
+        return false;
+    }
+    
 }
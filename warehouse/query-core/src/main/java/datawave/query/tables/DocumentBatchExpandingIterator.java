@@ -0,0 +1,54 @@
+package datawave.query.tables;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+import datawave.query.DocumentSerialization;
+import datawave.query.attributes.ColumnarDocumentBatch;
+import datawave.query.attributes.Document;
+import datawave.query.function.serializer.DocumentValue;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Expands the values holding a {@link ColumnarDocumentBatch} of documents returned by the tservers into one entry per document. The expanded documents are
+ * handed on unserialized in a {@link DocumentValue}, which the {@link datawave.query.function.deserializer.DocumentDeserializer} returns as is. Any other
+ * entry is passed through untouched.
+ */
+class DocumentBatchExpandingIterator implements Iterator<Entry<Key,Value>> {
+    private final Iterator<Entry<Key,Value>> delegate;
+    private final ColumnarDocumentBatch batchDeserializer = new ColumnarDocumentBatch();
+    private Iterator<Entry<Key,Document>> batch = Collections.emptyIterator();
+    
+    public DocumentBatchExpandingIterator(Iterator<Entry<Key,Value>> iterator) {
+        this.delegate = iterator;
+    }
+    
+    @Override
+    public boolean hasNext() {
+        return batch.hasNext() || delegate.hasNext();
+    }
+    
+    @Override
+    public Entry<Key,Value> next() {
+        while (!batch.hasNext()) {
+            Entry<Key,Value> entry = delegate.next();
+            // the final timing document and any other non-document values are never batched
+            if (entry.getValue() instanceof DocumentValue || !DocumentSerialization.isBatch(entry.getValue().get())) {
+                return entry;
+            }
+            batch = batchDeserializer.deserialize(DocumentSerialization.consumeBatchHeader(entry.getValue().get())).iterator();
+        }
+        Entry<Key,Document> document = batch.next();
+        return Maps.<Key,Value> immutableEntry(document.getKey(), new DocumentValue(document.getValue()));
+    }
+    
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
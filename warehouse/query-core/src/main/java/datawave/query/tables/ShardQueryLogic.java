@@ -232,6 +232,7 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
     private Set<String> groupFields = new HashSet<>(0);
     private Set<String> uniqueFields = new HashSet<>(0);
     private boolean compressServerSideResults = false;
+    private int resultBatchSize = 0;
     private boolean indexOnlyFilterFunctionsEnabled = false;
     /**
      * By default enable shortcut evaluation
@@ -287,6 +288,14 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
     private String zookeeperConfig = null;
     
     private List<String> ivaratorCacheBaseURIs = null;
+    // local directories used for ivarator caches in preference to the base URIs above
+    private List<String> ivaratorCacheLocalDirs = null;
+    // the max bytes of ivarator caches across the local directories on one tserver (<= 0 for no quota)
+    private long ivaratorCacheLocalMaxBytes = 0L;
+    // the min bytes that must remain available on a local volume for it to be used
+    private long ivaratorCacheLocalMinFreeBytes = 1024L * 1024 * 1024;
+    // the time after their last modification that the local directories of a query are removed (<= 0 to never remove them)
+    private long ivaratorCacheLocalExpiration = 1000L * 60 * 60 * 24;
     private String ivaratorFstHdfsBaseURIs = null;
     private int ivaratorCacheBufferSize = 10000;
     private long ivaratorCacheScanPersistThreshold = 100000L;
@@ -297,6 +306,7 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
     private int maxIvaratorSources = 33;
     private int maxEvaluationPipelines = 25;
     private int maxPipelineCachedResults = 25;
+    private boolean adaptiveEvaluationPipelines = false;
     private boolean expandAllTerms = false;
     
     private QueryParser parser = null;
@@ -454,6 +464,7 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.setGroupFields(other.getGroupFields());
         this.setUniqueFields(other.getUniqueFields());
         this.setCompressServerSideResults(other.isCompressServerSideResults());
+        this.setResultBatchSize(other.getResultBatchSize());
         this.setQuerySyntaxParsers(other.getQuerySyntaxParsers());
         this.setMandatoryQuerySyntax(other.getMandatoryQuerySyntax());
         this.setQueryPlanner(other.getQueryPlanner().clone());
@@ -481,6 +492,10 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.setZookeeperConfig(other.getZookeeperConfig());
         
         this.setIvaratorCacheBaseURIs(other.getIvaratorCacheBaseURIs());
+        this.setIvaratorCacheLocalDirs(other.getIvaratorCacheLocalDirs());
+        this.setIvaratorCacheLocalMaxBytes(other.getIvaratorCacheLocalMaxBytes());
+        this.setIvaratorCacheLocalMinFreeBytes(other.getIvaratorCacheLocalMinFreeBytes());
+        this.setIvaratorCacheLocalExpiration(other.getIvaratorCacheLocalExpiration());
         this.setIvaratorFstHdfsBaseURIs(other.getIvaratorFstHdfsBaseURIs());
         this.setIvaratorCacheBufferSize(other.getIvaratorCacheBufferSize());
         this.setIvaratorCacheScanPersistThreshold(other.getIvaratorCacheScanPersistThreshold());
@@ -491,6 +506,7 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.setMaxIvaratorSources(other.getMaxIvaratorSources());
         this.setMaxEvaluationPipelines(other.getMaxEvaluationPipelines());
         this.setMaxPipelineCachedResults(other.getMaxPipelineCachedResults());
+        this.setAdaptiveEvaluationPipelines(other.isAdaptiveEvaluationPipelines());
         
         this.setExpandAllTerms(other.isExpandAllTerms());
         this.setParser(other.getParser());
@@ -828,6 +844,11 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.scanner = null;
         this.iterator = this.scheduler.iterator();
         
+        // expand any columnar batches of documents returned by the tservers
+        if (config.getResultBatchSize() > 0) {
+            this.iterator = new DocumentBatchExpandingIterator(this.iterator);
+        }
+        
         if (!config.isSortedUIDs()) {
             this.iterator = new DedupingIterator(this.iterator);
         }
@@ -1213,6 +1234,11 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
             config.setCompressServerSideResults(compress);
         }
         
+        String tResultBatchSize = settings.findParameter(QueryOptions.RESULT_BATCH_SIZE).getParameterValue().trim();
+        if (org.apache.commons.lang.StringUtils.isNotBlank(tResultBatchSize) && isResultBatchingSupported()) {
+            config.setResultBatchSize(Integer.parseInt(tResultBatchSize));
+        }
+        
         // Configure index-only filter functions to be enabled if not already
         // set to such a state
         config.setIndexOnlyFilterFunctionsEnabled(this.isIndexOnlyFilterFunctionsEnabled());
@@ -1899,6 +1925,57 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         }
     }
     
+    public List<String> getIvaratorCacheLocalDirsAsList() {
+        return ivaratorCacheLocalDirs;
+    }
+    
+    public String getIvaratorCacheLocalDirs() {
+        if (ivaratorCacheLocalDirs == null) {
+            return null;
+        } else {
+            StringBuilder builder = new StringBuilder();
+            for (String localDir : ivaratorCacheLocalDirs) {
+                if (builder.length() > 0) {
+                    builder.append(',');
+                }
+                builder.append(localDir);
+            }
+            return builder.toString();
+        }
+    }
+    
+    public void setIvaratorCacheLocalDirs(String ivaratorCacheLocalDirs) {
+        if (ivaratorCacheLocalDirs == null || ivaratorCacheLocalDirs.isEmpty()) {
+            this.ivaratorCacheLocalDirs = null;
+        } else {
+            this.ivaratorCacheLocalDirs = Arrays.asList(StringUtils.split(ivaratorCacheLocalDirs, ','));
+        }
+    }
+    
+    public long getIvaratorCacheLocalMaxBytes() {
+        return ivaratorCacheLocalMaxBytes;
+    }
+    
+    public void setIvaratorCacheLocalMaxBytes(long ivaratorCacheLocalMaxBytes) {
+        this.ivaratorCacheLocalMaxBytes = ivaratorCacheLocalMaxBytes;
+    }
+    
+    public long getIvaratorCacheLocalMinFreeBytes() {
+        return ivaratorCacheLocalMinFreeBytes;
+    }
+    
+    public void setIvaratorCacheLocalMinFreeBytes(long ivaratorCacheLocalMinFreeBytes) {
+        this.ivaratorCacheLocalMinFreeBytes = ivaratorCacheLocalMinFreeBytes;
+    }
+    
+    public long getIvaratorCacheLocalExpiration() {
+        return ivaratorCacheLocalExpiration;
+    }
+    
+    public void setIvaratorCacheLocalExpiration(long ivaratorCacheLocalExpiration) {
+        this.ivaratorCacheLocalExpiration = ivaratorCacheLocalExpiration;
+    }
+    
     public String getIvaratorFstHdfsBaseURIs() {
         return ivaratorFstHdfsBaseURIs;
     }
@@ -1991,6 +2068,20 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.maxEvaluationPipelines = maxEvaluationPipelines;
     }
     
+    public boolean isAdaptiveEvaluationPipelines() {
+        return adaptiveEvaluationPipelines;
+    }
+    
+    /**
+     * When set, the number of active evaluation pipelines on the tservers is adjusted between 1 and the max evaluation pipelines based on the observed cost of
+     * evaluating the documents.
+     * 
+     * @param adaptiveEvaluationPipelines
+     */
+    public void setAdaptiveEvaluationPipelines(boolean adaptiveEvaluationPipelines) {
+        this.adaptiveEvaluationPipelines = adaptiveEvaluationPipelines;
+    }
+    
     public int getMaxPipelineCachedResults() {
         return maxPipelineCachedResults;
     }
@@ -2126,6 +2217,30 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.compressServerSideResults = compressServerSideResults;
     }
     
+    public int getResultBatchSize() {
+        return resultBatchSize;
+    }
+    
+    /**
+     * Sets the number of documents the tservers combine into each columnar batch when returning kryo serialized results. A size of 0 disables batching.
+     * 
+     * @param resultBatchSize
+     */
+    public void setResultBatchSize(int resultBatchSize) {
+        this.resultBatchSize = resultBatchSize;
+    }
+    
+    /**
+     * Can the results of this logic be returned in columnar batches. The batches are only expanded for the logics that read the documents through the
+     * {@link DocumentBatchExpandingIterator} and the {@link datawave.query.function.deserializer.DocumentDeserializer}. A logic that reads the key/value pairs
+     * returned by the tservers directly, e.g. to count them or to read the serialized bytes, must return false.
+     * 
+     * @return true if result.batch.size is honored
+     */
+    public boolean isResultBatchingSupported() {
+        return true;
+    }
+    
     /**
      * Returns a value indicating whether index-only filter functions (e.g., #INCLUDE, #EXCLUDE) should be enabled. If true, the use of such filters can
      * potentially consume a LOT of memory.
@@ -2167,6 +2282,7 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         params.add(QueryOptions.REDUCED_RESPONSE);
         params.add(QueryOptions.POSTPROCESSING_CLASSES);
         params.add(QueryOptions.COMPRESS_SERVER_SIDE_RESULTS);
+        params.add(QueryOptions.RESULT_BATCH_SIZE);
         params.add(QueryOptions.HIT_LIST);
         params.add(QueryOptions.TYPE_METADATA_IN_HDFS);
         params.add(QueryOptions.DATE_INDEX_TIME_TRAVEL);
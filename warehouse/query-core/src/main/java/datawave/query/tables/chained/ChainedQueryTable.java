@@ -1,5 +1,6 @@
 package datawave.query.tables.chained;
 
+import java.util.Iterator;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -35,6 +36,8 @@ public abstract class ChainedQueryTable<T1,T2> extends BaseQueryLogic<T2> {
     protected ChainStrategy<T1,T2> chainStrategy = null;
     protected QueryLogic<T1> logic1 = null;
     protected QueryLogic<T2> logic2 = null;
+    // the results of the chain strategy, which are closed with this query logic
+    protected Iterator<T2> chainedResults = null;
     private Logger log = Logger.getLogger(ChainedQueryTable.class);
     
     public ChainedQueryTable() {
@@ -72,6 +75,36 @@ public abstract class ChainedQueryTable<T1,T2> extends BaseQueryLogic<T2> {
         this.chainStrategy = strategy;
     }
     
+    /**
+     * Run the chained query with the chain strategy, keeping its results so that they are closed with this query logic
+     */
+    protected Iterator<T2> runChainedQuery(Connector connection, Query initialQuery, Set<Authorizations> auths, Iterator<T1> initialQueryResults)
+                    throws Exception {
+        this.chainedResults = this.chainStrategy.runChainedQuery(connection, initialQuery, auths, initialQueryResults, this.logic2);
+        return this.chainedResults;
+    }
+    
+    @Override
+    public void close() {
+        super.close();
+        // a streamed chain strategy runs the latter queries in the background until its results are closed
+        closeResults(this.chainedResults);
+        if (this.iterator != this.chainedResults) {
+            closeResults(this.iterator);
+        }
+        this.chainedResults = null;
+    }
+    
+    private void closeResults(Iterator<T2> results) {
+        if (results instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) results).close();
+            } catch (Exception e) {
+                log.error("Failed to close the chained query results", e);
+            }
+        }
+    }
+    
     @Override
     public AccumuloConnectionFactory.Priority getConnectionPriority() {
         return AccumuloConnectionFactory.Priority.NORMAL;
@@ -0,0 +1,327 @@
+package datawave.query.tables.chained.strategy;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import datawave.webservice.query.Query;
+import datawave.webservice.query.configuration.GenericQueryConfiguration;
+import datawave.webservice.query.logic.QueryLogic;
+
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.log4j.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Defines the logic to stream the results from the former query logic into batches, and to issue a query against the latter query logic for each batch as
+ * soon as it fills. Unlike the {@link FullChainStrategy}, the first results of the latter query logic are returned without waiting for the former query to
+ * finish, and only the batches being queried are held in memory.
+ * <p>
+ * Up to {@link #getMaxConcurrentQueries()} batches are queried at once, each with a clone of the latter query logic, and reading the former results waits
+ * while that many are running. The results of the latter queries are merged into a queue of at most {@link #getMaxQueuedResults()} results, in the order
+ * they are returned. A former result whose {@link #getChainKey(Object) key} was already part of a batch is dropped, so that the same key is not queried
+ * twice.
+ * 
+ * @param <T1>
+ *            Type of former {@link datawave.webservice.query.logic.QueryLogic}
+ * @param <T2>
+ *            Type of latter {@link datawave.webservice.query.logic.QueryLogic}
+ */
+public abstract class StreamedChainStrategy<T1,T2> implements ChainStrategy<T1,T2> {
+    protected final Logger log = Logger.getLogger(StreamedChainStrategy.class);
+    
+    // how long closing an iterator waits for its running queries to stop and close their query logics
+    private static final long CLOSE_TIMEOUT_SECONDS = 60;
+    
+    private int batchSize = 100;
+    private int maxConcurrentQueries = 4;
+    private int maxQueuedResults = 1000;
+    
+    public int getBatchSize() {
+        return batchSize;
+    }
+    
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+    
+    public int getMaxConcurrentQueries() {
+        return maxConcurrentQueries;
+    }
+    
+    public void setMaxConcurrentQueries(int maxConcurrentQueries) {
+        this.maxConcurrentQueries = maxConcurrentQueries;
+    }
+    
+    public int getMaxQueuedResults() {
+        return maxQueuedResults;
+    }
+    
+    public void setMaxQueuedResults(int maxQueuedResults) {
+        this.maxQueuedResults = maxQueuedResults;
+    }
+    
+    @Override
+    public Iterator<T2> runChainedQuery(Connector connector, Query initialQuery, Set<Authorizations> auths, Iterator<T1> initialQueryResults,
+                    QueryLogic<T2> latterQueryLogic) throws Exception {
+        StreamedChainIterator iterator = new StreamedChainIterator(connector, initialQuery, auths, initialQueryResults, latterQueryLogic);
+        iterator.start();
+        return iterator;
+    }
+    
+    /**
+     * Build the latter query for a batch of the former results
+     * 
+     * @return the latter query, or null if there is nothing to query for the batch
+     */
+    protected abstract Query buildLatterQuery(Query initialQuery, Iterator<T1> initialQueryResults, String latterLogicName);
+    
+    /**
+     * The key of a former result that is used to drop the results that were already part of a batch, the result itself by default
+     */
+    protected Object getChainKey(T1 initialQueryResult) {
+        return initialQueryResult;
+    }
+    
+    /**
+     * An iterator over the merged results of the latter queries, which are run in the background as the former results are read. Closing the iterator stops
+     * the queries, and it is closed by {@link datawave.query.tables.chained.ChainedQueryTable#close()}.
+     */
+    public class StreamedChainIterator implements Iterator<T2>, AutoCloseable {
+        // marks the end of the results in the queue
+        private final Object END = new Object();
+        
+        private final Connector connector;
+        private final Query initialQuery;
+        private final Set<Authorizations> auths;
+        private final Iterator<T1> initialQueryResults;
+        private final QueryLogic<T2> latterQueryLogic;
+        
+        private final BlockingQueue<Object> results = new LinkedBlockingQueue<>(maxQueuedResults);
+        private final Semaphore runningQueries = new Semaphore(maxConcurrentQueries);
+        private final ExecutorService batchExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                        .setNameFormat("StreamedChainStrategy batcher %d").build());
+        private final ExecutorService queryExecutor = Executors.newFixedThreadPool(maxConcurrentQueries, new ThreadFactoryBuilder().setDaemon(true)
+                        .setNameFormat("StreamedChainStrategy query %d").build());
+        
+        private volatile boolean closed = false;
+        private volatile Throwable error = null;
+        private Object next = null;
+        private boolean done = false;
+        
+        public StreamedChainIterator(Connector connector, Query initialQuery, Set<Authorizations> auths, Iterator<T1> initialQueryResults,
+                        QueryLogic<T2> latterQueryLogic) {
+            this.connector = connector;
+            this.initialQuery = initialQuery;
+            this.auths = auths;
+            this.initialQueryResults = initialQueryResults;
+            this.latterQueryLogic = latterQueryLogic;
+        }
+        
+        void start() {
+            batchExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    batchInitialQueryResults();
+                }
+            });
+        }
+        
+        /**
+         * Reads the former results into batches, submitting a latter query for each batch, and marks the end of the results once every query is done
+         */
+        private void batchInitialQueryResults() {
+            List<Future<?>> queries = new ArrayList<>();
+            try {
+                Set<Object> chainKeys = new HashSet<>();
+                List<T1> batch = new ArrayList<>(batchSize);
+                while (!isStopped() && initialQueryResults.hasNext()) {
+                    T1 initialQueryResult = initialQueryResults.next();
+                    if (chainKeys.add(getChainKey(initialQueryResult))) {
+                        batch.add(initialQueryResult);
+                        if (batch.size() >= batchSize) {
+                            queries.add(submitQuery(batch));
+                            batch = new ArrayList<>(batchSize);
+                        }
+                    }
+                }
+                if (!isStopped() && !batch.isEmpty()) {
+                    queries.add(submitQuery(batch));
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Submitted " + queries.size() + " latter queries for " + chainKeys.size() + " distinct former results");
+                }
+                for (Future<?> query : queries) {
+                    query.get();
+                }
+            } catch (ExecutionException e) {
+                setError(e.getCause());
+            } catch (Throwable t) {
+                setError(t);
+            } finally {
+                // wait for the consumer to make room for the end marker, unless it has closed the iterator
+                try {
+                    while (!closed && !results.offer(END, 1, TimeUnit.SECONDS)) {
+                        // wait for the consumer to catch up
+                    }
+                } catch (InterruptedException e) {
+                    log.debug("Interrupted while marking the end of the latter query results");
+                }
+            }
+        }
+        
+        private Future<?> submitQuery(final List<T1> batch) throws InterruptedException {
+            runningQueries.acquire();
+            try {
+                return queryExecutor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            runQuery(batch);
+                        } catch (Exception e) {
+                            setError(e);
+                            throw new RuntimeException(e);
+                        } finally {
+                            runningQueries.release();
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                runningQueries.release();
+                throw e;
+            }
+        }
+        
+        @SuppressWarnings("unchecked")
+        private void runQuery(List<T1> batch) throws Exception {
+            Query latterQuery = buildLatterQuery(initialQuery, batch.iterator(), latterQueryLogic.getLogicName());
+            if (null == latterQuery) {
+                log.info("Could not compute a query to run for a batch of " + batch.size() + " results.");
+                return;
+            }
+            
+            QueryLogic<T2> logic = (QueryLogic<T2>) latterQueryLogic.clone();
+            try {
+                GenericQueryConfiguration config = logic.initialize(connector, latterQuery, auths);
+                logic.setupQuery(config);
+                Iterator<T2> latterQueryResults = logic.iterator();
+                while (!isStopped() && latterQueryResults.hasNext()) {
+                    T2 result = latterQueryResults.next();
+                    while (!isStopped() && !results.offer(result, 1, TimeUnit.SECONDS)) {
+                        // wait for the consumer to catch up
+                    }
+                }
+            } finally {
+                logic.close();
+            }
+        }
+        
+        private synchronized void setError(Throwable t) {
+            if (error == null) {
+                error = t;
+            }
+        }
+        
+        /**
+         * The queries stop once the iterator is closed, or once any of them has failed
+         */
+        private boolean isStopped() {
+            return closed || error != null;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            } else if (done) {
+                return false;
+            }
+            while (next == null) {
+                // a failed query fails the chained query, without returning the results still queued
+                if (error != null) {
+                    close();
+                    throw new RuntimeException("Failed to run the chained query", error);
+                }
+                try {
+                    next = results.poll(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    close();
+                    throw new RuntimeException("Interrupted while waiting for the latter query results", e);
+                }
+            }
+            if (next == END) {
+                next = null;
+                if (error != null) {
+                    close();
+                    throw new RuntimeException("Failed to run the chained query", error);
+                }
+                done = true;
+                shutdown();
+                return false;
+            }
+            return true;
+        }
+        
+        @SuppressWarnings("unchecked")
+        @Override
+        public T2 next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T2 result = (T2) next;
+            next = null;
+            return result;
+        }
+        
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove() is not supported by this Iterator.");
+        }
+        
+        /**
+         * Stop the queries, and wait for them to close their query logics
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            done = true;
+            next = null;
+            shutdown();
+            results.clear();
+            try {
+                if (!batchExecutor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                                || !queryExecutor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    log.warn("Timed out waiting for the latter queries to stop");
+                }
+            } catch (InterruptedException e) {
+                log.warn("Interrupted while waiting for the latter queries to stop", e);
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        public boolean isClosed() {
+            return closed;
+        }
+        
+        private void shutdown() {
+            batchExecutor.shutdownNow();
+            queryExecutor.shutdownNow();
+        }
+    }
+}
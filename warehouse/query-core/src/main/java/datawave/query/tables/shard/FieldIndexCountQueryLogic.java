@@ -197,6 +197,14 @@ public class FieldIndexCountQueryLogic extends ShardQueryLogic {
         this.maxUniqueValues = maxUniqueValues;
     }
     
+    /**
+     * The field index counts are read from the key/value pairs returned by the FieldIndexCountingIterator, so they are never batched
+     */
+    @Override
+    public boolean isResultBatchingSupported() {
+        return false;
+    }
+    
     /**
      * Create the batch scanner and set the iterator options / stack.
      * 
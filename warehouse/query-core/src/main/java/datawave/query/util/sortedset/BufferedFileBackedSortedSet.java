@@ -32,6 +32,7 @@ public class BufferedFileBackedSortedSet<E extends Serializable> implements Sort
     protected int size = 0;
     
     protected SortedSetFileHandlerFactory handlerFactory;
+    protected SortedSetFileFormat<E> format;
     protected int bufferPersistThreshold;
     
     /**
@@ -45,7 +46,7 @@ public class BufferedFileBackedSortedSet<E extends Serializable> implements Sort
     }
     
     public BufferedFileBackedSortedSet(BufferedFileBackedSortedSet<E> other) {
-        this(other.comparator, other.bufferPersistThreshold, other.maxOpenFiles, other.handlerFactory);
+        this(other.comparator, other.bufferPersistThreshold, other.maxOpenFiles, other.handlerFactory, other.format);
         for (SortedSet<E> subSet : other.set.getSets()) {
             FileSortedSet<E> clone = new FileSortedSet<>((FileSortedSet<E>) subSet);
             this.set.addSet(clone);
@@ -67,8 +68,14 @@ public class BufferedFileBackedSortedSet<E extends Serializable> implements Sort
     
     public BufferedFileBackedSortedSet(Comparator<? super E> comparator, int bufferPersistThreshold, int maxOpenFiles,
                     SortedSetFileHandlerFactory handlerFactory) {
+        this(comparator, bufferPersistThreshold, maxOpenFiles, handlerFactory, new SerializableSortedSetFileFormat<>());
+    }
+    
+    public BufferedFileBackedSortedSet(Comparator<? super E> comparator, int bufferPersistThreshold, int maxOpenFiles,
+                    SortedSetFileHandlerFactory handlerFactory, SortedSetFileFormat<E> format) {
         this.comparator = comparator;
         this.handlerFactory = handlerFactory;
+        this.format = format;
         this.bufferPersistThreshold = bufferPersistThreshold;
         this.maxOpenFiles = maxOpenFiles;
     }
@@ -210,7 +217,7 @@ public class BufferedFileBackedSortedSet<E extends Serializable> implements Sort
     }
     
     private FileSortedSet<E> compact(MultiSetBackedSortedSet<E> setToCompact) throws IOException {
-        return new FileSortedSet<>(setToCompact, handlerFactory.createHandler(), true);
+        return new FileSortedSet<>(setToCompact, format, handlerFactory.createHandler(), true);
     }
     
     @Override
@@ -227,7 +234,7 @@ public class BufferedFileBackedSortedSet<E extends Serializable> implements Sort
     public boolean add(E e) {
         if (buffer == null) {
             try {
-                buffer = new FileSortedSet<>(comparator, handlerFactory.createHandler(), false);
+                buffer = new FileSortedSet<>(comparator, format, handlerFactory.createHandler(), false);
             } catch (Exception ex) {
                 throw new IllegalStateException("Unable to create an underlying FileSortedSet", ex);
             }
@@ -253,7 +260,7 @@ public class BufferedFileBackedSortedSet<E extends Serializable> implements Sort
     public boolean addAll(Collection<? extends E> c) {
         if (buffer == null) {
             try {
-                buffer = new FileSortedSet<>(comparator, handlerFactory.createHandler(), false);
+                buffer = new FileSortedSet<>(comparator, format, handlerFactory.createHandler(), false);
             } catch (Exception ex) {
                 throw new IllegalStateException("Unable to create an underlying FileSortedSet", ex);
             }
@@ -1,12 +1,8 @@
 package datawave.query.util.sortedset;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.lang.reflect.Array;
@@ -16,6 +12,9 @@ import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.SortedSet;
 import java.util.TreeSet;
+
+import datawave.query.util.sortedset.SortedSetFileFormat.SortedSetInputStream;
+import datawave.query.util.sortedset.SortedSetFileFormat.SortedSetOutputStream;
 import datawave.webservice.query.exception.DatawaveErrorCode;
 import datawave.webservice.query.exception.QueryException;
 import org.apache.log4j.Logger;
@@ -24,7 +23,8 @@ import org.apache.log4j.Logger;
  * A sorted set that can be persisted into a file and still be read in its persisted state. The set can always be re-loaded and then all operations will work as
  * expected. This will support null contained in the underlying sets iff a comparator is supplied that can handle null values.
  *
- * The persisted file will contain the serialized entries, followed by the actual size.
+ * The persisted file will contain the serialized entries, followed by the actual size. How the entries are serialized is determined by the SortedSetFileFormat
+ * which defaults to java serialization.
  *
  * @param <E>
  */
@@ -37,6 +37,8 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
     
     // The file handler that handles the underlying io
     public SortedSetFileHandler handler;
+    // The format used to encode the entries in the file
+    protected SortedSetFileFormat<E> format;
     
     /**
      * A factory that will provide the input stream and output stream to the same underlying file.
@@ -73,6 +75,7 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
      */
     public FileSortedSet(FileSortedSet<E> other) {
         this.handler = other.handler;
+        this.format = other.format;
         this.set = new TreeSet<>(other.set);
         this.persisted = other.persisted;
     }
@@ -85,6 +88,7 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
      */
     public FileSortedSet(SortedSetFileHandler handler, boolean persisted) {
         this.handler = handler;
+        this.format = new SerializableSortedSetFileFormat<>();
         this.set = new TreeSet<>();
         this.persisted = persisted;
     }
@@ -97,7 +101,20 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
      * @param persisted
      */
     public FileSortedSet(Comparator<? super E> comparator, SortedSetFileHandler handler, boolean persisted) {
+        this(comparator, new SerializableSortedSetFileFormat<>(), handler, persisted);
+    }
+    
+    /**
+     * Create a persisted sorted set using the specified file format
+     * 
+     * @param comparator
+     * @param format
+     * @param handler
+     * @param persisted
+     */
+    public FileSortedSet(Comparator<? super E> comparator, SortedSetFileFormat<E> format, SortedSetFileHandler handler, boolean persisted) {
         this.handler = handler;
+        this.format = format;
         this.set = new TreeSet<>(comparator);
         this.persisted = persisted;
     }
@@ -110,6 +127,7 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
      */
     public FileSortedSet(SortedSet<E> set, SortedSetFileHandler handler) {
         this.handler = handler;
+        this.format = new SerializableSortedSetFileFormat<>();
         this.set = new TreeSet<>(set);
         this.persisted = false;
     }
@@ -122,7 +140,21 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
      * @param handler
      */
     public FileSortedSet(SortedSet<E> set, SortedSetFileHandler handler, boolean persist) throws IOException {
+        this(set, new SerializableSortedSetFileFormat<>(), handler, persist);
+    }
+    
+    /**
+     * Create an sorted set out of another sorted set using the specified file format. If persist is true, then the set will be directly persisted using the
+     * set's iterator which avoid pulling all of its entries into memory at once.
+     *
+     * @param set
+     * @param format
+     * @param handler
+     * @param persist
+     */
+    public FileSortedSet(SortedSet<E> set, SortedSetFileFormat<E> format, SortedSetFileHandler handler, boolean persist) throws IOException {
         this.handler = handler;
+        this.format = format;
         if (!persist) {
             this.set = new TreeSet<>(set);
             this.persisted = false;
@@ -159,13 +191,13 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
         for (int i = 0; i < 10 && !verified; i++) {
             try {
                 int actualSize = 0;
-                ObjectOutputStream stream = getOutputStream();
+                SortedSetOutputStream<E> stream = getOutputStream();
                 try {
                     for (E t : set) {
                         writeObject(stream, t);
                         actualSize++;
                     }
-                    stream.writeInt(actualSize);
+                    stream.writeSize(actualSize);
                 } finally {
                     stream.close();
                 }
@@ -174,7 +206,7 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
                     throw new IOException("Failed to verify file existence");
                 }
                 // now verify at least the first 100 objects were written correctly
-                ObjectInputStream inStream = getInputStream();
+                SortedSetInputStream<E> inStream = getInputStream();
                 try {
                     int testReadSize = Math.min(actualSize, 100);
                     int count = 0;
@@ -251,7 +283,7 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
         if (persisted) {
             try {
                 int size = readSize();
-                ObjectInputStream stream = getInputStream();
+                SortedSetInputStream<E> stream = getInputStream();
                 try {
                     for (int i = 0; i < size; i++) {
                         E obj = readObject(stream);
@@ -275,8 +307,14 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
      * @throws FileNotFoundException
      * @throws IOException
      */
-    protected ObjectInputStream getInputStream() throws IOException {
-        return new ObjectInputStream(new BufferedInputStream(handler.getInputStream()));
+    protected SortedSetInputStream<E> getInputStream() throws IOException {
+        InputStream in = handler.getInputStream();
+        try {
+            return format.newInputStream(in);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
     }
     
     /**
@@ -285,41 +323,40 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
      * @return the output stream
      * @throws IOException
      */
-    protected ObjectOutputStream getOutputStream() throws IOException {
-        return new ObjectOutputStream(new BufferedOutputStream(handler.getOutputStream()));
+    protected SortedSetOutputStream<E> getOutputStream() throws IOException {
+        return format.newOutputStream(handler.getOutputStream());
     }
     
     /**
-     * Write T to an object output stream
+     * Write T to a sorted set output stream
      * 
      * @param stream
      * @param t
      * @throws IOException
      */
-    protected void writeObject(ObjectOutputStream stream, E t) throws IOException {
-        if (t == null) {
-            stream.writeObject(NULL_OBJECT);
-        } else {
-            stream.writeObject(t);
-        }
+    protected void writeObject(SortedSetOutputStream<E> stream, E t) throws IOException {
+        stream.writeObject(t);
     }
     
     /**
-     * Read T from an object input stream
+     * Read T from a sorted set input stream
      *
      * @param stream
      * @return
      * @throws IOException
      * @throws ClassNotFoundException
      */
-    @SuppressWarnings("unchecked")
-    protected E readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
-        Object o = stream.readObject();
-        if (o instanceof NullObject) {
-            return null;
-        } else {
-            return (E) o;
-        }
+    protected E readObject(SortedSetInputStream<E> stream) throws IOException, ClassNotFoundException {
+        return stream.readObject();
+    }
+    
+    /**
+     * Get the format used to persist this set
+     * 
+     * @return the file format
+     */
+    public SortedSetFileFormat<E> getFormat() {
+        return format;
     }
     
     /**
@@ -391,7 +428,7 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
         if (persisted) {
             try {
                 int size = readSize();
-                ObjectInputStream stream = getInputStream();
+                SortedSetInputStream<E> stream = getInputStream();
                 try {
                     Object[] data = new Object[size];
                     for (int i = 0; i < size; i++) {
@@ -415,7 +452,7 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
         if (persisted) {
             try {
                 int size = readSize();
-                ObjectInputStream stream = getInputStream();
+                SortedSetInputStream<E> stream = getInputStream();
                 try {
                     T[] dest = a;
                     int i = 0;
@@ -478,7 +515,7 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
                     all.add((E) o);
                 }
                 int size = readSize();
-                ObjectInputStream stream = getInputStream();
+                SortedSetInputStream<E> stream = getInputStream();
                 try {
                     for (int i = 0; i < size; i++) {
                         E obj = readObject(stream);
@@ -576,7 +613,7 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
         if (persisted) {
             try {
                 int size = readSize();
-                ObjectInputStream stream = getInputStream();
+                SortedSetInputStream<E> stream = getInputStream();
                 try {
                     if (size != 0) {
                         first = readObject(stream);
@@ -611,11 +648,12 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
         if (persisted) {
             try {
                 int size = readSize();
-                ObjectInputStream stream = getInputStream();
+                SortedSetInputStream<E> stream = getInputStream();
                 try {
-                    for (int i = 0; i < size; i++) {
-                        E obj = readObject(stream);
-                        last = obj;
+                    if (size != 0) {
+                        // let the format skip over as much of the file as it can
+                        stream.skip(size - 1);
+                        last = readObject(stream);
                         gotLast = true;
                     }
                 } finally {
@@ -647,7 +685,7 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
     protected class FileIterator implements Iterator<E> {
         private int size = 0;
         private int index = 0;
-        private ObjectInputStream stream = null;
+        private SortedSetInputStream<E> stream = null;
         
         public FileIterator() {
             try {
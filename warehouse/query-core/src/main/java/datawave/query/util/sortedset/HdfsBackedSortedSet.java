@@ -33,7 +33,12 @@ public class HdfsBackedSortedSet<E extends Serializable> extends BufferedFileBac
     
     public HdfsBackedSortedSet(Comparator<? super E> comparator, int bufferPersistThreshold, FileSystem fs, Path uniqueDir, int maxOpenFiles)
                     throws IOException {
-        super(comparator, bufferPersistThreshold, maxOpenFiles, new SortedSetHdfsFileHandlerFactory(fs, uniqueDir));
+        this(comparator, bufferPersistThreshold, fs, uniqueDir, maxOpenFiles, new SerializableSortedSetFileFormat<>());
+    }
+    
+    public HdfsBackedSortedSet(Comparator<? super E> comparator, int bufferPersistThreshold, FileSystem fs, Path uniqueDir, int maxOpenFiles,
+                    SortedSetFileFormat<E> format) throws IOException {
+        super(comparator, bufferPersistThreshold, maxOpenFiles, new SortedSetHdfsFileHandlerFactory(fs, uniqueDir), format);
         
         // now load up this sorted set with any existing files
         FileStatus[] files = fs.listStatus(uniqueDir);
@@ -42,7 +47,7 @@ public class HdfsBackedSortedSet<E extends Serializable> extends BufferedFileBac
             for (FileStatus file : files) {
                 if (!file.isDir() && file.getPath().getName().startsWith(FILENAME_PREFIX)) {
                     count++;
-                    addSet(new FileSortedSet<>(comparator, new SortedSetHdfsFileHandler(fs, file.getPath()), true));
+                    addSet(new FileSortedSet<>(comparator, format, new SortedSetHdfsFileHandler(fs, file.getPath()), true));
                 }
             }
         }
@@ -0,0 +1,389 @@
+package datawave.query.util.sortedset;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.io.compress.CodecPool;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionInputStream;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
+import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * A compact binary FileSortedSet format for KeyValueSerializable entries. This avoids the java serialization overhead (class descriptors, reflection, block
+ * headers) paid by the SerializableSortedSetFileFormat.
+ * 
+ * The file layout is as follows:
+ * 
+ * <pre>
+ * header:  int magic, byte version, UTF codec class name (empty if uncompressed)
+ * blocks:  int entry count, int raw length, int stored length, stored bytes
+ * trailer: int 0 (end of blocks), int total entry count
+ * </pre>
+ * 
+ * Entries within a block are length prefixed raw key components and value bytes. Key components that are equal to the previous key in the same block are
+ * omitted (the entries are sorted so the row and column family are typically shared). Blocks are independently decodable and optionally compressed with a
+ * hadoop compression codec. The block headers act as a skip index which allows skipping whole blocks (e.g. when retrieving the last element) without
+ * decompressing them.
+ */
+public class KeyValueSortedSetFileFormat implements SortedSetFileFormat<KeyValueSerializable> {
+    public static final int MAGIC = 0x4B565346; // KVSF
+    public static final byte VERSION = 1;
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+    
+    // entry flags
+    private static final int SAME_ROW = 0x01;
+    private static final int SAME_COLFAM = 0x02;
+    private static final int SAME_COLQUAL = 0x04;
+    private static final int SAME_COLVIS = 0x08;
+    private static final int DELETED = 0x10;
+    private static final int NULL_ENTRY = 0x80;
+    
+    // codecs are stateless once configured, so we can share them
+    private static final Map<String,CompressionCodec> codecs = new ConcurrentHashMap<>();
+    
+    private final String compressionCodec;
+    private final int blockSize;
+    
+    public KeyValueSortedSetFileFormat() {
+        this(null);
+    }
+    
+    /**
+     * Create a format that will compress blocks with the supplied codec
+     * 
+     * @param compressionCodec
+     *            a hadoop CompressionCodec class name, or null for no compression
+     */
+    public KeyValueSortedSetFileFormat(String compressionCodec) {
+        this(compressionCodec, DEFAULT_BLOCK_SIZE);
+    }
+    
+    public KeyValueSortedSetFileFormat(String compressionCodec, int blockSize) {
+        this.compressionCodec = (compressionCodec == null || compressionCodec.isEmpty() ? null : compressionCodec);
+        this.blockSize = blockSize;
+        // fail fast on a bad codec
+        if (this.compressionCodec != null) {
+            getCodec(this.compressionCodec);
+        }
+    }
+    
+    public String getCompressionCodec() {
+        return compressionCodec;
+    }
+    
+    public int getBlockSize() {
+        return blockSize;
+    }
+    
+    @Override
+    public SortedSetOutputStream<KeyValueSerializable> newOutputStream(OutputStream out) throws IOException {
+        return new KeyValueOutputStream(new DataOutputStream(new BufferedOutputStream(out)), compressionCodec, blockSize);
+    }
+    
+    @Override
+    public SortedSetInputStream<KeyValueSerializable> newInputStream(InputStream in) throws IOException {
+        return new KeyValueInputStream(new DataInputStream(new BufferedInputStream(in)));
+    }
+    
+    /**
+     * Get a configured codec for the specified class name
+     * 
+     * @param codecName
+     * @return the codec
+     */
+    static CompressionCodec getCodec(String codecName) {
+        CompressionCodec codec = codecs.get(codecName);
+        if (codec == null) {
+            Class<? extends CompressionCodec> codecClass;
+            try {
+                codecClass = Class.forName(codecName).asSubclass(CompressionCodec.class);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalArgumentException("Compression codec " + codecName + " was not found.", e);
+            } catch (ClassCastException e) {
+                throw new IllegalArgumentException("Compression codec " + codecName + " in not a subclass of CompressionCodec.", e);
+            }
+            codec = ReflectionUtils.newInstance(codecClass, new Configuration());
+            codecs.put(codecName, codec);
+        }
+        return codec;
+    }
+    
+    private static boolean sameBytes(ByteSequence a, ByteSequence b) {
+        return a.length() == b.length() && a.compareTo(b) == 0;
+    }
+    
+    private static void writeBytes(DataOutputBuffer out, ByteSequence bytes) throws IOException {
+        WritableUtils.writeVInt(out, bytes.length());
+        out.write(bytes.getBackingArray(), bytes.offset(), bytes.length());
+    }
+    
+    private static byte[] readBytes(DataInputBuffer in) throws IOException {
+        byte[] bytes = new byte[WritableUtils.readVInt(in)];
+        in.readFully(bytes);
+        return bytes;
+    }
+    
+    private static class KeyValueOutputStream implements SortedSetOutputStream<KeyValueSerializable> {
+        private final DataOutputStream out;
+        private final CompressionCodec codec;
+        private final Compressor compressor;
+        private final int blockSize;
+        private final DataOutputBuffer block = new DataOutputBuffer();
+        private final DataOutputBuffer compressed;
+        private int blockCount = 0;
+        private Key previous = null;
+        
+        KeyValueOutputStream(DataOutputStream out, String codecName, int blockSize) throws IOException {
+            this.out = out;
+            this.blockSize = blockSize;
+            if (codecName != null) {
+                this.codec = getCodec(codecName);
+                this.compressor = CodecPool.getCompressor(codec);
+                this.compressed = new DataOutputBuffer();
+            } else {
+                this.codec = null;
+                this.compressor = null;
+                this.compressed = null;
+            }
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeUTF(codecName == null ? "" : codecName);
+        }
+        
+        @Override
+        public void writeObject(KeyValueSerializable kv) throws IOException {
+            if (kv == null) {
+                block.writeByte(NULL_ENTRY);
+            } else {
+                Key key = kv.getKey();
+                ByteSequence row = key.getRowData();
+                ByteSequence cf = key.getColumnFamilyData();
+                ByteSequence cq = key.getColumnQualifierData();
+                ByteSequence cv = key.getColumnVisibilityData();
+                
+                int flags = (key.isDeleted() ? DELETED : 0);
+                if (previous != null) {
+                    flags |= (sameBytes(row, previous.getRowData()) ? SAME_ROW : 0);
+                    flags |= (sameBytes(cf, previous.getColumnFamilyData()) ? SAME_COLFAM : 0);
+                    flags |= (sameBytes(cq, previous.getColumnQualifierData()) ? SAME_COLQUAL : 0);
+                    flags |= (sameBytes(cv, previous.getColumnVisibilityData()) ? SAME_COLVIS : 0);
+                }
+                block.writeByte(flags);
+                if ((flags & SAME_ROW) == 0) {
+                    writeBytes(block, row);
+                }
+                if ((flags & SAME_COLFAM) == 0) {
+                    writeBytes(block, cf);
+                }
+                if ((flags & SAME_COLQUAL) == 0) {
+                    writeBytes(block, cq);
+                }
+                if ((flags & SAME_COLVIS) == 0) {
+                    writeBytes(block, cv);
+                }
+                WritableUtils.writeVLong(block, key.getTimestamp());
+                WritableUtils.writeVInt(block, kv.value.length);
+                block.write(kv.value);
+                previous = key;
+            }
+            blockCount++;
+            if (block.getLength() >= blockSize) {
+                flushBlock();
+            }
+        }
+        
+        private void flushBlock() throws IOException {
+            if (blockCount == 0) {
+                return;
+            }
+            out.writeInt(blockCount);
+            out.writeInt(block.getLength());
+            if (codec != null) {
+                compressed.reset();
+                if (compressor != null) {
+                    compressor.reset();
+                }
+                CompressionOutputStream stream = (compressor == null ? codec.createOutputStream(compressed) : codec.createOutputStream(compressed,
+                                compressor));
+                stream.write(block.getData(), 0, block.getLength());
+                stream.finish();
+                out.writeInt(compressed.getLength());
+                out.write(compressed.getData(), 0, compressed.getLength());
+            } else {
+                out.writeInt(block.getLength());
+                out.write(block.getData(), 0, block.getLength());
+            }
+            block.reset();
+            blockCount = 0;
+            // blocks must be independently decodable
+            previous = null;
+        }
+        
+        @Override
+        public void writeSize(int size) throws IOException {
+            flushBlock();
+            // end of blocks marker
+            out.writeInt(0);
+            out.writeInt(size);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            try {
+                out.close();
+            } finally {
+                if (compressor != null) {
+                    CodecPool.returnCompressor(compressor);
+                }
+            }
+        }
+    }
+    
+    private static class KeyValueInputStream implements SortedSetInputStream<KeyValueSerializable> {
+        private final DataInputStream in;
+        private final CompressionCodec codec;
+        private final Decompressor decompressor;
+        private final DataInputBuffer block = new DataInputBuffer();
+        private byte[] raw = new byte[0];
+        private byte[] stored = new byte[0];
+        private int blockRemaining = 0;
+        private byte[] row;
+        private byte[] cf;
+        private byte[] cq;
+        private byte[] cv;
+        
+        KeyValueInputStream(DataInputStream in) throws IOException {
+            this.in = in;
+            int magic = in.readInt();
+            if (magic != MAGIC) {
+                throw new IOException("Not a key value sorted set file: bad magic number " + Integer.toHexString(magic));
+            }
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported key value sorted set file version " + version);
+            }
+            String codecName = in.readUTF();
+            if (codecName.isEmpty()) {
+                this.codec = null;
+                this.decompressor = null;
+            } else {
+                this.codec = getCodec(codecName);
+                this.decompressor = CodecPool.getDecompressor(codec);
+            }
+        }
+        
+        @Override
+        public KeyValueSerializable readObject() throws IOException {
+            if (blockRemaining == 0) {
+                readBlock(in.readInt());
+            }
+            blockRemaining--;
+            int flags = block.readUnsignedByte();
+            if (flags == NULL_ENTRY) {
+                return null;
+            }
+            if ((flags & SAME_ROW) == 0) {
+                row = readBytes(block);
+            }
+            if ((flags & SAME_COLFAM) == 0) {
+                cf = readBytes(block);
+            }
+            if ((flags & SAME_COLQUAL) == 0) {
+                cq = readBytes(block);
+            }
+            if ((flags & SAME_COLVIS) == 0) {
+                cv = readBytes(block);
+            }
+            long timestamp = WritableUtils.readVLong(block);
+            byte[] value = readBytes(block);
+            // the component arrays are never modified, so they can be safely shared between keys
+            return new KeyValueSerializable(new Key(row, cf, cq, cv, timestamp, (flags & DELETED) != 0, false), value);
+        }
+        
+        @Override
+        public void skip(int n) throws IOException {
+            while (n > 0) {
+                if (blockRemaining == 0) {
+                    int count = in.readInt();
+                    // skip entire blocks without decompressing them
+                    if (count > 0 && count <= n) {
+                        in.readInt();
+                        IOUtils.skipFully(in, in.readInt());
+                        n -= count;
+                        continue;
+                    }
+                    readBlock(count);
+                }
+                int toSkip = Math.min(n, blockRemaining);
+                for (int i = 0; i < toSkip; i++) {
+                    readObject();
+                }
+                n -= toSkip;
+            }
+        }
+        
+        /**
+         * Read and decode the remainder of a block whose entry count has already been read
+         * 
+         * @param count
+         *            the number of entries in the block
+         * @throws IOException
+         */
+        private void readBlock(int count) throws IOException {
+            if (count <= 0) {
+                throw new IOException("Attempted to read beyond the last block");
+            }
+            int rawLength = in.readInt();
+            int storedLength = in.readInt();
+            if (raw.length < rawLength) {
+                raw = new byte[rawLength];
+            }
+            if (codec == null) {
+                in.readFully(raw, 0, rawLength);
+            } else {
+                if (stored.length < storedLength) {
+                    stored = new byte[storedLength];
+                }
+                in.readFully(stored, 0, storedLength);
+                if (decompressor != null) {
+                    decompressor.reset();
+                }
+                ByteArrayInputStream storedIn = new ByteArrayInputStream(stored, 0, storedLength);
+                CompressionInputStream stream = (decompressor == null ? codec.createInputStream(storedIn) : codec.createInputStream(storedIn, decompressor));
+                IOUtils.readFully(stream, raw, 0, rawLength);
+            }
+            block.reset(raw, rawLength);
+            blockRemaining = count;
+            row = cf = cq = cv = null;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            try {
+                in.close();
+            } finally {
+                if (decompressor != null) {
+                    CodecPool.returnDecompressor(decompressor);
+                }
+            }
+        }
+    }
+}
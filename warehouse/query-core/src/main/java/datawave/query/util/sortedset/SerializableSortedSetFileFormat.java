@@ -0,0 +1,70 @@
+package datawave.query.util.sortedset;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+
+/**
+ * The default FileSortedSet format which persists entries using java object serialization. Null entries are written as a FileSortedSet.NullObject.
+ * 
+ * @param <E>
+ */
+public class SerializableSortedSetFileFormat<E extends Serializable> implements SortedSetFileFormat<E> {
+    
+    @Override
+    public SortedSetOutputStream<E> newOutputStream(OutputStream out) throws IOException {
+        final ObjectOutputStream stream = new ObjectOutputStream(new BufferedOutputStream(out));
+        return new SortedSetOutputStream<E>() {
+            @Override
+            public void writeObject(E obj) throws IOException {
+                if (obj == null) {
+                    stream.writeObject(FileSortedSet.NULL_OBJECT);
+                } else {
+                    stream.writeObject(obj);
+                }
+            }
+            
+            @Override
+            public void writeSize(int size) throws IOException {
+                stream.writeInt(size);
+            }
+            
+            @Override
+            public void close() throws IOException {
+                stream.close();
+            }
+        };
+    }
+    
+    @Override
+    public SortedSetInputStream<E> newInputStream(InputStream in) throws IOException {
+        final ObjectInputStream stream = new ObjectInputStream(new BufferedInputStream(in));
+        return new SortedSetInputStream<E>() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public E readObject() throws IOException, ClassNotFoundException {
+                Object o = stream.readObject();
+                if (o instanceof FileSortedSet.NullObject) {
+                    return null;
+                } else {
+                    return (E) o;
+                }
+            }
+            
+            @Override
+            public void close() throws IOException {
+                stream.close();
+            }
+        };
+    }
+    
+    @Override
+    public String toString() {
+        return "serializable";
+    }
+}
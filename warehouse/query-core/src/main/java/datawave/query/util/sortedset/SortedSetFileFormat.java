@@ -0,0 +1,86 @@
+package datawave.query.util.sortedset;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The persistence format used by a FileSortedSet. A format wraps the raw streams supplied by a SortedSetFileHandler and is responsible for encoding the
+ * entries. Regardless of the encoding, the last 4 bytes of a persisted file must contain the number of entries written (big endian) as that is how the
+ * FileSortedSet determines its size without reading the entire file.
+ * 
+ * @param <E>
+ */
+public interface SortedSetFileFormat<E> {
+    
+    /**
+     * Create a writer over the supplied output stream
+     * 
+     * @param out
+     * @return the sorted set output stream
+     * @throws IOException
+     */
+    SortedSetOutputStream<E> newOutputStream(OutputStream out) throws IOException;
+    
+    /**
+     * Create a reader over the supplied input stream
+     * 
+     * @param in
+     * @return the sorted set input stream
+     * @throws IOException
+     */
+    SortedSetInputStream<E> newInputStream(InputStream in) throws IOException;
+    
+    /**
+     * A writer of sorted set entries
+     * 
+     * @param <E>
+     */
+    interface SortedSetOutputStream<E> extends Closeable {
+        /**
+         * Write the next entry. Entries are expected to be written in sorted order.
+         * 
+         * @param obj
+         * @throws IOException
+         */
+        void writeObject(E obj) throws IOException;
+        
+        /**
+         * Complete the file by writing the number of entries. This must be the last call before close and must result in the size being the last 4 bytes.
+         * 
+         * @param size
+         * @throws IOException
+         */
+        void writeSize(int size) throws IOException;
+    }
+    
+    /**
+     * A reader of sorted set entries
+     * 
+     * @param <E>
+     */
+    interface SortedSetInputStream<E> extends Closeable {
+        /**
+         * Read the next entry.
+         * 
+         * @return the next entry
+         * @throws IOException
+         * @throws ClassNotFoundException
+         */
+        E readObject() throws IOException, ClassNotFoundException;
+        
+        /**
+         * Skip over the next n entries. Formats that can skip without decoding should override this.
+         * 
+         * @param n
+         * @throws IOException
+         * @throws ClassNotFoundException
+         */
+        default void skip(int n) throws IOException, ClassNotFoundException {
+            for (int i = 0; i < n; i++) {
+                readObject();
+            }
+        }
+    }
+}
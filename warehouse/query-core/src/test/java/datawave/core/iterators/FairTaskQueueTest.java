@@ -0,0 +1,104 @@
+package datawave.core.iterators;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import datawave.core.iterators.FairTaskQueue.QueryTask;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FairTaskQueueTest {
+    
+    private static final Runnable NOOP = () -> {};
+    
+    private List<String> takeAll(FairTaskQueue queue) throws InterruptedException {
+        List<String> queryIds = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            queryIds.add(((QueryTask) queue.take()).getQueryId());
+        }
+        return queryIds;
+    }
+    
+    @Test
+    public void testRoundRobin() throws InterruptedException {
+        FairTaskQueue queue = new FairTaskQueue(100, 100);
+        for (int i = 0; i < 5; i++) {
+            queue.put(new QueryTask("big", NOOP));
+        }
+        queue.put(new QueryTask("small", NOOP));
+        queue.put(new QueryTask("other", NOOP));
+        
+        Assert.assertEquals(7, queue.size());
+        Assert.assertEquals(3, queue.getNumQueries());
+        Assert.assertEquals(5, queue.getNumQueued("big"));
+        
+        // the small queries do not wait behind all of the tasks of the big one
+        List<String> expected = new ArrayList<>();
+        expected.add("big");
+        expected.add("small");
+        expected.add("other");
+        for (int i = 0; i < 4; i++) {
+            expected.add("big");
+        }
+        Assert.assertEquals(expected, takeAll(queue));
+        Assert.assertEquals(0, queue.getNumQueries());
+        Assert.assertEquals(7, queue.getNumDequeued());
+    }
+    
+    @Test
+    public void testBounds() {
+        FairTaskQueue queue = new FairTaskQueue(3, 2);
+        Assert.assertTrue(queue.offer(new QueryTask("a", NOOP)));
+        Assert.assertTrue(queue.offer(new QueryTask("a", NOOP)));
+        // the per query bound
+        Assert.assertFalse(queue.offer(new QueryTask("a", NOOP)));
+        Assert.assertTrue(queue.offer(new QueryTask("b", NOOP)));
+        // the overall bound
+        Assert.assertFalse(queue.offer(new QueryTask("c", NOOP)));
+        Assert.assertEquals(0, queue.remainingCapacity());
+        
+        queue.poll();
+        Assert.assertTrue(queue.offer(new QueryTask("c", NOOP)));
+        
+        // growing the capacity makes room
+        queue.setCapacity(10, 10);
+        Assert.assertTrue(queue.offer(new QueryTask("a", NOOP)));
+    }
+    
+    @Test
+    public void testPutWaitsForRoom() throws InterruptedException {
+        FairTaskQueue queue = new FairTaskQueue(10, 1);
+        queue.put(new QueryTask("a", NOOP));
+        
+        CountDownLatch queued = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                queue.put(new QueryTask("a", NOOP));
+                queued.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        
+        Assert.assertFalse(queued.await(100, TimeUnit.MILLISECONDS));
+        Assert.assertNotNull(queue.poll(1, TimeUnit.SECONDS));
+        Assert.assertTrue(queued.await(10, TimeUnit.SECONDS));
+        producer.join();
+        Assert.assertEquals(1, queue.size());
+    }
+    
+    @Test
+    public void testTasksWithoutQueryId() throws InterruptedException {
+        FairTaskQueue queue = new FairTaskQueue(10, 10);
+        queue.put(NOOP);
+        queue.put(new QueryTask(null, NOOP));
+        Assert.assertEquals(1, queue.getNumQueries());
+        Assert.assertEquals(2, queue.getNumQueued(null));
+        Assert.assertTrue(queue.remove(NOOP));
+        Assert.assertEquals(1, queue.size());
+    }
+}
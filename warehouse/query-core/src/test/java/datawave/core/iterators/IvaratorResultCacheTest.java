@@ -0,0 +1,75 @@
+package datawave.core.iterators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import datawave.query.util.sortedset.KeyValueSerializable;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
+import org.apache.accumulo.core.data.Range;
+import org.junit.Test;
+
+public class IvaratorResultCacheTest {
+    
+    private static final Range FI_RANGE = new Range(new Key("20180101_1", "fi\0FIELD", "a"), true, new Key("20180101_1", "fi\0FIELD", "b"), false);
+    
+    private static IvaratorResultCache.ResultKey resultKey(String queryId, String term) {
+        return new IvaratorResultCache.ResultKey(queryId, "20180101_1", "ivarator", "FIELD", term, false, PartialKey.ROW_COLFAM,
+                        Collections.singletonList(FI_RANGE));
+    }
+    
+    private static List<KeyValueSerializable> results(int count) {
+        List<KeyValueSerializable> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            results.add(new KeyValueSerializable(new Key("20180101_1", "datatype\0uid" + i), new byte[0]));
+        }
+        return results;
+    }
+    
+    @Test
+    public void testCachedResultsCoverSubRanges() {
+        IvaratorResultCache cache = new IvaratorResultCache(1024 * 1024, 60 * 1000L);
+        Range range = new Range("20180101_1");
+        List<KeyValueSerializable> results = results(10);
+        assertEquals(results, cache.put(resultKey("query", "a.*"), range, results));
+        
+        // the same range, and one that picks up part way through the row, use the cached results
+        assertEquals(results, cache.get(resultKey("query", "a.*"), range));
+        Range rest = new Range(new Key("20180101_1", "datatype\0uid5"), false, range.getEndKey(), range.isEndKeyInclusive());
+        assertEquals(results, cache.get(resultKey("query", "a.*"), rest));
+        
+        // other queries, terms and ranges do not
+        assertNull(cache.get(resultKey("other", "a.*"), range));
+        assertNull(cache.get(resultKey("query", "b.*"), range));
+        assertNull(cache.get(resultKey("query", "a.*"), new Range("20180101_1", "20180101_2")));
+    }
+    
+    @Test
+    public void testLargeResultsAreNotCached() {
+        IvaratorResultCache cache = new IvaratorResultCache(4096, 60 * 1000L);
+        Range range = new Range("20180101_1");
+        assertNull(cache.put(resultKey("query", "a.*"), range, results(100)));
+        assertNull(cache.get(resultKey("query", "a.*"), range));
+        
+        assertNotNull(cache.put(resultKey("query", "a.*"), range, results(1)));
+        assertNotNull(cache.get(resultKey("query", "a.*"), range));
+        cache.clear();
+        assertNull(cache.get(resultKey("query", "a.*"), range));
+    }
+    
+    @Test
+    public void testDisabledCache() {
+        IvaratorResultCache cache = new IvaratorResultCache(0, 60 * 1000L);
+        assertFalse(cache.isEnabled());
+        Range range = new Range("20180101_1");
+        assertNull(cache.put(resultKey("query", "a.*"), range, results(1)));
+        assertNull(cache.get(resultKey("query", "a.*"), range));
+    }
+}
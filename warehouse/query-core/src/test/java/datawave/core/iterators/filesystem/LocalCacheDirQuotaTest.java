@@ -0,0 +1,124 @@
+package datawave.core.iterators.filesystem;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LocalCacheDirQuotaTest {
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private void writeFile(File dir, String name, int bytes) throws IOException {
+        dir.mkdirs();
+        try (FileOutputStream out = new FileOutputStream(new File(dir, name))) {
+            out.write(new byte[bytes]);
+        }
+    }
+    
+    @Test
+    public void testToFile() {
+        Assert.assertEquals(new File("/tmp/ivarators"), LocalCacheDirQuota.toFile("/tmp/ivarators"));
+        Assert.assertEquals(new File("/tmp/ivarators"), LocalCacheDirQuota.toFile("file:///tmp/ivarators"));
+    }
+    
+    @Test
+    public void testUsageRefresh() throws IOException {
+        File dir = temporaryFolder.newFolder("local");
+        writeFile(dir, "first", 100);
+        writeFile(new File(dir, "query"), "second", 50);
+        
+        long now = System.currentTimeMillis();
+        Assert.assertEquals(150, LocalCacheDirQuota.getUsage(dir, now));
+        
+        // the usage is cached until the refresh interval has passed
+        writeFile(dir, "third", 200);
+        Assert.assertEquals(150, LocalCacheDirQuota.getUsage(dir, now + LocalCacheDirQuota.USAGE_REFRESH_INTERVAL));
+        Assert.assertEquals(350, LocalCacheDirQuota.getUsage(dir, now + LocalCacheDirQuota.USAGE_REFRESH_INTERVAL + 1));
+    }
+    
+    @Test
+    public void testRemoveExpired() throws IOException {
+        File dir = temporaryFolder.newFolder("local");
+        long now = System.currentTimeMillis();
+        long expiration = 60 * 1000L;
+        
+        // a query that has not written anything within the expiration
+        File expired = new File(dir, "expired");
+        writeFile(new File(expired, "scan"), "file", 100);
+        setLastModified(expired, now - 2 * expiration);
+        
+        // a query that is still writing to one of its directories
+        File active = new File(dir, "active");
+        writeFile(new File(active, "scan"), "file", 100);
+        setLastModified(active, now - 2 * expiration);
+        new File(new File(active, "scan"), "file").setLastModified(now);
+        
+        // the query being run by the caller
+        File current = new File(dir, "current");
+        writeFile(new File(current, "scan"), "file", 100);
+        setLastModified(current, now - 2 * expiration);
+        
+        Assert.assertEquals(1, LocalCacheDirQuota.removeExpired(dir, expiration, "current", now));
+        Assert.assertFalse(expired.exists());
+        Assert.assertTrue(active.exists());
+        Assert.assertTrue(current.exists());
+        
+        // nothing to remove from a missing directory
+        Assert.assertEquals(0, LocalCacheDirQuota.removeExpired(new File(dir, "missing"), expiration, "current", now));
+    }
+    
+    private void setLastModified(File dir, long time) {
+        for (File file : dir.listFiles()) {
+            if (file.isDirectory()) {
+                setLastModified(file, time);
+            } else {
+                file.setLastModified(time);
+            }
+        }
+        dir.setLastModified(time);
+    }
+    
+    @Test
+    public void testMissingDir() {
+        File dir = new File(temporaryFolder.getRoot(), "missing");
+        Assert.assertEquals(0, LocalCacheDirQuota.getUsage(dir));
+        
+        // the free space is that of the nearest existing parent
+        Assert.assertTrue(LocalCacheDirQuota.hasCapacity(dir.getPath(), Collections.singletonList(dir.getPath()), 1, 0));
+    }
+    
+    @Test
+    public void testMaxBytes() throws IOException {
+        File first = temporaryFolder.newFolder("first");
+        File second = temporaryFolder.newFolder("second");
+        writeFile(first, "file", 1000);
+        writeFile(second, "file", 500);
+        
+        // the quota applies to the usage of all of the local directories
+        Assert.assertTrue(LocalCacheDirQuota.hasCapacity(first.getPath(), Collections.singletonList(first.getPath()), 1200, 0));
+        Assert.assertFalse(LocalCacheDirQuota.hasCapacity(first.getPath(), Arrays.asList(first.getPath(), second.getPath()), 1200, 0));
+        Assert.assertFalse(LocalCacheDirQuota.hasCapacity(second.getPath(), Arrays.asList(first.getPath(), second.getPath()), 1500, 0));
+        Assert.assertTrue(LocalCacheDirQuota.hasCapacity(second.getPath(), Arrays.asList(first.getPath(), second.getPath()), 1501, 0));
+        
+        // a max of 0 disables the quota
+        Assert.assertTrue(LocalCacheDirQuota.hasCapacity(first.getPath(), Arrays.asList(first.getPath(), second.getPath()), 0, 0));
+    }
+    
+    @Test
+    public void testMinFreeBytes() throws IOException {
+        File dir = temporaryFolder.newFolder("local");
+        long usable = dir.getUsableSpace();
+        
+        Assert.assertTrue(LocalCacheDirQuota.hasCapacity(dir.getPath(), Collections.singletonList(dir.getPath()), 0, 0));
+        Assert.assertTrue(LocalCacheDirQuota.hasCapacity("file://" + dir.getPath(), Collections.singletonList(dir.getPath()), 0, usable / 2));
+        Assert.assertFalse(LocalCacheDirQuota.hasCapacity(dir.getPath(), Collections.singletonList(dir.getPath()), 0, Long.MAX_VALUE));
+    }
+}
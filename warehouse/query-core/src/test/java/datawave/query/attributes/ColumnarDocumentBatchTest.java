@@ -0,0 +1,117 @@
+package datawave.query.attributes;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+import datawave.data.type.LcNoDiacriticsType;
+import datawave.query.DocumentSerialization;
+import datawave.query.function.serializer.DocumentValue;
+import datawave.query.function.serializer.KryoDocumentSerializer;
+import datawave.query.iterator.ResultBatchingIterator;
+
+public class ColumnarDocumentBatchTest {
+    
+    private Key createKey(int i, String visibility) {
+        return new Key("20180101_" + (i % 2), "datatype\0uid" + i, "", visibility, 1234L + i);
+    }
+    
+    private List<Entry<Key,Document>> createDocuments(int numDocuments) {
+        List<Entry<Key,Document>> documents = new ArrayList<>();
+        for (int i = 0; i < numDocuments; i++) {
+            String visibility = (i % 3 == 0 ? "A&B" : "A");
+            Key key = createKey(i, visibility);
+            Document d = new Document();
+            d.put("CONTENT", new Content("some content " + i, key, true));
+            d.put("NUMBER", new Numeric(i, key, true));
+            d.put("TYPED", new TypeAttribute<>(new LcNoDiacriticsType("value" + i), key, true));
+            // only some of the documents have this field
+            if (i % 2 == 0) {
+                d.put("SPARSE", new Content("sparse " + i, key, true));
+                d.put("SPARSE", new Content("another sparse " + i, key, true));
+            }
+            documents.add(Maps.immutableEntry(key, d));
+        }
+        return documents;
+    }
+    
+    private void verify(List<Entry<Key,Document>> expected, List<Entry<Key,Document>> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.get(i).getKey(), actual.get(i).getKey());
+            Document expectedDoc = expected.get(i).getValue();
+            Document actualDoc = actual.get(i).getValue();
+            Assert.assertEquals(expectedDoc.getDictionary().keySet(), actualDoc.getDictionary().keySet());
+            for (String field : expectedDoc.getDictionary().keySet()) {
+                Assert.assertEquals(expectedDoc.get(field), actualDoc.get(field));
+                Assert.assertEquals(expectedDoc.get(field).getColumnVisibility(), actualDoc.get(field).getColumnVisibility());
+            }
+        }
+    }
+    
+    @Test
+    public void testRoundTrip() {
+        ColumnarDocumentBatch batch = new ColumnarDocumentBatch();
+        List<Entry<Key,Document>> documents = createDocuments(20);
+        byte[] bytes = batch.serialize(documents);
+        verify(documents, batch.deserialize(new ByteArrayInputStream(bytes)));
+        
+        // the serializer is reused across batches
+        documents = createDocuments(3);
+        bytes = batch.serialize(documents);
+        verify(documents, new ColumnarDocumentBatch().deserialize(new ByteArrayInputStream(bytes)));
+    }
+    
+    @Test
+    public void testSmallerThanIndividualDocuments() {
+        List<Entry<Key,Document>> documents = createDocuments(100);
+        KryoDocumentSerializer serializer = new KryoDocumentSerializer();
+        int individualSize = 0;
+        for (Entry<Key,Document> document : documents) {
+            individualSize += serializer.serialize(document.getValue()).length;
+        }
+        int batchSize = new ColumnarDocumentBatch().serialize(documents).length;
+        Assert.assertTrue("batch of " + batchSize + " bytes not smaller than " + individualSize + " bytes", batchSize < individualSize);
+    }
+    
+    @Test
+    public void testResultBatchingIterator() {
+        List<Entry<Key,Document>> documents = createDocuments(25);
+        List<Entry<Key,Value>> values = new ArrayList<>();
+        for (Entry<Key,Document> document : documents) {
+            values.add(Maps.<Key,Value> immutableEntry(document.getKey(), new DocumentValue(document.getValue())));
+        }
+        Entry<Key,Value> passThrough = Maps.immutableEntry(new Key("final"), new Value(new byte[] {1, 2, 3}));
+        values.add(passThrough);
+        
+        for (boolean compress : new boolean[] {false, true}) {
+            Iterator<Entry<Key,Value>> batches = new ResultBatchingIterator(values.iterator(), 10, false, compress, null);
+            List<Entry<Key,Document>> actual = new ArrayList<>();
+            int numBatches = 0;
+            Entry<Key,Value> last = null;
+            while (batches.hasNext()) {
+                last = batches.next();
+                if (DocumentSerialization.isBatch(last.getValue().get())) {
+                    List<Entry<Key,Document>> batch = new ColumnarDocumentBatch().deserialize(DocumentSerialization.consumeBatchHeader(last.getValue()
+                                    .get()));
+                    // the batch is keyed by its last document
+                    Assert.assertEquals(batch.get(batch.size() - 1).getKey(), last.getKey());
+                    actual.addAll(batch);
+                    numBatches++;
+                }
+            }
+            Assert.assertEquals(3, numBatches);
+            Assert.assertSame(passThrough, last);
+            verify(documents, actual);
+        }
+    }
+}
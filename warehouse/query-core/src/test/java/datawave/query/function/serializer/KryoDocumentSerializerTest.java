@@ -0,0 +1,72 @@
+package datawave.query.function.serializer;
+
+import java.util.Map.Entry;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+import datawave.query.DocumentSerialization;
+import datawave.query.attributes.Content;
+import datawave.query.attributes.Document;
+import datawave.query.attributes.Numeric;
+import datawave.query.function.deserializer.KryoDocumentDeserializer;
+
+public class KryoDocumentSerializerTest {
+    
+    private static final Key DOC_KEY = new Key("20180101_0", "datatype\0uid", "", "A&B", 1234L);
+    
+    private Document createDocument(int numValues) {
+        Document d = new Document();
+        for (int i = 0; i < numValues; i++) {
+            d.put("CONTENT", new Content("some content " + i, DOC_KEY, true));
+            d.put("NUMBER", new Numeric(i, DOC_KEY, true));
+        }
+        return d;
+    }
+    
+    private void verify(KryoDocumentSerializer serializer, KryoDocumentDeserializer deserializer, Document document) {
+        Entry<Key,Value> serialized = serializer.apply(Maps.immutableEntry(DOC_KEY, document));
+        Entry<Key,Document> deserialized = deserializer.apply(serialized);
+        
+        Assert.assertEquals(DOC_KEY, deserialized.getKey());
+        Assert.assertEquals(document.size(), deserialized.getValue().size());
+        Assert.assertEquals(document.get("CONTENT"), deserialized.getValue().get("CONTENT"));
+        Assert.assertEquals(document.get("NUMBER"), deserialized.getValue().get("NUMBER"));
+    }
+    
+    @Test
+    public void testReusedBuffers() {
+        KryoDocumentSerializer serializer = new KryoDocumentSerializer();
+        KryoDocumentDeserializer deserializer = new KryoDocumentDeserializer();
+        // a large document followed by a smaller one to ensure the reused buffers do not leak data between documents
+        verify(serializer, deserializer, createDocument(1000));
+        verify(serializer, deserializer, createDocument(2));
+        verify(serializer, deserializer, createDocument(1));
+    }
+    
+    @Test
+    public void testCompressed() {
+        KryoDocumentSerializer serializer = new KryoDocumentSerializer(false, true);
+        KryoDocumentDeserializer deserializer = new KryoDocumentDeserializer();
+        verify(serializer, deserializer, createDocument(1000));
+        verify(serializer, deserializer, createDocument(1));
+    }
+    
+    @Test
+    public void testValueMatchesSerialize() {
+        KryoDocumentSerializer serializer = new KryoDocumentSerializer();
+        Document document = createDocument(10);
+        byte[] header = DocumentSerialization.getHeader();
+        byte[] body = serializer.serialize(document);
+        byte[] value = serializer.apply(Maps.immutableEntry(DOC_KEY, document)).getValue().get();
+        
+        Assert.assertEquals(header.length + body.length, value.length);
+        for (int i = 0; i < body.length; i++) {
+            Assert.assertEquals(body[i], value[header.length + i]);
+        }
+    }
+}
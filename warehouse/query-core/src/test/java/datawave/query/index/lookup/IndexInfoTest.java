@@ -0,0 +1,85 @@
+package datawave.query.index.lookup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import datawave.query.jexl.JexlASTHelper;
+
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.commons.jexl2.parser.ParseException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class IndexInfoTest {
+    
+    private IndexInfo info(String query, String... uids) throws ParseException {
+        IndexInfo info = new IndexInfo(Lists.newArrayList(uids));
+        info.applyNode(JexlASTHelper.parseJexlQuery(query).jjtGetChild(0));
+        return info;
+    }
+    
+    private List<String> uids(Set<IndexMatch> matches) {
+        List<String> uids = new ArrayList<>();
+        for (IndexMatch match : matches) {
+            uids.add(match.getUid());
+        }
+        return uids;
+    }
+    
+    @Test
+    public void testIntersect() throws ParseException {
+        IndexInfo left = info("FOO == 'bar'", "c", "a", "e", "d");
+        IndexInfo right = info("BAZ == 'qux'", "b", "d", "f", "a");
+        
+        IndexInfo merged = left.intersect(right);
+        Assert.assertEquals(Lists.newArrayList("a", "d"), uids(merged.uids()));
+        Assert.assertEquals(2, merged.count());
+        for (IndexMatch match : merged.uids()) {
+            Assert.assertEquals(2, match.nodeStrings.size());
+        }
+    }
+    
+    @Test
+    public void testSortedIntersectMatchesHashedIntersect() throws ParseException {
+        IndexInfo left = info("FOO == 'bar'", "a", "b", "c", "x");
+        IndexInfo right = info("BAZ == 'qux'", "b", "c", "y");
+        List<JexlNode> delayed = new ArrayList<>();
+        
+        Set<IndexMatch> sorted = left.intersect(left.uids(), right.uids(), delayed);
+        Set<IndexMatch> hashed = left.intersect(Sets.newHashSet(left.uids()), Sets.newHashSet(right.uids()), delayed);
+        Assert.assertEquals(Lists.newArrayList("b", "c"), uids(sorted));
+        Assert.assertEquals(Sets.newHashSet(sorted), hashed);
+    }
+    
+    @Test
+    public void testIntersectWithLarge() throws ParseException {
+        IndexInfo small = info("FOO == 'bar'", "b", "a");
+        IndexInfo large = new IndexInfo(1000);
+        large.applyNode(JexlASTHelper.parseJexlQuery("BAZ == 'qux'").jjtGetChild(0));
+        
+        IndexInfo merged = large.intersect(small);
+        Assert.assertEquals(Lists.newArrayList("a", "b"), uids(merged.uids()));
+        for (IndexMatch match : merged.uids()) {
+            Assert.assertEquals(2, match.nodeStrings.size());
+        }
+    }
+    
+    @Test
+    public void testUnion() throws ParseException {
+        IndexInfo left = info("FOO == 'bar'", "c", "a");
+        IndexInfo right = info("BAZ == 'qux'", "b", "c");
+        
+        IndexInfo merged = left.union(right);
+        Assert.assertEquals(Lists.newArrayList("a", "b", "c"), uids(merged.uids()));
+        Assert.assertEquals(3, merged.count());
+        
+        // only the shared uid has both nodes
+        for (IndexMatch match : merged.uids()) {
+            Assert.assertEquals(match.getUid().equals("c") ? 2 : 1, match.nodeStrings.size());
+        }
+    }
+}
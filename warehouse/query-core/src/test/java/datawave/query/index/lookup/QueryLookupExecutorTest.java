@@ -0,0 +1,127 @@
+package datawave.query.index.lookup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import datawave.webservice.query.QueryImpl;
+import datawave.webservice.query.util.QueryUncaughtExceptionHandler;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryLookupExecutorTest {
+    
+    private IndexLookupScheduler scheduler;
+    
+    @Before
+    public void setup() {
+        scheduler = new IndexLookupScheduler(4, 4, 100, 100);
+    }
+    
+    @Test
+    public void testMaxConcurrent() throws Exception {
+        QueryLookupExecutor executor = scheduler.newLookupExecutor(null, 2);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            final int value = i;
+            tasks.add(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(5);
+                running.decrementAndGet();
+                return value;
+            });
+        }
+        
+        List<Future<Integer>> futures = executor.invokeAll(tasks);
+        for (int i = 0; i < futures.size(); i++) {
+            Assert.assertEquals(Integer.valueOf(i), futures.get(i).get());
+        }
+        // the pool has 4 threads, but this query may only use 2 of them
+        Assert.assertTrue(maxRunning.get() <= 2);
+        
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void testShutdownNowOnlyAffectsTheQuery() throws Exception {
+        QueryLookupExecutor executor = scheduler.newLookupExecutor(null, 1);
+        QueryLookupExecutor other = scheduler.newLookupExecutor(null, 1);
+        
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        executor.submit(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        for (int i = 0; i < 3; i++) {
+            executor.submit(() -> {});
+        }
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        
+        // the running lookup is interrupted and the queued ones are returned
+        Assert.assertEquals(3, executor.shutdownNow().size());
+        Assert.assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(executor.isShutdown());
+        
+        // the shared pool carries on with the other queries
+        Assert.assertEquals("done", other.submit(() -> "done").get(10, TimeUnit.SECONDS));
+        other.shutdown();
+        Assert.assertTrue(other.awaitTermination(10, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void testUncaughtExceptionHandler() throws Exception {
+        QueryImpl query = new QueryImpl();
+        query.setId(UUID.randomUUID());
+        QueryUncaughtExceptionHandler handler = new QueryUncaughtExceptionHandler();
+        query.setUncaughtExceptionHandler(handler);
+        QueryLookupExecutor executor = scheduler.newLookupExecutor(query, 1);
+        
+        // the failure of a submitted task is surfaced through its future, while the pool thread has the query's handler
+        final AtomicReference<Thread.UncaughtExceptionHandler> threadHandler = new AtomicReference<>();
+        Future<?> future = executor.submit(() -> {
+            threadHandler.set(Thread.currentThread().getUncaughtExceptionHandler());
+            throw new IllegalStateException("submitted");
+        });
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            Assert.fail("Expected the lookup to fail");
+        } catch (ExecutionException e) {
+            Assert.assertEquals("submitted", e.getCause().getMessage());
+        }
+        Assert.assertSame(handler, threadHandler.get());
+        Assert.assertNull(handler.getThrowable());
+        
+        // the failure of an executed task is passed to the query's handler, as it would have escaped a thread of the query
+        executor.execute(() -> {
+            throw new IllegalStateException("executed");
+        });
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertEquals("executed", handler.getThrowable().getMessage());
+    }
+    
+    @Test(expected = RejectedExecutionException.class)
+    public void testRejectedAfterShutdown() {
+        QueryLookupExecutor executor = scheduler.newLookupExecutor(null, 1);
+        executor.shutdown();
+        executor.execute(() -> {});
+    }
+}
@@ -0,0 +1,123 @@
+package datawave.query.iterator;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+import datawave.query.DocumentSerialization;
+import datawave.query.attributes.ColumnarDocumentBatch;
+import datawave.query.attributes.Content;
+import datawave.query.attributes.Document;
+import datawave.query.function.serializer.DocumentValue;
+
+public class ResultBatchingIteratorTest {
+    
+    /**
+     * A yield callback with the methods the {@link YieldCallbackWrapper} looks up
+     */
+    public static class TestYieldCallback {
+        private Key position = null;
+        
+        public void yield(Key key) {
+            this.position = key;
+        }
+        
+        public boolean hasYielded() {
+            return (position != null);
+        }
+        
+        public Key getPositionAndReset() {
+            Key key = position;
+            position = null;
+            return key;
+        }
+    }
+    
+    private Entry<Key,Value> createDocument(int i) {
+        Key key = new Key("20180101_0", "datatype\0uid" + i);
+        Document d = new Document();
+        d.put("CONTENT", new Content("some content " + i, key, true));
+        return Maps.<Key,Value> immutableEntry(key, new DocumentValue(d));
+    }
+    
+    private List<Key> getBatchKeys(Entry<Key,Value> entry) {
+        Assert.assertTrue(DocumentSerialization.isBatch(entry.getValue().get()));
+        List<Key> keys = new ArrayList<>();
+        for (Entry<Key,Document> document : new ColumnarDocumentBatch().deserialize(DocumentSerialization.consumeBatchHeader(entry.getValue().get()))) {
+            keys.add(document.getKey());
+        }
+        return keys;
+    }
+    
+    @Test
+    public void testPassThrough() {
+        Entry<Key,Value> first = Maps.immutableEntry(new Key("first"), new Value(new byte[] {1}));
+        Entry<Key,Value> middle = Maps.immutableEntry(new Key("middle"), new Value(new byte[] {2}));
+        List<Entry<Key,Value>> values = new ArrayList<>();
+        values.add(first);
+        values.add(createDocument(0));
+        values.add(createDocument(1));
+        values.add(middle);
+        values.add(createDocument(2));
+        
+        // the values that are not documents are returned as is, in order, closing the pending batch
+        Iterator<Entry<Key,Value>> batches = new ResultBatchingIterator(values.iterator(), 10, false, false, null);
+        Assert.assertSame(first, batches.next());
+        Entry<Key,Value> batch = batches.next();
+        Assert.assertEquals(values.get(2).getKey(), batch.getKey());
+        Assert.assertEquals(2, getBatchKeys(batch).size());
+        Assert.assertSame(middle, batches.next());
+        batch = batches.next();
+        Assert.assertEquals(values.get(4).getKey(), batch.getKey());
+        Assert.assertEquals(1, getBatchKeys(batch).size());
+        Assert.assertFalse(batches.hasNext());
+    }
+    
+    @Test
+    public void testDeferredYield() {
+        final TestYieldCallback callback = new TestYieldCallback();
+        final Key yieldKey = new Key("20180101_0", "datatype\0uid3");
+        final List<Entry<Key,Value>> values = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            values.add(createDocument(i));
+        }
+        
+        // yields after returning three documents
+        Iterator<Entry<Key,Value>> source = new Iterator<Entry<Key,Value>>() {
+            private final Iterator<Entry<Key,Value>> delegate = values.iterator();
+            
+            @Override
+            public boolean hasNext() {
+                if (delegate.hasNext()) {
+                    return true;
+                }
+                callback.yield(yieldKey);
+                return false;
+            }
+            
+            @Override
+            public Entry<Key,Value> next() {
+                return delegate.next();
+            }
+        };
+        
+        Iterator<Entry<Key,Value>> batches = new ResultBatchingIterator(source, 10, false, false, new YieldCallbackWrapper<>(callback));
+        Assert.assertTrue(batches.hasNext());
+        Entry<Key,Value> batch = batches.next();
+        Assert.assertEquals(3, getBatchKeys(batch).size());
+        
+        // the yield is deferred until the documents already pulled from the source have been returned
+        Assert.assertFalse(callback.hasYielded());
+        Assert.assertFalse(batches.hasNext());
+        Assert.assertTrue(callback.hasYielded());
+        Assert.assertEquals(yieldKey, callback.getPositionAndReset());
+    }
+}
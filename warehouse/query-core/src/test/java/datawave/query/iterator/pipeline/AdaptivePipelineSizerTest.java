@@ -0,0 +1,60 @@
+package datawave.query.iterator.pipeline;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptivePipelineSizerTest {
+    
+    private static final long CHEAP = AdaptivePipelineSizer.CHEAP_EVALUATION_NANOS / 10;
+    private static final long EXPENSIVE = TimeUnit.MILLISECONDS.toNanos(50);
+    
+    private void record(AdaptivePipelineSizer sizer, long evaluationNanos, long waitNanos) {
+        for (int i = 0; i < AdaptivePipelineSizer.ADJUST_INTERVAL; i++) {
+            sizer.record(evaluationNanos, waitNanos);
+        }
+    }
+    
+    @Test
+    public void testCheapEvaluationsShrinkToOne() {
+        AdaptivePipelineSizer sizer = new AdaptivePipelineSizer(16, Long.MAX_VALUE, () -> false);
+        Assert.assertEquals(16, sizer.getActivePipelines());
+        for (int i = 0; i < 5; i++) {
+            record(sizer, CHEAP, 0);
+        }
+        Assert.assertEquals(1, sizer.getActivePipelines());
+    }
+    
+    @Test
+    public void testExpensiveEvaluationsGrowBackToMax() {
+        AdaptivePipelineSizer sizer = new AdaptivePipelineSizer(16, Long.MAX_VALUE, () -> false);
+        for (int i = 0; i < 5; i++) {
+            record(sizer, CHEAP, 0);
+        }
+        // the evaluations become expensive and the iterator is waiting on them
+        for (int i = 0; i < 10; i++) {
+            record(sizer, EXPENSIVE, EXPENSIVE);
+        }
+        Assert.assertEquals(16, sizer.getActivePipelines());
+    }
+    
+    @Test
+    public void testSaturatedPoolShrinks() {
+        AdaptivePipelineSizer sizer = new AdaptivePipelineSizer(16, Long.MAX_VALUE, () -> true);
+        record(sizer, EXPENSIVE, EXPENSIVE);
+        Assert.assertEquals(12, sizer.getActivePipelines());
+        for (int i = 0; i < 20; i++) {
+            record(sizer, EXPENSIVE, EXPENSIVE);
+        }
+        Assert.assertEquals(1, sizer.getActivePipelines());
+    }
+    
+    @Test
+    public void testYieldThresholdCapsSize() {
+        // at 50ms an evaluation, a 200ms yield period covers 4 pipelines
+        AdaptivePipelineSizer sizer = new AdaptivePipelineSizer(16, 200, () -> false);
+        record(sizer, EXPENSIVE, EXPENSIVE);
+        Assert.assertEquals(4, sizer.getActivePipelines());
+    }
+}
@@ -0,0 +1,167 @@
+package datawave.query.iterator.pipeline;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+import datawave.query.attributes.Document;
+import datawave.query.iterator.NestedIterator;
+import datawave.query.iterator.NestedQueryIterator;
+import datawave.query.iterator.QueryIterator;
+import datawave.query.iterator.profile.QuerySpanCollector;
+
+public class PipelineIteratorTest {
+    
+    private static final int MAX_PIPELINES = 4;
+    // well above the cost of handing a document to another thread
+    private static final long EXPENSIVE_EVALUATION_MS = 2;
+    
+    private final ExecutorService executor = Executors.newFixedThreadPool(MAX_PIPELINES);
+    
+    /**
+     * Returns the documents with the given keys
+     */
+    private static class DocumentKeys implements NestedIterator<Key> {
+        private final Iterator<Key> keys;
+        
+        public DocumentKeys(List<Key> keys) {
+            this.keys = keys.iterator();
+        }
+        
+        @Override
+        public void initialize() {}
+        
+        @Override
+        public Key move(Key minimum) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public Collection<NestedIterator<Key>> leaves() {
+            return Collections.emptyList();
+        }
+        
+        @Override
+        public Collection<NestedIterator<Key>> children() {
+            return Collections.emptyList();
+        }
+        
+        @Override
+        public Document document() {
+            return new Document();
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return keys.hasNext();
+        }
+        
+        @Override
+        public Key next() {
+            return keys.next();
+        }
+        
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+    
+    /**
+     * Evaluates each document by returning its key, taking {@link #EXPENSIVE_EVALUATION_MS} for the documents whose row is "expensive"
+     */
+    private static class TestQueryIterator extends QueryIterator {
+        @Override
+        public Iterator<Entry<Key,Value>> createDocumentPipeline(SortedKeyValueIterator<Key,Value> deepSourceCopy,
+                        final NestedQueryIterator<Key> documentSpecificSource, QuerySpanCollector querySpanCollector) {
+            return new Iterator<Entry<Key,Value>>() {
+                @Override
+                public boolean hasNext() {
+                    return documentSpecificSource.hasNext();
+                }
+                
+                @Override
+                public Entry<Key,Value> next() {
+                    Key key = documentSpecificSource.next();
+                    if (key.getRow().toString().equals("expensive")) {
+                        try {
+                            Thread.sleep(EXPENSIVE_EVALUATION_MS);
+                        } catch (InterruptedException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                    return Maps.immutableEntry(key, new Value(new byte[0]));
+                }
+            };
+        }
+    }
+    
+    /**
+     * Runs the evaluations on a local thread pool that is never saturated
+     */
+    private class TestPipelineIterator extends PipelineIterator {
+        public TestPipelineIterator(List<Key> keys) {
+            super(new DocumentKeys(keys), MAX_PIPELINES, 10, null, null, new TestQueryIterator(), new SortedMapIterator(new TreeMap<Key,Value>()), null, null,
+                            Long.MAX_VALUE);
+        }
+        
+        @Override
+        protected Future<?> executeEvaluation(Pipeline pipeline) {
+            return executor.submit(pipeline);
+        }
+        
+        @Override
+        protected boolean isEvaluationPoolSaturated() {
+            return false;
+        }
+    }
+    
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    public void testPipelinesGrowBackAfterCheapDocuments() {
+        List<Key> keys = new ArrayList<>();
+        for (int i = 0; i < 4 * AdaptivePipelineSizer.ADJUST_INTERVAL; i++) {
+            keys.add(new Key("cheap", "datatype\0uid" + i));
+        }
+        for (int i = 0; i < 6 * AdaptivePipelineSizer.ADJUST_INTERVAL; i++) {
+            keys.add(new Key("expensive", "datatype\0uid" + i));
+        }
+        
+        TestPipelineIterator iterator = new TestPipelineIterator(keys);
+        iterator.setAdaptivePipelines(true);
+        iterator.startPipeline();
+        
+        List<Key> returned = new ArrayList<>();
+        int minPipelines = MAX_PIPELINES;
+        while (iterator.hasNext()) {
+            returned.add(iterator.next().getKey());
+            minPipelines = Math.min(minPipelines, iterator.sizer.getActivePipelines());
+        }
+        
+        // the cheap documents were evaluated by the iterator itself, and the expensive ones grew the pipelines back to the max
+        Assert.assertEquals(keys, returned);
+        Assert.assertEquals(1, minPipelines);
+        Assert.assertEquals(MAX_PIPELINES, iterator.sizer.getActivePipelines());
+    }
+}
@@ -0,0 +1,135 @@
+package datawave.query.jexl.compiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import datawave.query.attributes.ValueTuple;
+import datawave.query.jexl.ArithmeticJexlEngines;
+import datawave.query.jexl.DatawaveInterpreter;
+import datawave.query.jexl.DatawaveJexlContext;
+import datawave.query.jexl.DatawaveJexlEngine;
+import datawave.query.jexl.DefaultArithmetic;
+import datawave.query.jexl.HitListArithmetic;
+
+import org.apache.commons.jexl2.JexlArithmetic;
+import org.apache.commons.jexl2.Script;
+import org.junit.Test;
+
+public class JexlCompilerTest {
+    
+    private final JexlArithmetic arithmetic = new DefaultArithmetic();
+    private final DatawaveJexlEngine engine = ArithmeticJexlEngines.getEngine(arithmetic);
+    
+    @Test
+    public void testComparisons() {
+        DatawaveJexlContext context = new DatawaveJexlContext();
+        context.set("FOO", "bar");
+        context.set("NUM", 10);
+        
+        assertSameResult("FOO == 'bar'", context, true);
+        assertSameResult("FOO != 'bar'", context, false);
+        assertSameResult("FOO =~ 'b.*'", context, true);
+        assertSameResult("FOO !~ 'b.*'", context, false);
+        assertSameResult("NUM > 5 && NUM <= 10", context, true);
+        assertSameResult("NUM < -5 || FOO == 'baz'", context, false);
+        assertSameResult("!(FOO == 'baz')", context, true);
+        assertSameResult("MISSING == 'bar' || (FOO == 'bar' && NUM >= 10)", context, true);
+        assertSameResult("MISSING == null", context, true);
+    }
+    
+    @Test
+    public void testRangesAndMarkers() {
+        String query = "((GEO == '0321􏿿+bE4.4' || GEO == '0334􏿿+bE4.4' || GEO == '0320􏿿+bE4.4' || GEO == '0335􏿿+bE4.4') && ((ASTDelayedPredicate = true) && ((GEO >= '030a' && GEO <= '0335') && (WKT_BYTE_LENGTH >= '+AE0' && WKT_BYTE_LENGTH < '+bE8'))))";
+        
+        DatawaveJexlContext context = new DatawaveJexlContext();
+        context.set("GEO", "0321􏿿+bE4.4");
+        context.set("WKT_BYTE_LENGTH", "+bE4.4");
+        assertSameResult(query, context, true);
+        
+        context = new DatawaveJexlContext();
+        context.set("GEO", Arrays.asList("0100", "0321􏿿+bE4.4"));
+        context.set("WKT_BYTE_LENGTH", "+bE9");
+        assertSameResult(query, context, false);
+    }
+    
+    @Test
+    public void testFunctionsAreInterpreted() {
+        DatawaveJexlContext context = new DatawaveJexlContext();
+        context.set("FOO", "bar");
+        
+        assertNull(JexlCompiler.compile(engine, arithmetic, engine.parse("filter:isNull(FOO)")));
+        assertSameResult("FOO == 'bar' && filter:isNull(FOO)", context, false);
+        assertSameResult("FOO == 'bar' && !filter:isNull(FOO)", context, true);
+    }
+    
+    @Test
+    public void testJunctionsAreReordered() {
+        // the cheap equality is evaluated before the function, and the nested conjunctions are merged
+        CompiledScript compiled = JexlCompiler.compile(engine, arithmetic, engine.parse("filter:includeRegex(FOO, 'b.*') && FOO == 'bar' && BAR == 'foo'"));
+        CompiledNode.OrderedJunction junction = (CompiledNode.OrderedJunction) compiled.root;
+        assertEquals(3, junction.children.length);
+        assertTrue(junction.children[0] instanceof CompiledNode.Comparison);
+        assertTrue(junction.children[2] instanceof CompiledNode.Interpreted);
+        
+        // the equality that fails most documents moves to the front
+        DatawaveJexlContext context = new DatawaveJexlContext();
+        context.set("FOO", "bar");
+        context.set("BAR", "baz");
+        for (int i = 0; i < CompiledNode.OrderedJunction.REORDER_INTERVAL; i++) {
+            assertEquals(Boolean.FALSE, compiled.execute(context));
+        }
+        assertEquals("BAR", ((CompiledNode.Identifier) ((CompiledNode.Comparison) junction.children[0]).left).name);
+    }
+    
+    @Test
+    public void testHitListJunctionsAreNotReordered() {
+        HitListArithmetic hitListArithmetic = new HitListArithmetic();
+        DatawaveJexlEngine hitListEngine = ArithmeticJexlEngines.getEngine(hitListArithmetic);
+        for (String query : Arrays.asList("filter:includeRegex(FOO, 'b.*') || FOO == 'bar'", "filter:includeRegex(FOO, 'b.*') && FOO == 'bar'")) {
+            CompiledScript compiled = JexlCompiler.compile(hitListEngine, hitListArithmetic, hitListEngine.parse(query));
+            CompiledNode.OrderedJunction junction = (CompiledNode.OrderedJunction) compiled.root;
+            assertFalse(query, junction.reorder);
+            assertTrue(query, junction.children[0] instanceof CompiledNode.Interpreted);
+        }
+    }
+    
+    @Test
+    public void testSameHitList() {
+        String query = "(FOO == 'bar' && BAR == 'foo') || BAZ == 'qux'";
+        DatawaveJexlContext context = new DatawaveJexlContext();
+        context.set("FOO", new ValueTuple("FOO", "bar", "bar", null));
+        context.set("BAR", new ValueTuple("BAR", "baz", "baz", null));
+        context.set("BAZ", new ValueTuple("BAZ", "qux", "qux", null));
+        
+        HitListArithmetic scriptArithmetic = new HitListArithmetic();
+        Script script = ArithmeticJexlEngines.getEngine(scriptArithmetic).createScript(query);
+        HitListArithmetic compiledArithmetic = new HitListArithmetic();
+        DatawaveJexlEngine compiledEngine = ArithmeticJexlEngines.getEngine(compiledArithmetic);
+        CompiledScript compiled = JexlCompiler.compile(compiledEngine, compiledArithmetic, compiledEngine.parse(query));
+        assertNotNull(compiled);
+        
+        // the failing BAR == 'foo' is never evaluated ahead of FOO == 'bar', however many documents are evaluated
+        for (int i = 0; i <= CompiledNode.OrderedJunction.REORDER_INTERVAL; i++) {
+            scriptArithmetic.clear();
+            compiledArithmetic.clear();
+            assertTrue(DatawaveInterpreter.isMatched(script.execute(context)));
+            assertTrue(DatawaveInterpreter.isMatched(compiled.execute(context)));
+            assertEquals(scriptArithmetic.getHitSet(), compiledArithmetic.getHitSet());
+        }
+        assertEquals(2, compiledArithmetic.getHitSet().size());
+    }
+    
+    private void assertSameResult(String query, DatawaveJexlContext context, boolean expected) {
+        Script script = engine.createScript(query);
+        CompiledScript compiled = JexlCompiler.compile(engine, arithmetic, engine.parse(query));
+        assertNotNull("Expected " + query + " to be compiled", compiled);
+        
+        assertEquals(query, expected, DatawaveInterpreter.isMatched(script.execute(context)));
+        assertEquals(query, expected, DatawaveInterpreter.isMatched(compiled.execute(context)));
+    }
+}
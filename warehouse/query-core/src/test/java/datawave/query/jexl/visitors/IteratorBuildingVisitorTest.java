@@ -0,0 +1,98 @@
+package datawave.query.jexl.visitors;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+
+import datawave.core.iterators.filesystem.FileSystemCache;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.powermock.reflect.Whitebox;
+
+public class IteratorBuildingVisitorTest {
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private File firstLocalDir;
+    private File secondLocalDir;
+    private File hdfsDir;
+    private IteratorBuildingVisitor visitor;
+    
+    @Before
+    public void setup() throws IOException {
+        firstLocalDir = temporaryFolder.newFolder("local1");
+        secondLocalDir = temporaryFolder.newFolder("local2");
+        hdfsDir = temporaryFolder.newFolder("hdfs");
+        
+        visitor = new IteratorBuildingVisitor();
+        visitor.setHdfsFileSystem(new FileSystemCache(""));
+        visitor.setQueryId("query");
+        visitor.setScanId("scan");
+        visitor.setIvaratorCacheLocalDirs(Arrays.asList(firstLocalDir.getPath(), secondLocalDir.getPath()));
+        visitor.setIvaratorCacheDirURIAlternatives(Collections.singletonList(hdfsDir.toURI().toString()));
+    }
+    
+    private File getTemporaryCacheDir() throws Exception {
+        URI uri = Whitebox.invokeMethod(visitor, "getTemporaryCacheDir");
+        return new File(uri.getPath());
+    }
+    
+    private File getCacheDir(File baseDir, String subdirectory) {
+        return new File(new File(new File(baseDir, "query"), "scan"), subdirectory);
+    }
+    
+    private void writeFile(File dir, int bytes) throws IOException {
+        dir.mkdirs();
+        try (FileOutputStream out = new FileOutputStream(new File(dir, "file"))) {
+            out.write(new byte[bytes]);
+        }
+    }
+    
+    @Test
+    public void testLocalDirsFirst() throws Exception {
+        visitor.setIvaratorCacheLocalQuota(0, 0);
+        
+        File dir = getTemporaryCacheDir();
+        Assert.assertEquals(getCacheDir(firstLocalDir, "term1"), dir);
+        Assert.assertTrue(dir.isDirectory());
+        Assert.assertEquals(getCacheDir(firstLocalDir, "term2"), getTemporaryCacheDir());
+    }
+    
+    @Test
+    public void testLocalQuotaExceeded() throws Exception {
+        writeFile(firstLocalDir, 1000);
+        visitor.setIvaratorCacheLocalQuota(500, 0);
+        
+        // the quota covers all of the local directories, so the hdfs alternative is used
+        File dir = getTemporaryCacheDir();
+        Assert.assertEquals(getCacheDir(hdfsDir, "term1"), dir);
+        Assert.assertTrue(dir.isDirectory());
+    }
+    
+    @Test
+    public void testLocalMinFreeBytes() throws Exception {
+        visitor.setIvaratorCacheLocalQuota(0, Long.MAX_VALUE);
+        
+        Assert.assertEquals(getCacheDir(hdfsDir, "term1"), getTemporaryCacheDir());
+    }
+    
+    @Test
+    public void testExistingLocalDirReused() throws Exception {
+        // a previous scan session created the directory of the first ivarator in the second local directory, filling the quota
+        writeFile(getCacheDir(secondLocalDir, "term1"), 1000);
+        visitor.setIvaratorCacheLocalQuota(500, 0);
+        
+        Assert.assertEquals(getCacheDir(secondLocalDir, "term1"), getTemporaryCacheDir());
+        
+        // the next ivarator has no directory yet, and the quota is exceeded
+        Assert.assertEquals(getCacheDir(hdfsDir, "term2"), getTemporaryCacheDir());
+    }
+}
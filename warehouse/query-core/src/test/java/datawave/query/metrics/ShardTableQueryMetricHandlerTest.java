@@ -0,0 +1,294 @@
+package datawave.query.metrics;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import datawave.webservice.query.metric.BaseQueryMetric.Lifecycle;
+import datawave.webservice.query.metric.BaseQueryMetric.PageMetric;
+import datawave.webservice.query.metric.QueryMetric;
+import datawave.webservice.query.result.event.DefaultEvent;
+import datawave.webservice.query.result.event.DefaultField;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+import com.google.common.collect.Multimap;
+
+public class ShardTableQueryMetricHandlerTest {
+    
+    private static final String NULL = "\0";
+    
+    /**
+     * Writes the event fields of the metrics to a map in place of the shard table. The map holds the timestamp of each field and value, and the timestamp of
+     * the last delete of each field and value, which hides the entries of the same field and value that are not newer than it.
+     */
+    private static class TestShardTableQueryMetricHandler extends ShardTableQueryMetricHandler {
+        private final ContentQueryMetricsIngestHelper.HelperDelegate<QueryMetric> delegate = new ContentQueryMetricsIngestHelper.HelperDelegate<>();
+        private final Map<String,Long> entries = new HashMap<>();
+        private final Map<String,Long> deletes = new HashMap<>();
+        private int writes = 0;
+        private boolean failWrites = false;
+        
+        @Override
+        protected void writeMetrics(QueryMetric updatedQueryMetric, QueryMetric storedQueryMetric, Date lastUpdated, boolean delete) throws Exception {
+            if (failWrites) {
+                throw new IOException("Failed to write the metric");
+            }
+            if (delete) {
+                for (Entry<String,String> field : delegate.getEventFieldsToDelete(updatedQueryMetric, storedQueryMetric).entries()) {
+                    deletes.merge(field.getKey() + NULL + field.getValue(), lastUpdated.getTime(), Math::max);
+                }
+            } else {
+                Multimap<String,String> fields = delegate.getEventFieldsToWrite(updatedQueryMetric);
+                if (storedQueryMetric != null) {
+                    for (Entry<String,String> storedField : delegate.getEventFieldsToWrite(storedQueryMetric).entries()) {
+                        fields.remove(storedField.getKey(), storedField.getValue());
+                    }
+                }
+                long timestamp = updatedQueryMetric.getCreateDate().getTime() + updatedQueryMetric.getNumUpdates();
+                for (Entry<String,String> field : fields.entries()) {
+                    entries.merge(field.getKey() + NULL + field.getValue(), timestamp, Math::max);
+                }
+                writes++;
+            }
+        }
+        
+        /**
+         * Reads the stored metric back from the entries, as the metrics query would
+         */
+        @Override
+        protected List<QueryMetric> getStoredQueryMetrics(QueryMetric updatedQueryMetric) {
+            List<DefaultField> fields = new ArrayList<>();
+            for (Entry<String,Long> entry : entries.entrySet()) {
+                if (isVisible(entry.getKey())) {
+                    String[] fieldAndValue = entry.getKey().split(NULL, 2);
+                    fields.add(new DefaultField(fieldAndValue[0], "PUBLIC", entry.getValue(), fieldAndValue[1]));
+                }
+            }
+            if (fields.isEmpty()) {
+                return Collections.emptyList();
+            }
+            DefaultEvent event = new DefaultEvent();
+            event.setFields(fields);
+            return Collections.singletonList(toMetric(event));
+        }
+        
+        private boolean isVisible(String entry) {
+            Long deleted = deletes.get(entry);
+            return entries.containsKey(entry) && (deleted == null || entries.get(entry) > deleted);
+        }
+        
+        public Set<String> getValues(String field) {
+            Set<String> values = new TreeSet<>();
+            for (String entry : entries.keySet()) {
+                if (entry.startsWith(field + NULL) && isVisible(entry)) {
+                    values.add(entry.substring(field.length() + 1));
+                }
+            }
+            return values;
+        }
+        
+        public void clear() {
+            entries.clear();
+            deletes.clear();
+        }
+    }
+    
+    private final long createDate = System.currentTimeMillis() - 60 * 60 * 1000;
+    
+    private TestShardTableQueryMetricHandler createHandler(AccumuloRecordWriter recordWriter) {
+        TestShardTableQueryMetricHandler handler = new TestShardTableQueryMetricHandler();
+        Whitebox.setInternalState(handler, "recordWriter", recordWriter);
+        return handler;
+    }
+    
+    private AccumuloRecordWriter createRecordWriter() throws Exception {
+        AccumuloRecordWriter recordWriter = createMock(AccumuloRecordWriter.class);
+        recordWriter.flush();
+        expectLastCall().anyTimes();
+        replay(recordWriter);
+        return recordWriter;
+    }
+    
+    private QueryMetric createMetric() {
+        QueryMetric metric = new QueryMetric();
+        metric.setQueryId(UUID.randomUUID().toString());
+        metric.setQueryType("EventQuery");
+        metric.setQueryLogic("EventQuery");
+        metric.setUser("user");
+        metric.setCreateDate(new Date(createDate));
+        metric.setLastUpdated(new Date(createDate));
+        metric.setLifecycle(Lifecycle.DEFINED);
+        return metric;
+    }
+    
+    /**
+     * Update the metric as a page of results is returned, a second after the last update
+     */
+    private void addPage(QueryMetric metric, long pageSize) {
+        Date lastUpdated = new Date(metric.getLastUpdated().getTime() + 1000);
+        metric.addPageTime(pageSize, 100, lastUpdated.getTime() - 100, lastUpdated.getTime());
+        metric.setLifecycle(Lifecycle.RESULTS);
+        metric.setLastUpdated(lastUpdated);
+    }
+    
+    private void assertStored(TestShardTableQueryMetricHandler handler, QueryMetric metric, long numUpdates) {
+        Assert.assertEquals(Collections.singleton(metric.getLifecycle().toString()), handler.getValues("LIFECYCLE"));
+        Assert.assertEquals(Collections.singleton(Long.toString(metric.getNumResults())), handler.getValues("NUM_RESULTS"));
+        Assert.assertEquals(Collections.singleton(Long.toString(metric.getNumPages())), handler.getValues("NUM_PAGES"));
+        Assert.assertEquals(Collections.singleton(Long.toString(numUpdates)), handler.getValues("NUM_UPDATES"));
+        for (long page = 1; page <= metric.getNumPages(); page++) {
+            Assert.assertEquals(1, handler.getValues("PAGE_METRICS." + page).size());
+        }
+        Assert.assertTrue(handler.getValues("PAGE_METRICS." + (metric.getNumPages() + 1)).isEmpty());
+    }
+    
+    @Test
+    public void testUpdatesAreCoalesced() throws Exception {
+        TestShardTableQueryMetricHandler handler = createHandler(createRecordWriter());
+        QueryMetric metric = createMetric();
+        handler.updateMetric(metric, null);
+        addPage(metric, 10);
+        handler.updateMetric(metric, null);
+        addPage(metric, 5);
+        handler.updateMetric(metric, null);
+        
+        // nothing is written until the flush, which writes the last update once
+        Assert.assertEquals(0, handler.writes);
+        handler.flush();
+        Assert.assertEquals(1, handler.writes);
+        assertStored(handler, metric, 1);
+        
+        // the next update replaces the values it changes
+        metric.setLifecycle(Lifecycle.CLOSED);
+        metric.setLastUpdated(new Date(metric.getLastUpdated().getTime() + 1000));
+        handler.updateMetric(metric, null);
+        handler.flush();
+        Assert.assertEquals(2, handler.writes);
+        assertStored(handler, metric, 2);
+    }
+    
+    @Test
+    public void testPageMetricsAfterFlush() throws Exception {
+        TestShardTableQueryMetricHandler handler = createHandler(createRecordWriter());
+        QueryMetric metric = createMetric();
+        addPage(metric, 10);
+        handler.updateMetric(metric, null);
+        handler.flush();
+        
+        // an update that only holds the new page metric keeps the page metrics already written
+        addPage(metric, 7);
+        QueryMetric update = (QueryMetric) metric.duplicate();
+        update.setPageTimes(new ArrayList<>(Collections.singletonList(metric.getPageTimes().get(1))));
+        handler.updateMetric(update, null);
+        handler.flush();
+        assertStored(handler, metric, 2);
+        
+        QueryMetric stored = handler.getStoredQueryMetrics(metric).get(0);
+        Assert.assertEquals(2, stored.getNumPages());
+        Assert.assertEquals(17, stored.getNumResults());
+    }
+    
+    @Test
+    public void testCacheMiss() throws Exception {
+        TestShardTableQueryMetricHandler handler = createHandler(createRecordWriter());
+        QueryMetric metric = createMetric();
+        addPage(metric, 10);
+        handler.updateMetric(metric, null);
+        handler.flush();
+        
+        // as after a restart, the metric is no longer cached
+        Map<?,?> metricsCache = Whitebox.getInternalState(ShardTableQueryMetricHandler.class, "metricsCache");
+        metricsCache.remove(metric.getQueryId());
+        
+        addPage(metric, 5);
+        metric.setLifecycle(Lifecycle.CLOSED);
+        metric.setLastUpdated(new Date(metric.getLastUpdated().getTime() + 1000));
+        handler.updateMetric(metric, null);
+        handler.flush();
+        
+        // the stored values were read and deleted, so no stale values are left behind
+        assertStored(handler, metric, 2);
+        QueryMetric stored = handler.getStoredQueryMetrics(metric).get(0);
+        Assert.assertEquals(Lifecycle.CLOSED, stored.getLifecycle());
+        Assert.assertEquals(15, stored.getNumResults());
+        Assert.assertEquals(2, stored.getNumPages());
+        Assert.assertEquals(2, stored.getNumUpdates());
+        List<Long> pageSizes = new ArrayList<>();
+        for (PageMetric pageMetric : stored.getPageTimes()) {
+            pageSizes.add(pageMetric.getPagesize());
+        }
+        Assert.assertEquals(Arrays.asList(10L, 5L), pageSizes);
+    }
+    
+    @Test
+    public void testFailedWriteIsRetried() throws Exception {
+        TestShardTableQueryMetricHandler handler = createHandler(createRecordWriter());
+        QueryMetric metric = createMetric();
+        addPage(metric, 10);
+        handler.updateMetric(metric, null);
+        
+        handler.failWrites = true;
+        try {
+            handler.flush();
+            Assert.fail("Expected the flush to fail");
+        } catch (IOException e) {
+            // expected
+        }
+        
+        // a newer update is merged with the failed one
+        addPage(metric, 5);
+        QueryMetric update = (QueryMetric) metric.duplicate();
+        update.setPageTimes(new ArrayList<>(Collections.singletonList(metric.getPageTimes().get(1))));
+        handler.updateMetric(update, null);
+        
+        handler.failWrites = false;
+        handler.flush();
+        Assert.assertEquals(1, handler.writes);
+        assertStored(handler, metric, 1);
+    }
+    
+    @Test
+    public void testFailedFlushIsRetried() throws Exception {
+        AccumuloRecordWriter recordWriter = createMock(AccumuloRecordWriter.class);
+        recordWriter.flush();
+        expectLastCall().andThrow(new IOException("Failed to flush"));
+        recordWriter.flush();
+        expectLastCall();
+        replay(recordWriter);
+        
+        TestShardTableQueryMetricHandler handler = createHandler(recordWriter);
+        QueryMetric metric = createMetric();
+        addPage(metric, 10);
+        handler.updateMetric(metric, null);
+        try {
+            handler.flush();
+            Assert.fail("Expected the flush to fail");
+        } catch (IOException e) {
+            // expected
+        }
+        
+        // the entries that were buffered by the record writer were lost, and the metric is written again in full
+        handler.clear();
+        handler.flush();
+        Assert.assertEquals(2, handler.writes);
+        assertStored(handler, metric, 1);
+        verify(recordWriter);
+    }
+}
@@ -0,0 +1,244 @@
+package datawave.query.tables.chained.strategy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import datawave.webservice.common.connection.AccumuloConnectionFactory.Priority;
+import datawave.webservice.query.Query;
+import datawave.webservice.query.QueryImpl;
+import datawave.webservice.query.configuration.GenericQueryConfiguration;
+import datawave.webservice.query.logic.BaseQueryLogic;
+import datawave.webservice.query.logic.QueryLogicTransformer;
+
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StreamedChainStrategyTest {
+    
+    private static final int RESULTS_PER_SEED = 3;
+    
+    /**
+     * Queries the latter logic for the comma separated seeds of a batch
+     */
+    private static class TestChainStrategy extends StreamedChainStrategy<String,String> {
+        private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+        
+        @Override
+        protected Query buildLatterQuery(Query initialQuery, Iterator<String> initialQueryResults, String latterLogicName) {
+            List<String> batch = new ArrayList<>();
+            while (initialQueryResults.hasNext()) {
+                batch.add(initialQueryResults.next());
+            }
+            batches.add(batch);
+            QueryImpl query = new QueryImpl();
+            query.setQuery(StringUtils.join(batch, ","));
+            return query;
+        }
+    }
+    
+    /**
+     * Returns {@link #RESULTS_PER_SEED} results for each seed of its query, and fails for the seed FAIL. The clones share the counts of the logics that were
+     * created and closed.
+     */
+    private static class TestLatterQueryLogic extends BaseQueryLogic<String> {
+        private final AtomicInteger created;
+        private final AtomicInteger closed;
+        private String query;
+        
+        public TestLatterQueryLogic(AtomicInteger created, AtomicInteger closed) {
+            this.created = created;
+            this.closed = closed;
+        }
+        
+        @Override
+        public GenericQueryConfiguration initialize(Connector connection, Query settings, Set<Authorizations> runtimeQueryAuthorizations) throws Exception {
+            this.query = settings.getQuery();
+            return new GenericQueryConfiguration() {};
+        }
+        
+        @Override
+        public void setupQuery(GenericQueryConfiguration configuration) throws Exception {}
+        
+        @Override
+        public Iterator<String> iterator() {
+            List<String> results = new ArrayList<>();
+            for (String seed : StringUtils.split(query, ",")) {
+                if (seed.equals("FAIL")) {
+                    throw new IllegalStateException("Failed to query " + seed);
+                }
+                for (int i = 0; i < RESULTS_PER_SEED; i++) {
+                    results.add(seed + "-" + i);
+                }
+            }
+            return results.iterator();
+        }
+        
+        @Override
+        public void close() {
+            closed.incrementAndGet();
+        }
+        
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            created.incrementAndGet();
+            return new TestLatterQueryLogic(created, closed);
+        }
+        
+        @Override
+        public Priority getConnectionPriority() {
+            return Priority.NORMAL;
+        }
+        
+        @Override
+        public QueryLogicTransformer getTransformer(Query settings) {
+            return null;
+        }
+        
+        @Override
+        public Set<String> getOptionalQueryParameters() {
+            return null;
+        }
+        
+        @Override
+        public Set<String> getRequiredQueryParameters() {
+            return null;
+        }
+        
+        @Override
+        public Set<String> getExampleQueries() {
+            return null;
+        }
+    }
+    
+    /**
+     * Counts the former results that were read
+     */
+    private static class CountingIterator implements Iterator<String> {
+        private final Iterator<String> delegate;
+        private int count = 0;
+        
+        public CountingIterator(Iterator<String> delegate) {
+            this.delegate = delegate;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return delegate.hasNext();
+        }
+        
+        @Override
+        public String next() {
+            count++;
+            return delegate.next();
+        }
+        
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+    
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger closed = new AtomicInteger();
+    
+    private TestChainStrategy createStrategy() {
+        TestChainStrategy strategy = new TestChainStrategy();
+        strategy.setBatchSize(10);
+        strategy.setMaxConcurrentQueries(2);
+        strategy.setMaxQueuedResults(5);
+        return strategy;
+    }
+    
+    private Iterator<String> run(TestChainStrategy strategy, Iterator<String> initialQueryResults) throws Exception {
+        Set<Authorizations> auths = Collections.singleton(new Authorizations());
+        return strategy.runChainedQuery(null, null, auths, initialQueryResults, new TestLatterQueryLogic(created, closed));
+    }
+    
+    @Test
+    public void testMoreResultsThanQueued() throws Exception {
+        // each seed is returned twice by the former query, but only queried once
+        List<String> seeds = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            seeds.add("seed" + i);
+            seeds.add("seed" + (i / 2));
+        }
+        TestChainStrategy strategy = createStrategy();
+        Iterator<String> results = run(strategy, seeds.iterator());
+        
+        Set<String> returned = new HashSet<>();
+        int count = 0;
+        while (results.hasNext()) {
+            String result = results.next();
+            returned.add(result);
+            count++;
+        }
+        
+        // every result is returned once, although far more results were produced than fit in the queue
+        Assert.assertEquals(100 * RESULTS_PER_SEED, count);
+        Assert.assertEquals(100 * RESULTS_PER_SEED, returned.size());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(returned.contains("seed" + i + "-" + (RESULTS_PER_SEED - 1)));
+        }
+        
+        Set<String> batched = new HashSet<>();
+        int batchedCount = 0;
+        for (List<String> batch : strategy.batches) {
+            Assert.assertTrue(batch.size() <= 10);
+            batched.addAll(batch);
+            batchedCount += batch.size();
+        }
+        Assert.assertEquals(100, batched.size());
+        Assert.assertEquals(100, batchedCount);
+        Assert.assertEquals(10, created.get());
+        Assert.assertEquals(created.get(), closed.get());
+    }
+    
+    @Test
+    public void testFailedQuery() throws Exception {
+        List<String> seeds = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            seeds.add(i == 55 ? "FAIL" : "seed" + i);
+        }
+        Iterator<String> results = run(createStrategy(), seeds.iterator());
+        
+        try {
+            while (results.hasNext()) {
+                results.next();
+            }
+            Assert.fail("Expected the failed query to fail the chained query");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        Assert.assertFalse(results.hasNext());
+        Assert.assertEquals(created.get(), closed.get());
+    }
+    
+    @Test
+    public void testEarlyClose() throws Exception {
+        List<String> seeds = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            seeds.add("seed" + i);
+        }
+        CountingIterator initialQueryResults = new CountingIterator(seeds.iterator());
+        Iterator<String> results = run(createStrategy(), initialQueryResults);
+        
+        Assert.assertTrue(results.hasNext());
+        Assert.assertNotNull(results.next());
+        ((AutoCloseable) results).close();
+        
+        // the former results are no longer read, and the latter query logics that were started have been closed
+        Assert.assertFalse(results.hasNext());
+        Assert.assertTrue(initialQueryResults.count < seeds.size());
+        Assert.assertTrue(created.get() > 0);
+        Assert.assertEquals(created.get(), closed.get());
+    }
+}
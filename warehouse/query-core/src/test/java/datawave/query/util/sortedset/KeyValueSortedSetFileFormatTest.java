@@ -0,0 +1,100 @@
+package datawave.query.util.sortedset;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+public class KeyValueSortedSetFileFormatTest {
+    
+    private SortedSet<KeyValueSerializable> data = null;
+    private SortedSetTempFileHandler handler = null;
+    
+    @Before
+    public void setUp() throws IOException {
+        data = new TreeSet<>();
+        for (int shard = 0; shard < 3; shard++) {
+            for (int uid = 0; uid < 5000; uid++) {
+                Key key = new Key("20180101_" + shard, "datatype\0uid" + uid, "FIELD\0value" + (uid % 7), "A&B", uid);
+                data.add(new KeyValueSerializable(key, ("value" + uid).getBytes()));
+            }
+        }
+        // include a deleted key and an empty value
+        Key deleted = new Key("20180101_9", "datatype\0uid", "FIELD\0value", "", 0L);
+        deleted.setDeleted(true);
+        data.add(new KeyValueSerializable(deleted, new byte[0]));
+        handler = new SortedSetTempFileHandler();
+    }
+    
+    @After
+    public void tearDown() {
+        handler.deleteFile();
+    }
+    
+    private void verify(FileSortedSet<KeyValueSerializable> set) throws Exception {
+        Assert.assertTrue(set.isPersisted());
+        Assert.assertEquals(data.size(), set.size());
+        Assert.assertEquals(data.first(), set.first());
+        Assert.assertEquals(data.last(), set.last());
+        Assert.assertEquals(data.last().getKey().isDeleted(), set.last().getKey().isDeleted());
+        
+        List<KeyValueSerializable> expected = new ArrayList<>(data);
+        List<KeyValueSerializable> actual = new ArrayList<>();
+        for (Iterator<KeyValueSerializable> it = set.iterator(); it.hasNext();) {
+            actual.add(it.next());
+        }
+        Assert.assertEquals(expected, actual);
+        
+        set.load();
+        Assert.assertFalse(set.isPersisted());
+        Assert.assertEquals(data, set);
+    }
+    
+    @Test
+    public void testUncompressed() throws Exception {
+        FileSortedSet<KeyValueSerializable> set = new FileSortedSet<>(data, new KeyValueSortedSetFileFormat(), handler, true);
+        verify(set);
+    }
+    
+    @Test
+    public void testCompressed() throws Exception {
+        FileSortedSet<KeyValueSerializable> set = new FileSortedSet<>(data, new KeyValueSortedSetFileFormat(DefaultCodec.class.getName()), handler, true);
+        verify(set);
+    }
+    
+    @Test
+    public void testSmallBlocks() throws Exception {
+        FileSortedSet<KeyValueSerializable> set = new FileSortedSet<>(data, new KeyValueSortedSetFileFormat(DefaultCodec.class.getName(), 128), handler, true);
+        verify(set);
+    }
+    
+    @Test
+    public void testSmallerThanSerialization() throws Exception {
+        SortedSetTempFileHandler serializedHandler = new SortedSetTempFileHandler();
+        try {
+            new FileSortedSet<>(data, new SerializableSortedSetFileFormat<>(), serializedHandler, true);
+            new FileSortedSet<>(data, new KeyValueSortedSetFileFormat(), handler, true);
+            Assert.assertTrue(handler.getSize() < serializedHandler.getSize());
+        } finally {
+            serializedHandler.deleteFile();
+        }
+    }
+    
+    @Test(expected = IOException.class)
+    public void testWrongFormat() throws Exception {
+        new FileSortedSet<>(data, new SerializableSortedSetFileFormat<>(), handler, true);
+        FileSortedSet<KeyValueSerializable> set = new FileSortedSet<>((Comparator<KeyValueSerializable>) null, new KeyValueSortedSetFileFormat(), handler,
+                        true);
+        set.load();
+    }
+}
@@ -87,6 +87,13 @@ public class DateNormalizer extends AbstractNormalizer<Date> {
     
     public static Date parseDate(String str, String[] parsePatterns) throws ParseException {
         if (str != null && parsePatterns != null) {
+            if (parsePatterns == FORMAT_STRINGS) {
+                // most dates have one of the numeric shapes, which can be recognized without trying each format in turn
+                Date date = DateShapeRecognizer.parse(str, getParser(ISO_8601_FORMAT_STRING).getTimeZone().toZoneId());
+                if (date != null) {
+                    return date;
+                }
+            }
             for (int i = 0; i < parsePatterns.length; i++) {
                 Date date = parseDate(str, parsePatterns[i]);
                 if (date != null) {
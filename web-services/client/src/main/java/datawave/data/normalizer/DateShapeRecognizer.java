@@ -0,0 +1,153 @@
+package datawave.data.normalizer;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+/**
+ * Parses the numeric shapes of the {@link DateNormalizer#FORMAT_STRINGS} in a single pass. The shape of the string (its length and where the separators are)
+ * determines the format, so there is no trying of each format in turn, and the fields are read directly as digits and resolved with java.time.
+ * 
+ * Only well formed dates are recognized: a string of any other shape, with a field out of range, or with a time zone name returns null and is left to the
+ * {@link java.text.SimpleDateFormat} parsing, so the dates recognized here are the same as the ones that parsing would produce. The shapes are:
+ * <ul>
+ * <li>yyyyMMddHHmmss</li>
+ * <li>yyyy-MM-dd</li>
+ * <li>yyyy-MM-dd HH:mm:ss</li>
+ * <li>yyyy-MM-dd HH:mm:ss'Z'</li>
+ * <li>yyyy-MM-dd'T'HH'|'mm</li>
+ * <li>yyyy-MM-dd'T'HH:mm:ss'Z' and yyyy-MM-dd't'HH:mm:ss'z'</li>
+ * <li>yyyy-MM-dd'T'HH:mm:ss.SSS'Z', with any number of fractional digits of which the first three are kept</li>
+ * <li>yyyy-MM-dd'T'HH:mm:ssXXX with a numeric offset</li>
+ * </ul>
+ * As with the formats, a 'Z' that is not an offset is a literal and the date is in the given (default) time zone.
+ */
+final class DateShapeRecognizer {
+    
+    // java.time uses the local mean time of a zone before it was standardized, while the calendar uses the first standard offset for any time before 1900,
+    // so earlier dates (and the first day of 1900, whose start is before 1900 in the zones east of UTC) are left to the formats
+    private static final int MIN_YEAR = 1901;
+    
+    private DateShapeRecognizer() {}
+    
+    /**
+     * Parse a date of one of the recognized shapes
+     * 
+     * @param str
+     *            the date string
+     * @param zone
+     *            the time zone of a date without an offset
+     * @return the date, or null if the string is not of a recognized shape
+     */
+    static Date parse(String str, ZoneId zone) {
+        if (str == null || str.length() < 10) {
+            return null;
+        }
+        int length = str.length();
+        if (length == 14) {
+            // yyyyMMddHHmmss
+            return toDate(digits(str, 0, 4), digits(str, 4, 2), digits(str, 6, 2), digits(str, 8, 2), digits(str, 10, 2), digits(str, 12, 2), 0, zone);
+        }
+        
+        if (!isDateShape(str)) {
+            return null;
+        }
+        int year = digits(str, 0, 4);
+        int month = digits(str, 5, 2);
+        int day = digits(str, 8, 2);
+        if (length == 10) {
+            // yyyy-MM-dd
+            return toDate(year, month, day, 0, 0, 0, 0, zone);
+        }
+        
+        char separator = str.charAt(10);
+        if (length == 16 && separator == 'T' && str.charAt(13) == '|') {
+            // yyyy-MM-dd'T'HH'|'mm
+            return toDate(year, month, day, digits(str, 11, 2), digits(str, 14, 2), 0, 0, zone);
+        }
+        if (length < 19 || str.charAt(13) != ':' || str.charAt(16) != ':') {
+            return null;
+        }
+        int hour = digits(str, 11, 2);
+        int minute = digits(str, 14, 2);
+        int second = digits(str, 17, 2);
+        
+        if (separator == ' ') {
+            if (length == 19) {
+                // yyyy-MM-dd HH:mm:ss
+                return toDate(year, month, day, hour, minute, second, 0, zone);
+            } else if (length == 20 && str.charAt(19) == 'Z') {
+                // yyyy-MM-dd HH:mm:ss'Z'
+                return toDate(year, month, day, hour, minute, second, 0, zone);
+            }
+        } else if (separator == 'T') {
+            if (length == 20 && str.charAt(19) == 'Z') {
+                // yyyy-MM-dd'T'HH:mm:ss'Z'
+                return toDate(year, month, day, hour, minute, second, 0, zone);
+            } else if (length == 25) {
+                // yyyy-MM-dd'T'HH:mm:ssXXX
+                ZoneOffset offset = offset(str, 19);
+                return (offset == null ? null : toDate(year, month, day, hour, minute, second, 0, offset));
+            } else if (length > 21 && str.charAt(19) == '.' && str.charAt(length - 1) == 'Z') {
+                // yyyy-MM-dd'T'HH:mm:ss.SSS'Z'
+                int millis = digits(str, 20, Math.min(3, length - 21));
+                if (length - 21 > 3 && digits(str, 23, length - 24) < 0) {
+                    return null;
+                }
+                return toDate(year, month, day, hour, minute, second, millis, zone);
+            }
+        } else if (separator == 't' && length == 20 && str.charAt(19) == 'z') {
+            // yyyy-MM-dd't'HH:mm:ss'z'
+            return toDate(year, month, day, hour, minute, second, 0, zone);
+        }
+        return null;
+    }
+    
+    private static boolean isDateShape(String str) {
+        return str.charAt(4) == '-' && str.charAt(7) == '-';
+    }
+    
+    /**
+     * @return the value of the digits, or -1 if they are not all digits
+     */
+    private static int digits(String str, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = str.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+    
+    /**
+     * @return the offset of the form +hh:mm or -hh:mm at start, or null if there is none
+     */
+    private static ZoneOffset offset(String str, int start) {
+        char sign = str.charAt(start);
+        int hours = digits(str, start + 1, 2);
+        int minutes = digits(str, start + 4, 2);
+        if ((sign != '+' && sign != '-') || str.charAt(start + 3) != ':' || hours < 0 || hours > 18 || minutes < 0 || minutes > 59) {
+            return null;
+        }
+        return (sign == '+' ? ZoneOffset.ofHoursMinutes(hours, minutes) : ZoneOffset.ofHoursMinutes(-hours, -minutes));
+    }
+    
+    private static Date toDate(int year, int month, int day, int hour, int minute, int second, int millis, ZoneId zone) {
+        if (year < MIN_YEAR || month < 1 || day < 1 || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || millis < 0) {
+            return null;
+        }
+        try {
+            // a local time repeated when the clocks go back is taken as the later, standard time, as the calendar does
+            LocalDateTime local = LocalDateTime.of(year, month, day, hour, minute, second, millis * 1000000);
+            return new Date(local.atZone(zone).withLaterOffsetAtOverlap().toInstant().toEpochMilli());
+        } catch (DateTimeException e) {
+            // e.g. the 30th of February, which the lenient parsing rolls over
+            return null;
+        }
+    }
+}
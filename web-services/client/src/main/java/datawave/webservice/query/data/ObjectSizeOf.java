@@ -94,6 +94,17 @@ public interface ObjectSizeOf {
          * @return an approximation of the object size
          */
         public static long getObjectSize(Object o) {
+            // objects that can size themselves are the common case for query results, so avoid the reflection based walk altogether
+            if (o instanceof ObjectSizeOf) {
+                try {
+                    long size = ((ObjectSizeOf) o).sizeInBytes();
+                    if (size > 0) {
+                        return size;
+                    }
+                } catch (RuntimeException e) {
+                    // the object could not size itself, so do this the hard way...
+                }
+            }
             long estSize = getObjectSize(o, new HashSet<ObjectInstance>(), new Stack<ObjectInstance>(), true);
             return estSize;
         }
@@ -186,6 +197,20 @@ public interface ObjectSizeOf {
             return totalSize;
         }
         
+        /**
+         * Get the size of a string using the precomputed static string size plus the dynamic character size. This allows implementations of sizeInBytes to
+         * size their strings without the reflection based walk.
+         * 
+         * @param s
+         * @return an approximation of the string size, 0 if null
+         */
+        public static long getStringSize(String s) {
+            if (s == null) {
+                return 0;
+            }
+            return roundUp(PrecomputedSizes.STRING_STATIC_REF + 2L * s.length());
+        }
+        
         public static long roundUp(long size) {
             long extra = size % 8;
             if (extra > 0) {
@@ -6,6 +6,7 @@ import io.protostuff.Output;
 import io.protostuff.Schema;
 import datawave.marking.MarkingFunctions;
 import datawave.webservice.query.QueryImpl.Parameter;
+import datawave.webservice.query.data.ObjectSizeOf;
 import datawave.webservice.query.exception.QueryException;
 import datawave.webservice.query.result.event.HasMarkings;
 import org.apache.commons.lang.builder.CompareToBuilder;
@@ -21,7 +22,7 @@ import java.io.Serializable;
 import java.util.*;
 
 @XmlAccessorType(XmlAccessType.NONE)
-public abstract class BaseQueryMetric implements HasMarkings, Serializable {
+public abstract class BaseQueryMetric implements HasMarkings, Serializable, ObjectSizeOf {
     
     @XmlAccessorType(XmlAccessType.NONE)
     public static class PageMetric implements Serializable, Message<PageMetric> {
@@ -570,9 +571,15 @@ public abstract class BaseQueryMetric implements HasMarkings, Serializable {
     protected String plan = null;
     @XmlElement
     protected long loginTime = -1;
+    @XmlElement
+    protected long prefetchedResults = 0;
+    @XmlElement
+    protected long prefetchedBytes = 0;
     @XmlElementWrapper(name = "predictions")
     @XmlElement(name = "prediction")
     protected Set<Prediction> predictions = new HashSet<Prediction>();
+    @XmlElement
+    protected Map<String,Long> delegateLatencies = null;
     protected int lastWrittenHash = 0;
     protected long numUpdates = 0;
     
@@ -758,6 +765,22 @@ public abstract class BaseQueryMetric implements HasMarkings, Serializable {
         this.loginTime = loginTime;
     }
     
+    public long getPrefetchedResults() {
+        return prefetchedResults;
+    }
+    
+    public void setPrefetchedResults(long prefetchedResults) {
+        this.prefetchedResults = prefetchedResults;
+    }
+    
+    public long getPrefetchedBytes() {
+        return prefetchedBytes;
+    }
+    
+    public void setPrefetchedBytes(long prefetchedBytes) {
+        this.prefetchedBytes = prefetchedBytes;
+    }
+    
     public void addPageMetric(PageMetric pageMetric) {
         this.numPages++;
         this.numResults += pageMetric.getPagesize();
@@ -773,6 +796,20 @@ public abstract class BaseQueryMetric implements HasMarkings, Serializable {
         this.predictions.add(prediction);
     }
     
+    /**
+     * The time in ms spent waiting on each delegate of a composite query logic for its results, by delegate name
+     */
+    public Map<String,Long> getDelegateLatencies() {
+        return delegateLatencies;
+    }
+    
+    public void addDelegateLatency(String delegate, long latency) {
+        if (this.delegateLatencies == null) {
+            this.delegateLatencies = new TreeMap<String,Long>();
+        }
+        this.delegateLatencies.put(delegate, latency);
+    }
+    
     public void setError(Throwable t) {
         if (t.getCause() instanceof QueryException) {
             QueryException qe = (QueryException) t.getCause();
@@ -927,6 +964,10 @@ public abstract class BaseQueryMetric implements HasMarkings, Serializable {
         this.predictions = predictions;
     }
     
+    public void setDelegateLatencies(Map<String,Long> delegateLatencies) {
+        this.delegateLatencies = delegateLatencies;
+    }
+    
     @Override
     public void setMarkings(Map<String,String> markings) {
         // TODO: We need only the columnVisibility piece here....create separate implementations?
@@ -947,4 +988,65 @@ public abstract class BaseQueryMetric implements HasMarkings, Serializable {
         return null;
     }
     
+    /**
+     * Get the approximate size of this metric in bytes. Used by the ObjectSizeOf mechanism in the webservice when metrics are returned as query results. This
+     * is computed directly from the fields to avoid walking the metric using reflection.
+     */
+    @Override
+    public long sizeInBytes() {
+        // object overhead plus the primitive and reference fields
+        long size = ObjectSizeOf.Sizer.roundUp(ObjectSizeOf.Sizer.OBJECT_OVERHEAD + 16 * 8 + 22 * ObjectSizeOf.Sizer.REFERENCE);
+        size += ObjectSizeOf.Sizer.getStringSize(queryType);
+        size += ObjectSizeOf.Sizer.getStringSize(user);
+        size += ObjectSizeOf.Sizer.getStringSize(userDN);
+        size += ObjectSizeOf.Sizer.getStringSize(queryId);
+        size += ObjectSizeOf.Sizer.getStringSize(query);
+        size += ObjectSizeOf.Sizer.getStringSize(host);
+        size += ObjectSizeOf.Sizer.getStringSize(errorMessage);
+        size += ObjectSizeOf.Sizer.getStringSize(errorCode);
+        size += ObjectSizeOf.Sizer.getStringSize(queryAuthorizations);
+        size += ObjectSizeOf.Sizer.getStringSize(columnVisibility);
+        size += ObjectSizeOf.Sizer.getStringSize(queryLogic);
+        size += ObjectSizeOf.Sizer.getStringSize(queryName);
+        size += ObjectSizeOf.Sizer.getStringSize(plan);
+        size += ObjectSizeOf.PrecomputedSizes.DATE_STATIC_REF * 4;
+        if (pageTimes != null) {
+            // object overhead plus 9 longs
+            size += pageTimes.size() * (ObjectSizeOf.Sizer.REFERENCE + ObjectSizeOf.Sizer.roundUp(ObjectSizeOf.Sizer.OBJECT_OVERHEAD + 9 * 8));
+        }
+        size += getStringsSize(proxyServers);
+        size += getStringsSize(positiveSelectors);
+        size += getStringsSize(negativeSelectors);
+        if (parameters != null) {
+            for (Parameter parameter : parameters) {
+                size += ObjectSizeOf.Sizer.REFERENCE + ObjectSizeOf.Sizer.roundUp(ObjectSizeOf.Sizer.OBJECT_OVERHEAD + 2 * ObjectSizeOf.Sizer.REFERENCE);
+                size += ObjectSizeOf.Sizer.getStringSize(parameter.getParameterName());
+                size += ObjectSizeOf.Sizer.getStringSize(parameter.getParameterValue());
+            }
+        }
+        if (predictions != null) {
+            for (Prediction prediction : predictions) {
+                size += ObjectSizeOf.Sizer.REFERENCE + ObjectSizeOf.Sizer.roundUp(ObjectSizeOf.Sizer.OBJECT_OVERHEAD + ObjectSizeOf.Sizer.REFERENCE + 8);
+                size += ObjectSizeOf.Sizer.getStringSize(prediction.getName());
+            }
+        }
+        if (delegateLatencies != null) {
+            for (String delegate : delegateLatencies.keySet()) {
+                size += ObjectSizeOf.Sizer.REFERENCE + ObjectSizeOf.Sizer.roundUp(ObjectSizeOf.Sizer.OBJECT_OVERHEAD + 8);
+                size += ObjectSizeOf.Sizer.getStringSize(delegate);
+            }
+        }
+        return size;
+    }
+    
+    private static long getStringsSize(Collection<String> strings) {
+        long size = 0;
+        if (strings != null) {
+            for (String s : strings) {
+                size += ObjectSizeOf.Sizer.REFERENCE + ObjectSizeOf.Sizer.getStringSize(s);
+            }
+        }
+        return size;
+    }
+    
 }
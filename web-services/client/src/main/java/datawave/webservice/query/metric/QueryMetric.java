@@ -6,6 +6,8 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
 
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
@@ -96,6 +98,8 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
         this.fiRanges = other.fiRanges;
         this.plan = other.plan;
         this.loginTime = other.loginTime;
+        this.prefetchedResults = other.prefetchedResults;
+        this.prefetchedBytes = other.prefetchedBytes;
         
         if (other.predictions != null) {
             this.predictions = new HashSet<Prediction>();
@@ -103,6 +107,9 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
                 this.predictions.add(p.duplicate());
             }
         }
+        if (other.delegateLatencies != null) {
+            this.delegateLatencies = new TreeMap<String,Long>(other.delegateLatencies);
+        }
     }
     
     public BaseQueryMetric duplicate() {
@@ -118,7 +125,8 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
                         .append(this.getErrorMessage()).append(this.getCreateCallTime()).append(this.getErrorCode()).append(this.getQueryName())
                         .append(this.getParameters()).append(this.getSourceCount()).append(this.getNextCount()).append(this.getSeekCount())
                         .append(this.getDocRanges()).append(this.getFiRanges()).append(this.getPlan()).append(this.getLoginTime())
-                        .append(this.getPredictions()).toHashCode();
+                        .append(this.getPrefetchedResults()).append(this.getPrefetchedBytes()).append(this.getPredictions())
+                        .append(this.getDelegateLatencies()).toHashCode();
     }
     
     @Override
@@ -145,7 +153,9 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
                             .append(this.getNextCount(), other.getNextCount()).append(this.getSeekCount(), other.getSeekCount())
                             .append(this.getDocRanges(), other.getDocRanges()).append(this.getFiRanges(), other.getFiRanges())
                             .append(this.getPlan(), other.getPlan()).append(this.getLoginTime(), other.getLoginTime())
-                            .append(this.getPredictions(), other.getPredictions()).isEquals();
+                            .append(this.getPrefetchedResults(), other.getPrefetchedResults())
+                            .append(this.getPrefetchedBytes(), other.getPrefetchedBytes()).append(this.getPredictions(), other.getPredictions())
+                            .append(this.getDelegateLatencies(), other.getDelegateLatencies()).isEquals();
         } else {
             return false;
         }
@@ -183,7 +193,10 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
         buf.append(" Doc Ranges: ").append(this.getDocRanges());
         buf.append(" FI Ranges: ").append(this.getFiRanges());
         buf.append(" Login Time: ").append(this.getLoginTime());
+        buf.append(" Prefetched Results: ").append(this.getPrefetchedResults());
+        buf.append(" Prefetched Bytes: ").append(this.getPrefetchedBytes());
         buf.append(" Predictions: ").append(this.getPredictions());
+        buf.append(" Delegate Latencies(ms): ").append(this.getDelegateLatencies());
         buf.append("\n");
         return buf.toString();
     }
@@ -366,6 +379,15 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
                 }
             }
             
+            output.writeInt64(36, message.prefetchedResults, false);
+            output.writeInt64(37, message.prefetchedBytes, false);
+            
+            if (message.delegateLatencies != null) {
+                for (Map.Entry<String,Long> entry : message.delegateLatencies.entrySet()) {
+                    output.writeString(38, entry.getKey() + ":" + entry.getValue(), true);
+                }
+            }
+            
         }
         
         public void mergeFrom(Input input, QueryMetric message) throws IOException {
@@ -495,6 +517,17 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
                         }
                         message.predictions.add(input.mergeObject(null, Prediction.getSchema()));
                         break;
+                    case 36:
+                        message.prefetchedResults = input.readInt64();
+                        break;
+                    case 37:
+                        message.prefetchedBytes = input.readInt64();
+                        break;
+                    case 38:
+                        String delegateLatency = input.readString();
+                        int separator = delegateLatency.lastIndexOf(':');
+                        message.addDelegateLatency(delegateLatency.substring(0, separator), Long.parseLong(delegateLatency.substring(separator + 1)));
+                        break;
                     default:
                         input.handleUnknownField(number, this);
                         break;
@@ -575,6 +608,12 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
                     return "loginTime";
                 case 35:
                     return "predictions";
+                case 36:
+                    return "prefetchedResults";
+                case 37:
+                    return "prefetchedBytes";
+                case 38:
+                    return "delegateLatencies";
                 default:
                     return null;
             }
@@ -623,6 +662,9 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
             fieldMap.put("plan", 33);
             fieldMap.put("loginTime", 34);
             fieldMap.put("predictions", 35);
+            fieldMap.put("prefetchedResults", 36);
+            fieldMap.put("prefetchedBytes", 37);
+            fieldMap.put("delegateLatencies", 38);
         }
     };
     
@@ -21,10 +21,11 @@ import javax.xml.bind.annotation.XmlElementWrapper;
 import javax.xml.bind.annotation.XmlTransient;
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
+import datawave.webservice.query.data.ObjectSizeOf;
 import datawave.webservice.query.util.OptionallyEncodedStringAdapter;
 
 @XmlAccessorType(XmlAccessType.NONE)
-public class DefaultEdge implements EdgeBase, Serializable, Message<DefaultEdge> {
+public class DefaultEdge implements EdgeBase, Serializable, Message<DefaultEdge>, ObjectSizeOf {
     
     private static final String COLUMN_VISIBILITY = "columnVisibility";
     
@@ -237,6 +238,41 @@ public class DefaultEdge implements EdgeBase, Serializable, Message<DefaultEdge>
         this.edgeAttribute3 = edgeAttribute3;
     }
     
+    /**
+     * Get the approximate size of this edge in bytes. Used by the ObjectSizeOf mechanism in the webservice. This is computed directly from the fields to
+     * avoid walking the edge using reflection.
+     */
+    @Override
+    public long sizeInBytes() {
+        // object overhead plus 15 references
+        long size = ObjectSizeOf.Sizer.roundUp(ObjectSizeOf.Sizer.OBJECT_OVERHEAD + 15 * ObjectSizeOf.Sizer.REFERENCE);
+        size += ObjectSizeOf.Sizer.getStringSize(columnVisibility);
+        size += ObjectSizeOf.Sizer.getStringSize(source);
+        size += ObjectSizeOf.Sizer.getStringSize(sink);
+        size += ObjectSizeOf.Sizer.getStringSize(edgeType);
+        size += ObjectSizeOf.Sizer.getStringSize(edgeRelationship);
+        size += ObjectSizeOf.Sizer.getStringSize(edgeAttribute1Source);
+        size += ObjectSizeOf.Sizer.getStringSize(edgeAttribute2);
+        size += ObjectSizeOf.Sizer.getStringSize(edgeAttribute3);
+        size += ObjectSizeOf.Sizer.getStringSize(statsType);
+        size += ObjectSizeOf.Sizer.getStringSize(date);
+        size += ObjectSizeOf.Sizer.getStringSize(loadDate);
+        size += ObjectSizeOf.Sizer.getStringSize(activityDate);
+        if (count != null) {
+            size += ObjectSizeOf.Sizer.NUMBER_SIZE;
+        }
+        if (counts != null) {
+            size += ObjectSizeOf.Sizer.roundUp(ObjectSizeOf.Sizer.ARRAY_OVERHEAD + counts.size() * ObjectSizeOf.Sizer.REFERENCE);
+            size += counts.size() * ObjectSizeOf.Sizer.NUMBER_SIZE;
+        }
+        if (markings != null) {
+            for (Map.Entry<String,String> marking : markings.entrySet()) {
+                size += ObjectSizeOf.Sizer.getStringSize(marking.getKey()) + ObjectSizeOf.Sizer.getStringSize(marking.getValue());
+            }
+        }
+        return size;
+    }
+    
     @Override
     public Schema<DefaultEdge> cachedSchema() {
         return SCHEMA;
@@ -12,9 +12,11 @@ import javax.xml.bind.annotation.XmlTransient;
 
 import com.google.common.collect.Maps;
 
+import datawave.webservice.query.data.ObjectSizeOf;
+
 @XmlAccessorType(XmlAccessType.NONE)
 @XmlSeeAlso(DefaultEvent.class)
-public abstract class EventBase<T,F extends FieldBase<F>> implements HasMarkings, Message<T> {
+public abstract class EventBase<T,F extends FieldBase<F>> implements HasMarkings, Message<T>, ObjectSizeOf {
     
     protected transient Map<String,String> markings;
     
@@ -37,6 +39,7 @@ public abstract class EventBase<T,F extends FieldBase<F>> implements HasMarkings
      * Get the approximate size of this event in bytes. Used by the ObjectSizeOf mechanism in the webservice. Throws an exception if the local size was not set
      * to allow the ObjectSizeOf mechanism to do its thang.
      */
+    @Override
     public abstract long sizeInBytes();
     
     public abstract void setFields(List<F> fields);
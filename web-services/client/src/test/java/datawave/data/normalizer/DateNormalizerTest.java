@@ -2,10 +2,12 @@ package datawave.data.normalizer;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
+import java.util.TimeZone;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -99,6 +101,62 @@ public class DateNormalizerTest {
         Assert.assertEquals("2014-10-20T17:20:20.345Z", normalized);
     }
     
+    @Test
+    public void testShapesMatchFormats() throws Exception {
+        String[] inputs = {"20141020172020", "2014-10-20", "2014-10-20 17:20:20", "2014-10-20 17:20:20Z", "2014-10-20T17|20", "2014-10-20T17:20:20Z",
+                "2014-10-20t17:20:20z", "2014-10-20T17:20:20-05:30", "2014-10-20T17:20:20.001Z", "2014-10-20T17:20:20.5Z", "2014-10-20T17:20:20.345007Z",
+                "2014-03-09 02:30:00", "2014-11-02 01:30:00", "2014-02-29", "2014-13-01 00:00:00", "20141020246000", "1901-01-01 00:00:00"};
+        TimeZone defaultZone = TimeZone.getDefault();
+        try {
+            for (final String zone : new String[] {"UTC", "America/New_York", "Asia/Kolkata"}) {
+                TimeZone.setDefault(TimeZone.getTimeZone(zone));
+                // the formats are cached per thread with the default time zone, so use a new thread for each zone
+                ExecutorService exec = Executors.newSingleThreadExecutor();
+                try {
+                    exec.submit(() -> {
+                        for (String input : inputs) {
+                            Date recognized = DateShapeRecognizer.parse(input, TimeZone.getDefault().toZoneId());
+                            if (recognized != null) {
+                                // a copy of the formats is parsed by trying each format in turn
+                                Date parsed = DateNormalizer.parseDate(input, DateNormalizer.FORMAT_STRINGS.clone());
+                                Assert.assertEquals(input + " in " + zone, parsed, recognized);
+                            }
+                        }
+                        return null;
+                    }).get();
+                } finally {
+                    exec.shutdown();
+                }
+            }
+            // out of range fields are left to the lenient parsing
+            Assert.assertNull(DateShapeRecognizer.parse("2014-02-29", TimeZone.getDefault().toZoneId()));
+            Assert.assertNull(DateShapeRecognizer.parse("20141020246000", TimeZone.getDefault().toZoneId()));
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+    }
+    
+    @Test
+    public void testBeforeStandardTime() throws Exception {
+        TimeZone defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        ExecutorService exec = Executors.newSingleThreadExecutor();
+        try {
+            exec.submit(() -> {
+                // java.time would apply the local mean time of New York (-4:56:02) rather than EST
+                Assert.assertNull(DateShapeRecognizer.parse("1800-01-01", TimeZone.getDefault().toZoneId()));
+                Assert.assertEquals(-5364644400000L, DateNormalizer.parseDate("1800-01-01", DateNormalizer.FORMAT_STRINGS).getTime());
+                
+                // the start of 1900 in a zone east of UTC is still in 1899
+                Assert.assertNull(DateShapeRecognizer.parse("1900-01-01 00:00:00", ZoneId.of("Europe/Warsaw")));
+                return null;
+            }).get();
+        } finally {
+            exec.shutdown();
+            TimeZone.setDefault(defaultZone);
+        }
+    }
+    
     @Test
     public void testFromLong() throws Exception {
         Date now = new Date();
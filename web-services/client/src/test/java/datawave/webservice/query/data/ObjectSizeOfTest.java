@@ -1,11 +1,13 @@
 package datawave.webservice.query.data;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.List;
 
 import datawave.webservice.query.data.ObjectSizeOf;
+import datawave.webservice.query.result.edge.DefaultEdge;
 
 import org.junit.After;
 import org.junit.Before;
@@ -99,6 +101,40 @@ public class ObjectSizeOfTest {
         assertEquals(size, ObjectSizeOf.Sizer.getObjectSize(recursiveObject));
     }
     
+    @Test
+    public void testStrings() {
+        assertEquals(0, ObjectSizeOf.Sizer.getStringSize(null));
+        assertEquals(32, ObjectSizeOf.Sizer.getStringSize(""));
+        assertEquals(40, ObjectSizeOf.Sizer.getStringSize("abcd"));
+    }
+    
+    @Test
+    public void testSelfSized() {
+        DefaultEdge edge = new DefaultEdge();
+        edge.setSource("source");
+        edge.setSink("sink");
+        edge.setCount(1L);
+        long size = edge.sizeInBytes();
+        assertTrue(size > 0);
+        assertEquals(size, ObjectSizeOf.Sizer.getObjectSize(edge));
+        
+        edge.setSource("a much longer source value");
+        assertEquals(size + 40, ObjectSizeOf.Sizer.getObjectSize(edge));
+        
+        // an object that cannot size itself falls back to the reflection based sizing
+        UnsizedObject unsized = new UnsizedObject();
+        assertEquals(16, ObjectSizeOf.Sizer.getObjectSize(unsized));
+    }
+    
+    public static class UnsizedObject implements ObjectSizeOf {
+        private long value = 0;
+        
+        @Override
+        public long sizeInBytes() {
+            throw new UnsupportedOperationException();
+        }
+    }
+    
     public static class PrimitiveObject {
         private long value = 0;
     }
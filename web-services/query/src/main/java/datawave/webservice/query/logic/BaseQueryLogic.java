@@ -32,6 +32,8 @@ public abstract class BaseQueryLogic<T> implements QueryLogic<T> {
     protected Iterator<T> iterator = (Iterator<T>) Collections.emptyList().iterator();
     private int maxPageSize = 0;
     private long pageByteTrigger = 0;
+    private boolean prefetchNextPage = false;
+    private long prefetchMaxBytes = 64L * 1024 * 1024;
     private boolean collectQueryMetrics = true;
     private String _connPoolName;
     protected int baseIteratorPriority = 100;
@@ -66,6 +68,8 @@ public abstract class BaseQueryLogic<T> implements QueryLogic<T> {
         this.iterator = other.iterator;
         setMaxPageSize(other.getMaxPageSize());
         setPageByteTrigger(other.getPageByteTrigger());
+        setPrefetchNextPage(other.getPrefetchNextPage());
+        setPrefetchMaxBytes(other.getPrefetchMaxBytes());
         setCollectQueryMetrics(other.getCollectQueryMetrics());
         setConnPoolName(other.getConnPoolName());
         setBaseIteratorPriority(other.getBaseIteratorPriority());
@@ -151,6 +155,26 @@ public abstract class BaseQueryLogic<T> implements QueryLogic<T> {
         this.pageByteTrigger = pageByteTrigger;
     }
     
+    @Override
+    public boolean getPrefetchNextPage() {
+        return prefetchNextPage;
+    }
+    
+    @Override
+    public void setPrefetchNextPage(boolean prefetchNextPage) {
+        this.prefetchNextPage = prefetchNextPage;
+    }
+    
+    @Override
+    public long getPrefetchMaxBytes() {
+        return prefetchMaxBytes;
+    }
+    
+    @Override
+    public void setPrefetchMaxBytes(long prefetchMaxBytes) {
+        this.prefetchMaxBytes = prefetchMaxBytes;
+    }
+    
     @Override
     public int getBaseIteratorPriority() {
         return baseIteratorPriority;
@@ -102,6 +102,16 @@ public interface QueryLogic<T> extends Iterable<T>, Cloneable, ParameterValidato
      */
     public long getPageByteTrigger();
     
+    /**
+     * @return true if the next page should be prefetched in the background after a page is returned
+     */
+    public boolean getPrefetchNextPage();
+    
+    /**
+     * @return the max number of bytes of results that will be buffered when prefetching the next page
+     */
+    public long getPrefetchMaxBytes();
+    
     /**
      * Returns the base iterator priority.
      * 
@@ -139,6 +149,19 @@ public interface QueryLogic<T> extends Iterable<T>, Cloneable, ParameterValidato
      */
     public void setPageByteTrigger(long pageByteTrigger);
     
+    /**
+     * @param prefetchNextPage
+     *            true if the next page should be prefetched in the background after a page is returned
+     */
+    public void setPrefetchNextPage(boolean prefetchNextPage);
+    
+    /**
+     * @param prefetchMaxBytes
+     *            the max number of bytes of results that will be buffered when prefetching the next page. A value less than or equal to 0 will only limit
+     *            the prefetch by the page size.
+     */
+    public void setPrefetchMaxBytes(long prefetchMaxBytes);
+    
     /**
      * Sets the base iterator priority
      * 
@@ -3,6 +3,7 @@ package datawave.webservice.query.logic.composite;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -10,8 +11,10 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import javax.enterprise.inject.Typed;
 
@@ -21,20 +24,27 @@ import datawave.webservice.query.cache.ResultsPage;
 import datawave.webservice.query.configuration.GenericQueryConfiguration;
 import datawave.webservice.query.logic.BaseQueryLogic;
 import datawave.webservice.query.logic.QueryLogicTransformer;
+import datawave.webservice.query.logic.WritesQueryMetrics;
+import datawave.webservice.query.metric.BaseQueryMetric;
 import datawave.webservice.result.BaseResponse;
 
 import org.apache.accumulo.core.client.Connector;
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.commons.collections4.CollectionUtils;
-import org.apache.commons.collections4.Predicate;
-import org.apache.commons.collections4.functors.NOPTransformer;
+import org.apache.commons.collections4.Transformer;
 import org.apache.commons.collections4.iterators.TransformIterator;
 import org.apache.log4j.Logger;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * Query Logic implementation that is configured with more than one query logic delegate. The queries are run in parallel and results are retrieved as they come
  * back from the delegates. This class restricts the delegates such that they have to return the same type of response object and two query logics with the same
  * class name and tableName cannot be configured.
+ * <p>
+ * The delegates are run on an executor that is shared by all composite queries, and each one fills its own bounded share of the results buffer. The results are
+ * taken from the delegates in a weighted round robin, see {@link #setTableWeights(Map)}, so that a slow delegate does not hold up a page that a faster one
+ * could fill. The time spent waiting on each delegate is written to the query metric.
  */
 public class CompositeQueryLogic extends BaseQueryLogic<Object> {
     
@@ -51,16 +61,25 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
         }
     }
     
-    private class QueryLogicHolder extends Thread {
+    private class QueryLogicHolder implements Runnable {
+        private final String delegateName;
         private GenericQueryConfiguration config;
         private TransformIterator transformIterator;
         private Query settings;
-        private boolean started = false;
         private long maxResults;
+        private int delegate;
+        private boolean started = false;
+        private Thread thread = null;
+        private final CountDownLatch stopped = new CountDownLatch(1);
+        // the time spent waiting on the delegate for its results, not counting the time blocked on a full buffer
+        private volatile long latency = 0L;
         
-        public QueryLogicHolder(String logicName) {
-            this.setDaemon(true);
-            this.setName(Thread.currentThread().getName() + "-CompositeQueryLogic-" + logicName + "-" + UUID.randomUUID().toString());
+        public QueryLogicHolder(String delegateName) {
+            this.delegateName = delegateName;
+        }
+        
+        public String getDelegateName() {
+            return delegateName;
         }
         
         public GenericQueryConfiguration getConfig() {
@@ -91,42 +110,107 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
             this.settings = settings;
         }
         
+        public void setDelegate(int delegate) {
+            this.delegate = delegate;
+        }
+        
+        public long getLatency() {
+            return TimeUnit.NANOSECONDS.toMillis(latency);
+        }
+        
+        public void start() {
+            executor.execute(this);
+            started = true;
+        }
+        
+        /**
+         * Interrupt the delegate if it is running, which stops it when it is blocked on a full buffer
+         */
+        public synchronized void interrupt() {
+            if (null != thread) {
+                thread.interrupt();
+            }
+        }
+        
+        /**
+         * Wait for the delegate to stop, if it was started
+         */
+        public void join() throws InterruptedException {
+            if (started && !stopped.await(1, TimeUnit.MINUTES)) {
+                log.warn("Timed out waiting for the " + delegateName + " delegate to stop");
+            }
+        }
+        
         public void run() {
             long resultCount = 0L;
-            
-            log.trace("Starting thread: " + this.getName());
-            if (!started) {
-                startLatch.countDown();
-                started = true;
+            String threadName = Thread.currentThread().getName();
+            Thread.currentThread().setName(threadName + "-" + delegateName);
+            synchronized (this) {
+                thread = Thread.currentThread();
             }
+            
+            log.trace("Starting delegate: " + delegateName);
+            startLatch.countDown();
             try {
                 Object last = new Object();
                 if (this.getMaxResults() < 0)
                     this.setMaxResults(Long.MAX_VALUE);
+                long start = System.nanoTime();
                 while ((null != last) && !interrupted && transformIterator.hasNext() && (resultCount < this.getMaxResults())) {
-                    try {
-                        last = transformIterator.next();
-                        if (null != last) {
-                            log.debug(Thread.currentThread().getName() + ": Added object to results");
-                            results.add(last);
-                        }
-                    } catch (InterruptedException e) {
-                        log.warn("QueryLogic thread interrupted", e);
+                    last = transformIterator.next();
+                    latency += System.nanoTime() - start;
+                    if (null != last) {
+                        log.debug(Thread.currentThread().getName() + ": Added object to results");
+                        results.add(delegate, last);
                     }
                     resultCount++;
+                    start = System.nanoTime();
                 }
-                
+                latency += System.nanoTime() - start;
+            } catch (InterruptedException e) {
+                log.debug("Delegate " + delegateName + " interrupted");
             } finally {
+                synchronized (this) {
+                    thread = null;
+                }
+                // clear an interrupt that arrived after the delegate finished, before the thread is reused
+                Thread.interrupted();
                 completionLatch.countDown();
-                log.trace("Finished thread: " + this.getName());
+                results.signal();
+                stopped.countDown();
+                Thread.currentThread().setName(threadName);
+                log.trace("Finished delegate: " + delegateName + " after " + resultCount + " results");
             }
         }
         
     }
     
+    /**
+     * Passes the results through, which were already transformed by the delegates, and writes the latencies of the delegates to the query metric
+     */
+    private class ResultsTransformer implements Transformer<Object,Object>, WritesQueryMetrics {
+        
+        @Override
+        public Object transform(Object input) {
+            return input;
+        }
+        
+        @Override
+        public void writeQueryMetrics(BaseQueryMetric metric) {
+            for (QueryLogicHolder holder : logicState.values()) {
+                metric.addDelegateLatency(holder.getDelegateName(), holder.getLatency());
+            }
+        }
+    }
+    
     protected static final Logger log = Logger.getLogger(CompositeQueryLogic.class);
     
+    // the delegates of all composite queries share the threads of this executor
+    private static final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true)
+                    .setNameFormat("CompositeQueryLogic-%d").build());
+    
     private List<BaseQueryLogic<?>> queryLogics = null;
+    private Map<String,Integer> tableWeights = new HashMap<>();
     private QueryLogicTransformer transformer;
     private Priority p = Priority.NORMAL;
     private volatile boolean interrupted = false;
@@ -140,6 +224,7 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
     public CompositeQueryLogic(CompositeQueryLogic other) {
         super(other);
         this.queryLogics = new ArrayList<>(other.queryLogics);
+        this.tableWeights = new HashMap<>(other.tableWeights);
     }
     
     @Override
@@ -175,10 +260,15 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
                 logicQueryStringBuilder.append("(table=" + config.getTableName());
                 logicQueryStringBuilder.append(",query=" + config.getQueryString());
                 logicQueryStringBuilder.append(") ");
-                QueryLogicHolder holder = new QueryLogicHolder(logic.getClass().getSimpleName());
+                QueryLogicHolder holder = new QueryLogicHolder(logic.getClass().getSimpleName() + ":" + logic.getTableName());
                 holder.setConfig(config);
                 holder.setSettings(settings);
-                holder.setMaxResults(logic.getMaxResults());
+                // no delegate can contribute more than the results of the composite query
+                long maxResults = logic.getMaxResults();
+                if (this.getMaxResults() > 0 && (maxResults < 0 || maxResults > this.getMaxResults())) {
+                    maxResults = this.getMaxResults();
+                }
+                holder.setMaxResults(maxResults);
                 logicState.put(logic, holder);
             } catch (Exception e) {
                 log.info(e.getMessage() + " removing query logic " + logic.getClass().getName() + " from CompositeQuery");
@@ -191,7 +281,17 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
         }
         startLatch = new CountDownLatch(logicState.values().size());
         completionLatch = new CountDownLatch(logicState.values().size());
-        this.results = new CompositeQueryLogicResults(Math.min(settings.getPagesize() * 2, 1000), completionLatch);
+        this.results = new CompositeQueryLogicResults(completionLatch);
+        // each delegate gets a share of the results buffer in proportion to its weight
+        int capacity = Math.min(settings.getPagesize() * 2, 1000);
+        int totalWeight = 0;
+        for (BaseQueryLogic<?> logic : logicState.keySet()) {
+            totalWeight += getTableWeight(logic);
+        }
+        for (Entry<BaseQueryLogic<?>,QueryLogicHolder> entry : logicState.entrySet()) {
+            int weight = getTableWeight(entry.getKey());
+            entry.getValue().setDelegate(results.addDelegate((capacity * weight + totalWeight - 1) / totalWeight, weight));
+        }
         if (log.isDebugEnabled()) {
             log.debug("CompositeQuery initialized with the following queryLogics: ");
             for (Entry<BaseQueryLogic<?>,QueryLogicHolder> entry : this.logicState.entrySet()) {
@@ -267,8 +367,8 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
     @Override
     public TransformIterator getTransformIterator(Query settings) {
         // The objects put into the pageQueue have already been transformed.
-        // We will iterate over the pagequeue with the No-Op transformer
-        return new TransformIterator(results.iterator(), NOPTransformer.nopTransformer());
+        // We will iterate over the pagequeue with a No-Op transformer, which also writes the delegate metrics
+        return new TransformIterator(results.iterator(), new ResultsTransformer());
     }
     
     @Override
@@ -304,6 +404,22 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
         this.queryLogics = queryLogics;
     }
     
+    public Map<String,Integer> getTableWeights() {
+        return tableWeights;
+    }
+    
+    /**
+     * The number of results to take from a delegate in its turn, by the table name of the delegate. The delegates that are not configured have a weight of 1.
+     */
+    public void setTableWeights(Map<String,Integer> tableWeights) {
+        this.tableWeights = tableWeights;
+    }
+    
+    private int getTableWeight(BaseQueryLogic<?> logic) {
+        Integer weight = tableWeights.get(logic.getTableName());
+        return (null == weight || weight < 1) ? 1 : weight;
+    }
+    
     @Override
     public boolean canRunQuery(Principal principal) {
         // user can run this composite query if they can run at least one of the configured query logics
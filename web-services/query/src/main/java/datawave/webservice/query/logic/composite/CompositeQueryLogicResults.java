@@ -1,38 +1,116 @@
 package datawave.webservice.query.logic.composite;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * The results of the delegates of a {@link CompositeQueryLogic}. Each delegate adds to its own bounded queue, and blocks once it is full, so that a fast
+ * delegate cannot take the whole buffer. The queues are read with a weighted round robin, taking up to the weight of a delegate from its queue in turn, and
+ * skipping the delegates that have no results yet.
+ */
 public class CompositeQueryLogicResults implements Iterable<Object> {
     
-    private ArrayBlockingQueue<Object> results = null;
+    private final List<ArrayBlockingQueue<Object>> queues = new ArrayList<>();
+    private final List<Integer> weights = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition added = lock.newCondition();
     private CountDownLatch completionLatch = null;
     
-    public CompositeQueryLogicResults(int pagesize, CountDownLatch completionLatch) {
-        this.results = new ArrayBlockingQueue<>(pagesize);
+    public CompositeQueryLogicResults(CountDownLatch completionLatch) {
         this.completionLatch = completionLatch;
     }
     
-    public void add(Object object) throws InterruptedException {
-        this.results.put(object);
+    /**
+     * Add the queue of a delegate
+     * 
+     * @param capacity
+     *            the number of results the delegate can add before it blocks
+     * @param weight
+     *            the number of results taken from the delegate in its turn
+     * @return the index of the delegate to add its results with
+     */
+    public int addDelegate(int capacity, int weight) {
+        queues.add(new ArrayBlockingQueue<>(Math.max(capacity, 1)));
+        weights.add(Math.max(weight, 1));
+        return queues.size() - 1;
+    }
+    
+    public void add(int delegate, Object object) throws InterruptedException {
+        this.queues.get(delegate).put(object);
+        signal();
+    }
+    
+    /**
+     * Wake up the iterator, when a result was added or a delegate has completed
+     */
+    public void signal() {
+        lock.lock();
+        try {
+            added.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Wait for a result to be added, or for a delegate to complete
+     */
+    boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        lock.lock();
+        try {
+            if (size() > 0 || completionLatch.getCount() == 0) {
+                return true;
+            }
+            return added.await(timeout, unit);
+        } finally {
+            lock.unlock();
+        }
     }
     
     public void clear() {
-        this.results.clear();
+        for (ArrayBlockingQueue<Object> queue : queues) {
+            queue.clear();
+        }
     }
     
     public int size() {
-        return results.size();
+        int size = 0;
+        for (ArrayBlockingQueue<Object> queue : queues) {
+            size += queue.size();
+        }
+        return size;
     }
     
     public boolean contains(Object o) {
-        return results.contains(o);
+        for (ArrayBlockingQueue<Object> queue : queues) {
+            if (queue.contains(o)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    List<ArrayBlockingQueue<Object>> getQueues() {
+        return queues;
+    }
+    
+    List<Integer> getWeights() {
+        return weights;
+    }
+    
+    CountDownLatch getCompletionLatch() {
+        return completionLatch;
     }
     
     @Override
     public Iterator<Object> iterator() {
-        return new CompositeQueryLogicResultsIterator(this.results, this.completionLatch);
+        return new CompositeQueryLogicResultsIterator(this);
     }
     
 }
@@ -1,8 +1,8 @@
 package datawave.webservice.query.logic.composite;
 
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
@@ -11,14 +11,15 @@ public class CompositeQueryLogicResultsIterator implements Iterator<Object> {
     
     protected static final Logger log = Logger.getLogger(CompositeQueryLogicResultsIterator.class);
     
-    private ArrayBlockingQueue<Object> results = null;
+    private CompositeQueryLogicResults results = null;
     private Object nextEntry = null;
     private Object lock = new Object();
-    private CountDownLatch completionLatch = null;
+    // the delegate whose turn it is, and the number of results left in its turn
+    private int delegate = 0;
+    private int credit = -1;
     
-    public CompositeQueryLogicResultsIterator(ArrayBlockingQueue<Object> results, CountDownLatch completionLatch) {
+    public CompositeQueryLogicResultsIterator(CompositeQueryLogicResults results) {
         this.results = results;
-        this.completionLatch = completionLatch;
     }
     
     @Override
@@ -27,16 +28,52 @@ public class CompositeQueryLogicResultsIterator implements Iterator<Object> {
             if (nextEntry != null)
                 return true;
             try {
-                while (nextEntry == null && (results.size() > 0 || completionLatch.getCount() > 0)) {
-                    nextEntry = results.poll(1, TimeUnit.SECONDS);
+                while (nextEntry == null) {
+                    // the latch is read before polling, so that the last results are not missed when the delegates complete in between
+                    boolean complete = results.getCompletionLatch().getCount() == 0;
+                    nextEntry = poll();
+                    if (nextEntry == null) {
+                        if (complete) {
+                            break;
+                        }
+                        results.await(1, TimeUnit.SECONDS);
+                    }
                 }
-                return true;
+                return nextEntry != null;
             } catch (InterruptedException e) {
                 throw new RuntimeException(e);
             }
         }
     }
     
+    /**
+     * Take the next result in weighted round robin order, skipping the delegates without results
+     * 
+     * @return the next result, or null if no delegate has one
+     */
+    private Object poll() {
+        List<ArrayBlockingQueue<Object>> queues = results.getQueues();
+        if (queues.isEmpty()) {
+            return null;
+        }
+        for (int i = 0; i <= queues.size(); i++) {
+            if (credit <= 0) {
+                if (credit == 0) {
+                    delegate = (delegate + 1) % queues.size();
+                }
+                credit = results.getWeights().get(delegate);
+            }
+            Object entry = queues.get(delegate).poll();
+            if (entry != null) {
+                credit--;
+                return entry;
+            }
+            // the delegate has nothing yet, give the turn to the next one
+            credit = 0;
+        }
+        return null;
+    }
+    
     @Override
     public Object next() {
         Object current = null;
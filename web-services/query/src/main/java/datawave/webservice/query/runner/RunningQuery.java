@@ -6,12 +6,16 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import datawave.security.util.AuthorizationsUtil;
 import datawave.webservice.common.connection.AccumuloConnectionFactory;
@@ -66,8 +70,92 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
     private RunningQueryTiming timing = null;
     private ExecutorService executor = null;
     private volatile Future<Object> future = null;
+    private transient volatile Prefetch prefetch = null;
     private QueryPredictor predictor = null;
     
+    // how long next() waits for a prefetched result before checking the page triggers again, with and without results in the page
+    private static final long PREFETCH_PARTIAL_PAGE_WAIT_MS = 1000;
+    private static final long PREFETCH_EMPTY_PAGE_WAIT_MS = 60 * 1000;
+    // how long cancel() and closeConnection() wait for a background prefetch to stop using the iterator
+    private static final long PREFETCH_STOP_TIMEOUT_MS = 60 * 1000;
+    
+    /**
+     * A result pulled from the transform iterator by the background prefetch along with its size, or -1 if it was not sized
+     */
+    private static class PrefetchedResult {
+        private final Object result;
+        private final long size;
+        
+        private PrefetchedResult(Object result, long size) {
+            this.result = result;
+            this.size = size;
+        }
+    }
+    
+    // marks the end of the results of a prefetch
+    private static final PrefetchedResult PREFETCH_END = new PrefetchedResult(null, -1);
+    
+    /**
+     * A background prefetch of the next page. The results are queued as they are pulled from the transform iterator, followed by {@link #PREFETCH_END}, so
+     * that next() can return them before the prefetch has finished. Until the end is taken, only the prefetch may use the iterator.
+     */
+    private class Prefetch implements Runnable {
+        private final int maxCount;
+        private final long maxBytes;
+        private final BlockingQueue<PrefetchedResult> results = new LinkedBlockingQueue<>();
+        // claimed by either the prefetch when it starts running, or by stop() if it never started
+        private final AtomicBoolean claimed = new AtomicBoolean(false);
+        private final CountDownLatch stopped = new CountDownLatch(1);
+        private volatile Throwable error = null;
+        private Future<?> future = null;
+        // the number of results taken by next()
+        private int taken = 0;
+        
+        private Prefetch(int maxCount, long maxBytes) {
+            this.maxCount = maxCount;
+            this.maxBytes = maxBytes;
+        }
+        
+        private void start() {
+            this.future = executor.submit(this);
+        }
+        
+        @Override
+        public void run() {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                prefetchPage(maxCount, maxBytes, results);
+            } catch (Throwable t) {
+                error = t;
+            } finally {
+                results.add(PREFETCH_END);
+                stopped.countDown();
+            }
+        }
+        
+        /**
+         * Stop the prefetch, and wait for it to stop using the iterator
+         */
+        private void stop() {
+            if (claimed.compareAndSet(false, true)) {
+                // the prefetch never started
+                future.cancel(false);
+                return;
+            }
+            future.cancel(true);
+            try {
+                if (!stopped.await(PREFETCH_STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    log.warn("Timed out waiting for the next page prefetch to stop");
+                }
+            } catch (InterruptedException e) {
+                log.warn("Interrupted while waiting for the next page prefetch to stop");
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
     public RunningQuery() {
         super(new QueryMetricFactoryImpl());
     }
@@ -197,11 +285,17 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
             addNDC();
             int currentPageCount = 0;
             long currentPageBytes = 0;
+            long currentPagePrefetched = 0;
             
             // test for any exceptions prior to loop as hasNext() would likely be false;
             testForUncaughtException(resultList.size());
             
-            while (!this.finished && ((future != null) || this.iter.hasNext())) {
+            // while the next page is being prefetched, only the prefetch may use the iterator
+            while (!this.finished && ((prefetch != null) || (future != null) || this.iter.hasNext())) {
+                // take the end of a prefetch whose results have all been returned before any page trigger ends this page, so the next page can be prefetched
+                if (takePrefetchEnd()) {
+                    continue;
+                }
                 // if we are canceled, then break out
                 if (this.canceled) {
                     log.info("Query has been cancelled, aborting query.next call");
@@ -248,10 +342,41 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
                     hitPageTimeTrigger = true;
                     break;
                 }
-                scanned++;
                 
                 Object o = null;
-                if (executor != null) {
+                long resultBytes = -1;
+                Prefetch pending = this.prefetch;
+                if (pending != null) {
+                    PrefetchedResult prefetchedResult = null;
+                    try {
+                        // wait briefly once the page has results so that the page time trigger is checked, keeping an unfinished prefetch for the next call
+                        long waitMs = (currentPageCount > 0 ? PREFETCH_PARTIAL_PAGE_WAIT_MS : PREFETCH_EMPTY_PAGE_WAIT_MS);
+                        prefetchedResult = pending.results.poll(waitMs, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException ie) {
+                        // in this case we were most likely cancelled, no longer waiting
+                        break;
+                    }
+                    if (prefetchedResult == null) {
+                        // still prefetching, so check the page triggers again
+                        continue;
+                    }
+                    if (prefetchedResult == PREFETCH_END) {
+                        this.prefetch = null;
+                        if (pending.error != null) {
+                            throw new ExecutionException(pending.error);
+                        }
+                        continue;
+                    }
+                    scanned++;
+                    pending.taken++;
+                    o = prefetchedResult.result;
+                    resultBytes = prefetchedResult.size;
+                    currentPagePrefetched++;
+                    if (resultBytes > 0) {
+                        this.getMetric().setPrefetchedBytes(this.getMetric().getPrefetchedBytes() + resultBytes);
+                    }
+                } else if (executor != null) {
+                    scanned++;
                     if (future == null) {
                         future = executor.submit(() -> iter.next());
                     }
@@ -269,6 +394,7 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
                         // in this case we are still waiting on our future....simply continue
                     }
                 } else {
+                    scanned++;
                     o = iter.next();
                 }
                 // if not still waiting on a future, then process the result (or lack thereof)
@@ -280,7 +406,7 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
                     }
                     resultList.add(o);
                     if (this.logic.getPageByteTrigger() > 0) {
-                        currentPageBytes += ObjectSizeOf.Sizer.getObjectSize(o);
+                        currentPageBytes += (resultBytes >= 0 ? resultBytes : ObjectSizeOf.Sizer.getObjectSize(o));
                     }
                     currentPageCount++;
                     numResults++;
@@ -295,10 +421,14 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
             // Update the metric
             long now = System.currentTimeMillis();
             this.getMetric().addPageTime(currentPageCount, now - pageStartTime, pageStartTime, now);
+            this.getMetric().setPrefetchedResults(this.getMetric().getPrefetchedResults() + currentPagePrefetched);
             this.lastPageNumber++;
             if (resultList.size() > 0) {
                 this.getMetric().setLifecycle(QueryMetric.Lifecycle.RESULTS);
             }
+            
+            // start filling the next page while the client processes this one
+            startPrefetch();
         } catch (Exception e) {
             log.error(e.getMessage(), e);
             this.getMetric().setError(e);
@@ -326,6 +456,104 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
         }
     }
     
+    /**
+     * Take the end of the current prefetch if it is next in its queue. Once all of the results the prefetch may pull have been taken, this waits for the
+     * prefetch to queue its end.
+     * 
+     * @return true if the end of the prefetch was taken
+     * @throws ExecutionException
+     *             if the prefetch failed
+     */
+    private boolean takePrefetchEnd() throws ExecutionException, InterruptedException {
+        Prefetch pending = this.prefetch;
+        if (pending == null) {
+            return false;
+        }
+        if (pending.results.peek() != PREFETCH_END
+                        && (pending.taken < pending.maxCount || !pending.stopped.await(PREFETCH_STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS))) {
+            return false;
+        }
+        pending.results.poll();
+        this.prefetch = null;
+        if (pending.error != null) {
+            throw new ExecutionException(pending.error);
+        }
+        return true;
+    }
+    
+    /**
+     * Start pulling the next page of results from the transform iterator in the background. This is only done if the logic enables prefetching and we have
+     * an executor. The prefetched results are bounded by the page size, the logic's max page size, max results, max rows to scan, page byte trigger, and
+     * prefetch max bytes.
+     */
+    private void startPrefetch() {
+        if (executor == null || !this.logic.getPrefetchNextPage() || this.finished || this.canceled || future != null || prefetch != null) {
+            return;
+        }
+        
+        int maxCount = this.settings.getPagesize();
+        if (this.logic.getMaxPageSize() > 0) {
+            maxCount = Math.min(maxCount, this.logic.getMaxPageSize());
+        }
+        if (this.logic.getMaxResults() > 0) {
+            maxCount = (int) Math.min(maxCount, this.logic.getMaxResults() - numResults);
+        }
+        if (this.logic.getMaxRowsToScan() > 0) {
+            maxCount = (int) Math.min(maxCount, this.logic.getMaxRowsToScan() - scanned);
+        }
+        if (maxCount <= 0) {
+            return;
+        }
+        
+        long maxBytes = (this.logic.getPrefetchMaxBytes() > 0 ? this.logic.getPrefetchMaxBytes() : Long.MAX_VALUE);
+        if (this.logic.getPageByteTrigger() > 0) {
+            maxBytes = Math.min(maxBytes, this.logic.getPageByteTrigger());
+        }
+        
+        Prefetch prefetch = new Prefetch(maxCount, maxBytes);
+        this.prefetch = prefetch;
+        prefetch.start();
+    }
+    
+    /**
+     * Pull up to a page of results from the transform iterator. A null result (no more results) is included so that the consumer will mark the query as
+     * finished. The results are only sized when there is a byte bound to enforce.
+     * 
+     * @param maxCount
+     *            the max number of results to pull
+     * @param maxBytes
+     *            the max number of bytes of results to buffer, or Long.MAX_VALUE for no bound
+     * @param results
+     *            the queue to add the prefetched results to
+     */
+    private void prefetchPage(int maxCount, long maxBytes, BlockingQueue<PrefetchedResult> results) {
+        boolean sizeResults = (maxBytes != Long.MAX_VALUE);
+        int count = 0;
+        long bytes = 0;
+        while (!this.canceled && !Thread.currentThread().isInterrupted() && count < maxCount && bytes < maxBytes && this.iter.hasNext()) {
+            Object o = this.iter.next();
+            long size = (o != null && sizeResults ? ObjectSizeOf.Sizer.getObjectSize(o) : -1);
+            results.add(new PrefetchedResult(o, size));
+            if (o == null) {
+                break;
+            }
+            count++;
+            if (size > 0) {
+                bytes += size;
+            }
+        }
+    }
+    
+    /**
+     * Stop a background prefetch, waiting for it to stop using the iterator
+     */
+    private void stopPrefetch() {
+        Prefetch prefetch = this.prefetch;
+        if (prefetch != null) {
+            prefetch.stop();
+        }
+    }
+    
     public void cancel() {
         this.canceled = true;
         // save off the future as it could be removed at any time
@@ -334,6 +562,8 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
         if (future != null) {
             future.cancel(true);
         }
+        // stop any background prefetch
+        stopPrefetch();
         
         // change status to cancelled
         this.getMetric().setLifecycle(QueryMetric.Lifecycle.CANCELLED);
@@ -401,6 +631,9 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
     public void closeConnection(AccumuloConnectionFactory factory) throws Exception {
         this.getMetric().setLifecycle(BaseQueryMetric.Lifecycle.CLOSED);
         
+        // stop any background prefetch before the logic is closed out from under it
+        stopPrefetch();
+        
         if (iter != null && iter.getTransformer() instanceof WritesResultCardinalities) {
             ((WritesResultCardinalities) iter.getTransformer()).writeResultCardinalities();
         }
@@ -0,0 +1,55 @@
+package datawave.webservice.query.logic.composite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompositeQueryLogicResultsTest {
+    
+    @Test
+    public void testWeightedInterleaving() throws Exception {
+        CountDownLatch completionLatch = new CountDownLatch(2);
+        CompositeQueryLogicResults results = new CompositeQueryLogicResults(completionLatch);
+        int fast = results.addDelegate(10, 2);
+        int slow = results.addDelegate(10, 1);
+        for (int i = 0; i < 4; i++) {
+            results.add(fast, "fast" + i);
+        }
+        results.add(slow, "slow0");
+        completionLatch.countDown();
+        completionLatch.countDown();
+        
+        List<Object> ordered = new ArrayList<>();
+        Iterator<Object> iterator = results.iterator();
+        while (iterator.hasNext()) {
+            ordered.add(iterator.next());
+        }
+        Assert.assertEquals(Arrays.asList("fast0", "fast1", "slow0", "fast2", "fast3"), ordered);
+    }
+    
+    @Test
+    public void testEmptyDelegateIsSkipped() throws Exception {
+        CountDownLatch completionLatch = new CountDownLatch(2);
+        CompositeQueryLogicResults results = new CompositeQueryLogicResults(completionLatch);
+        results.addDelegate(10, 1);
+        int fast = results.addDelegate(10, 1);
+        results.add(fast, "fast0");
+        results.add(fast, "fast1");
+        
+        // the first delegate has not completed, but the results of the second are still returned
+        Iterator<Object> iterator = results.iterator();
+        Assert.assertTrue(iterator.hasNext());
+        Assert.assertEquals("fast0", iterator.next());
+        Assert.assertEquals("fast1", iterator.next());
+        
+        completionLatch.countDown();
+        completionLatch.countDown();
+        Assert.assertFalse(iterator.hasNext());
+        Assert.assertNull(iterator.next());
+    }
+}
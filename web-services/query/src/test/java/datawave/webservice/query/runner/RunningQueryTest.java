@@ -6,6 +6,7 @@ import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 import java.io.File;
 import java.net.MalformedURLException;
@@ -15,10 +16,15 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
 import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import datawave.security.authorization.DatawavePrincipal;
 import datawave.security.authorization.DatawaveUser;
@@ -27,6 +33,7 @@ import datawave.security.authorization.SubjectIssuerDNPair;
 import datawave.security.util.DnUtils.NpeUtils;
 import datawave.webservice.common.connection.AccumuloConnectionFactory;
 import datawave.webservice.query.QueryImpl;
+import datawave.webservice.query.cache.ResultsPage;
 import datawave.webservice.query.cache.QueryMetricFactoryImpl;
 import datawave.webservice.query.configuration.GenericQueryConfiguration;
 import datawave.webservice.query.logic.BaseQueryLogic;
@@ -185,4 +192,136 @@ public class RunningQueryTest {
             Assert.fail("NullPointer encountered. This could be caused by configuration being null. Check logic.initialize() ");
         }
     }
+    
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testPrefetchNextPage() throws Exception {
+        DatawaveUser user = new DatawaveUser(userDN, UserType.USER, null, null, null, 0L);
+        DatawavePrincipal principal = new DatawavePrincipal(Collections.singletonList(user));
+        
+        InMemoryInstance instance = new InMemoryInstance("test instance");
+        Connector connector = instance.getConnector("root", new PasswordToken(""));
+        
+        List<Object> results = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            results.add("result" + i);
+        }
+        
+        SampleGenericQueryConfiguration config = new SampleGenericQueryConfiguration();
+        expect(logic.initialize(anyObject(), anyObject(), anyObject())).andReturn(config);
+        logic.setupQuery(config);
+        expect(logic.getCollectQueryMetrics()).andReturn(Boolean.FALSE);
+        expect(logic.getTransformIterator(settings)).andReturn(new TransformIterator(results.iterator(), o -> o));
+        expect(logic.getMaxPageSize()).andReturn(0).anyTimes();
+        expect(logic.getPageByteTrigger()).andReturn(0L).anyTimes();
+        expect(logic.getMaxRowsToScan()).andReturn(0L).anyTimes();
+        expect(logic.getMaxResults()).andReturn(0L).anyTimes();
+        expect(logic.getPrefetchNextPage()).andReturn(true).anyTimes();
+        expect(logic.getPrefetchMaxBytes()).andReturn(0L).anyTimes();
+        replay(logic);
+        
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            RunningQuery query = new RunningQuery(connector, connectionPriority, logic, settings, methodAuths, principal, null, executor,
+                            new QueryMetricFactoryImpl());
+            
+            List<Object> returned = new ArrayList<>();
+            ResultsPage page = query.next();
+            assertEquals(10, page.getResults().size());
+            returned.addAll(page.getResults());
+            assertEquals(0, query.getMetric().getPrefetchedResults());
+            page = query.next();
+            assertEquals(10, page.getResults().size());
+            returned.addAll(page.getResults());
+            assertEquals(10, query.getMetric().getPrefetchedResults());
+            
+            // the full second page did not keep the third from being prefetched
+            page = query.next();
+            assertEquals(5, page.getResults().size());
+            returned.addAll(page.getResults());
+            assertEquals(15, query.getMetric().getPrefetchedResults());
+            page = query.next();
+            assertEquals(0, page.getResults().size());
+            
+            // everything after the first page was prefetched
+            assertEquals(results, returned);
+            assertEquals(15, query.getMetric().getPrefetchedResults());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testSlowPrefetch() throws Exception {
+        DatawaveUser user = new DatawaveUser(userDN, UserType.USER, null, null, null, 0L);
+        DatawavePrincipal principal = new DatawavePrincipal(Collections.singletonList(user));
+        
+        InMemoryInstance instance = new InMemoryInstance("test instance");
+        Connector connector = instance.getConnector("root", new PasswordToken(""));
+        
+        // returns 3 results, and then blocks until interrupted
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final AtomicBoolean inUse = new AtomicBoolean(false);
+        Iterator<Object> results = new Iterator<Object>() {
+            private int count = 0;
+            
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+            
+            @Override
+            public Object next() {
+                inUse.set(true);
+                try {
+                    if (count == 3) {
+                        blocked.countDown();
+                        new CountDownLatch(1).await();
+                    }
+                    return "result" + count++;
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    inUse.set(false);
+                }
+            }
+        };
+        
+        SampleGenericQueryConfiguration config = new SampleGenericQueryConfiguration();
+        expect(logic.initialize(anyObject(), anyObject(), anyObject())).andReturn(config);
+        logic.setupQuery(config);
+        expect(logic.getCollectQueryMetrics()).andReturn(Boolean.FALSE);
+        expect(logic.getTransformIterator(settings)).andReturn(new TransformIterator(results, o -> o));
+        expect(logic.getMaxPageSize()).andReturn(0).anyTimes();
+        expect(logic.getPageByteTrigger()).andReturn(0L).anyTimes();
+        expect(logic.getMaxRowsToScan()).andReturn(0L).anyTimes();
+        expect(logic.getMaxResults()).andReturn(0L).anyTimes();
+        expect(logic.getPrefetchNextPage()).andReturn(true).anyTimes();
+        expect(logic.getPrefetchMaxBytes()).andReturn(0L).anyTimes();
+        replay(logic);
+        
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // return a partial page as soon as it has results
+            RunningQuery query = new RunningQuery(connector, connectionPriority, logic, settings, methodAuths, principal,
+                            (pageSize, maxPageSize, timeInCall) -> true, executor, new QueryMetricFactoryImpl());
+            
+            ResultsPage page = query.next();
+            assertEquals(1, page.getResults().size());
+            
+            // the prefetch is blocked, but the results it already has are returned without waiting for it
+            blocked.await();
+            page = query.next();
+            assertEquals(ResultsPage.Status.PARTIAL, page.getStatus());
+            assertEquals(Arrays.asList("result1"), page.getResults());
+            page = query.next();
+            assertEquals(Arrays.asList("result2"), page.getResults());
+            
+            // cancelling waits for the prefetch to stop using the iterator
+            query.cancel();
+            assertFalse(inUse.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }